@@ -53,13 +53,17 @@ if not exist "lib\mysql-connector-java-8.0.33.jar" (
 
 REM Compile Java files
 echo Compiling Java files...
-javac -cp "lib\*" -d "bin" src\main\java\*.java src\main\java\com\banking\model\*.java src\main\java\com\banking\dao\*.java src\main\java\com\banking\service\*.java src\main\java\com\banking\util\*.java
+javac -cp "lib\*" -d "bin" src\main\java\*.java src\main\java\com\banking\model\*.java src\main\java\com\banking\dao\*.java src\main\java\com\banking\service\*.java src\main\java\com\banking\util\*.java src\main\java\com\banking\api\*.java src\main\java\com\banking\terminal\*.java src\main\java\com\banking\event\*.java src\main\java\com\banking\outbox\*.java src\main\java\com\banking\batch\*.java src\main\java\com\banking\statement\*.java src\main\java\com\banking\interest\*.java src\main\java\com\banking\scheduler\*.java src\main\java\com\banking\metrics\*.java src\main\java\com\banking\fraud\*.java src\main\java\com\banking\loadtest\*.java
 if errorlevel 1 (
     echo ERROR: Compilation failed
     pause
     exit /b 1
 )
 
+REM Flight Recorder events need JDK 11 or later; without them nothing is recorded
+javac -cp "lib\*;bin" -d "bin" src\jfr\java\com\banking\metrics\*.java >nul 2>&1
+if errorlevel 1 echo NOTE: Flight Recorder events not built, they need JDK 11 or later
+
 echo.
 echo Build successful! Running application...
 echo.
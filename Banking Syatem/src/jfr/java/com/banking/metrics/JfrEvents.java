@@ -0,0 +1,238 @@
+package com.banking.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * The jdk.jfr side of FlightRecorderEvents. Kept in its own source root
+ * because it needs JDK 11+ to compile; FlightRecorderEvents loads it by name
+ * once Flight Recorder is known to be present.
+ */
+final class JfrEvents implements FlightRecorderSink {
+    // Whether any recording is running; events are not even allocated otherwise
+    private static volatile boolean recording;
+    
+    JfrEvents() {
+    }
+    
+    @Override
+    public boolean install() {
+        if (!FlightRecorder.isAvailable()) {
+            return false;
+        }
+        FlightRecorder.register(DepositEvent.class);
+        FlightRecorder.register(WithdrawalEvent.class);
+        FlightRecorder.register(TransferEvent.class);
+        FlightRecorder.register(PinVerifyEvent.class);
+        FlightRecorder.register(HistoryLoadEvent.class);
+        FlightRecorder.register(SqlStatementEvent.class);
+        FlightRecorder.register(ConnectionAcquireEvent.class);
+        FlightRecorder.addListener(new FlightRecorderListener() {
+            @Override
+            public void recorderInitialized(FlightRecorder recorder) {
+                updateRecording(recorder);
+            }
+            
+            @Override
+            public void recordingStateChanged(Recording changed) {
+                updateRecording(FlightRecorder.getFlightRecorder());
+            }
+        });
+        return true;
+    }
+    
+    private static void updateRecording(FlightRecorder recorder) {
+        boolean running = false;
+        for (Recording candidate : recorder.getRecordings()) {
+            if (candidate.getState() == RecordingState.RUNNING) {
+                running = true;
+            }
+        }
+        recording = running;
+    }
+    
+    @Override
+    public boolean isRecording() {
+        return recording;
+    }
+    
+    @Override
+    public Object beginOperation(FlightRecorderEvents.Operation operation, long connectionWaitSoFar) {
+        OperationEvent event;
+        switch (operation) {
+            case DEPOSIT:
+                event = new DepositEvent();
+                break;
+            case WITHDRAWAL:
+                event = new WithdrawalEvent();
+                break;
+            case TRANSFER:
+                event = new TransferEvent();
+                break;
+            case PIN_VERIFY:
+                event = new PinVerifyEvent();
+                break;
+            default:
+                event = new HistoryLoadEvent();
+                break;
+        }
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.connectionWaitAtBegin = connectionWaitSoFar;
+        event.begin();
+        return event;
+    }
+    
+    @Override
+    public void endOperation(Object started, long accountHash, String amountBucket, long rows, String outcome,
+                             long connectionWaitSoFar) {
+        OperationEvent event = (OperationEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.accountHash = accountHash;
+            event.amountBucket = amountBucket;
+            event.rows = rows;
+            event.outcome = outcome;
+            event.connectionWait = connectionWaitSoFar - event.connectionWaitAtBegin;
+            event.commit();
+        }
+    }
+    
+    @Override
+    public Object beginStatement() {
+        SqlStatementEvent event = new SqlStatementEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+    
+    @Override
+    public void endStatement(Object started, String queryClass, String sql, long rows, String outcome) {
+        SqlStatementEvent event = (SqlStatementEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.queryClass = queryClass;
+            event.sql = sql;
+            event.rows = rows;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+    
+    @Override
+    public Object beginConnectionAcquire() {
+        ConnectionAcquireEvent event = new ConnectionAcquireEvent();
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+    
+    @Override
+    public void endConnectionAcquire(Object started, String queryClass, String outcome) {
+        ConnectionAcquireEvent event = (ConnectionAcquireEvent) started;
+        event.end();
+        if (event.shouldCommit()) {
+            event.queryClass = queryClass;
+            event.outcome = outcome;
+            event.commit();
+        }
+    }
+    
+    @Category({ "Banking", "Operations" })
+    @StackTrace(false)
+    abstract static class OperationEvent extends Event {
+        @Label("Account Hash")
+        @Description("Keyed hash of the account number")
+        long accountHash;
+        
+        @Label("Amount Bucket")
+        String amountBucket;
+        
+        @Label("Rows")
+        @Description("Rows returned, -1 if not applicable")
+        long rows;
+        
+        @Label("Connection Wait")
+        @Description("Time spent acquiring database connections")
+        @Timespan(Timespan.NANOSECONDS)
+        long connectionWait;
+        
+        @Label("Outcome")
+        String outcome;
+        
+        transient long connectionWaitAtBegin;
+    }
+    
+    @Name("com.banking.Deposit")
+    @Label("Deposit")
+    static final class DepositEvent extends OperationEvent {
+    }
+    
+    @Name("com.banking.Withdrawal")
+    @Label("Withdrawal")
+    static final class WithdrawalEvent extends OperationEvent {
+    }
+    
+    @Name("com.banking.Transfer")
+    @Label("Transfer")
+    @Description("Transfer; the account hash is the source account")
+    static final class TransferEvent extends OperationEvent {
+    }
+    
+    @Name("com.banking.PinVerify")
+    @Label("Login / PIN Verify")
+    @Description("PIN check; outcome is denied for a wrong PIN")
+    static final class PinVerifyEvent extends OperationEvent {
+    }
+    
+    @Name("com.banking.HistoryLoad")
+    @Label("History Load")
+    static final class HistoryLoadEvent extends OperationEvent {
+    }
+    
+    @Name("com.banking.SqlStatement")
+    @Label("SQL Statement")
+    @Description("Statement execution plus result fetching")
+    @Category({ "Banking", "Database" })
+    static final class SqlStatementEvent extends Event {
+        @Label("Query Class")
+        String queryClass;
+        
+        @Label("SQL")
+        String sql;
+        
+        @Label("Rows")
+        @Description("Rows returned or affected, -1 if unknown")
+        long rows;
+        
+        @Label("Outcome")
+        String outcome;
+    }
+    
+    @Name("com.banking.ConnectionAcquire")
+    @Label("Connection Acquire")
+    @Description("Wait for a circuit-breaker permit, a bulkhead slot and a new connection")
+    @Category({ "Banking", "Database" })
+    @StackTrace(false)
+    static final class ConnectionAcquireEvent extends Event {
+        @Label("Query Class")
+        String queryClass;
+        
+        @Label("Outcome")
+        String outcome;
+    }
+}
@@ -0,0 +1,99 @@
+package com.banking.benchmark;
+
+import com.banking.model.Account;
+import com.banking.service.BankingService;
+import com.banking.service.PartitionedExecutor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the synchronous optimistic-locking path of BankingService with the
+ * single-writer partitioned executor. Runs against the database configured in
+ * DatabaseConnection and moves one cent per operation between existing active accounts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+public class ExecutionModelBenchmark {
+    private static final BigDecimal ONE_CENT = new BigDecimal("0.01");
+
+    @State(Scope.Benchmark)
+    public static class Bank {
+        @Param({"synchronous", "partitioned"})
+        public String mode;
+
+        @Param({"4"})
+        public int partitions;
+
+        BankingService service;
+        PartitionedExecutor executor;
+        String[] accountNumbers;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            service = new BankingService();
+            List<String> numbers = new ArrayList<>();
+            for (Account account : service.getAllAccounts()) {
+                if (account.isActive()) {
+                    numbers.add(account.getAccountNumber());
+                }
+            }
+            if (numbers.size() < 2) {
+                throw new IllegalStateException("Benchmark needs at least two active accounts");
+            }
+            accountNumbers = numbers.toArray(new String[0]);
+            if ("partitioned".equals(mode)) {
+                executor = service.enablePartitionedExecution(partitions, PartitionedExecutor.DEFAULT_RING_SIZE);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            if (executor != null) {
+                System.out.printf("%nthroughput %.0f ops/s, queue depths %s%n",
+                                  executor.getThroughputPerSecond(), Arrays.toString(executor.getQueueDepths()));
+                service.disablePartitionedExecution();
+            }
+        }
+
+        String randomAccount() {
+            return accountNumbers[ThreadLocalRandom.current().nextInt(accountNumbers.length)];
+        }
+    }
+
+    @Benchmark
+    public Account deposit(Bank bank) throws Exception {
+        return bank.service.depositMoney(bank.randomAccount(), ONE_CENT, "Benchmark deposit");
+    }
+
+    @Benchmark
+    public BankingService.TransferResult transfer(Bank bank) throws Exception {
+        String from = bank.randomAccount();
+        String to = bank.randomAccount();
+        while (to.equals(from)) {
+            to = bank.randomAccount();
+        }
+        return bank.service.transferMoney(from, to, ONE_CENT, "Benchmark transfer");
+    }
+}
@@ -0,0 +1,833 @@
+package com.banking.api;
+
+import com.banking.event.AccountBalanceChanged;
+import com.banking.event.BankingEvent;
+import com.banking.event.EventBus;
+import com.banking.event.EventSubscription;
+import com.banking.event.TransactionPosted;
+import com.banking.fraud.FraudScorer;
+import com.banking.metrics.LatencyHistogram;
+import com.banking.metrics.MetricsRegistry;
+import com.banking.metrics.MetricsReporter;
+import com.banking.metrics.Timer;
+import com.banking.model.Account;
+import com.banking.model.AccountSummary;
+import com.banking.model.TransactionHistoryEntry;
+import com.banking.service.AdmissionController;
+import com.banking.service.BankingService;
+import com.banking.service.OverloadedException;
+import com.banking.service.PinLockedException;
+import com.banking.service.RequestInProgressException;
+import com.banking.util.Bulkhead;
+import com.banking.util.CircuitBreaker;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+import com.banking.util.SlowQueryLog;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP/JSON API over BankingService.
+ *
+ * Routes:
+ * <pre>
+ * GET  /accounts?afterId=&amp;limit=                      account summaries, keyset paged      admin
+ * GET  /accounts/{number}                             account details                      needs X-Account-Pin
+ * GET  /accounts/{number}/balance                     balance                              needs X-Account-Pin
+ * GET  /accounts/{number}/history?beforeDate=&amp;beforeId=&amp;limit=   history page          needs X-Account-Pin
+ * GET  /accounts/{number}/transactions                full history, streamed               needs X-Account-Pin
+ * POST /accounts/{number}/deposit   {"amount", "description"}            account in the reply only with X-Account-Pin
+ * POST /accounts/{number}/withdraw  {"amount", "description"}            needs X-Account-Pin
+ * POST /transfers {"fromAccount", "toAccount", "amount", "description"}  needs X-Account-Pin
+ * GET  /customers/{id}/accounts                       a customer's accounts                admin, or X-Account-Number
+ *                                                     and X-Account-Pin of one of the customer's accounts
+ * GET  /events?account=                               Server-Sent Events feed of balance   needs X-Account-Pin;
+ *                                                     changes                              admin without account
+ * GET  /metrics                                      timers per service method, SQL statement and
+ *                                                     connection acquire, latencies in microseconds
+ * GET  /metrics/slow-queries?limit=                   slow-query log, statements with most slow time first,
+ *                                                     admin
+ * </pre>
+ * Admin routes need an X-Admin-Token header matching -Dbanking.api.adminToken
+ * and answer 403 when no token is configured. Failed PINs count towards a
+ * per-account lockout, answered with 429. Money movements honour an
+ * Idempotency-Key header. Each request runs on its
+ * own virtual thread when the JDK has them (21+), otherwise on a fixed pool.
+ * Connections are kept alive between requests. An event stream holds its
+ * thread for as long as the client stays connected, which matters only on
+ * the fixed-pool fallback.
+ */
+public class ApiServer {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_POOL_THREADS = 64;
+    
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    private static final String PIN_HEADER = "X-Account-Pin";
+    private static final String ACCOUNT_HEADER = "X-Account-Number";
+    private static final String ADMIN_TOKEN_HEADER = "X-Admin-Token";
+    private static final String IDEMPOTENCY_HEADER = "Idempotency-Key";
+    private static final int EVENT_QUEUE_CAPACITY = 256;
+    private static final int EVENT_KEEPALIVE_SECONDS = 15;
+    
+    private final BankingService bankingService;
+    private final byte[] adminToken;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    
+    public ApiServer(BankingService bankingService, int port) throws IOException {
+        this(bankingService, port, DEFAULT_POOL_THREADS);
+    }
+    
+    /**
+     * @param bankingService Service the API delegates to
+     * @param port TCP port to listen on
+     * @param poolThreads Worker threads when virtual threads are not available
+     * @throws IOException if the port cannot be bound
+     */
+    public ApiServer(BankingService bankingService, int port, int poolThreads) throws IOException {
+        this.bankingService = bankingService;
+        String token = System.getProperty("banking.api.adminToken");
+        this.adminToken = token == null || token.isEmpty() ? null : token.getBytes(StandardCharsets.UTF_8);
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.executor = newRequestExecutor(poolThreads);
+        server.setExecutor(executor);
+        server.createContext("/accounts", exchange -> dispatch(exchange, this::routeAccounts));
+        server.createContext("/transfers", exchange -> dispatch(exchange, this::routeTransfers));
+        server.createContext("/customers", exchange -> dispatch(exchange, this::routeCustomers));
+        server.createContext("/events", exchange -> dispatch(exchange, this::routeEvents));
+        server.createContext("/metrics", exchange -> dispatch(exchange, this::routeMetrics));
+    }
+    
+    /**
+     * Create one virtual thread per request where the JDK supports it
+     */
+    static ExecutorService newRequestExecutor(int poolThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            final AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(poolThreads, runnable -> {
+                Thread thread = new Thread(runnable, "api-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    /**
+     * Stop accepting requests and wait up to the given delay for running ones
+     * @param delaySeconds Seconds to wait for in-flight requests
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        // Event streams only end when interrupted
+        executor.shutdownNow();
+    }
+    
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+    
+    // Routing
+    
+    private void routeAccounts(HttpExchange exchange, String[] path) throws IOException, SQLException {
+        if (path.length == 1) {
+            requireMethod(exchange, "GET");
+            requireAdmin(exchange);
+            listAccounts(exchange);
+            return;
+        }
+        String accountNumber = path[1];
+        String action = path.length == 3 ? path[2] : path.length == 2 ? "" : null;
+        if (action == null) {
+            throw new ApiException(404, "Not found");
+        }
+        switch (action) {
+            case "":
+                requireMethod(exchange, "GET");
+                requirePin(exchange, accountNumber);
+                Account account = bankingService.getAccountDetails(accountNumber);
+                sendJson(exchange, 200, json -> writeAccount(json, account));
+                break;
+            case "balance":
+                requireMethod(exchange, "GET");
+                requirePin(exchange, accountNumber);
+                BigDecimal balance = bankingService.getAccountBalance(accountNumber);
+                sendJson(exchange, 200, json -> json.beginObject()
+                    .name("accountNumber").value(accountNumber)
+                    .name("balance").value(balance)
+                    .endObject());
+                break;
+            case "history":
+                requireMethod(exchange, "GET");
+                requirePin(exchange, accountNumber);
+                historyPage(exchange, accountNumber);
+                break;
+            case "transactions":
+                requireMethod(exchange, "GET");
+                requirePin(exchange, accountNumber);
+                fullHistory(exchange, accountNumber);
+                break;
+            case "deposit":
+                requireMethod(exchange, "POST");
+                deposit(exchange, accountNumber);
+                break;
+            case "withdraw":
+                requireMethod(exchange, "POST");
+                withdraw(exchange, accountNumber);
+                break;
+            default:
+                throw new ApiException(404, "Not found");
+        }
+    }
+    
+    private void routeTransfers(HttpExchange exchange, String[] path) throws IOException, SQLException {
+        if (path.length != 1) {
+            throw new ApiException(404, "Not found");
+        }
+        requireMethod(exchange, "POST");
+        Map<String, String> body = readBody(exchange);
+        String fromAccount = required(body, "fromAccount");
+        String toAccount = required(body, "toAccount");
+        requirePin(exchange, fromAccount);
+        
+        BankingService.TransferResult result = bankingService.transferMoney(fromAccount, toAccount,
+            amount(body), body.get("description"), idempotencyKey(exchange));
+        sendJson(exchange, 200, json -> {
+            json.beginObject().name("amount").value(result.getAmount());
+            json.name("fromAccount");
+            writeAccount(json, result.getFromAccount());
+            json.name("toAccount");
+            writeAccount(json, result.getToAccount());
+            json.endObject();
+        });
+    }
+    
+    private void routeCustomers(HttpExchange exchange, String[] path) throws IOException, SQLException {
+        if (path.length != 3 || !path[2].equals("accounts")) {
+            throw new ApiException(404, "Not found");
+        }
+        requireMethod(exchange, "GET");
+        int customerId = intParam(path[1], "customer ID");
+        if (!isAdmin(exchange)) {
+            // A customer proves who they are with the PIN of one of their accounts
+            String accountNumber = exchange.getRequestHeaders().getFirst(ACCOUNT_HEADER);
+            if (accountNumber == null) {
+                throw new ApiException(401, "Admin token or account credentials required");
+            }
+            requirePin(exchange, accountNumber);
+            if (bankingService.getAccountDetails(accountNumber).getCustomerId() != customerId) {
+                throw new ApiException(403, "Forbidden");
+            }
+        }
+        List<Account> accounts = bankingService.getCustomerAccounts(customerId);
+        sendJson(exchange, 200, json -> {
+            json.beginArray();
+            for (Account account : accounts) {
+                writeAccount(json, account);
+            }
+            json.endArray();
+        });
+    }
+    
+    private void routeEvents(HttpExchange exchange, String[] path) throws IOException, SQLException {
+        if (path.length != 1) {
+            throw new ApiException(404, "Not found");
+        }
+        requireMethod(exchange, "GET");
+        Map<String, String> query = queryParams(exchange);
+        Integer accountId = null;
+        if (query.containsKey("account")) {
+            String accountNumber = query.get("account");
+            requirePin(exchange, accountNumber);
+            accountId = bankingService.getAccountDetails(accountNumber).getAccountId();
+        } else {
+            // The unfiltered feed carries every account's balance
+            requireAdmin(exchange);
+        }
+        streamEvents(exchange, accountId);
+    }
+    
+    private void routeMetrics(HttpExchange exchange, String[] path) throws IOException, SQLException {
+        if (path.length == 2 && path[1].equals("slow-queries")) {
+            requireMethod(exchange, "GET");
+            requireAdmin(exchange);
+            slowQueries(exchange);
+            return;
+        }
+        if (path.length != 1) {
+            throw new ApiException(404, "Not found");
+        }
+        requireMethod(exchange, "GET");
+        AdmissionController admission = bankingService.getAdmissionController();
+        FraudScorer scorer = bankingService.getFraudScorer();
+        sendJson(exchange, 200, json -> {
+            json.beginObject().name("admission");
+            if (admission == null) {
+                json.nullValue();
+            } else {
+                json.beginObject()
+                    .name("limit").value(admission.getLimit())
+                    .name("inFlight").value(admission.getInFlight())
+                    .name("limitDecreases").value(admission.getLimitDecreases())
+                    .name("shed").value(admission.getShed())
+                    .name("operations").beginObject();
+                for (AdmissionController.Operation operation : AdmissionController.Operation.values()) {
+                    json.name(operation.name()).beginObject()
+                        .name("admitted").value(admission.getAdmitted(operation))
+                        .name("inFlight").value(admission.getInFlight(operation))
+                        .name("shed").beginObject();
+                    for (AdmissionController.ShedReason reason : AdmissionController.ShedReason.values()) {
+                        json.name(reason.name()).value(admission.getShed(operation, reason));
+                    }
+                    json.endObject().endObject();
+                }
+                json.endObject().endObject();
+            }
+            json.name("timers").beginObject();
+            for (Timer timer : MetricsRegistry.getTimers().values()) {
+                json.name(timer.getName()).beginObject()
+                    .name("rejected").value(timer.getRejected())
+                    .name("errors").value(timer.getErrors())
+                    .name("latency");
+                writeLatency(json, timer.getLatency().snapshot());
+                json.endObject();
+            }
+            json.endObject();
+            
+            CircuitBreaker breaker = DatabaseConnection.getCircuitBreaker();
+            json.name("database").beginObject()
+                .name("circuitState").value(breaker.getState())
+                .name("circuitTrips").value(breaker.getTrips())
+                .name("circuitRejected").value(breaker.getRejected())
+                .name("bulkheads").beginObject();
+            for (QueryClass queryClass : QueryClass.values()) {
+                Bulkhead bulkhead = DatabaseConnection.getBulkhead(queryClass);
+                json.name(queryClass.getValue()).beginObject()
+                    .name("inUse").value(bulkhead.getInUse())
+                    .name("max").value(queryClass.getMaxConnections())
+                    .name("waiting").value(bulkhead.getQueueLength())
+                    .name("rejected").value(bulkhead.getRejected())
+                    .name("queryTimeoutSeconds").value(queryClass.getQueryTimeoutSeconds())
+                    .endObject();
+            }
+            json.endObject().endObject();
+            json.name("fraudScoring");
+            if (scorer == null) {
+                json.nullValue();
+            } else {
+                json.beginObject()
+                    .name("scored").value(scorer.getScored())
+                    .name("escalated").value(scorer.getEscalated())
+                    .name("declined").value(scorer.getDeclined())
+                    .name("asyncChecks").value(scorer.getAsyncChecks())
+                    .name("flaggedForReview").value(scorer.getFlaggedForReview())
+                    .name("budgetExceeded").value(scorer.getBudgetExceeded())
+                    .name("checkFailures").value(scorer.getCheckFailures())
+                    .name("latency");
+                writeLatency(json, scorer.getLatency().snapshot());
+                json.endObject();
+            }
+            json.endObject();
+        });
+    }
+    
+    private void slowQueries(HttpExchange exchange) throws IOException {
+        List<SlowQueryLog.StatementStats> statements = SlowQueryLog.getTopStatements(pageSize(queryParams(exchange)));
+        sendJson(exchange, 200, json -> {
+            json.beginObject()
+                .name("enabled").value(SlowQueryLog.isEnabled())
+                .name("statements").beginArray();
+            for (SlowQueryLog.StatementStats stats : statements) {
+                json.beginObject()
+                    .name("sql").value(stats.getSql())
+                    .name("count").value(stats.getCount())
+                    .name("totalMicros").value(TimeUnit.NANOSECONDS.toMicros(stats.getTotalNanos()))
+                    .name("maxMicros").value(TimeUnit.NANOSECONDS.toMicros(stats.getMaxNanos()))
+                    .name("maxRows").value(stats.getMaxRows())
+                    .name("lastParameters").value(stats.getLastParameters())
+                    .name("plan").value(stats.getPlan())
+                    .endObject();
+            }
+            json.endArray().endObject();
+        });
+    }
+    
+    // Operations
+    
+    private void listAccounts(HttpExchange exchange) throws IOException, SQLException {
+        Map<String, String> query = queryParams(exchange);
+        int afterId = query.containsKey("afterId") ? intParam(query.get("afterId"), "afterId") : 0;
+        int limit = pageSize(query);
+        List<AccountSummary> summaries = bankingService.getAccountSummaries(afterId, limit);
+        
+        streamJson(exchange, json -> {
+            json.beginObject().name("accounts").beginArray();
+            for (AccountSummary summary : summaries) {
+                json.beginObject()
+                    .name("accountId").value(summary.getAccountId())
+                    .name("accountNumber").value(summary.getAccountNumber())
+                    .name("customerId").value(summary.getCustomerId())
+                    .name("customerName").value(summary.getCustomerName())
+                    .name("accountType").value(summary.getAccountType())
+                    .name("balance").value(summary.getBalance())
+                    .name("status").value(summary.getStatus())
+                    .endObject();
+            }
+            json.endArray().name("nextAfterId");
+            if (summaries.size() == limit) {
+                json.value(summaries.get(summaries.size() - 1).getAccountId());
+            } else {
+                json.nullValue();
+            }
+            json.endObject();
+        });
+    }
+    
+    private void historyPage(HttpExchange exchange, String accountNumber) throws IOException, SQLException {
+        Map<String, String> query = queryParams(exchange);
+        Timestamp beforeDate = null;
+        int beforeId = 0;
+        if (query.containsKey("beforeDate")) {
+            try {
+                beforeDate = Timestamp.from(Instant.parse(query.get("beforeDate")));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("beforeDate must be an ISO-8601 instant");
+            }
+            beforeId = intParam(required(query, "beforeId"), "beforeId");
+        }
+        int limit = pageSize(query);
+        List<TransactionHistoryEntry> entries =
+            bankingService.getTransactionHistoryPage(accountNumber, beforeDate, beforeId, limit);
+        
+        streamJson(exchange, json -> {
+            json.beginObject().name("entries").beginArray();
+            for (TransactionHistoryEntry entry : entries) {
+                writeHistoryEntry(json, entry);
+            }
+            json.endArray().name("next");
+            if (entries.size() == limit) {
+                TransactionHistoryEntry last = entries.get(entries.size() - 1);
+                json.beginObject()
+                    .name("beforeDate").value(last.getTransactionDate())
+                    .name("beforeId").value(last.getTransactionId())
+                    .endObject();
+            } else {
+                json.nullValue();
+            }
+            json.endObject();
+        });
+    }
+    
+    /**
+     * Stream the whole history, newest first, one page at a time so that only
+     * a page is ever held in memory
+     */
+    private void fullHistory(HttpExchange exchange, String accountNumber) throws IOException, SQLException {
+        // Fetch the first page before the headers go out, so a missing account is still a 404
+        List<TransactionHistoryEntry> first =
+            bankingService.getTransactionHistoryPage(accountNumber, null, 0, MAX_PAGE_SIZE);
+        streamJson(exchange, json -> {
+            json.beginArray();
+            List<TransactionHistoryEntry> page = first;
+            while (true) {
+                for (TransactionHistoryEntry entry : page) {
+                    writeHistoryEntry(json, entry);
+                }
+                if (page.size() < MAX_PAGE_SIZE) {
+                    break;
+                }
+                TransactionHistoryEntry last = page.get(page.size() - 1);
+                json.flush();
+                page = bankingService.getTransactionHistoryPage(accountNumber, last.getTransactionDate(),
+                                                                last.getTransactionId(), MAX_PAGE_SIZE);
+            }
+            json.endArray();
+        });
+    }
+    
+    /**
+     * Anyone may deposit, but only the account holder sees the account in the reply
+     */
+    private void deposit(HttpExchange exchange, String accountNumber) throws IOException, SQLException {
+        Map<String, String> body = readBody(exchange);
+        BigDecimal amount = amount(body);
+        boolean holder = exchange.getRequestHeaders().getFirst(PIN_HEADER) != null;
+        if (holder) {
+            requirePin(exchange, accountNumber);
+        }
+        Account account = bankingService.depositMoney(accountNumber, amount, body.get("description"),
+                                                      idempotencyKey(exchange));
+        if (holder) {
+            sendJson(exchange, 200, json -> writeAccount(json, account));
+        } else {
+            sendJson(exchange, 200, json -> json.beginObject()
+                .name("accountNumber").value(accountNumber)
+                .name("amount").value(amount)
+                .name("status").value("posted")
+                .endObject());
+        }
+    }
+    
+    private void withdraw(HttpExchange exchange, String accountNumber) throws IOException, SQLException {
+        Map<String, String> body = readBody(exchange);
+        requirePin(exchange, accountNumber);
+        Account account = bankingService.withdrawMoney(accountNumber, amount(body), body.get("description"),
+                                                       idempotencyKey(exchange));
+        sendJson(exchange, 200, json -> writeAccount(json, account));
+    }
+    
+    /**
+     * Stream events until the client disconnects. Balance changes coalesce per
+     * account when the client falls behind; any other loss is announced with an
+     * "overflow" event so the client can re-read what it shows.
+     */
+    private void streamEvents(HttpExchange exchange, Integer accountId) throws IOException {
+        EventBus eventBus = bankingService.getEventBus();
+        try (EventSubscription subscription = eventBus.subscribe(EVENT_QUEUE_CAPACITY,
+                                                                 EventBus.OverflowPolicy.COALESCE, accountId)) {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+            exchange.sendResponseHeaders(200, 0);
+            Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+            long reportedDrops = 0;
+            
+            while (true) {
+                BankingEvent event = subscription.poll(EVENT_KEEPALIVE_SECONDS, TimeUnit.SECONDS);
+                long drops = subscription.getDroppedCount();
+                if (drops != reportedDrops) {
+                    writer.write("event: overflow\ndata: {\"dropped\":" + drops + "}\n\n");
+                    reportedDrops = drops;
+                }
+                if (event == null) {
+                    writer.write(": keepalive\n\n");
+                } else {
+                    writer.write("id: " + event.getSequence() + "\nevent: " + event.getType() + "\ndata: ");
+                    writeEvent(new JsonWriter(writer), event);
+                    writer.write("\n\n");
+                }
+                writer.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // JSON mapping
+    
+    private static void writeEvent(JsonWriter json, BankingEvent event) throws IOException {
+        json.beginObject().name("sequence").value(event.getSequence());
+        if (event instanceof AccountBalanceChanged) {
+            AccountBalanceChanged change = (AccountBalanceChanged) event;
+            json.name("accountNumber").value(change.getAccountNumber())
+                .name("balance").value(change.getBalance())
+                .name("version").value(change.getVersion());
+        } else if (event instanceof TransactionPosted) {
+            TransactionPosted posted = (TransactionPosted) event;
+            json.name("type").value(posted.getTransactionType())
+                .name("fromAccount").value(posted.getFromAccountNumber())
+                .name("toAccount").value(posted.getToAccountNumber())
+                .name("amount").value(posted.getAmount())
+                .name("description").value(posted.getDescription());
+        }
+        json.name("occurredAt").value(event.getOccurredAt()).endObject();
+    }
+    
+    private static void writeLatency(JsonWriter json, LatencyHistogram.Snapshot snapshot) throws IOException {
+        json.beginObject()
+            .name("count").value(snapshot.getCount())
+            .name("p50").value(snapshot.getValueAtPercentile(50.0) / 1000)
+            .name("p90").value(snapshot.getValueAtPercentile(90.0) / 1000)
+            .name("p99").value(snapshot.getValueAtPercentile(99.0) / 1000)
+            .name("p999").value(snapshot.getValueAtPercentile(99.9) / 1000)
+            .name("max").value(snapshot.getMaxNanos() / 1000)
+            .endObject();
+    }
+    
+    private static void writeAccount(JsonWriter json, Account account) throws IOException {
+        json.beginObject()
+            .name("accountId").value(account.getAccountId())
+            .name("accountNumber").value(account.getAccountNumber())
+            .name("customerId").value(account.getCustomerId())
+            .name("accountType").value(account.getAccountType())
+            .name("balance").value(account.getBalance())
+            .name("status").value(account.getStatus())
+            .name("createdAt").value(account.getCreatedAt())
+            .endObject();
+    }
+    
+    private static void writeHistoryEntry(JsonWriter json, TransactionHistoryEntry entry) throws IOException {
+        json.beginObject()
+            .name("transactionId").value(entry.getTransactionId())
+            .name("type").value(entry.getTransactionType())
+            .name("amount").value(entry.getAmount())
+            .name("description").value(entry.getDescription())
+            .name("date").value(entry.getTransactionDate())
+            .name("fromAccount").value(entry.getFromAccount())
+            .name("toAccount").value(entry.getToAccount())
+            .name("fromCustomer").value(entry.getFromCustomer())
+            .name("toCustomer").value(entry.getToCustomer())
+            .endObject();
+    }
+    
+    // Request handling
+    
+    private interface Route {
+        void handle(HttpExchange exchange, String[] path) throws IOException, SQLException;
+    }
+    
+    private interface JsonBody {
+        void write(JsonWriter json) throws IOException;
+    }
+    
+    /**
+     * Streamed body that may keep querying while it writes
+     */
+    private interface StreamedJsonBody {
+        void write(JsonWriter json) throws IOException, SQLException;
+    }
+    
+    /**
+     * Error with a specific HTTP status
+     */
+    private static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        private final int status;
+        
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+    
+    private void dispatch(HttpExchange exchange, Route route) {
+        try {
+            String[] path = pathSegments(exchange);
+            // Contexts match by prefix, so /accountsX would otherwise reach /accounts
+            if (path.length == 0 || !exchange.getHttpContext().getPath().equals("/" + path[0])) {
+                throw new ApiException(404, "Not found");
+            }
+            route.handle(exchange, path);
+        } catch (ApiException e) {
+            sendError(exchange, e.status, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            String message = e.getMessage() != null ? e.getMessage() : "Invalid request";
+            sendError(exchange, message.contains("not found") ? 404 : 400, message);
+        } catch (OverloadedException e) {
+            long seconds = (e.getRetryAfterMillis() + 999) / 1000;
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(seconds));
+            sendError(exchange, 503, e.getMessage());
+        } catch (PinLockedException e) {
+            long seconds = (e.getRetryAfterMillis() + 999) / 1000;
+            exchange.getResponseHeaders().set("Retry-After", String.valueOf(seconds));
+            sendError(exchange, 429, e.getMessage());
+        } catch (RequestInProgressException e) {
+            sendError(exchange, 409, e.getMessage());
+        } catch (IllegalStateException e) {
+            // The service is not in a state to run the request, e.g. an executor is shutting down
+            System.err.println("API request rejected: " + e.getMessage());
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, e.getMessage());
+        } catch (SQLException e) {
+            if ("40001".equals(e.getSQLState())) {
+                sendError(exchange, 409, "Account is busy, please retry");
+            } else if (e instanceof SQLTransientConnectionException) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Database unavailable, please retry");
+            } else {
+                System.err.println("API database error: " + e.getMessage());
+                sendError(exchange, 500, "Database error");
+            }
+        } catch (IOException e) {
+            // Client went away mid-response
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private static String[] pathSegments(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        String trimmed = path.replaceAll("^/+|/+$", "");
+        return trimmed.isEmpty() ? new String[0] : trimmed.split("/+");
+    }
+    
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!method.equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Allow", method);
+            throw new ApiException(405, "Method not allowed");
+        }
+    }
+    
+    private void requirePin(HttpExchange exchange, String accountNumber) throws SQLException {
+        String pin = exchange.getRequestHeaders().getFirst(PIN_HEADER);
+        if (pin == null || !bankingService.verifyPin(accountNumber, pin)) {
+            throw new ApiException(401, "Invalid account number or PIN");
+        }
+    }
+    
+    private void requireAdmin(HttpExchange exchange) {
+        if (adminToken == null) {
+            throw new ApiException(403, "Admin access is not configured");
+        }
+        if (!isAdmin(exchange)) {
+            throw new ApiException(401, "Invalid admin token");
+        }
+    }
+    
+    private boolean isAdmin(HttpExchange exchange) {
+        String token = exchange.getRequestHeaders().getFirst(ADMIN_TOKEN_HEADER);
+        // Constant-time comparison, so response timing does not give the token away
+        return adminToken != null && token != null
+            && MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String idempotencyKey(HttpExchange exchange) {
+        return exchange.getRequestHeaders().getFirst(IDEMPOTENCY_HEADER);
+    }
+    
+    private static Map<String, String> readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                body.write(buffer, 0, read);
+                if (body.size() > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body too large");
+                }
+            }
+        }
+        return JsonObjectReader.parse(new String(body.toByteArray(), StandardCharsets.UTF_8));
+    }
+    
+    private static Map<String, String> queryParams(HttpExchange exchange) throws UnsupportedEncodingException {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            params.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+        }
+        return params;
+    }
+    
+    private static String required(Map<String, String> values, String name) {
+        String value = values.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing required field: " + name);
+        }
+        return value.trim();
+    }
+    
+    private static BigDecimal amount(Map<String, String> body) {
+        try {
+            return new BigDecimal(required(body, "amount"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid amount: " + body.get("amount"));
+        }
+    }
+    
+    private static int intParam(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+    
+    private static int pageSize(Map<String, String> query) {
+        if (!query.containsKey("limit")) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        int limit = intParam(query.get("limit"), "limit");
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+    
+    /**
+     * Send a small JSON response with a known length
+     */
+    private static void sendJson(HttpExchange exchange, int status, JsonBody body) throws IOException {
+        StringWriter buffer = new StringWriter();
+        body.write(new JsonWriter(buffer));
+        byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+    
+    /**
+     * Stream a JSON response with chunked encoding as it is written
+     */
+    private static void streamJson(HttpExchange exchange, StreamedJsonBody body) throws IOException, SQLException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8);
+        JsonWriter json = new JsonWriter(writer);
+        body.write(json);
+        json.flush();
+    }
+    
+    private static void sendError(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            // Headers already sent: the truncated body is all the client gets
+            return;
+        }
+        try {
+            sendJson(exchange, status, json -> json.beginObject().name("error").value(message).endObject());
+        } catch (IOException e) {
+            // Client went away
+        }
+    }
+    
+    /**
+     * Run the API server until the process is stopped
+     * @param args Optional port (default 8080)
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final ApiServer apiServer = new ApiServer(new BankingService(), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> apiServer.stop(2)));
+        apiServer.start();
+        MetricsReporter.startIfConfigured();
+        System.out.println("Banking API listening on port " + apiServer.getPort());
+    }
+}
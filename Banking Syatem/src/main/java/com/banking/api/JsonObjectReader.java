@@ -0,0 +1,151 @@
+package com.banking.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Parser for the flat JSON objects accepted as request bodies.
+ * Member values may be strings, numbers, booleans or null; nested objects and
+ * arrays are rejected. Every value is returned as its text (null stays null).
+ */
+public final class JsonObjectReader {
+    private final String text;
+    private int position;
+    
+    private JsonObjectReader(String text) {
+        this.text = text;
+    }
+    
+    /**
+     * Parse a flat JSON object
+     * @param text Request body
+     * @return Member names mapped to their values as text
+     * @throws IllegalArgumentException if the body is not a flat JSON object
+     */
+    public static Map<String, String> parse(String text) {
+        JsonObjectReader reader = new JsonObjectReader(text == null ? "" : text);
+        Map<String, String> members = reader.readObject();
+        reader.skipWhitespace();
+        if (reader.position != reader.text.length()) {
+            throw reader.error("Unexpected content after object");
+        }
+        return members;
+    }
+    
+    private Map<String, String> readObject() {
+        Map<String, String> members = new LinkedHashMap<>();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return members;
+        }
+        while (true) {
+            skipWhitespace();
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            members.put(name, readValue());
+            skipWhitespace();
+            char c = next();
+            if (c == '}') {
+                return members;
+            }
+            if (c != ',') {
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+    
+    private String readValue() {
+        char c = peek();
+        if (c == '"') {
+            return readString();
+        }
+        if (c == '{' || c == '[') {
+            throw error("Nested values are not supported");
+        }
+        int start = position;
+        while (position < text.length() && "-+.eE0123456789truefalsn".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        String literal = text.substring(start, position);
+        if (literal.isEmpty()) {
+            throw error("Expected a value");
+        }
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (!literal.equals("true") && !literal.equals("false")
+                && !literal.matches("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][-+]?\\d+)?")) {
+            throw error("Invalid literal: " + literal);
+        }
+        return literal;
+    }
+    
+    private String readString() {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (true) {
+            char c = next();
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            char escaped = next();
+            switch (escaped) {
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("Truncated escape");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Invalid escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+            }
+        }
+    }
+    
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+    
+    private char peek() {
+        if (position >= text.length()) {
+            throw error("Unexpected end of input");
+        }
+        return text.charAt(position);
+    }
+    
+    private char next() {
+        char c = peek();
+        position++;
+        return c;
+    }
+    
+    private void expect(char expected) {
+        if (next() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+    }
+    
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid JSON at position " + position + ": " + message);
+    }
+}
@@ -0,0 +1,284 @@
+package com.banking.batch;
+
+import com.banking.batch.PaymentRecordParser.ParsedRecord;
+import com.banking.model.BulkPayment;
+import com.banking.service.BankingService;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads bulk deposit and transfer files through
+ * {@link BankingService#postBulkPayments(List)}.
+ *
+ * The file is split into fixed-size chunks that are memory-mapped and parsed
+ * in parallel; a line belongs to the chunk holding its first byte. Chunks are
+ * posted in file order by the calling thread, one database transaction per
+ * batch, and only a few chunks are parsed ahead, so heap use depends on the
+ * chunk size and parallelism rather than on the file size.
+ *
+ * Rejected lines are copied unchanged to the reject file, each preceded by a
+ * "# offset N: reason" comment, so the file can be corrected and loaded again.
+ *
+ * Usage: BulkPaymentIngester file [csv|fixed] [reject-file] [start-offset]
+ */
+public class BulkPaymentIngester {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final int DEFAULT_CHUNK_BYTES = 1 << 20;
+    
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    
+    private final BankingService bankingService;
+    private final int parallelism;
+    private final int batchSize;
+    private final int chunkBytes;
+    private final ThreadLocal<PaymentRecordParser> parsers;
+    
+    public BulkPaymentIngester(BankingService bankingService, PaymentFileFormat format) {
+        this(bankingService, format, Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE, DEFAULT_CHUNK_BYTES);
+    }
+    
+    /**
+     * @param bankingService Service to post through
+     * @param format Record layout
+     * @param parallelism Number of parser threads
+     * @param batchSize Records per database transaction
+     * @param chunkBytes Bytes parsed per task
+     */
+    public BulkPaymentIngester(BankingService bankingService, final PaymentFileFormat format, int parallelism,
+                               int batchSize, int chunkBytes) {
+        if (parallelism <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Parallelism and batch size must be positive");
+        }
+        if (chunkBytes < PaymentRecordParser.MAX_LINE_LENGTH) {
+            throw new IllegalArgumentException("Chunk size must be at least " + PaymentRecordParser.MAX_LINE_LENGTH);
+        }
+        this.bankingService = bankingService;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.chunkBytes = chunkBytes;
+        this.parsers = ThreadLocal.withInitial(() -> new PaymentRecordParser(format));
+    }
+    
+    /**
+     * Ingest a whole file
+     * @param input Payment file
+     * @param rejectFile File receiving rejected lines (replaced)
+     * @return Ingestion report
+     * @throws IOException if a file cannot be read or written
+     * @throws SQLException if a batch cannot be posted; its message carries the offset to resume from
+     */
+    public IngestionReport ingest(Path input, Path rejectFile) throws IOException, SQLException {
+        return ingest(input, rejectFile, 0);
+    }
+    
+    /**
+     * Ingest a file from a line boundary, e.g. the committed offset of an interrupted run
+     * @param input Payment file
+     * @param rejectFile File receiving rejected lines (appended to when resuming)
+     * @param startOffset File position of the first line to read
+     * @return Ingestion report
+     * @throws IOException if a file cannot be read or written
+     * @throws SQLException if a batch cannot be posted; its message carries the offset to resume from
+     */
+    public IngestionReport ingest(Path input, Path rejectFile, long startOffset) throws IOException, SQLException {
+        long started = System.nanoTime();
+        IngestionReport report = new IngestionReport();
+        ExecutorService parserPool = newParserPool();
+        
+        StandardOpenOption mode = startOffset > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING;
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ);
+             OutputStream rejects = new BufferedOutputStream(
+                 Files.newOutputStream(rejectFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode), 1 << 16)) {
+            
+            long size = channel.size();
+            long next = startOffset;
+            long committed = startOffset;
+            ArrayDeque<Future<List<ParsedRecord>>> inFlight = new ArrayDeque<>();
+            List<ParsedRecord> pending = new ArrayList<>();
+            int pendingPayments = 0;
+            
+            try {
+                while (next < size || !inFlight.isEmpty()) {
+                    // Parse ahead by one chunk per thread plus one
+                    while (next < size && inFlight.size() <= parallelism) {
+                        final long chunkStart = next;
+                        final long chunkEnd = Math.min(size, next + chunkBytes);
+                        inFlight.add(parserPool.submit(() -> parseChunk(channel, chunkStart, chunkEnd, size)));
+                        next = chunkEnd;
+                    }
+                    
+                    for (ParsedRecord record : await(inFlight.poll())) {
+                        report.recordRead(record.rejectReason != null);
+                        pending.add(record);
+                        if (record.payment != null && ++pendingPayments >= batchSize) {
+                            committed = postBatch(pending, channel, rejects, report);
+                            pendingPayments = 0;
+                        }
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    committed = postBatch(pending, channel, rejects, report);
+                }
+            } catch (SQLException e) {
+                rejects.flush();
+                throw new SQLException("Bulk ingestion stopped; resume from offset " + committed + ": "
+                                       + e.getMessage(), e.getSQLState(), e);
+            }
+            
+            report.finish(size, size - startOffset, System.nanoTime() - started);
+            return report;
+        } finally {
+            parserPool.shutdownNow();
+        }
+    }
+    
+    /**
+     * Parse the lines starting inside [chunkStart, chunkEnd). The mapping reaches
+     * one byte back to tell whether chunkStart begins a line, and far enough
+     * forward to finish the last line.
+     */
+    private List<ParsedRecord> parseChunk(FileChannel channel, long chunkStart, long chunkEnd, long size)
+                                          throws IOException {
+        long mapStart = chunkStart == 0 ? 0 : chunkStart - 1;
+        long mapEnd = Math.min(size, chunkEnd + PaymentRecordParser.MAX_LINE_LENGTH + 1);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        int limit = (int) (mapEnd - mapStart);
+        int ownedEnd = (int) (chunkEnd - mapStart);
+        
+        int position = 0;
+        if (chunkStart > 0) {
+            // Skip the tail of a line owned by the previous chunk
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+        
+        PaymentRecordParser parser = parsers.get();
+        List<ParsedRecord> records = new ArrayList<>();
+        while (position < ownedEnd) {
+            int lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            ParsedRecord record = parser.parse(buffer, position, lineEnd, mapStart + position);
+            if (record != null) {
+                record.nextOffset = mapStart + Math.min(lineEnd + 1, limit);
+                records.add(record);
+            }
+            position = lineEnd + 1;
+        }
+        return records;
+    }
+    
+    /**
+     * Post the pending records' payments, retrying deadlocked batches, then write the rejects
+     * @return File offset after the last pending record
+     */
+    private long postBatch(List<ParsedRecord> pending, FileChannel channel, OutputStream rejects,
+                           IngestionReport report) throws IOException, SQLException {
+        List<BulkPayment> payments = new ArrayList<>(batchSize);
+        for (ParsedRecord record : pending) {
+            if (record.payment != null) {
+                payments.add(record.payment);
+            }
+        }
+        
+        int posted = 0;
+        for (int attempt = 1; !payments.isEmpty(); attempt++) {
+            try {
+                posted = bankingService.postBulkPayments(payments);
+                break;
+            } catch (SQLException e) {
+                if (!"40001".equals(e.getSQLState()) || attempt >= MAX_BATCH_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        
+        for (ParsedRecord record : pending) {
+            String rejectReason = record.getRejectReason();
+            if (rejectReason != null) {
+                writeReject(channel, rejects, record, rejectReason);
+            }
+        }
+        
+        long committed = pending.get(pending.size() - 1).nextOffset;
+        report.recordBatch(posted, payments.size() - posted, committed);
+        pending.clear();
+        return committed;
+    }
+    
+    private void writeReject(FileChannel channel, OutputStream rejects, ParsedRecord record, String rejectReason)
+                             throws IOException {
+        rejects.write(("# offset " + record.offset + ": " + rejectReason + "\n").getBytes(StandardCharsets.UTF_8));
+        ByteBuffer line = ByteBuffer.allocate(record.length);
+        while (line.hasRemaining()) {
+            if (channel.read(line, record.offset + line.position()) < 0) {
+                break;
+            }
+        }
+        rejects.write(line.array(), 0, line.position());
+        rejects.write('\n');
+    }
+    
+    private ExecutorService newParserPool() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "bulk-parser-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    private static List<ParsedRecord> await(Future<List<ParsedRecord>> chunk) throws IOException {
+        try {
+            return chunk.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Parsing failed", e.getCause());
+        }
+    }
+    
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length < 1) {
+            System.err.println("Usage: BulkPaymentIngester file [csv|fixed] [reject-file] [start-offset]");
+            System.exit(1);
+        }
+        Path input = Paths.get(args[0]);
+        PaymentFileFormat format = args.length > 1 ? PaymentFileFormat.fromString(args[1]) : PaymentFileFormat.CSV;
+        Path rejectFile = Paths.get(args.length > 2 ? args[2] : args[0] + ".rejects");
+        long startOffset = args.length > 3 ? Long.parseLong(args[3]) : 0;
+        
+        BulkPaymentIngester ingester = new BulkPaymentIngester(new BankingService(), format);
+        IngestionReport report = ingester.ingest(input, rejectFile, startOffset);
+        System.out.println(report);
+        if (report.getRecordsRejected() > 0) {
+            System.out.println("Rejected records written to " + rejectFile);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.banking.batch;
+
+/**
+ * Counters for one bulk ingestion run
+ */
+public class IngestionReport {
+    private long bytesProcessed;
+    private long recordsRead;
+    private long recordsPosted;
+    private long recordsRejected;
+    private long batchesPosted;
+    private long committedOffset;
+    private long elapsedNanos;
+    
+    // Getters
+    public long getBytesProcessed() {
+        return bytesProcessed;
+    }
+    
+    public long getRecordsRead() {
+        return recordsRead;
+    }
+    
+    public long getRecordsPosted() {
+        return recordsPosted;
+    }
+    
+    public long getRecordsRejected() {
+        return recordsRejected;
+    }
+    
+    public long getBatchesPosted() {
+        return batchesPosted;
+    }
+    
+    /**
+     * Get the file position up to which every record is posted or in the reject file.
+     * Passing it as the start offset of another run resumes the file.
+     * @return File offset
+     */
+    public long getCommittedOffset() {
+        return committedOffset;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+    
+    public double getRecordsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : recordsRead * 1e9 / elapsedNanos;
+    }
+    
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : bytesProcessed * 1e9 / elapsedNanos / (1024 * 1024);
+    }
+    
+    // Updated by the ingester
+    void recordRead(boolean rejected) {
+        recordsRead++;
+        if (rejected) {
+            recordsRejected++;
+        }
+    }
+    
+    void recordBatch(int posted, int rejected, long committedOffset) {
+        recordsPosted += posted;
+        recordsRejected += rejected;
+        batchesPosted++;
+        this.committedOffset = committedOffset;
+    }
+    
+    void finish(long committedOffset, long bytesProcessed, long elapsedNanos) {
+        this.committedOffset = committedOffset;
+        this.bytesProcessed = bytesProcessed;
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return "IngestionReport{" +
+                "recordsRead=" + recordsRead +
+                ", recordsPosted=" + recordsPosted +
+                ", recordsRejected=" + recordsRejected +
+                ", batchesPosted=" + batchesPosted +
+                ", committedOffset=" + committedOffset +
+                ", elapsedMillis=" + getElapsedMillis() +
+                String.format(", recordsPerSecond=%.0f, megabytesPerSecond=%.1f", getRecordsPerSecond(),
+                              getMegabytesPerSecond()) +
+                '}';
+    }
+}
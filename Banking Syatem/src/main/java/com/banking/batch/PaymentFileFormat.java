@@ -0,0 +1,40 @@
+package com.banking.batch;
+
+/**
+ * Record layouts accepted by the bulk payment ingester. Records are one per
+ * line, ASCII except for the description, which is UTF-8. Blank lines and
+ * lines starting with '#' are skipped.
+ *
+ * The record type is D (or DEPOSIT) for a deposit into the account, and
+ * T (or TRANSFER) for a transfer from the account to the counterparty.
+ * Amounts are decimal with at most two fraction digits.
+ */
+public enum PaymentFileFormat {
+    /**
+     * type,account,counterparty,amount,description
+     * The description is the rest of the line and may contain commas; a first
+     * line whose type field reads "type" is taken as a header.
+     */
+    CSV,
+    
+    /**
+     * Fixed columns: type (1), account (20), counterparty (20), amount (15,
+     * right aligned) and description (rest of the line). Fields are space padded.
+     */
+    FIXED_WIDTH;
+    
+    static final int FIXED_ACCOUNT_OFFSET = 1;
+    static final int FIXED_COUNTERPARTY_OFFSET = 21;
+    static final int FIXED_AMOUNT_OFFSET = 41;
+    static final int FIXED_DESCRIPTION_OFFSET = 56;
+    
+    public static PaymentFileFormat fromString(String value) {
+        if ("csv".equalsIgnoreCase(value)) {
+            return CSV;
+        }
+        if ("fixed".equalsIgnoreCase(value) || "fixed_width".equalsIgnoreCase(value)) {
+            return FIXED_WIDTH;
+        }
+        throw new IllegalArgumentException("Unknown payment file format: " + value);
+    }
+}
@@ -0,0 +1,278 @@
+package com.banking.batch;
+
+import com.banking.model.BulkPayment;
+import com.banking.model.Transaction;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses payment records straight out of a mapped file region. Amounts are
+ * read digit by digit into cents; only account numbers and descriptions are
+ * turned into Strings. One instance per thread.
+ */
+final class PaymentRecordParser {
+    static final int MAX_LINE_LENGTH = 4096;
+    
+    private static final int MAX_ACCOUNT_NUMBER_LENGTH = 20;
+    // DECIMAL(15,2)
+    private static final long MAX_AMOUNT_CENTS = 999_999_999_999_999L;
+    private static final long INVALID = -1;
+    
+    private final PaymentFileFormat format;
+    private final byte[] scratch = new byte[MAX_LINE_LENGTH];
+    
+    PaymentRecordParser(PaymentFileFormat format) {
+        this.format = format;
+    }
+    
+    /**
+     * Parse one line
+     * @param buffer Mapped region
+     * @param start Index of the first byte of the line
+     * @param end Index of the line's newline (or the region end)
+     * @param fileOffset File position of the first byte of the line
+     * @return Parsed or rejected record, or null for blank lines, comments and headers
+     */
+    ParsedRecord parse(ByteBuffer buffer, int start, int end, long fileOffset) {
+        int length = end - start;
+        if (length > 0 && buffer.get(end - 1) == '\r') {
+            end--;
+        }
+        int first = skipSpaces(buffer, start, end);
+        if (first == end || buffer.get(first) == '#') {
+            return null;
+        }
+        if (length > MAX_LINE_LENGTH) {
+            return ParsedRecord.rejected(fileOffset, MAX_LINE_LENGTH, "Line longer than " + MAX_LINE_LENGTH + " bytes");
+        }
+        
+        return format == PaymentFileFormat.CSV
+            ? parseCsv(buffer, start, end, fileOffset)
+            : parseFixedWidth(buffer, start, end, fileOffset);
+    }
+    
+    private ParsedRecord parseCsv(ByteBuffer buffer, int start, int end, long fileOffset) {
+        int typeEnd = indexOf(buffer, start, end, (byte) ',');
+        int accountEnd = indexOf(buffer, typeEnd + 1, end, (byte) ',');
+        int counterpartyEnd = indexOf(buffer, accountEnd + 1, end, (byte) ',');
+        int amountEnd = indexOf(buffer, counterpartyEnd + 1, end, (byte) ',');
+        
+        if (fileOffset == 0 && matches(buffer, start, typeEnd, "TYPE")) {
+            return null;
+        }
+        if (counterpartyEnd >= end) {
+            return ParsedRecord.rejected(fileOffset, end - start, "Expected at least 4 fields");
+        }
+        return toRecord(buffer, fileOffset, start, typeEnd, typeEnd + 1, accountEnd, accountEnd + 1,
+                        counterpartyEnd, counterpartyEnd + 1, amountEnd, Math.min(amountEnd + 1, end), end);
+    }
+    
+    private ParsedRecord parseFixedWidth(ByteBuffer buffer, int start, int end, long fileOffset) {
+        if (end - start < PaymentFileFormat.FIXED_DESCRIPTION_OFFSET) {
+            return ParsedRecord.rejected(fileOffset, end - start,
+                "Record shorter than " + PaymentFileFormat.FIXED_DESCRIPTION_OFFSET + " bytes");
+        }
+        return toRecord(buffer, fileOffset,
+                        start, start + PaymentFileFormat.FIXED_ACCOUNT_OFFSET,
+                        start + PaymentFileFormat.FIXED_ACCOUNT_OFFSET, start + PaymentFileFormat.FIXED_COUNTERPARTY_OFFSET,
+                        start + PaymentFileFormat.FIXED_COUNTERPARTY_OFFSET, start + PaymentFileFormat.FIXED_AMOUNT_OFFSET,
+                        start + PaymentFileFormat.FIXED_AMOUNT_OFFSET, start + PaymentFileFormat.FIXED_DESCRIPTION_OFFSET,
+                        start + PaymentFileFormat.FIXED_DESCRIPTION_OFFSET, end);
+    }
+    
+    private ParsedRecord toRecord(ByteBuffer buffer, long fileOffset, int typeStart, int typeEnd,
+                                  int accountStart, int accountEnd, int counterpartyStart, int counterpartyEnd,
+                                  int amountStart, int amountEnd, int descriptionStart, int descriptionEnd) {
+        int lineLength = descriptionEnd - typeStart;
+        
+        Transaction.TransactionType type = parseType(buffer, typeStart, typeEnd);
+        if (type == null) {
+            return ParsedRecord.rejected(fileOffset, lineLength, "Unknown record type");
+        }
+        
+        String account = asciiField(buffer, accountStart, accountEnd);
+        if (account == null) {
+            return ParsedRecord.rejected(fileOffset, lineLength, "Invalid account number");
+        }
+        String counterparty = asciiField(buffer, counterpartyStart, counterpartyEnd);
+        boolean counterpartyBlank = skipSpaces(buffer, counterpartyStart, counterpartyEnd) == counterpartyEnd;
+        if (type == Transaction.TransactionType.TRANSFER) {
+            if (counterparty == null) {
+                return ParsedRecord.rejected(fileOffset, lineLength, "Invalid counterparty account number");
+            }
+            if (counterparty.equals(account)) {
+                return ParsedRecord.rejected(fileOffset, lineLength, "Cannot transfer to the same account");
+            }
+        } else if (!counterpartyBlank) {
+            return ParsedRecord.rejected(fileOffset, lineLength, "Deposit must not name a counterparty");
+        }
+        
+        long cents = parseCents(buffer, amountStart, amountEnd);
+        if (cents == INVALID) {
+            return ParsedRecord.rejected(fileOffset, lineLength, "Invalid amount");
+        }
+        if (cents == 0) {
+            return ParsedRecord.rejected(fileOffset, lineLength, "Amount must be positive");
+        }
+        
+        String description = utf8Field(buffer, descriptionStart, descriptionEnd);
+        BulkPayment payment = new BulkPayment(type, account, type == Transaction.TransactionType.TRANSFER
+                                              ? counterparty : null, BigDecimal.valueOf(cents, 2), description);
+        return ParsedRecord.parsed(fileOffset, lineLength, payment);
+    }
+    
+    private Transaction.TransactionType parseType(ByteBuffer buffer, int start, int end) {
+        start = skipSpaces(buffer, start, end);
+        end = trimSpaces(buffer, start, end);
+        if (end - start == 1) {
+            byte type = buffer.get(start);
+            if (type == 'D' || type == 'd') {
+                return Transaction.TransactionType.DEPOSIT;
+            }
+            if (type == 'T' || type == 't') {
+                return Transaction.TransactionType.TRANSFER;
+            }
+        } else if (matches(buffer, start, end, "DEPOSIT")) {
+            return Transaction.TransactionType.DEPOSIT;
+        } else if (matches(buffer, start, end, "TRANSFER")) {
+            return Transaction.TransactionType.TRANSFER;
+        }
+        return null;
+    }
+    
+    /**
+     * Parse a decimal amount into cents without creating objects
+     * @return Amount in cents, or INVALID
+     */
+    private long parseCents(ByteBuffer buffer, int start, int end) {
+        start = skipSpaces(buffer, start, end);
+        end = trimSpaces(buffer, start, end);
+        if (start == end) {
+            return INVALID;
+        }
+        
+        long cents = 0;
+        int fractionDigits = -1;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            if (b < '0' || b > '9' || fractionDigits == 2) {
+                return INVALID;
+            }
+            cents = cents * 10 + (b - '0');
+            if (fractionDigits >= 0) {
+                fractionDigits++;
+            }
+            if (cents > MAX_AMOUNT_CENTS) {
+                return INVALID;
+            }
+        }
+        for (int i = Math.max(fractionDigits, 0); i < 2; i++) {
+            cents *= 10;
+        }
+        return cents > MAX_AMOUNT_CENTS ? INVALID : cents;
+    }
+    
+    private String asciiField(ByteBuffer buffer, int start, int end) {
+        start = skipSpaces(buffer, start, end);
+        end = trimSpaces(buffer, start, end);
+        int length = end - start;
+        if (length == 0 || length > MAX_ACCOUNT_NUMBER_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < length; i++) {
+            byte b = buffer.get(start + i);
+            if (b <= ' ' || b > '~') {
+                return null;
+            }
+            scratch[i] = b;
+        }
+        return new String(scratch, 0, length, StandardCharsets.US_ASCII);
+    }
+    
+    private String utf8Field(ByteBuffer buffer, int start, int end) {
+        start = skipSpaces(buffer, start, end);
+        end = trimSpaces(buffer, start, end);
+        if (start >= end) {
+            return null;
+        }
+        for (int i = start; i < end; i++) {
+            scratch[i - start] = buffer.get(i);
+        }
+        return new String(scratch, 0, end - start, StandardCharsets.UTF_8);
+    }
+    
+    private static boolean matches(ByteBuffer buffer, int start, int end, String upperCase) {
+        start = skipSpaces(buffer, start, end);
+        end = trimSpaces(buffer, start, end);
+        if (end - start != upperCase.length()) {
+            return false;
+        }
+        for (int i = 0; i < upperCase.length(); i++) {
+            int b = buffer.get(start + i) & ~0x20;
+            if (b != upperCase.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static int indexOf(ByteBuffer buffer, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return end;
+    }
+    
+    private static int skipSpaces(ByteBuffer buffer, int start, int end) {
+        while (start < end && (buffer.get(start) == ' ' || buffer.get(start) == '\t')) {
+            start++;
+        }
+        return start;
+    }
+    
+    private static int trimSpaces(ByteBuffer buffer, int start, int end) {
+        while (end > start && (buffer.get(end - 1) == ' ' || buffer.get(end - 1) == '\t')) {
+            end--;
+        }
+        return end;
+    }
+    
+    /**
+     * A parsed line and where it came from
+     */
+    static final class ParsedRecord {
+        final long offset;
+        final int length;
+        // Start of the following line
+        long nextOffset;
+        final BulkPayment payment;
+        final String rejectReason;
+        
+        private ParsedRecord(long offset, int length, BulkPayment payment, String rejectReason) {
+            this.offset = offset;
+            this.length = length;
+            this.payment = payment;
+            this.rejectReason = rejectReason;
+        }
+        
+        static ParsedRecord parsed(long offset, int length, BulkPayment payment) {
+            return new ParsedRecord(offset, length, payment, null);
+        }
+        
+        static ParsedRecord rejected(long offset, int length, String rejectReason) {
+            return new ParsedRecord(offset, length, null, rejectReason);
+        }
+        
+        String getRejectReason() {
+            return rejectReason != null ? rejectReason : payment.getRejectReason();
+        }
+    }
+}
@@ -2,17 +2,27 @@ package com.banking.dao;
 
 import com.banking.model.Account;
 import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Data Access Object for Account operations
  */
 public class AccountDAO {
     
+    // Slotted accounts keep their balance in account_balance_slots; this exposes
+    // the effective balance for both kinds of account
+    private static final String SELECT_ACCOUNTS =
+        "SELECT a.*, CASE WHEN a.balance_slots > 0 " +
+        "THEN (SELECT SUM(s.balance) FROM account_balance_slots s WHERE s.account_id = a.account_id) " +
+        "ELSE a.balance END AS effective_balance FROM accounts a ";
+    
     /**
      * Create a new account
      * @param account Account object to create
@@ -58,7 +68,7 @@ public class AccountDAO {
      * @throws SQLException if database operation fails
      */
     public Account getAccountById(int accountId) throws SQLException {
-        String sql = "SELECT * FROM accounts WHERE account_id = ?";
+        String sql = SELECT_ACCOUNTS + "WHERE a.account_id = ?";
         
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -82,7 +92,7 @@ public class AccountDAO {
      * @throws SQLException if database operation fails
      */
     public Account getAccountByNumber(String accountNumber) throws SQLException {
-        String sql = "SELECT * FROM accounts WHERE account_number = ?";
+        String sql = SELECT_ACCOUNTS + "WHERE a.account_number = ?";
         
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -99,6 +109,69 @@ public class AccountDAO {
         return null;
     }
     
+    /**
+     * Get account by account number and lock its row until the surrounding
+     * database transaction ends
+     * @param connection Connection with an open transaction
+     * @param accountNumber Account number
+     * @return Account object or null if not found
+     * @throws SQLException if database operation fails
+     */
+    public Account getAccountByNumberForUpdate(Connection connection, String accountNumber) throws SQLException {
+        String sql = SELECT_ACCOUNTS + "WHERE a.account_number = ? FOR UPDATE";
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            statement.setString(1, accountNumber);
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return mapResultSetToAccount(resultSet);
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Get several accounts by ID and lock their rows, in account ID order, until
+     * the surrounding database transaction ends
+     * @param connection Connection with an open transaction
+     * @param accountIds Account IDs
+     * @return Accounts found, in account ID order
+     * @throws SQLException if database operation fails
+     */
+    public List<Account> getAccountsForUpdate(Connection connection, Collection<Integer> accountIds)
+                                              throws SQLException {
+        List<Account> accounts = new ArrayList<>();
+        if (accountIds.isEmpty()) {
+            return accounts;
+        }
+        
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < accountIds.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        String sql = SELECT_ACCOUNTS + "WHERE a.account_id IN (" + placeholders + ") ORDER BY a.account_id FOR UPDATE";
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            int index = 1;
+            for (int accountId : accountIds) {
+                statement.setInt(index++, accountId);
+            }
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    accounts.add(mapResultSetToAccount(resultSet));
+                }
+            }
+        }
+        
+        return accounts;
+    }
+    
     /**
      * Get all accounts for a customer
      * @param customerId Customer ID
@@ -106,7 +179,7 @@ public class AccountDAO {
      * @throws SQLException if database operation fails
      */
     public List<Account> getAccountsByCustomerId(int customerId) throws SQLException {
-        String sql = "SELECT * FROM accounts WHERE customer_id = ? ORDER BY account_id";
+        String sql = SELECT_ACCOUNTS + "WHERE a.customer_id = ? ORDER BY a.account_id";
         List<Account> accounts = new ArrayList<>();
         
         try (Connection connection = DatabaseConnection.getConnection();
@@ -130,10 +203,10 @@ public class AccountDAO {
      * @throws SQLException if database operation fails
      */
     public List<Account> getAllAccounts() throws SQLException {
-        String sql = "SELECT * FROM accounts ORDER BY account_id";
+        String sql = SELECT_ACCOUNTS + "ORDER BY a.account_id";
         List<Account> accounts = new ArrayList<>();
         
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING);
              PreparedStatement statement = connection.prepareStatement(sql);
              ResultSet resultSet = statement.executeQuery()) {
             
@@ -153,13 +226,252 @@ public class AccountDAO {
      * @throws SQLException if database operation fails
      */
     public boolean updateBalance(int accountId, BigDecimal newBalance) throws SQLException {
-        String sql = "UPDATE accounts SET balance = ? WHERE account_id = ?";
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            return updateBalance(connection, accountId, newBalance);
+        }
+    }
+    
+    /**
+     * Update account balance on a caller-managed connection
+     * @param connection Connection to use (may have an open transaction)
+     * @param accountId Account ID
+     * @param newBalance New balance amount
+     * @return true if update successful, false otherwise
+     * @throws SQLException if database operation fails
+     */
+    public boolean updateBalance(Connection connection, int accountId, BigDecimal newBalance) throws SQLException {
+        // For a slotted account the whole balance moves into slot 0
+        String slotSql = "UPDATE account_balance_slots SET balance = CASE WHEN slot_no = 0 THEN ? ELSE 0 END " +
+                        "WHERE account_id = ?";
+        String sql = "UPDATE accounts SET balance = CASE WHEN balance_slots > 0 THEN 0 ELSE ? END, " +
+                    "version = version + 1 WHERE account_id = ?";
         
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (PreparedStatement slotStatement = connection.prepareStatement(slotSql);
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
+            slotStatement.setBigDecimal(1, newBalance);
+            slotStatement.setInt(2, accountId);
+            slotStatement.executeUpdate();
+            
+            statement.setBigDecimal(1, newBalance);
+            statement.setInt(2, accountId);
+            
+            int affectedRows = statement.executeUpdate();
+            return affectedRows > 0;
+        }
+    }
+    
+    /**
+     * Add an amount to an account balance.
+     * Slotted accounts are credited on a random slot row and never conflict;
+     * other accounts are updated only if still at the version they were read at.
+     * @param connection Connection to use (may have an open transaction)
+     * @param account Account as read by the caller
+     * @param amount Amount to add
+     * @return true if applied, false if the account was changed concurrently
+     * @throws SQLException if database operation fails
+     */
+    public boolean creditBalance(Connection connection, Account account, BigDecimal amount) throws SQLException {
+        if (!account.isSlotted()) {
+            return updateBalanceIfVersion(connection, account.getAccountId(),
+                                          account.getBalance().add(amount), account.getVersion());
+        }
+        
+        String sql = "UPDATE account_balance_slots SET balance = balance + ? WHERE account_id = ? AND slot_no = ?";
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            statement.setBigDecimal(1, amount);
+            statement.setInt(2, account.getAccountId());
+            statement.setInt(3, ThreadLocalRandom.current().nextInt(account.getBalanceSlots()));
+            
+            int affectedRows = statement.executeUpdate();
+            return affectedRows > 0;
+        }
+    }
+    
+    /**
+     * Subtract an amount from an account balance.
+     * Slotted accounts lock their slot rows and draw from the fullest slots first;
+     * other accounts are updated only if still at the version they were read at.
+     * @param connection Connection with an open transaction
+     * @param account Account as read by the caller
+     * @param amount Amount to subtract
+     * @return true if applied, false if the account changed concurrently or no longer covers the amount
+     * @throws SQLException if database operation fails
+     */
+    public boolean debitBalance(Connection connection, Account account, BigDecimal amount) throws SQLException {
+        if (!account.isSlotted()) {
+            return updateBalanceIfVersion(connection, account.getAccountId(),
+                                          account.getBalance().subtract(amount), account.getVersion());
+        }
+        
+        String selectSql = "SELECT slot_no, balance FROM account_balance_slots WHERE account_id = ? " +
+                          "ORDER BY balance DESC FOR UPDATE";
+        String updateSql = "UPDATE account_balance_slots SET balance = balance - ? WHERE account_id = ? AND slot_no = ?";
+        
+        try (PreparedStatement select = connection.prepareStatement(selectSql);
+             PreparedStatement update = connection.prepareStatement(updateSql)) {
+            
+            List<Integer> slots = new ArrayList<>();
+            List<BigDecimal> balances = new ArrayList<>();
+            BigDecimal available = BigDecimal.ZERO;
+            
+            select.setInt(1, account.getAccountId());
+            try (ResultSet resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    slots.add(resultSet.getInt("slot_no"));
+                    balances.add(resultSet.getBigDecimal("balance"));
+                    available = available.add(resultSet.getBigDecimal("balance"));
+                }
+            }
+            
+            if (available.compareTo(amount) < 0) {
+                return false;
+            }
+            
+            BigDecimal remaining = amount;
+            for (int i = 0; i < slots.size() && remaining.signum() > 0; i++) {
+                BigDecimal take = balances.get(i).min(remaining);
+                if (take.signum() <= 0) {
+                    break;
+                }
+                update.setBigDecimal(1, take);
+                update.setInt(2, account.getAccountId());
+                update.setInt(3, slots.get(i));
+                update.addBatch();
+                remaining = remaining.subtract(take);
+            }
+            update.executeBatch();
+            return true;
+        }
+    }
+    
+    /**
+     * Spread an account's balance across slot rows so that concurrent credits
+     * do not serialize on the accounts row
+     * @param accountId Account ID
+     * @param slots Number of slot rows (at least 2)
+     * @return true if the account was switched to slotted mode, false if not found or already slotted
+     * @throws SQLException if database operation fails
+     */
+    public boolean enableBalanceSlots(int accountId, int slots) throws SQLException {
+        if (slots < 2) {
+            throw new IllegalArgumentException("A slotted account needs at least 2 slots");
+        }
+        
+        String lockSql = "SELECT balance, balance_slots FROM accounts WHERE account_id = ? FOR UPDATE";
+        String insertSql = "INSERT INTO account_balance_slots (account_id, slot_no, balance) VALUES (?, ?, ?)";
+        String updateSql = "UPDATE accounts SET balance = 0, balance_slots = ?, version = version + 1 " +
+                          "WHERE account_id = ?";
+        
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement lock = connection.prepareStatement(lockSql);
+                 PreparedStatement insert = connection.prepareStatement(insertSql);
+                 PreparedStatement update = connection.prepareStatement(updateSql)) {
+                
+                BigDecimal balance;
+                lock.setInt(1, accountId);
+                try (ResultSet resultSet = lock.executeQuery()) {
+                    if (!resultSet.next() || resultSet.getInt("balance_slots") > 0) {
+                        connection.rollback();
+                        return false;
+                    }
+                    balance = resultSet.getBigDecimal("balance");
+                }
+                
+                for (int slot = 0; slot < slots; slot++) {
+                    insert.setInt(1, accountId);
+                    insert.setInt(2, slot);
+                    insert.setBigDecimal(3, slot == 0 ? balance : BigDecimal.ZERO);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                
+                update.setInt(1, slots);
+                update.setInt(2, accountId);
+                update.executeUpdate();
+                
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Fold a slotted account's slot rows back into the accounts row
+     * @param accountId Account ID
+     * @return true if the account was switched back, false if not found or not slotted
+     * @throws SQLException if database operation fails
+     */
+    public boolean disableBalanceSlots(int accountId) throws SQLException {
+        String lockSql = "SELECT balance_slots FROM accounts WHERE account_id = ? FOR UPDATE";
+        String sumSql = "SELECT SUM(balance) FROM account_balance_slots WHERE account_id = ? FOR UPDATE";
+        String updateSql = "UPDATE accounts SET balance = ?, balance_slots = 0, version = version + 1 " +
+                          "WHERE account_id = ?";
+        String deleteSql = "DELETE FROM account_balance_slots WHERE account_id = ?";
+        
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement lock = connection.prepareStatement(lockSql);
+                 PreparedStatement sum = connection.prepareStatement(sumSql);
+                 PreparedStatement update = connection.prepareStatement(updateSql);
+                 PreparedStatement delete = connection.prepareStatement(deleteSql)) {
+                
+                lock.setInt(1, accountId);
+                try (ResultSet resultSet = lock.executeQuery()) {
+                    if (!resultSet.next() || resultSet.getInt("balance_slots") == 0) {
+                        connection.rollback();
+                        return false;
+                    }
+                }
+                
+                BigDecimal balance = BigDecimal.ZERO;
+                sum.setInt(1, accountId);
+                try (ResultSet resultSet = sum.executeQuery()) {
+                    if (resultSet.next() && resultSet.getBigDecimal(1) != null) {
+                        balance = resultSet.getBigDecimal(1);
+                    }
+                }
+                
+                update.setBigDecimal(1, balance);
+                update.setInt(2, accountId);
+                update.executeUpdate();
+                
+                delete.setInt(1, accountId);
+                delete.executeUpdate();
+                
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Update account balance only if the account is still at the expected version
+     * @param connection Connection to use (may have an open transaction)
+     * @param accountId Account ID
+     * @param newBalance New balance amount
+     * @param expectedVersion Version the caller read the account at
+     * @return true if updated, false if the account was changed concurrently
+     * @throws SQLException if database operation fails
+     */
+    public boolean updateBalanceIfVersion(Connection connection, int accountId, BigDecimal newBalance,
+                                          int expectedVersion) throws SQLException {
+        String sql = "UPDATE accounts SET balance = ?, version = version + 1 WHERE account_id = ? AND version = ?";
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            
             statement.setBigDecimal(1, newBalance);
             statement.setInt(2, accountId);
+            statement.setInt(3, expectedVersion);
             
             int affectedRows = statement.executeUpdate();
             return affectedRows > 0;
@@ -174,13 +486,36 @@ public class AccountDAO {
      * @throws SQLException if database operation fails
      */
     public boolean updatePin(int accountId, String newPin) throws SQLException {
-        String sql = "UPDATE accounts SET pin = ? WHERE account_id = ?";
+        String sql = "UPDATE accounts SET pin = ?, version = version + 1 WHERE account_id = ?";
+        
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            statement.setString(1, newPin);
+            statement.setInt(2, accountId);
+            
+            int affectedRows = statement.executeUpdate();
+            return affectedRows > 0;
+        }
+    }
+    
+    /**
+     * Update account PIN only if the account is still at the expected version
+     * @param accountId Account ID
+     * @param newPin New PIN
+     * @param expectedVersion Version the caller read the account at
+     * @return true if updated, false if the account was changed concurrently
+     * @throws SQLException if database operation fails
+     */
+    public boolean updatePinIfVersion(int accountId, String newPin, int expectedVersion) throws SQLException {
+        String sql = "UPDATE accounts SET pin = ?, version = version + 1 WHERE account_id = ? AND version = ?";
         
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             statement.setString(1, newPin);
             statement.setInt(2, accountId);
+            statement.setInt(3, expectedVersion);
             
             int affectedRows = statement.executeUpdate();
             return affectedRows > 0;
@@ -221,13 +556,51 @@ public class AccountDAO {
      * @throws SQLException if database operation fails
      */
     public boolean updateStatus(int accountId, Account.AccountStatus status) throws SQLException {
-        String sql = "UPDATE accounts SET status = ? WHERE account_id = ?";
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            return updateStatus(connection, accountId, status);
+        }
+    }
+    
+    /**
+     * Update account status on a caller-managed connection
+     * @param connection Connection to use (may have an open transaction)
+     * @param accountId Account ID
+     * @param status New status
+     * @return true if update successful, false otherwise
+     * @throws SQLException if database operation fails
+     */
+    public boolean updateStatus(Connection connection, int accountId, Account.AccountStatus status)
+                                throws SQLException {
+        String sql = "UPDATE accounts SET status = ?, version = version + 1 WHERE account_id = ?";
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            statement.setString(1, status.getValue());
+            statement.setInt(2, accountId);
+            
+            int affectedRows = statement.executeUpdate();
+            return affectedRows > 0;
+        }
+    }
+    
+    /**
+     * Update account status only if the account is still at the expected version
+     * @param accountId Account ID
+     * @param status New status
+     * @param expectedVersion Version the caller read the account at
+     * @return true if updated, false if the account was changed concurrently
+     * @throws SQLException if database operation fails
+     */
+    public boolean updateStatusIfVersion(int accountId, Account.AccountStatus status, int expectedVersion)
+                                         throws SQLException {
+        String sql = "UPDATE accounts SET status = ?, version = version + 1 WHERE account_id = ? AND version = ?";
         
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             statement.setString(1, status.getValue());
             statement.setInt(2, accountId);
+            statement.setInt(3, expectedVersion);
             
             int affectedRows = statement.executeUpdate();
             return affectedRows > 0;
@@ -284,7 +657,9 @@ public class AccountDAO {
      * @throws SQLException if database operation fails
      */
     public BigDecimal getTotalBalanceByCustomerId(int customerId) throws SQLException {
-        String sql = "SELECT SUM(balance) FROM accounts WHERE customer_id = ? AND status = 'ACTIVE'";
+        String sql = "SELECT SUM(CASE WHEN a.balance_slots > 0 " +
+                    "THEN (SELECT SUM(s.balance) FROM account_balance_slots s WHERE s.account_id = a.account_id) " +
+                    "ELSE a.balance END) FROM accounts a WHERE a.customer_id = ? AND a.status = 'ACTIVE'";
         
         try (Connection connection = DatabaseConnection.getConnection();
              PreparedStatement statement = connection.prepareStatement(sql)) {
@@ -302,6 +677,22 @@ public class AccountDAO {
         return BigDecimal.ZERO;
     }
     
+    /**
+     * Get the highest account ID in use
+     * @return Highest account ID, or 0 if there are no accounts
+     * @throws SQLException if database operation fails
+     */
+    public int getMaxAccountId() throws SQLException {
+        String sql = "SELECT MAX(account_id) FROM accounts";
+        
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            
+            return resultSet.next() ? resultSet.getInt(1) : 0;
+        }
+    }
+    
     /**
      * Generate unique account number
      * @return Unique account number
@@ -336,9 +727,11 @@ public class AccountDAO {
         account.setAccountNumber(resultSet.getString("account_number"));
         account.setCustomerId(resultSet.getInt("customer_id"));
         account.setAccountType(Account.AccountType.fromString(resultSet.getString("account_type")));
-        account.setBalance(resultSet.getBigDecimal("balance"));
+        account.setBalance(resultSet.getBigDecimal("effective_balance"));
         account.setPin(resultSet.getString("pin"));
         account.setStatus(Account.AccountStatus.fromString(resultSet.getString("status")));
+        account.setVersion(resultSet.getInt("version"));
+        account.setBalanceSlots(resultSet.getInt("balance_slots"));
         account.setCreatedAt(resultSet.getTimestamp("created_at"));
         account.setUpdatedAt(resultSet.getTimestamp("updated_at"));
         return account;
@@ -2,6 +2,7 @@ package com.banking.dao;
 
 import com.banking.model.Customer;
 import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -107,7 +108,7 @@ public class CustomerDAO {
         String sql = "SELECT * FROM customers ORDER BY customer_id";
         List<Customer> customers = new ArrayList<>();
         
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING);
              PreparedStatement statement = connection.prepareStatement(sql);
              ResultSet resultSet = statement.executeQuery()) {
             
@@ -174,7 +175,7 @@ public class CustomerDAO {
         String sql = "SELECT * FROM customers WHERE first_name LIKE ? OR last_name LIKE ? ORDER BY customer_id";
         List<Customer> customers = new ArrayList<>();
         
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING);
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             String searchPattern = "%" + name + "%";
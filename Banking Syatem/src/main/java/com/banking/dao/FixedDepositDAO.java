@@ -0,0 +1,247 @@
+package com.banking.dao;
+
+import com.banking.model.FixedDepositTerm;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for fixed deposit terms and their maturity
+ */
+public class FixedDepositDAO {
+
+    private static final String SELECT_TERMS = "SELECT f.*, a.account_number FROM fixed_deposit_terms f " +
+                    "JOIN accounts a ON a.account_id = f.account_id ";
+
+    /**
+     * Create the term of a fixed deposit account
+     * @param term Term to create
+     * @return The created term
+     * @throws SQLException if database operation fails, including when the account already has a term
+     */
+    public FixedDepositTerm createTerm(FixedDepositTerm term) throws SQLException {
+        String sql = "INSERT INTO fixed_deposit_terms (account_id, principal, annual_rate, term_months, start_date, " +
+                    "maturity_date, payout_account_id) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, term.getAccountId());
+            statement.setBigDecimal(2, term.getPrincipal());
+            statement.setBigDecimal(3, term.getAnnualRate());
+            statement.setInt(4, term.getTermMonths());
+            statement.setDate(5, term.getStartDate());
+            statement.setDate(6, term.getMaturityDate());
+            statement.setInt(7, term.getPayoutAccountId());
+
+            int affectedRows = statement.executeUpdate();
+            if (affectedRows == 0) {
+                throw new SQLException("Creating fixed deposit term failed, no rows affected.");
+            }
+        }
+
+        return term;
+    }
+
+    /**
+     * Get the term of a fixed deposit account
+     * @param accountId Account ID
+     * @return Term or null if the account has none
+     * @throws SQLException if database operation fails
+     */
+    public FixedDepositTerm getTermByAccountId(int accountId) throws SQLException {
+        String sql = SELECT_TERMS + "WHERE f.account_id = ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, accountId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return mapResultSetToTerm(resultSet);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get a page of open terms that have reached maturity, in (maturity date, account ID) order.
+     * The order matches idx_fd_maturity (status, maturity_date, account_id), so each page
+     * is a range read of that index that stops after limit rows, with no filesort.
+     * @param asOf Maturity dates on or before this date are due
+     * @param afterMaturityDate Maturity date of the last term of the previous page (null for the first page)
+     * @param afterAccountId Account ID of the last term of the previous page (0 for the first page)
+     * @param limit Maximum number of terms to return
+     * @return List of due terms
+     * @throws SQLException if database operation fails
+     */
+    public List<FixedDepositTerm> getDueTerms(Date asOf, Date afterMaturityDate, int afterAccountId, int limit)
+                                              throws SQLException {
+        String sql = SELECT_TERMS + "WHERE f.status = 'OPEN' AND f.maturity_date <= ? " +
+                    (afterMaturityDate == null ? "" :
+                     "AND (f.maturity_date > ? OR (f.maturity_date = ? AND f.account_id > ?)) ") +
+                    "ORDER BY f.maturity_date, f.account_id LIMIT ?";
+        List<FixedDepositTerm> terms = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            int index = 1;
+            statement.setDate(index++, asOf);
+            if (afterMaturityDate != null) {
+                statement.setDate(index++, afterMaturityDate);
+                statement.setDate(index++, afterMaturityDate);
+                statement.setInt(index++, afterAccountId);
+            }
+            statement.setInt(index, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    terms.add(mapResultSetToTerm(resultSet));
+                }
+            }
+        }
+
+        return terms;
+    }
+
+    /**
+     * Lock the given terms that are still open and due
+     * @param connection Connection with an open transaction
+     * @param accountIds Account IDs of the terms
+     * @param asOf Maturity dates on or before this date are due
+     * @return Terms still open and due, in account ID order
+     * @throws SQLException if database operation fails
+     */
+    public List<FixedDepositTerm> lockDueTerms(Connection connection, List<Integer> accountIds, Date asOf)
+                                               throws SQLException {
+        List<FixedDepositTerm> terms = new ArrayList<>();
+        if (accountIds.isEmpty()) {
+            return terms;
+        }
+
+        String sql = SELECT_TERMS + "WHERE f.status = 'OPEN' AND f.maturity_date <= ? " +
+                    "AND f.account_id IN (" + placeholders(accountIds.size()) + ") ORDER BY f.account_id FOR UPDATE";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setDate(1, asOf);
+            for (int i = 0; i < accountIds.size(); i++) {
+                statement.setInt(i + 2, accountIds.get(i));
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    terms.add(mapResultSetToTerm(resultSet));
+                }
+            }
+        }
+
+        return terms;
+    }
+
+    /**
+     * Get the interest already credited to fixed deposits during their term, e.g. by daily accrual
+     * @param connection Connection to use (may have an open transaction)
+     * @param accountIds Fixed deposit account IDs
+     * @return Interest credited per account ID; accounts without interest are absent
+     * @throws SQLException if database operation fails
+     */
+    public Map<Integer, BigDecimal> getCreditedInterest(Connection connection, List<Integer> accountIds)
+                                                        throws SQLException {
+        Map<Integer, BigDecimal> credited = new HashMap<>();
+        if (accountIds.isEmpty()) {
+            return credited;
+        }
+
+        String sql = "SELECT f.account_id, SUM(t.amount) AS interest FROM fixed_deposit_terms f " +
+                    "JOIN transactions t ON t.to_account_id = f.account_id " +
+                    "WHERE t.transaction_type = 'INTEREST' AND t.transaction_date >= f.start_date " +
+                    "AND f.account_id IN (" + placeholders(accountIds.size()) + ") GROUP BY f.account_id";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            for (int i = 0; i < accountIds.size(); i++) {
+                statement.setInt(i + 1, accountIds.get(i));
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    credited.put(resultSet.getInt("account_id"), resultSet.getBigDecimal("interest"));
+                }
+            }
+        }
+
+        return credited;
+    }
+
+    /**
+     * Record the outcome of a maturity batch: matured terms get their final
+     * interest and payout, terms that could not be paid out keep status OPEN
+     * with last_error set
+     * @param connection Connection with an open transaction
+     * @param terms Terms processed in the batch
+     * @throws SQLException if database operation fails
+     */
+    public void saveMaturities(Connection connection, List<FixedDepositTerm> terms) throws SQLException {
+        String sql = "UPDATE fixed_deposit_terms SET status = ?, final_interest = ?, payout_amount = ?, " +
+                    "payout_transaction_id = ?, matured_at = ?, last_error = ? WHERE account_id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            for (FixedDepositTerm term : terms) {
+                statement.setString(1, term.getStatus().getValue());
+                statement.setBigDecimal(2, term.getFinalInterest());
+                statement.setBigDecimal(3, term.getPayoutAmount());
+                statement.setObject(4, term.getPayoutTransactionId());
+                statement.setTimestamp(5, term.getMaturedAt());
+                statement.setString(6, term.getLastError());
+                statement.setInt(7, term.getAccountId());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        return placeholders.toString();
+    }
+
+    /**
+     * Map ResultSet to FixedDepositTerm object
+     * @param resultSet ResultSet containing term data
+     * @return FixedDepositTerm object
+     * @throws SQLException if mapping fails
+     */
+    private FixedDepositTerm mapResultSetToTerm(ResultSet resultSet) throws SQLException {
+        FixedDepositTerm term = new FixedDepositTerm();
+        term.setAccountId(resultSet.getInt("account_id"));
+        term.setAccountNumber(resultSet.getString("account_number"));
+        term.setPrincipal(resultSet.getBigDecimal("principal"));
+        term.setAnnualRate(resultSet.getBigDecimal("annual_rate"));
+        term.setTermMonths(resultSet.getInt("term_months"));
+        term.setStartDate(resultSet.getDate("start_date"));
+        term.setMaturityDate(resultSet.getDate("maturity_date"));
+        term.setPayoutAccountId(resultSet.getInt("payout_account_id"));
+        term.setStatus(FixedDepositTerm.TermStatus.fromString(resultSet.getString("status")));
+        term.setFinalInterest(resultSet.getBigDecimal("final_interest"));
+        term.setPayoutAmount(resultSet.getBigDecimal("payout_amount"));
+        term.setPayoutTransactionId(resultSet.getObject("payout_transaction_id", Integer.class));
+        term.setMaturedAt(resultSet.getTimestamp("matured_at"));
+        term.setLastError(resultSet.getString("last_error"));
+        return term;
+    }
+}
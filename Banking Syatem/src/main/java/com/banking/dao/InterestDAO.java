@@ -0,0 +1,202 @@
+package com.banking.dao;
+
+import com.banking.model.Account;
+import com.banking.model.InterestAccrual;
+import com.banking.model.InterestRunPartition;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for end-of-day interest accrual: the account scan, the
+ * batched balance updates and the per-partition progress in interest_runs.
+ */
+public class InterestDAO {
+
+    /**
+     * Record the partitions of a run. Partitions already recorded are kept as they are.
+     * @param partitions Partitions to record
+     * @throws SQLException if database operation fails
+     */
+    public void createRunPartitions(List<InterestRunPartition> partitions) throws SQLException {
+        String sql = "INSERT IGNORE INTO interest_runs (run_date, partition_no, first_account_id, end_account_id, " +
+                    "last_account_id) VALUES (?, ?, ?, ?, ?)";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            for (InterestRunPartition partition : partitions) {
+                statement.setDate(1, partition.getRunDate());
+                statement.setInt(2, partition.getPartitionNo());
+                statement.setInt(3, partition.getFirstAccountId());
+                statement.setInt(4, partition.getEndAccountId());
+                statement.setInt(5, partition.getLastAccountId());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Get the partitions of a run
+     * @param runDate Run date
+     * @return List of partitions ordered by partition number, empty if the run has not started
+     * @throws SQLException if database operation fails
+     */
+    public List<InterestRunPartition> getRunPartitions(Date runDate) throws SQLException {
+        String sql = "SELECT * FROM interest_runs WHERE run_date = ? ORDER BY partition_no";
+        List<InterestRunPartition> partitions = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setDate(1, runDate);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    partitions.add(mapResultSetToPartition(resultSet));
+                }
+            }
+        }
+
+        return partitions;
+    }
+
+    /**
+     * Lock the next accounts of a partition that earn interest
+     * @param connection Connection with an open transaction
+     * @param afterAccountId Last account ID already accrued
+     * @param endAccountId Last account ID of the partition
+     * @param accountTypes Account types that earn interest
+     * @param limit Maximum number of accounts to return
+     * @return Accounts in ID order, with their balance and interest carry
+     * @throws SQLException if database operation fails
+     */
+    public List<InterestAccrual> lockAccountsForAccrual(Connection connection, int afterAccountId, int endAccountId,
+                                                        List<Account.AccountType> accountTypes, int limit)
+                                                        throws SQLException {
+        StringBuilder types = new StringBuilder();
+        for (int i = 0; i < accountTypes.size(); i++) {
+            types.append(i == 0 ? "?" : ", ?");
+        }
+        // Primary key range scan; slotted accounts keep their balance in the slot rows
+        String sql = "SELECT a.account_id, a.account_type, a.balance_slots, a.interest_carry, " +
+                    "CASE WHEN a.balance_slots > 0 " +
+                    "THEN (SELECT SUM(s.balance) FROM account_balance_slots s WHERE s.account_id = a.account_id) " +
+                    "ELSE a.balance END AS effective_balance FROM accounts a " +
+                    "WHERE a.account_id > ? AND a.account_id <= ? AND a.status = 'ACTIVE' " +
+                    "AND a.account_type IN (" + types + ") ORDER BY a.account_id LIMIT ? FOR UPDATE";
+        List<InterestAccrual> accruals = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            int index = 1;
+            statement.setInt(index++, afterAccountId);
+            statement.setInt(index++, endAccountId);
+            for (Account.AccountType accountType : accountTypes) {
+                statement.setString(index++, accountType.getValue());
+            }
+            statement.setInt(index, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    InterestAccrual accrual = new InterestAccrual();
+                    accrual.setAccountId(resultSet.getInt("account_id"));
+                    accrual.setAccountType(Account.AccountType.fromString(resultSet.getString("account_type")));
+                    accrual.setBalanceSlots(resultSet.getInt("balance_slots"));
+                    accrual.setInterestCarry(resultSet.getBigDecimal("interest_carry"));
+                    accrual.setBalance(resultSet.getBigDecimal("effective_balance"));
+                    accruals.add(accrual);
+                }
+            }
+        }
+
+        return accruals;
+    }
+
+    /**
+     * Credit computed interest and store the new carries with batched updates
+     * @param connection Connection with an open transaction holding the account locks
+     * @param accruals Computed accruals
+     * @throws SQLException if database operation fails
+     */
+    public void applyAccruals(Connection connection, List<InterestAccrual> accruals) throws SQLException {
+        String accountSql = "UPDATE accounts SET balance = balance + ?, interest_carry = ?, version = version + 1 " +
+                           "WHERE account_id = ?";
+        String slotSql = "UPDATE account_balance_slots SET balance = balance + ? WHERE account_id = ? AND slot_no = 0";
+
+        try (PreparedStatement accountStatement = connection.prepareStatement(accountSql);
+             PreparedStatement slotStatement = connection.prepareStatement(slotSql)) {
+
+            boolean slotted = false;
+            for (InterestAccrual accrual : accruals) {
+                // Slotted accounts keep accounts.balance at 0 and take the credit on a slot row
+                accountStatement.setBigDecimal(1, accrual.isSlotted()
+                    ? BigDecimal.ZERO : accrual.getInterestAmount());
+                accountStatement.setBigDecimal(2, accrual.getNewInterestCarry());
+                accountStatement.setInt(3, accrual.getAccountId());
+                accountStatement.addBatch();
+
+                if (accrual.isSlotted() && accrual.getInterestAmount().signum() > 0) {
+                    slotStatement.setBigDecimal(1, accrual.getInterestAmount());
+                    slotStatement.setInt(2, accrual.getAccountId());
+                    slotStatement.addBatch();
+                    slotted = true;
+                }
+            }
+            accountStatement.executeBatch();
+            if (slotted) {
+                slotStatement.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Save a partition's progress
+     * @param connection Connection with the transaction that posted the progress
+     * @param partition Partition with updated counters
+     * @throws SQLException if database operation fails
+     */
+    public void saveRunProgress(Connection connection, InterestRunPartition partition) throws SQLException {
+        String sql = "UPDATE interest_runs SET last_account_id = ?, accounts_accrued = ?, interest_posted = ?, " +
+                    "completed = ? WHERE run_date = ? AND partition_no = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, partition.getLastAccountId());
+            statement.setInt(2, partition.getAccountsAccrued());
+            statement.setBigDecimal(3, partition.getInterestPosted());
+            statement.setBoolean(4, partition.isCompleted());
+            statement.setDate(5, partition.getRunDate());
+            statement.setInt(6, partition.getPartitionNo());
+
+            if (statement.executeUpdate() == 0) {
+                throw new SQLException("Interest run partition not found: " + partition.getRunDate() + "/"
+                                       + partition.getPartitionNo());
+            }
+        }
+    }
+
+    /**
+     * Map ResultSet to InterestRunPartition object
+     * @param resultSet ResultSet containing partition data
+     * @return InterestRunPartition object
+     * @throws SQLException if mapping fails
+     */
+    private InterestRunPartition mapResultSetToPartition(ResultSet resultSet) throws SQLException {
+        InterestRunPartition partition = new InterestRunPartition();
+        partition.setRunDate(resultSet.getDate("run_date"));
+        partition.setPartitionNo(resultSet.getInt("partition_no"));
+        partition.setFirstAccountId(resultSet.getInt("first_account_id"));
+        partition.setEndAccountId(resultSet.getInt("end_account_id"));
+        partition.setLastAccountId(resultSet.getInt("last_account_id"));
+        partition.setAccountsAccrued(resultSet.getInt("accounts_accrued"));
+        partition.setInterestPosted(resultSet.getBigDecimal("interest_posted"));
+        partition.setCompleted(resultSet.getBoolean("completed"));
+        return partition;
+    }
+}
@@ -0,0 +1,292 @@
+package com.banking.dao;
+
+import com.banking.model.Posting;
+import com.banking.util.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for the double-entry postings ledger.
+ *
+ * Writes are append-only: posting a journal inserts one row per side and never
+ * updates existing rows. A customer account's balance is the running balance
+ * of its latest posting; an account without postings yet starts from the
+ * balance stored on its accounts row.
+ */
+public class LedgerDAO {
+    private static final int MAX_IDS_PER_QUERY = 500;
+
+    /**
+     * Append the postings of one journal
+     * @param connection Connection with an open transaction
+     * @param transactionId ID of the transactions row acting as journal header
+     * @param postings Postings to append; amounts must sum to zero
+     * @return true if posted, false if a customer account would go negative
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if the postings are not balanced
+     */
+    public boolean postJournal(Connection connection, int transactionId, List<Posting> postings) throws SQLException {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Posting posting : postings) {
+            total = total.add(posting.getAmount());
+        }
+        if (total.signum() != 0) {
+            throw new IllegalArgumentException("Unbalanced journal for transaction " + transactionId + ": " + total);
+        }
+
+        // Lock the tails of the affected accounts in a fixed order to avoid deadlocks
+        List<Posting> ordered = new ArrayList<>(postings);
+        ordered.sort(Comparator.comparingInt(Posting::getAccountId));
+
+        for (Posting posting : ordered) {
+            posting.setTransactionId(transactionId);
+            if (posting.isSystemAccount()) {
+                posting.setPostingSeq(transactionId);
+                posting.setRunningBalance(null);
+                continue;
+            }
+
+            Posting last = getLastPostingForUpdate(connection, posting.getAccountId());
+            long previousSeq = last != null ? last.getPostingSeq() : 0;
+            BigDecimal previousBalance = last != null
+                ? last.getRunningBalance() : getOpeningBalance(connection, posting.getAccountId());
+
+            BigDecimal runningBalance = previousBalance.add(posting.getAmount());
+            if (runningBalance.signum() < 0) {
+                return false;
+            }
+            posting.setPostingSeq(previousSeq + 1);
+            posting.setRunningBalance(runningBalance);
+        }
+
+        String sql = "INSERT INTO postings (account_id, posting_seq, transaction_id, amount, running_balance) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Posting posting : ordered) {
+                statement.setInt(1, posting.getAccountId());
+                statement.setLong(2, posting.getPostingSeq());
+                statement.setInt(3, posting.getTransactionId());
+                statement.setBigDecimal(4, posting.getAmount());
+                statement.setBigDecimal(5, posting.getRunningBalance());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+
+        return true;
+    }
+
+    /**
+     * Get the ledger balance of a customer account
+     * @param accountId Account ID
+     * @return Running balance of the latest posting, or the accounts row balance if there is none
+     * @throws SQLException if database operation fails
+     */
+    public BigDecimal getBalance(int accountId) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            return getBalance(connection, accountId);
+        }
+    }
+
+    /**
+     * Get the ledger balance of a customer account on a caller-managed connection
+     * @param connection Connection to use (may have an open transaction)
+     * @param accountId Account ID
+     * @return Running balance of the latest posting, or the accounts row balance if there is none
+     * @throws SQLException if database operation fails
+     */
+    public BigDecimal getBalance(Connection connection, int accountId) throws SQLException {
+        String sql = "SELECT running_balance FROM postings WHERE account_id = ? " +
+                    "ORDER BY posting_seq DESC LIMIT 1";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, accountId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getBigDecimal("running_balance");
+                }
+            }
+
+            return getOpeningBalance(connection, accountId);
+        }
+    }
+
+    /**
+     * Get the ledger balances of several customer accounts
+     * @param accountIds Account IDs
+     * @return Running balance of each account's latest posting; accounts without postings are absent
+     * @throws SQLException if database operation fails
+     */
+    public Map<Integer, BigDecimal> getBalances(Collection<Integer> accountIds) throws SQLException {
+        Map<Integer, BigDecimal> balances = new HashMap<>();
+        Iterator<Integer> ids = accountIds.iterator();
+
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            while (ids.hasNext()) {
+                // Bound the IN list so a full account listing does not build one huge statement
+                List<Integer> chunk = new ArrayList<>();
+                while (ids.hasNext() && chunk.size() < MAX_IDS_PER_QUERY) {
+                    chunk.add(ids.next());
+                }
+
+                StringBuilder placeholders = new StringBuilder();
+                for (int i = 0; i < chunk.size(); i++) {
+                    placeholders.append(i == 0 ? "?" : ", ?");
+                }
+                String sql = "SELECT p.account_id, p.running_balance FROM postings p " +
+                            "JOIN (SELECT account_id, MAX(posting_seq) AS last_seq FROM postings " +
+                            "WHERE account_id IN (" + placeholders + ") GROUP BY account_id) l " +
+                            "ON p.account_id = l.account_id AND p.posting_seq = l.last_seq";
+
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setInt(i + 1, chunk.get(i));
+                    }
+
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            balances.put(resultSet.getInt("account_id"), resultSet.getBigDecimal("running_balance"));
+                        }
+                    }
+                }
+            }
+        }
+
+        return balances;
+    }
+
+    /**
+     * Check whether any customer account has been posted to
+     * @return true if at least one customer posting exists
+     * @throws SQLException if database operation fails
+     */
+    public boolean hasPostings() throws SQLException {
+        String sql = "SELECT 1 FROM postings WHERE account_id > 0 LIMIT 1";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next();
+        }
+    }
+
+    /**
+     * Get a page of postings for an account, newest first
+     * @param accountId Account ID
+     * @param beforeSeq Sequence of the last posting of the previous page (Long.MAX_VALUE for the first page)
+     * @param limit Maximum number of postings to return
+     * @return List of postings
+     * @throws SQLException if database operation fails
+     */
+    public List<Posting> getPostings(int accountId, long beforeSeq, int limit) throws SQLException {
+        String sql = "SELECT * FROM postings WHERE account_id = ? AND posting_seq < ? " +
+                    "ORDER BY posting_seq DESC LIMIT ?";
+        List<Posting> postings = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, accountId);
+            statement.setLong(2, beforeSeq);
+            statement.setInt(3, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    postings.add(mapResultSetToPosting(resultSet));
+                }
+            }
+        }
+
+        return postings;
+    }
+
+    /**
+     * Get the postings of one journal
+     * @param transactionId Journal (transaction) ID
+     * @return List of postings
+     * @throws SQLException if database operation fails
+     */
+    public List<Posting> getPostingsByTransactionId(int transactionId) throws SQLException {
+        String sql = "SELECT * FROM postings WHERE transaction_id = ? ORDER BY account_id";
+        List<Posting> postings = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, transactionId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    postings.add(mapResultSetToPosting(resultSet));
+                }
+            }
+        }
+
+        return postings;
+    }
+
+    private Posting getLastPostingForUpdate(Connection connection, int accountId) throws SQLException {
+        String sql = "SELECT * FROM postings WHERE account_id = ? ORDER BY posting_seq DESC LIMIT 1 FOR UPDATE";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, accountId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return mapResultSetToPosting(resultSet);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private BigDecimal getOpeningBalance(Connection connection, int accountId) throws SQLException {
+        // Slot-aware, in case the account was a slotted hot account before ledger mode
+        String sql = "SELECT CASE WHEN a.balance_slots > 0 " +
+                    "THEN (SELECT SUM(s.balance) FROM account_balance_slots s WHERE s.account_id = a.account_id) " +
+                    "ELSE a.balance END AS balance FROM accounts a WHERE a.account_id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, accountId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return resultSet.getBigDecimal("balance");
+                }
+            }
+        }
+
+        throw new SQLException("Account not found for ledger posting: " + accountId);
+    }
+
+    /**
+     * Map ResultSet to Posting object
+     * @param resultSet ResultSet containing posting data
+     * @return Posting object
+     * @throws SQLException if mapping fails
+     */
+    private Posting mapResultSetToPosting(ResultSet resultSet) throws SQLException {
+        Posting posting = new Posting();
+        posting.setAccountId(resultSet.getInt("account_id"));
+        posting.setPostingSeq(resultSet.getLong("posting_seq"));
+        posting.setTransactionId(resultSet.getInt("transaction_id"));
+        posting.setAmount(resultSet.getBigDecimal("amount"));
+        posting.setRunningBalance(resultSet.getBigDecimal("running_balance"));
+        posting.setPostedAt(resultSet.getTimestamp("posted_at"));
+        return posting;
+    }
+}
@@ -0,0 +1,225 @@
+package com.banking.dao;
+
+import com.banking.model.OutboxEvent;
+import com.banking.model.Transaction;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the transactional outbox and relay checkpoints
+ */
+public class OutboxDAO {
+
+    /**
+     * Copy a just-inserted transactions row into the outbox
+     * @param connection Connection holding the transaction that inserted the row
+     * @param transactionId ID of the transactions row
+     * @throws SQLException if database operation fails
+     */
+    public void append(Connection connection, int transactionId) throws SQLException {
+        String sql = "INSERT INTO transaction_outbox (transaction_id, transaction_type, from_account_id, " +
+                    "to_account_id, amount, description, transaction_date) " +
+                    "SELECT transaction_id, transaction_type, from_account_id, to_account_id, amount, " +
+                    "description, transaction_date FROM transactions WHERE transaction_id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, transactionId);
+            if (statement.executeUpdate() == 0) {
+                throw new SQLException("Writing outbox event failed, transaction not found: " + transactionId);
+            }
+        }
+    }
+
+    /**
+     * Append the outbox events of several transactions with one batched statement
+     * @param connection Connection with an open transaction
+     * @param transactionIds IDs of transactions created on the same connection
+     * @throws SQLException if database operation fails
+     */
+    public void append(Connection connection, List<Integer> transactionIds) throws SQLException {
+        String sql = "INSERT INTO transaction_outbox (transaction_id, transaction_type, from_account_id, " +
+                    "to_account_id, amount, description, transaction_date) " +
+                    "SELECT transaction_id, transaction_type, from_account_id, to_account_id, amount, " +
+                    "description, transaction_date FROM transactions WHERE transaction_id = ?";
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int transactionId : transactionIds) {
+                statement.setInt(1, transactionId);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * Get outbox events after an ID, oldest first
+     * @param afterOutboxId Events with a greater ID are returned
+     * @param limit Maximum number of events to return
+     * @return List of outbox events
+     * @throws SQLException if database operation fails
+     */
+    public List<OutboxEvent> getEventsAfter(long afterOutboxId, int limit) throws SQLException {
+        String sql = "SELECT * FROM transaction_outbox WHERE outbox_id > ? ORDER BY outbox_id LIMIT ?";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setLong(1, afterOutboxId);
+            statement.setInt(2, limit);
+            return readEvents(statement);
+        }
+    }
+
+    /**
+     * Get outbox events in an ID range, oldest first
+     * @param afterOutboxId Lower bound (exclusive)
+     * @param upToOutboxId Upper bound (inclusive)
+     * @return List of outbox events
+     * @throws SQLException if database operation fails
+     */
+    public List<OutboxEvent> getEventsInRange(long afterOutboxId, long upToOutboxId) throws SQLException {
+        String sql = "SELECT * FROM transaction_outbox WHERE outbox_id > ? AND outbox_id <= ? ORDER BY outbox_id";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setLong(1, afterOutboxId);
+            statement.setLong(2, upToOutboxId);
+            return readEvents(statement);
+        }
+    }
+
+    /**
+     * Get outbox events in an ID range with a shared-lock read. Inserts into the
+     * range that are still uncommitted hold their row locks, so the read waits
+     * for them (up to the lock wait timeout) and an ID it does not return was
+     * rolled back rather than merely not yet committed.
+     * @param afterOutboxId Lower bound (exclusive)
+     * @param upToOutboxId Upper bound (inclusive)
+     * @return List of outbox events
+     * @throws SQLException if database operation fails or the lock wait times out
+     */
+    public List<OutboxEvent> getEventsInRangeLocking(long afterOutboxId, long upToOutboxId) throws SQLException {
+        String sql = "SELECT * FROM transaction_outbox WHERE outbox_id > ? AND outbox_id <= ? " +
+                    "ORDER BY outbox_id LOCK IN SHARE MODE";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH)) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setLong(1, afterOutboxId);
+                statement.setLong(2, upToOutboxId);
+                List<OutboxEvent> events = readEvents(statement);
+                connection.commit();
+                return events;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Get the highest outbox ID written so far
+     * @return Highest outbox ID, or 0 if the outbox is empty
+     * @throws SQLException if database operation fails
+     */
+    public long getMaxOutboxId() throws SQLException {
+        String sql = "SELECT COALESCE(MAX(outbox_id), 0) FROM transaction_outbox";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql);
+             ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Delete events a relay has already published
+     * @param upToOutboxId Events up to and including this ID are deleted
+     * @return Number of events deleted
+     * @throws SQLException if database operation fails
+     */
+    public int deleteEventsUpTo(long upToOutboxId) throws SQLException {
+        String sql = "DELETE FROM transaction_outbox WHERE outbox_id <= ?";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setLong(1, upToOutboxId);
+            return statement.executeUpdate();
+        }
+    }
+
+    /**
+     * Get a relay's checkpoint
+     * @param relayName Relay name
+     * @return Last outbox ID the relay has fully published, or 0 if it never ran
+     * @throws SQLException if database operation fails
+     */
+    public long getCheckpoint(String relayName) throws SQLException {
+        String sql = "SELECT last_outbox_id FROM outbox_checkpoints WHERE relay_name = ?";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setString(1, relayName);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong("last_outbox_id") : 0;
+            }
+        }
+    }
+
+    /**
+     * Save a relay's checkpoint
+     * @param relayName Relay name
+     * @param lastOutboxId Last outbox ID the relay has fully published
+     * @throws SQLException if database operation fails
+     */
+    public void saveCheckpoint(String relayName, long lastOutboxId) throws SQLException {
+        String sql = "INSERT INTO outbox_checkpoints (relay_name, last_outbox_id) VALUES (?, ?) " +
+                    "ON DUPLICATE KEY UPDATE last_outbox_id = VALUES(last_outbox_id)";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setString(1, relayName);
+            statement.setLong(2, lastOutboxId);
+            statement.executeUpdate();
+        }
+    }
+
+    private List<OutboxEvent> readEvents(PreparedStatement statement) throws SQLException {
+        List<OutboxEvent> events = new ArrayList<>();
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                events.add(mapResultSetToOutboxEvent(resultSet));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Map ResultSet to OutboxEvent object
+     * @param resultSet ResultSet containing outbox data
+     * @return OutboxEvent object
+     * @throws SQLException if mapping fails
+     */
+    private OutboxEvent mapResultSetToOutboxEvent(ResultSet resultSet) throws SQLException {
+        OutboxEvent event = new OutboxEvent();
+        event.setOutboxId(resultSet.getLong("outbox_id"));
+        event.setTransactionId(resultSet.getInt("transaction_id"));
+        event.setTransactionType(Transaction.TransactionType.fromString(resultSet.getString("transaction_type")));
+        event.setFromAccountId(resultSet.getObject("from_account_id", Integer.class));
+        event.setToAccountId(resultSet.getObject("to_account_id", Integer.class));
+        event.setAmount(resultSet.getBigDecimal("amount"));
+        event.setDescription(resultSet.getString("description"));
+        event.setTransactionDate(resultSet.getTimestamp("transaction_date"));
+        event.setCreatedAt(resultSet.getTimestamp("created_at"));
+        return event;
+    }
+}
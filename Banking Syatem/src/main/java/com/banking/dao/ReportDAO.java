@@ -0,0 +1,389 @@
+package com.banking.dao;
+
+import com.banking.model.Account;
+import com.banking.model.AccountStatement;
+import com.banking.model.AccountSummary;
+import com.banking.model.Transaction;
+import com.banking.model.TransactionHistoryEntry;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for the materialized reporting tables
+ * (account_summary_mv and transaction_history_mv).
+ *
+ * The tables are maintained by triggers, so every read here is a single-table
+ * index range scan. Pages are keyset based: pass the last row of the previous
+ * page to get the next one, or null/0 for the first page.
+ */
+public class ReportDAO {
+
+    // Slotted (hot) accounts keep their balance in account_balance_slots
+    private static final String SELECT_SUMMARIES =
+        "SELECT m.*, m.balance + COALESCE((SELECT SUM(s.balance) FROM account_balance_slots s " +
+        "WHERE s.account_id = m.account_id), 0) AS current_balance FROM account_summary_mv m ";
+    
+    private static final String HISTORY_KEYSET =
+        "(? IS NULL OR transaction_date < ? OR (transaction_date = ? AND transaction_id < ?))";
+    
+    private static final String STATEMENT_KEYSET =
+        "(? IS NULL OR transaction_date > ? OR (transaction_date = ? AND transaction_id > ?))";
+
+    /**
+     * Get a page of account summaries ordered by account ID
+     * @param afterAccountId Last account ID of the previous page (0 for the first page)
+     * @param limit Maximum number of rows to return
+     * @return List of account summaries
+     * @throws SQLException if database operation fails
+     */
+    public List<AccountSummary> getAccountSummaries(int afterAccountId, int limit) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            return getAccountSummaries(connection, afterAccountId, limit);
+        }
+    }
+
+    /**
+     * Get a page of account summaries ordered by account ID on a caller-managed connection
+     * @param connection Connection to use (may have an open transaction)
+     * @param afterAccountId Last account ID of the previous page (0 for the first page)
+     * @param limit Maximum number of rows to return
+     * @return List of account summaries
+     * @throws SQLException if database operation fails
+     */
+    public List<AccountSummary> getAccountSummaries(Connection connection, int afterAccountId, int limit)
+                                                    throws SQLException {
+        String sql = SELECT_SUMMARIES + "WHERE m.account_id > ? ORDER BY m.account_id LIMIT ?";
+        List<AccountSummary> summaries = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, afterAccountId);
+            statement.setInt(2, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    summaries.add(mapResultSetToAccountSummary(resultSet));
+                }
+            }
+        }
+
+        return summaries;
+    }
+
+    /**
+     * Get account summaries for a customer
+     * @param customerId Customer ID
+     * @return List of the customer's account summaries
+     * @throws SQLException if database operation fails
+     */
+    public List<AccountSummary> getAccountSummariesByCustomerId(int customerId) throws SQLException {
+        String sql = SELECT_SUMMARIES + "WHERE m.customer_id = ? ORDER BY m.account_id";
+        List<AccountSummary> summaries = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, customerId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    summaries.add(mapResultSetToAccountSummary(resultSet));
+                }
+            }
+        }
+
+        return summaries;
+    }
+
+    /**
+     * Get a page of the bank-wide transaction history, newest first
+     * @param beforeDate Date of the last entry of the previous page (null for the first page)
+     * @param beforeTransactionId Transaction ID of the last entry of the previous page
+     * @param limit Maximum number of rows to return
+     * @return List of history entries
+     * @throws SQLException if database operation fails
+     */
+    public List<TransactionHistoryEntry> getTransactionHistory(Timestamp beforeDate, int beforeTransactionId,
+                                                               int limit) throws SQLException {
+        String sql = "SELECT * FROM transaction_history_mv WHERE " + HISTORY_KEYSET + " " +
+                    "ORDER BY transaction_date DESC, transaction_id DESC LIMIT ?";
+        List<TransactionHistoryEntry> entries = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            int index = setHistoryKeyset(statement, 1, beforeDate, beforeTransactionId);
+            statement.setInt(index, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    entries.add(mapResultSetToHistoryEntry(resultSet));
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Get a page of transaction history for one account, newest first
+     * @param accountId Account ID
+     * @param beforeDate Date of the last entry of the previous page (null for the first page)
+     * @param beforeTransactionId Transaction ID of the last entry of the previous page
+     * @param limit Maximum number of rows to return
+     * @return List of history entries
+     * @throws SQLException if database operation fails
+     */
+    public List<TransactionHistoryEntry> getTransactionHistoryForAccount(int accountId, Timestamp beforeDate,
+                                                                         int beforeTransactionId, int limit)
+                                                                         throws SQLException {
+        // Each branch is a range scan on its own (account, date, id) index
+        String sql = "(SELECT * FROM transaction_history_mv WHERE from_account_id = ? AND " + HISTORY_KEYSET + " " +
+                    "ORDER BY transaction_date DESC, transaction_id DESC LIMIT ?) " +
+                    "UNION ALL " +
+                    "(SELECT * FROM transaction_history_mv WHERE to_account_id = ? AND " + HISTORY_KEYSET + " " +
+                    "ORDER BY transaction_date DESC, transaction_id DESC LIMIT ?) " +
+                    "ORDER BY transaction_date DESC, transaction_id DESC LIMIT ?";
+        List<TransactionHistoryEntry> entries = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, accountId);
+            int index = setHistoryKeyset(statement, 2, beforeDate, beforeTransactionId);
+            statement.setInt(index++, limit);
+            statement.setInt(index++, accountId);
+            index = setHistoryKeyset(statement, index, beforeDate, beforeTransactionId);
+            statement.setInt(index++, limit);
+            statement.setInt(index, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    entries.add(mapResultSetToHistoryEntry(resultSet));
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Add an account's per-type credits and debits within the statement period to
+     * the statement and set its entry count
+     * @param connection Connection to use (may have an open transaction)
+     * @param accountStatement Statement with account and period set
+     * @return Net change of the account's balance from the period end up to now
+     * @throws SQLException if database operation fails
+     */
+    public BigDecimal getStatementTotals(Connection connection, AccountStatement accountStatement)
+                                         throws SQLException {
+        // One range scan per direction; rows after the period only feed the net change
+        String sql = "SELECT transaction_type, 1 AS credit, transaction_date >= ? AS after_period, " +
+                    "COUNT(*) AS entries, SUM(amount) AS total FROM transaction_history_mv " +
+                    "WHERE to_account_id = ? AND transaction_date >= ? GROUP BY transaction_type, after_period " +
+                    "UNION ALL " +
+                    "SELECT transaction_type, 0 AS credit, transaction_date >= ? AS after_period, " +
+                    "COUNT(*) AS entries, SUM(amount) AS total FROM transaction_history_mv " +
+                    "WHERE from_account_id = ? AND transaction_date >= ? GROUP BY transaction_type, after_period";
+        BigDecimal netChangeAfter = BigDecimal.ZERO;
+        int entryCount = 0;
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            for (int index = 1; index <= 4; index += 3) {
+                statement.setTimestamp(index, accountStatement.getPeriodEnd());
+                statement.setInt(index + 1, accountStatement.getAccountId());
+                statement.setTimestamp(index + 2, accountStatement.getPeriodStart());
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    boolean credit = resultSet.getInt("credit") == 1;
+                    BigDecimal total = resultSet.getBigDecimal("total");
+                    if (resultSet.getBoolean("after_period")) {
+                        netChangeAfter = credit ? netChangeAfter.add(total) : netChangeAfter.subtract(total);
+                        continue;
+                    }
+                    Transaction.TransactionType type =
+                        Transaction.TransactionType.fromString(resultSet.getString("transaction_type"));
+                    if (credit) {
+                        accountStatement.addCredit(type, total);
+                    } else {
+                        accountStatement.addDebit(type, total);
+                    }
+                    entryCount += resultSet.getInt("entries");
+                }
+            }
+        }
+
+        accountStatement.setEntryCount(entryCount);
+        return netChangeAfter;
+    }
+
+    /**
+     * Get a page of an account's transactions within a statement period, oldest first
+     * @param connection Connection to use (may have an open transaction)
+     * @param accountId Account ID
+     * @param periodStart Start of the period (inclusive)
+     * @param periodEnd End of the period (exclusive)
+     * @param afterDate Date of the last entry of the previous page (null for the first page)
+     * @param afterTransactionId Transaction ID of the last entry of the previous page
+     * @param limit Maximum number of rows to return
+     * @return List of history entries
+     * @throws SQLException if database operation fails
+     */
+    public List<TransactionHistoryEntry> getStatementEntries(Connection connection, int accountId,
+                                                             Timestamp periodStart, Timestamp periodEnd,
+                                                             Timestamp afterDate, int afterTransactionId,
+                                                             int limit) throws SQLException {
+        String branch = "transaction_date >= ? AND transaction_date < ? AND " + STATEMENT_KEYSET + " " +
+                       "ORDER BY transaction_date, transaction_id LIMIT ?";
+        String sql = "(SELECT * FROM transaction_history_mv WHERE from_account_id = ? AND " + branch + ") " +
+                    "UNION ALL " +
+                    "(SELECT * FROM transaction_history_mv WHERE to_account_id = ? AND " + branch + ") " +
+                    "ORDER BY transaction_date, transaction_id LIMIT ?";
+        List<TransactionHistoryEntry> entries = new ArrayList<>();
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            int index = 1;
+            for (int branchNo = 0; branchNo < 2; branchNo++) {
+                statement.setInt(index++, accountId);
+                statement.setTimestamp(index++, periodStart);
+                statement.setTimestamp(index++, periodEnd);
+                index = setHistoryKeyset(statement, index, afterDate, afterTransactionId);
+                statement.setInt(index++, limit);
+            }
+            statement.setInt(index, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    entries.add(mapResultSetToHistoryEntry(resultSet));
+                }
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * Rebuild account_summary_mv from the base tables.
+     * Only needed after bulk loads that bypass the triggers or to repair drift.
+     * @return Number of rows in the refreshed table
+     * @throws SQLException if database operation fails
+     */
+    public int refreshAccountSummary() throws SQLException {
+        String insertSql = "INSERT INTO account_summary_mv " +
+                          "SELECT a.account_id, a.account_number, a.customer_id, " +
+                          "CONCAT(c.first_name, ' ', c.last_name), c.email, " +
+                          "a.account_type, a.balance, a.status, a.created_at " +
+                          "FROM accounts a JOIN customers c ON a.customer_id = c.customer_id";
+
+        return rebuild("DELETE FROM account_summary_mv", insertSql);
+    }
+
+    /**
+     * Rebuild transaction_history_mv from the base tables.
+     * Only needed after bulk loads that bypass the triggers or to repair drift.
+     * @return Number of rows in the refreshed table
+     * @throws SQLException if database operation fails
+     */
+    public int refreshTransactionHistory() throws SQLException {
+        String insertSql = "INSERT INTO transaction_history_mv " +
+                          "SELECT t.transaction_id, t.transaction_type, t.amount, t.description, t.transaction_date, " +
+                          "t.from_account_id, t.to_account_id, " +
+                          "CONCAT(c1.first_name, ' ', c1.last_name), CONCAT(c2.first_name, ' ', c2.last_name), " +
+                          "a1.account_number, a2.account_number " +
+                          "FROM transactions t " +
+                          "LEFT JOIN accounts a1 ON t.from_account_id = a1.account_id " +
+                          "LEFT JOIN accounts a2 ON t.to_account_id = a2.account_id " +
+                          "LEFT JOIN customers c1 ON a1.customer_id = c1.customer_id " +
+                          "LEFT JOIN customers c2 ON a2.customer_id = c2.customer_id";
+
+        return rebuild("DELETE FROM transaction_history_mv", insertSql);
+    }
+
+    /**
+     * Replace the contents of a materialized table in a single database transaction
+     * @param deleteSql Statement clearing the table
+     * @param insertSql Statement repopulating the table
+     * @return Number of rows inserted
+     * @throws SQLException if database operation fails
+     */
+    private int rebuild(String deleteSql, String insertSql) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH)) {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement delete = connection.prepareStatement(deleteSql);
+                 PreparedStatement insert = connection.prepareStatement(insertSql)) {
+                delete.executeUpdate();
+                int rows = insert.executeUpdate();
+                connection.commit();
+                return rows;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Bind the keyset predicate parameters
+     * @return Next free parameter index
+     */
+    private int setHistoryKeyset(PreparedStatement statement, int index, Timestamp beforeDate,
+                                 int beforeTransactionId) throws SQLException {
+        statement.setTimestamp(index++, beforeDate);
+        statement.setTimestamp(index++, beforeDate);
+        statement.setTimestamp(index++, beforeDate);
+        statement.setInt(index++, beforeTransactionId);
+        return index;
+    }
+
+    /**
+     * Map ResultSet to AccountSummary object
+     * @param resultSet ResultSet containing summary data
+     * @return AccountSummary object
+     * @throws SQLException if mapping fails
+     */
+    private AccountSummary mapResultSetToAccountSummary(ResultSet resultSet) throws SQLException {
+        AccountSummary summary = new AccountSummary();
+        summary.setAccountId(resultSet.getInt("account_id"));
+        summary.setAccountNumber(resultSet.getString("account_number"));
+        summary.setCustomerId(resultSet.getInt("customer_id"));
+        summary.setCustomerName(resultSet.getString("customer_name"));
+        summary.setEmail(resultSet.getString("email"));
+        summary.setAccountType(Account.AccountType.fromString(resultSet.getString("account_type")));
+        summary.setBalance(resultSet.getBigDecimal("current_balance"));
+        summary.setStatus(Account.AccountStatus.fromString(resultSet.getString("status")));
+        summary.setCreatedAt(resultSet.getTimestamp("created_at"));
+        return summary;
+    }
+
+    /**
+     * Map ResultSet to TransactionHistoryEntry object
+     * @param resultSet ResultSet containing history data
+     * @return TransactionHistoryEntry object
+     * @throws SQLException if mapping fails
+     */
+    private TransactionHistoryEntry mapResultSetToHistoryEntry(ResultSet resultSet) throws SQLException {
+        TransactionHistoryEntry entry = new TransactionHistoryEntry();
+        entry.setTransactionId(resultSet.getInt("transaction_id"));
+        entry.setTransactionType(Transaction.TransactionType.fromString(resultSet.getString("transaction_type")));
+        entry.setAmount(resultSet.getBigDecimal("amount"));
+        entry.setDescription(resultSet.getString("description"));
+        entry.setTransactionDate(resultSet.getTimestamp("transaction_date"));
+        entry.setFromAccountId(resultSet.getObject("from_account_id", Integer.class));
+        entry.setToAccountId(resultSet.getObject("to_account_id", Integer.class));
+        entry.setFromCustomer(resultSet.getString("from_customer"));
+        entry.setToCustomer(resultSet.getString("to_customer"));
+        entry.setFromAccount(resultSet.getString("from_account"));
+        entry.setToAccount(resultSet.getString("to_account"));
+        return entry;
+    }
+}
@@ -0,0 +1,248 @@
+package com.banking.dao;
+
+import com.banking.model.StandingOrder;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data Access Object for standing orders (recurring transfers)
+ */
+public class StandingOrderDAO {
+
+    private static final String SELECT_WITH_ACCOUNTS = "SELECT o.*, f.account_number AS from_account_number, " +
+                    "t.account_number AS to_account_number FROM standing_orders o " +
+                    "JOIN accounts f ON f.account_id = o.from_account_id " +
+                    "JOIN accounts t ON t.account_id = o.to_account_id ";
+
+    /**
+     * Create a new standing order
+     * @param order Standing order to create
+     * @return Standing order with generated ID
+     * @throws SQLException if database operation fails
+     */
+    public StandingOrder createStandingOrder(StandingOrder order) throws SQLException {
+        String sql = "INSERT INTO standing_orders (from_account_id, to_account_id, amount, description, frequency, " +
+                    "start_at, end_at, next_run_at, misfire_policy) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+
+            statement.setInt(1, order.getFromAccountId());
+            statement.setInt(2, order.getToAccountId());
+            statement.setBigDecimal(3, order.getAmount());
+            statement.setString(4, order.getDescription());
+            statement.setString(5, order.getFrequency().getValue());
+            statement.setTimestamp(6, order.getStartAt());
+            statement.setTimestamp(7, order.getEndAt());
+            statement.setTimestamp(8, order.getNextRunAt());
+            statement.setString(9, order.getMisfirePolicy().getValue());
+
+            int affectedRows = statement.executeUpdate();
+            if (affectedRows == 0) {
+                throw new SQLException("Creating standing order failed, no rows affected.");
+            }
+
+            try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    order.setOrderId(generatedKeys.getInt(1));
+                } else {
+                    throw new SQLException("Creating standing order failed, no ID obtained.");
+                }
+            }
+        }
+
+        return order;
+    }
+
+    /**
+     * Get standing order by ID
+     * @param orderId Order ID
+     * @return Standing order or null if not found
+     * @throws SQLException if database operation fails
+     */
+    public StandingOrder getStandingOrderById(int orderId) throws SQLException {
+        String sql = SELECT_WITH_ACCOUNTS + "WHERE o.order_id = ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setInt(1, orderId);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return mapResultSetToStandingOrder(resultSet);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Get a page of active standing orders due before a time, in due order
+     * @param afterRunAt next_run_at of the last order of the previous page
+     * @param afterOrderId ID of the last order of the previous page (0 to include orders due at afterRunAt)
+     * @param dueBefore Exclusive upper bound of next_run_at
+     * @param limit Maximum number of orders to return
+     * @return List of standing orders
+     * @throws SQLException if database operation fails
+     */
+    public List<StandingOrder> getDueOrders(Timestamp afterRunAt, int afterOrderId, Timestamp dueBefore, int limit)
+                                            throws SQLException {
+        String sql = SELECT_WITH_ACCOUNTS + "WHERE o.status = 'ACTIVE' AND o.next_run_at < ? " +
+                    "AND (o.next_run_at > ? OR (o.next_run_at = ? AND o.order_id > ?)) " +
+                    "ORDER BY o.next_run_at, o.order_id LIMIT ?";
+        List<StandingOrder> orders = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setTimestamp(1, dueBefore);
+            statement.setTimestamp(2, afterRunAt);
+            statement.setTimestamp(3, afterRunAt);
+            statement.setInt(4, afterOrderId);
+            statement.setInt(5, limit);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    orders.add(mapResultSetToStandingOrder(resultSet));
+                }
+            }
+        }
+
+        return orders;
+    }
+
+    /**
+     * Move standing orders past a fired occurrence. An order is only updated if
+     * it is still active and still due at the time it was fired for, so a
+     * concurrent pause or cancel wins.
+     * @param orders Orders carrying their new next_run_at, occurrence, status and failure fields
+     * @param firedRunAt next_run_at each order had when it was fired, in list order
+     * @return Update count per order; 0 means the order changed in the meantime
+     * @throws SQLException if database operation fails
+     */
+    public int[] advanceOrders(List<StandingOrder> orders, List<Timestamp> firedRunAt) throws SQLException {
+        String sql = "UPDATE standing_orders SET next_run_at = ?, occurrence = ?, status = ?, last_run_at = ?, " +
+                    "failure_count = ?, last_failure = ? " +
+                    "WHERE order_id = ? AND status = 'ACTIVE' AND next_run_at = ?";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            for (int i = 0; i < orders.size(); i++) {
+                StandingOrder order = orders.get(i);
+                statement.setTimestamp(1, order.getNextRunAt());
+                statement.setInt(2, order.getOccurrence());
+                statement.setString(3, order.getStatus().getValue());
+                statement.setTimestamp(4, order.getLastRunAt());
+                statement.setInt(5, order.getFailureCount());
+                statement.setString(6, order.getLastFailure());
+                statement.setInt(7, order.getOrderId());
+                statement.setTimestamp(8, firedRunAt.get(i));
+                statement.addBatch();
+            }
+            return statement.executeBatch();
+        }
+    }
+
+    /**
+     * Find which standing orders are still active and still due at the time they were loaded for
+     * @param orders Orders as loaded, with the next_run_at they are about to be fired for
+     * @return IDs of the orders that have not been paused, cancelled or fired since
+     * @throws SQLException if database operation fails
+     */
+    public Set<Integer> getStillDueOrderIds(Collection<StandingOrder> orders) throws SQLException {
+        Set<Integer> stillDue = new HashSet<>();
+        if (orders.isEmpty()) {
+            return stillDue;
+        }
+
+        Map<Integer, Timestamp> expected = new HashMap<>();
+        StringBuilder placeholders = new StringBuilder();
+        for (StandingOrder order : orders) {
+            expected.put(order.getOrderId(), order.getNextRunAt());
+            placeholders.append(placeholders.length() == 0 ? "?" : ", ?");
+        }
+        String sql = "SELECT order_id, next_run_at FROM standing_orders " +
+                    "WHERE status = 'ACTIVE' AND order_id IN (" + placeholders + ")";
+
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            int index = 1;
+            for (StandingOrder order : orders) {
+                statement.setInt(index++, order.getOrderId());
+            }
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    int orderId = resultSet.getInt("order_id");
+                    if (resultSet.getTimestamp("next_run_at").equals(expected.get(orderId))) {
+                        stillDue.add(orderId);
+                    }
+                }
+            }
+        }
+
+        return stillDue;
+    }
+
+    /**
+     * Update standing order status
+     * @param orderId Order ID
+     * @param status New status
+     * @return true if updated successfully
+     * @throws SQLException if database operation fails
+     */
+    public boolean updateStatus(int orderId, StandingOrder.OrderStatus status) throws SQLException {
+        String sql = "UPDATE standing_orders SET status = ? WHERE order_id = ?";
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+
+            statement.setString(1, status.getValue());
+            statement.setInt(2, orderId);
+
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Map ResultSet to StandingOrder object
+     * @param resultSet ResultSet containing standing order data
+     * @return StandingOrder object
+     * @throws SQLException if mapping fails
+     */
+    private StandingOrder mapResultSetToStandingOrder(ResultSet resultSet) throws SQLException {
+        StandingOrder order = new StandingOrder();
+        order.setOrderId(resultSet.getInt("order_id"));
+        order.setFromAccountId(resultSet.getInt("from_account_id"));
+        order.setToAccountId(resultSet.getInt("to_account_id"));
+        order.setFromAccountNumber(resultSet.getString("from_account_number"));
+        order.setToAccountNumber(resultSet.getString("to_account_number"));
+        order.setAmount(resultSet.getBigDecimal("amount"));
+        order.setDescription(resultSet.getString("description"));
+        order.setFrequency(StandingOrder.Frequency.fromString(resultSet.getString("frequency")));
+        order.setStartAt(resultSet.getTimestamp("start_at"));
+        order.setEndAt(resultSet.getTimestamp("end_at"));
+        order.setNextRunAt(resultSet.getTimestamp("next_run_at"));
+        order.setOccurrence(resultSet.getInt("occurrence"));
+        order.setMisfirePolicy(StandingOrder.MisfirePolicy.fromString(resultSet.getString("misfire_policy")));
+        order.setStatus(StandingOrder.OrderStatus.fromString(resultSet.getString("status")));
+        order.setLastRunAt(resultSet.getTimestamp("last_run_at"));
+        order.setFailureCount(resultSet.getInt("failure_count"));
+        order.setLastFailure(resultSet.getString("last_failure"));
+        order.setCreatedAt(resultSet.getTimestamp("created_at"));
+        return order;
+    }
+}
@@ -2,16 +2,22 @@ package com.banking.dao;
 
 import com.banking.model.Transaction;
 import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Data Access Object for Transaction operations
  */
 public class TransactionDAO {
     
+    private final OutboxDAO outboxDAO = new OutboxDAO();
+    
     /**
      * Create a new transaction
      * @param transaction Transaction object to create
@@ -19,17 +25,42 @@ public class TransactionDAO {
      * @throws SQLException if database operation fails
      */
     public Transaction createTransaction(Transaction transaction) throws SQLException {
-        String sql = "INSERT INTO transactions (transaction_type, from_account_id, to_account_id, amount, description) " +
-                    "VALUES (?, ?, ?, ?, ?)";
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            // The transactions row and its outbox row commit together
+            connection.setAutoCommit(false);
+            try {
+                createTransaction(connection, transaction);
+                connection.commit();
+                return transaction;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Create a new transaction on a caller-managed connection, together with
+     * its outbox event, so that both rows commit or roll back together
+     * @param connection Connection with an open transaction
+     * @param transaction Transaction object to create
+     * @return Transaction with generated ID
+     * @throws SQLException if database operation fails
+     * @throws IllegalStateException if the connection is in auto-commit mode
+     */
+    public Transaction createTransaction(Connection connection, Transaction transaction) throws SQLException {
+        requireTransaction(connection);
+        String sql = "INSERT INTO transactions (transaction_type, from_account_id, to_account_id, amount, description, " +
+                    "idempotency_key) VALUES (?, ?, ?, ?, ?, ?)";
         
-        try (Connection connection = DatabaseConnection.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+        try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             
             statement.setString(1, transaction.getTransactionType().getValue());
             statement.setObject(2, transaction.getFromAccountId());
             statement.setObject(3, transaction.getToAccountId());
             statement.setBigDecimal(4, transaction.getAmount());
             statement.setString(5, transaction.getDescription());
+            statement.setString(6, transaction.getIdempotencyKey());
             
             int affectedRows = statement.executeUpdate();
             
@@ -45,10 +76,58 @@ public class TransactionDAO {
                 }
             }
             
+            outboxDAO.append(connection, transaction.getTransactionId());
             return transaction;
         }
     }
     
+    /**
+     * Insert many transactions with one batched statement, together with their
+     * outbox events. Generated IDs are set on the transactions in list order.
+     * @param connection Connection with an open transaction
+     * @param transactions Transactions to create
+     * @return Number of transactions created
+     * @throws SQLException if database operation fails
+     * @throws IllegalStateException if the connection is in auto-commit mode
+     */
+    public int createTransactions(Connection connection, List<Transaction> transactions) throws SQLException {
+        if (transactions.isEmpty()) {
+            return 0;
+        }
+        requireTransaction(connection);
+        
+        String sql = "INSERT INTO transactions (transaction_type, from_account_id, to_account_id, amount, description, " +
+                    "idempotency_key) VALUES (?, ?, ?, ?, ?, ?)";
+        List<Integer> transactionIds = new ArrayList<>(transactions.size());
+        
+        try (PreparedStatement statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            
+            for (Transaction transaction : transactions) {
+                statement.setString(1, transaction.getTransactionType().getValue());
+                statement.setObject(2, transaction.getFromAccountId());
+                statement.setObject(3, transaction.getToAccountId());
+                statement.setBigDecimal(4, transaction.getAmount());
+                statement.setString(5, transaction.getDescription());
+                statement.setString(6, transaction.getIdempotencyKey());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            
+            try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                for (Transaction transaction : transactions) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("Creating transactions failed, no ID obtained.");
+                    }
+                    transaction.setTransactionId(generatedKeys.getInt(1));
+                    transactionIds.add(transaction.getTransactionId());
+                }
+            }
+        }
+        
+        outboxDAO.append(connection, transactionIds);
+        return transactions.size();
+    }
+    
     /**
      * Get transaction by ID
      * @param transactionId Transaction ID
@@ -73,6 +152,98 @@ public class TransactionDAO {
         return null;
     }
     
+    /**
+     * Get transaction by idempotency key
+     * @param idempotencyKey Client-supplied idempotency key
+     * @return Transaction object or null if no transaction was recorded with this key
+     * @throws SQLException if database operation fails
+     */
+    public Transaction getTransactionByIdempotencyKey(String idempotencyKey) throws SQLException {
+        String sql = "SELECT * FROM transactions WHERE idempotency_key = ?";
+        
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            statement.setString(1, idempotencyKey);
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return mapResultSetToTransaction(resultSet);
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Find which of the given idempotency keys are already recorded
+     * @param idempotencyKeys Keys to look up
+     * @return The subset of keys that belong to existing transactions
+     * @throws SQLException if database operation fails
+     */
+    public Set<String> getExistingIdempotencyKeys(Collection<String> idempotencyKeys) throws SQLException {
+        Set<String> existing = new HashSet<>();
+        if (idempotencyKeys.isEmpty()) {
+            return existing;
+        }
+        
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < idempotencyKeys.size(); i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        String sql = "SELECT idempotency_key FROM transactions WHERE idempotency_key IN (" + placeholders + ")";
+        
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            int index = 1;
+            for (String idempotencyKey : idempotencyKeys) {
+                statement.setString(index++, idempotencyKey);
+            }
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    existing.add(resultSet.getString("idempotency_key"));
+                }
+            }
+        }
+        
+        return existing;
+    }
+    
+    /**
+     * Get a page of withdrawals and transfers made since a time, in transaction ID order
+     * @param since Earliest transaction date to include
+     * @param afterTransactionId ID of the last transaction of the previous page (0 for the first page)
+     * @param limit Maximum number of transactions to return
+     * @return List of outgoing transactions
+     * @throws SQLException if database operation fails
+     */
+    public List<Transaction> getOutgoingTransactionsSince(Timestamp since, int afterTransactionId, int limit)
+                                                          throws SQLException {
+        String sql = "SELECT * FROM transactions WHERE transaction_id > ? AND transaction_date >= ? " +
+                    "AND transaction_type IN ('WITHDRAWAL', 'TRANSFER') AND from_account_id IS NOT NULL " +
+                    "ORDER BY transaction_id LIMIT ?";
+        List<Transaction> transactions = new ArrayList<>();
+        
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            statement.setInt(1, afterTransactionId);
+            statement.setTimestamp(2, since);
+            statement.setInt(3, limit);
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    transactions.add(mapResultSetToTransaction(resultSet));
+                }
+            }
+        }
+        
+        return transactions;
+    }
+    
     /**
      * Get all transactions for an account
      * @param accountId Account ID
@@ -100,6 +271,37 @@ public class TransactionDAO {
         return transactions;
     }
     
+    /**
+     * Get transactions for an account in ledger mode, newest first.
+     * Scans the account's postings on their clustered (account_id, posting_seq) key.
+     * @param accountId Account ID
+     * @param beforeSeq Posting sequence of the last entry of the previous page (Long.MAX_VALUE for the first page)
+     * @param limit Maximum number of transactions to return
+     * @return List of account transactions
+     * @throws SQLException if database operation fails
+     */
+    public List<Transaction> getTransactionsByPostings(int accountId, long beforeSeq, int limit) throws SQLException {
+        String sql = "SELECT t.* FROM postings p JOIN transactions t ON t.transaction_id = p.transaction_id " +
+                    "WHERE p.account_id = ? AND p.posting_seq < ? ORDER BY p.posting_seq DESC LIMIT ?";
+        List<Transaction> transactions = new ArrayList<>();
+        
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            
+            statement.setInt(1, accountId);
+            statement.setLong(2, beforeSeq);
+            statement.setInt(3, limit);
+            
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    transactions.add(mapResultSetToTransaction(resultSet));
+                }
+            }
+        }
+        
+        return transactions;
+    }
+    
     /**
      * Get all transactions
      * @return List of all transactions
@@ -109,7 +311,7 @@ public class TransactionDAO {
         String sql = "SELECT * FROM transactions ORDER BY transaction_date DESC";
         List<Transaction> transactions = new ArrayList<>();
         
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING);
              PreparedStatement statement = connection.prepareStatement(sql);
              ResultSet resultSet = statement.executeQuery()) {
             
@@ -131,7 +333,7 @@ public class TransactionDAO {
         String sql = "SELECT * FROM transactions WHERE transaction_type = ? ORDER BY transaction_date DESC";
         List<Transaction> transactions = new ArrayList<>();
         
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING);
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             statement.setString(1, transactionType.getValue());
@@ -158,7 +360,7 @@ public class TransactionDAO {
                     "ORDER BY transaction_date DESC";
         List<Transaction> transactions = new ArrayList<>();
         
-        try (Connection connection = DatabaseConnection.getConnection();
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING);
              PreparedStatement statement = connection.prepareStatement(sql)) {
             
             statement.setDate(1, startDate);
@@ -257,6 +459,17 @@ public class TransactionDAO {
         }
     }
     
+    /**
+     * Refuse to write a transaction and its outbox event in separate auto-commits
+     * @param connection Connection to check
+     * @throws SQLException if the auto-commit mode cannot be read
+     */
+    private void requireTransaction(Connection connection) throws SQLException {
+        if (connection.getAutoCommit()) {
+            throw new IllegalStateException("Transactions must be created inside an open database transaction");
+        }
+    }
+    
     /**
      * Map ResultSet to Transaction object
      * @param resultSet ResultSet containing transaction data
@@ -277,6 +490,7 @@ public class TransactionDAO {
         transaction.setAmount(resultSet.getBigDecimal("amount"));
         transaction.setDescription(resultSet.getString("description"));
         transaction.setTransactionDate(resultSet.getTimestamp("transaction_date"));
+        transaction.setIdempotencyKey(resultSet.getString("idempotency_key"));
         
         return transaction;
     }
@@ -0,0 +1,66 @@
+package com.banking.event;
+
+import java.math.BigDecimal;
+
+/**
+ * An account's balance after a committed deposit, withdrawal or transfer.
+ *
+ * Events can be published in a different order than their commits, so each
+ * carries the accounts.version the commit produced. Slotted accounts, ledger
+ * postings and partitioned execution do not advance the version per change;
+ * their events share a version and are ordered by arrival.
+ */
+public class AccountBalanceChanged extends BankingEvent {
+    public static final String TYPE = "AccountBalanceChanged";
+
+    private final int accountId;
+    private final String accountNumber;
+    private final BigDecimal balance;
+    private final long version;
+
+    public AccountBalanceChanged(long sequence, int accountId, String accountNumber, BigDecimal balance,
+                                 long version) {
+        super(sequence);
+        this.accountId = accountId;
+        this.accountNumber = accountNumber;
+        this.balance = balance;
+        this.version = version;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public boolean concerns(int accountId) {
+        return this.accountId == accountId;
+    }
+
+    // Getters
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountBalanceChanged{" +
+                "sequence=" + getSequence() +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", balance=" + balance +
+                ", version=" + version +
+                '}';
+    }
+}
@@ -0,0 +1,35 @@
+package com.banking.event;
+
+import java.sql.Timestamp;
+
+/**
+ * Base class for events published on the {@link EventBus} after a commit
+ */
+public abstract class BankingEvent {
+    private final long sequence;
+    private final Timestamp occurredAt;
+
+    protected BankingEvent(long sequence) {
+        this.sequence = sequence;
+        this.occurredAt = new Timestamp(System.currentTimeMillis());
+    }
+
+    /**
+     * @return Event name used on the wire, e.g. in the SSE "event:" field
+     */
+    public abstract String getType();
+
+    /**
+     * @return true if the event concerns the given account
+     */
+    public abstract boolean concerns(int accountId);
+
+    // Getters
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Timestamp getOccurredAt() {
+        return occurredAt;
+    }
+}
@@ -0,0 +1,85 @@
+package com.banking.event;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process publish/subscribe bus for committed banking events.
+ *
+ * Publishing never blocks: each subscriber has its own bounded queue and an
+ * overflow policy deciding what to give up when a slow subscriber falls behind.
+ */
+public class EventBus {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    /**
+     * What a full subscriber queue gives up for a new event
+     */
+    public enum OverflowPolicy {
+        /** Discard the new event */
+        DROP_NEWEST,
+        /** Discard the oldest queued event */
+        DROP_OLDEST,
+        /**
+         * Replace a queued balance change for the same account, since only the
+         * latest balance matters; otherwise discard the oldest queued event
+         */
+        COALESCE
+    }
+
+    private final CopyOnWriteArrayList<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Subscribe to all events
+     * @param capacity Maximum number of queued events
+     * @param policy What to do when the queue is full
+     * @return Subscription to poll events from; close it when done
+     */
+    public EventSubscription subscribe(int capacity, OverflowPolicy policy) {
+        return subscribe(capacity, policy, null);
+    }
+
+    /**
+     * Subscribe to the events of one account
+     * @param capacity Maximum number of queued events
+     * @param policy What to do when the queue is full
+     * @param accountId Account to follow, or null for all accounts
+     * @return Subscription to poll events from; close it when done
+     */
+    public EventSubscription subscribe(int capacity, OverflowPolicy policy, Integer accountId) {
+        EventSubscription subscription = new EventSubscription(this, capacity, policy, accountId);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    void unsubscribe(EventSubscription subscription) {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Allocate the sequence number for a new event
+     * @return Sequence number, increasing in publication order
+     */
+    public long nextSequence() {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * Deliver an event to every matching subscriber
+     * @param event Event to publish
+     */
+    public void publish(BankingEvent event) {
+        for (EventSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    public boolean hasSubscribers() {
+        return !subscriptions.isEmpty();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+}
@@ -0,0 +1,197 @@
+package com.banking.event;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A subscriber's bounded event queue
+ */
+public class EventSubscription implements AutoCloseable {
+    private final EventBus bus;
+    private final int capacity;
+    private final EventBus.OverflowPolicy policy;
+    private final Integer accountId;
+    private final ArrayDeque<Slot> queue = new ArrayDeque<>();
+    // Queued balance changes by account, for coalescing
+    private final Map<Integer, Slot> pendingBalances = new HashMap<>();
+    // Newest balance version seen per account, so a late older change never replaces it.
+    // Kept in update order and bounded: an account with a queued change has been updated
+    // within the last 2 * capacity accounts (at most capacity - 1 queued after it and
+    // capacity - 1 coalesced into changes queued before it), so only delivered ones are evicted
+    private final Map<Integer, Long> latestVersions;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private long dropped;
+    private long coalesced;
+    private volatile boolean closed;
+
+    EventSubscription(EventBus bus, int capacity, EventBus.OverflowPolicy policy, Integer accountId) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        this.bus = bus;
+        this.capacity = capacity;
+        this.policy = policy;
+        this.accountId = accountId;
+        this.latestVersions = new LinkedHashMap<Integer, Long>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+                return size() > 2L * capacity;
+            }
+        };
+    }
+
+    void offer(BankingEvent event) {
+        if (closed || (accountId != null && !event.concerns(accountId))) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (policy == EventBus.OverflowPolicy.COALESCE && event instanceof AccountBalanceChanged) {
+                AccountBalanceChanged change = (AccountBalanceChanged) event;
+                Long latest = latestVersions.get(change.getAccountId());
+                if (latest != null && change.getVersion() < latest) {
+                    // Superseded by a newer balance already queued or delivered
+                    coalesced++;
+                    return;
+                }
+                // Re-insert so the account moves to the newest end
+                latestVersions.remove(change.getAccountId());
+                latestVersions.put(change.getAccountId(), change.getVersion());
+                Slot pending = pendingBalances.get(change.getAccountId());
+                if (pending != null) {
+                    pending.event = event;
+                    coalesced++;
+                    return;
+                }
+            }
+            if (queue.size() >= capacity) {
+                if (policy == EventBus.OverflowPolicy.DROP_NEWEST) {
+                    dropped++;
+                    return;
+                }
+                forget(queue.poll());
+                dropped++;
+            }
+            Slot slot = new Slot(event);
+            queue.add(slot);
+            if (event instanceof AccountBalanceChanged) {
+                pendingBalances.put(((AccountBalanceChanged) event).getAccountId(), slot);
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Take the next event, waiting up to the given time
+     * @param timeout Maximum time to wait
+     * @param unit Unit of the timeout
+     * @return Next event, or null if none arrived in time or the subscription is closed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public BankingEvent poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (queue.isEmpty()) {
+                if (closed || remaining <= 0) {
+                    return null;
+                }
+                remaining = notEmpty.awaitNanos(remaining);
+            }
+            Slot slot = queue.poll();
+            forget(slot);
+            return slot.event;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void forget(Slot slot) {
+        if (slot.event instanceof AccountBalanceChanged) {
+            pendingBalances.remove(((AccountBalanceChanged) slot.event).getAccountId(), slot);
+        }
+    }
+
+    /**
+     * Get the number of events discarded because the queue was full
+     * @return Dropped event count
+     */
+    public long getDroppedCount() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of balance changes merged into a queued one or dropped as older
+     * than one already seen
+     * @return Coalesced event count
+     */
+    public long getCoalescedCount() {
+        lock.lock();
+        try {
+            return coalesced;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getQueueSize() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int getTrackedAccountCount() {
+        lock.lock();
+        try {
+            return latestVersions.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stop receiving events and wake up a waiting poll
+     */
+    @Override
+    public void close() {
+        closed = true;
+        bus.unsubscribe(this);
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue entry; a coalesced balance change replaces the event in place
+     */
+    private static final class Slot {
+        private BankingEvent event;
+
+        Slot(BankingEvent event) {
+            this.event = event;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.banking.event;
+
+import com.banking.model.Transaction;
+
+import java.math.BigDecimal;
+
+/**
+ * A committed money movement. Account fields are null where the transaction
+ * type has no such side (no source for deposits, no destination for withdrawals).
+ */
+public class TransactionPosted extends BankingEvent {
+    public static final String TYPE = "TransactionPosted";
+
+    private final Transaction.TransactionType transactionType;
+    private final Integer fromAccountId;
+    private final String fromAccountNumber;
+    private final Integer toAccountId;
+    private final String toAccountNumber;
+    private final BigDecimal amount;
+    private final String description;
+
+    public TransactionPosted(long sequence, Transaction.TransactionType transactionType,
+                             Integer fromAccountId, String fromAccountNumber,
+                             Integer toAccountId, String toAccountNumber,
+                             BigDecimal amount, String description) {
+        super(sequence);
+        this.transactionType = transactionType;
+        this.fromAccountId = fromAccountId;
+        this.fromAccountNumber = fromAccountNumber;
+        this.toAccountId = toAccountId;
+        this.toAccountNumber = toAccountNumber;
+        this.amount = amount;
+        this.description = description;
+    }
+
+    @Override
+    public String getType() {
+        return TYPE;
+    }
+
+    @Override
+    public boolean concerns(int accountId) {
+        return (fromAccountId != null && fromAccountId == accountId)
+            || (toAccountId != null && toAccountId == accountId);
+    }
+
+    // Getters
+    public Transaction.TransactionType getTransactionType() {
+        return transactionType;
+    }
+
+    public Integer getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public String getFromAccountNumber() {
+        return fromAccountNumber;
+    }
+
+    public Integer getToAccountId() {
+        return toAccountId;
+    }
+
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionPosted{" +
+                "sequence=" + getSequence() +
+                ", transactionType=" + transactionType +
+                ", fromAccountNumber='" + fromAccountNumber + '\'' +
+                ", toAccountNumber='" + toAccountNumber + '\'' +
+                ", amount=" + amount +
+                ", description='" + description + '\'' +
+                '}';
+    }
+}
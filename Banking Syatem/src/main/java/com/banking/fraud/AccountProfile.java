@@ -0,0 +1,108 @@
+package com.banking.fraud;
+
+import java.util.TimeZone;
+
+/**
+ * Behavioural features of one account's outgoing transfers, updated
+ * incrementally as transfers commit: an exponentially weighted mean and
+ * variance of the amount, the hours of day the account usually transfers at
+ * and its most recent counterparties.
+ *
+ * Reads and updates synchronize on the profile; both are a handful of
+ * arithmetic operations.
+ */
+public class AccountProfile {
+    public static final int RECENT_COUNTERPARTIES = 32;
+    
+    // Weight of the newest transfer in the moving averages
+    private static final double ALPHA = 0.1;
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+    
+    private long transfers;
+    private double meanAmount;
+    private double amountVariance;
+    private final long[] hourCounts = new long[24];
+    private final int[] counterparties = new int[RECENT_COUNTERPARTIES];
+    private int counterpartyCount;
+    private int nextCounterparty;
+    private volatile long lastSeenMillis;
+    
+    /**
+     * Fold a committed transfer into the profile
+     * @param request The transfer
+     */
+    public synchronized void update(ScoringRequest request) {
+        double amount = request.getAmount().doubleValue();
+        if (transfers == 0) {
+            meanAmount = amount;
+            amountVariance = 0.0;
+        } else {
+            double deviation = amount - meanAmount;
+            meanAmount += ALPHA * deviation;
+            amountVariance = (1 - ALPHA) * (amountVariance + ALPHA * deviation * deviation);
+        }
+        transfers++;
+        hourCounts[hourOfDay(request.getTimeMillis())]++;
+        
+        if (!isKnownCounterparty(request.getToAccountId())) {
+            counterparties[nextCounterparty] = request.getToAccountId();
+            nextCounterparty = (nextCounterparty + 1) % RECENT_COUNTERPARTIES;
+            counterpartyCount = Math.min(counterpartyCount + 1, RECENT_COUNTERPARTIES);
+        }
+        lastSeenMillis = request.getTimeMillis();
+    }
+    
+    public synchronized long getTransfers() {
+        return transfers;
+    }
+    
+    public synchronized double getMeanAmount() {
+        return meanAmount;
+    }
+    
+    public synchronized double getAmountStdDev() {
+        return Math.sqrt(amountVariance);
+    }
+    
+    /**
+     * Get how many standard deviations an amount is above the usual amount
+     * @param amount Amount to compare
+     * @return z-score, 0 when there is no spread yet
+     */
+    public synchronized double amountZScore(double amount) {
+        double stdDev = Math.sqrt(amountVariance);
+        return stdDev == 0.0 ? 0.0 : (amount - meanAmount) / stdDev;
+    }
+    
+    /**
+     * Get the share of past transfers made in the same hour of day
+     * @param timeMillis Time of the transfer
+     * @return Share between 0 and 1
+     */
+    public synchronized double hourShare(long timeMillis) {
+        return transfers == 0 ? 0.0 : (double) hourCounts[hourOfDay(timeMillis)] / transfers;
+    }
+    
+    /**
+     * Check whether the account paid this counterparty recently
+     * @param accountId Counterparty account ID
+     * @return true if among the last {@link #RECENT_COUNTERPARTIES} distinct counterparties
+     */
+    public synchronized boolean isKnownCounterparty(int accountId) {
+        for (int i = 0; i < counterpartyCount; i++) {
+            if (counterparties[i] == accountId) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public long getLastSeenMillis() {
+        return lastSeenMillis;
+    }
+    
+    static int hourOfDay(long timeMillis) {
+        long local = timeMillis + TimeZone.getDefault().getOffset(timeMillis);
+        return (int) Math.floorMod(local / MILLIS_PER_HOUR, 24L);
+    }
+}
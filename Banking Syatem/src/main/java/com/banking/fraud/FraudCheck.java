@@ -0,0 +1,18 @@
+package com.banking.fraud;
+
+/**
+ * Slow fraud check (e.g. a remote scoring service or a database lookup) that
+ * only transfers escalated by the in-memory rules are sent to. Checks run on
+ * the scorer's worker pool and may be interrupted when the latency budget runs out.
+ */
+public interface FraudCheck {
+    
+    /**
+     * Decide on an escalated transfer
+     * @param request Transfer being scored
+     * @param score Points given by the in-memory rules
+     * @return true to let the transfer through, false to decline it
+     * @throws Exception if the check could not decide; handled per the scorer's fail-open setting
+     */
+    boolean approve(ScoringRequest request, double score) throws Exception;
+}
@@ -0,0 +1,13 @@
+package com.banking.fraud;
+
+/**
+ * Outcome of fraud scoring
+ */
+public enum FraudDecision {
+    // Passed the in-memory rules, or the slow checks approved it
+    ALLOW,
+    // Escalated, but let through while the slow checks run in the background
+    ALLOW_PENDING_REVIEW,
+    // Declined by the rules or the slow checks, or failed closed
+    DECLINE
+}
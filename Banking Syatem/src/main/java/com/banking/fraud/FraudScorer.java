@@ -0,0 +1,334 @@
+package com.banking.fraud;
+
+import com.banking.metrics.LatencyHistogram;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Pre-commit fraud scoring stage for transfers.
+ *
+ * Every transfer is first scored by the in-memory {@link RiskRule}s against
+ * its source account's {@link AccountProfile}. Only transfers scoring at least
+ * the escalation threshold go on to the slow {@link FraudCheck}s:
+ * <ul>
+ * <li>up to {@code asyncMaxAmount} the transfer proceeds and the checks run
+ * in the background, reporting declines to the review listener;</li>
+ * <li>above it the caller waits for the checks, but never longer than the
+ * latency budget. A check that times out, fails or cannot be queued lets the
+ * transfer through when failing open and declines it when failing closed.</li>
+ * </ul>
+ * A rule score at or above the decline threshold declines outright.
+ *
+ * Profiles learn from committed transfers only ({@link #recordCompleted}).
+ * The time spent in {@link #evaluate} is recorded in a latency histogram.
+ */
+public class FraudScorer {
+    public static final double DEFAULT_ESCALATION_THRESHOLD = 50.0;
+    public static final double DEFAULT_DECLINE_THRESHOLD = 150.0;
+    public static final long DEFAULT_BUDGET_MILLIS = 50;
+    public static final int DEFAULT_CHECK_THREADS = 8;
+    public static final int DEFAULT_CHECK_QUEUE = 1000;
+    
+    private static final long PROFILE_IDLE_MILLIS = TimeUnit.DAYS.toMillis(90);
+    private static final long SWEEP_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    
+    private final List<RiskRule> rules;
+    private final List<FraudCheck> checks;
+    private final ThreadPoolExecutor checkExecutor;
+    private final ConcurrentHashMap<Integer, AccountProfile> profiles = new ConcurrentHashMap<>();
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong nextSweepMillis = new AtomicLong();
+    
+    private volatile double escalationThreshold = DEFAULT_ESCALATION_THRESHOLD;
+    private volatile double declineThreshold = DEFAULT_DECLINE_THRESHOLD;
+    private volatile long budgetNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_BUDGET_MILLIS);
+    private volatile boolean failOpen = true;
+    private volatile BigDecimal asyncMaxAmount = BigDecimal.ZERO;
+    private volatile Consumer<ScoringRequest> reviewListener;
+    
+    private final LongAdder scored = new LongAdder();
+    private final LongAdder escalated = new LongAdder();
+    private final LongAdder declined = new LongAdder();
+    private final LongAdder asyncChecks = new LongAdder();
+    private final LongAdder flaggedForReview = new LongAdder();
+    private final LongAdder budgetExceeded = new LongAdder();
+    private final LongAdder checkFailures = new LongAdder();
+    
+    /**
+     * Scorer with the built-in rules: amount deviation, new counterparty and unusual hour
+     * @param checks Slow checks for escalated transfers (may be empty)
+     */
+    public FraudScorer(List<FraudCheck> checks) {
+        this(Arrays.asList(RiskRules.amountDeviation(40.0, 3.0),
+                           RiskRules.newCounterparty(30.0),
+                           RiskRules.unusualHour(20.0, 0.02)),
+             checks, DEFAULT_CHECK_THREADS, DEFAULT_CHECK_QUEUE);
+    }
+    
+    /**
+     * @param rules In-memory rules, summed into the score
+     * @param checks Slow checks for escalated transfers (may be empty)
+     * @param checkThreads Threads running slow checks
+     * @param checkQueue Slow checks that may wait for a thread
+     */
+    public FraudScorer(List<RiskRule> rules, List<FraudCheck> checks, int checkThreads, int checkQueue) {
+        if (checkThreads <= 0 || checkQueue <= 0) {
+            throw new IllegalArgumentException("Check threads and queue must be positive");
+        }
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+        this.checks = Collections.unmodifiableList(new ArrayList<>(checks));
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.checkExecutor = new ThreadPoolExecutor(checkThreads, checkThreads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(checkQueue), runnable -> {
+                Thread thread = new Thread(runnable, "fraud-check-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.checkExecutor.allowCoreThreadTimeOut(true);
+    }
+    
+    /**
+     * Score a transfer before it is committed
+     * @param request Transfer to score
+     * @return Decision; the caller must not commit a DECLINE
+     */
+    public FraudDecision evaluate(ScoringRequest request) {
+        long started = System.nanoTime();
+        try {
+            scored.increment();
+            AccountProfile profile = profiles.get(request.getFromAccountId());
+            if (profile == null) {
+                profile = new AccountProfile();
+            }
+            double score = 0.0;
+            for (RiskRule rule : rules) {
+                score += rule.score(request, profile);
+            }
+            
+            if (score < escalationThreshold) {
+                return FraudDecision.ALLOW;
+            }
+            escalated.increment();
+            if (score >= declineThreshold) {
+                declined.increment();
+                return FraudDecision.DECLINE;
+            }
+            if (checks.isEmpty()) {
+                return FraudDecision.ALLOW;
+            }
+            
+            if (request.getAmount().compareTo(asyncMaxAmount) <= 0) {
+                return runInBackground(request, score);
+            }
+            return runWithinBudget(request, score, started);
+        } finally {
+            latency.record(System.nanoTime() - started);
+        }
+    }
+    
+    /**
+     * Learn from a transfer that was committed
+     * @param request Transfer as scored
+     */
+    public void recordCompleted(ScoringRequest request) {
+        profiles.computeIfAbsent(request.getFromAccountId(), id -> new AccountProfile()).update(request);
+        sweepIdleProfiles(request.getTimeMillis());
+    }
+    
+    /**
+     * Stop the slow check threads; background checks in progress are abandoned
+     */
+    public void shutdown() {
+        checkExecutor.shutdownNow();
+    }
+    
+    private FraudDecision runInBackground(final ScoringRequest request, final double score) {
+        try {
+            checkExecutor.execute(() -> {
+                try {
+                    if (!runChecks(request, score)) {
+                        flagForReview(request);
+                    }
+                } catch (Exception e) {
+                    checkFailures.increment();
+                }
+            });
+            asyncChecks.increment();
+        } catch (RejectedExecutionException e) {
+            // Background review is best effort; the transfer is already allowed by policy
+            checkFailures.increment();
+        }
+        return FraudDecision.ALLOW_PENDING_REVIEW;
+    }
+    
+    private FraudDecision runWithinBudget(final ScoringRequest request, final double score, long started) {
+        Future<Boolean> future;
+        try {
+            future = checkExecutor.submit(() -> runChecks(request, score));
+        } catch (RejectedExecutionException e) {
+            checkFailures.increment();
+            return onUndecided();
+        }
+        
+        long remaining = budgetNanos - (System.nanoTime() - started);
+        try {
+            if (future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                return FraudDecision.ALLOW;
+            }
+            declined.increment();
+            return FraudDecision.DECLINE;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            budgetExceeded.increment();
+            return onUndecided();
+        } catch (ExecutionException e) {
+            checkFailures.increment();
+            return onUndecided();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return onUndecided();
+        }
+    }
+    
+    private boolean runChecks(ScoringRequest request, double score) throws Exception {
+        for (FraudCheck check : checks) {
+            if (!check.approve(request, score)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private FraudDecision onUndecided() {
+        if (failOpen) {
+            return FraudDecision.ALLOW;
+        }
+        declined.increment();
+        return FraudDecision.DECLINE;
+    }
+    
+    private void flagForReview(ScoringRequest request) {
+        flaggedForReview.increment();
+        Consumer<ScoringRequest> listener = reviewListener;
+        if (listener != null) {
+            listener.accept(request);
+        }
+    }
+    
+    private void sweepIdleProfiles(long now) {
+        long next = nextSweepMillis.get();
+        if (now < next || !nextSweepMillis.compareAndSet(next, now + SWEEP_INTERVAL_MILLIS)) {
+            return;
+        }
+        for (Map.Entry<Integer, AccountProfile> entry : profiles.entrySet()) {
+            if (now - entry.getValue().getLastSeenMillis() > PROFILE_IDLE_MILLIS) {
+                profiles.remove(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    // Configuration
+    
+    /**
+     * @param escalationThreshold Rule score from which slow checks run
+     * @param declineThreshold Rule score from which transfers are declined without slow checks
+     */
+    public void setThresholds(double escalationThreshold, double declineThreshold) {
+        if (declineThreshold < escalationThreshold) {
+            throw new IllegalArgumentException("Decline threshold must not be below the escalation threshold");
+        }
+        this.escalationThreshold = escalationThreshold;
+        this.declineThreshold = declineThreshold;
+    }
+    
+    /**
+     * @param budgetMillis Longest a transfer may wait for scoring
+     */
+    public void setBudgetMillis(long budgetMillis) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("Latency budget must be positive");
+        }
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+    
+    /**
+     * @param failOpen true to allow transfers whose slow checks cannot decide in time, false to decline them
+     */
+    public void setFailOpen(boolean failOpen) {
+        this.failOpen = failOpen;
+    }
+    
+    /**
+     * @param asyncMaxAmount Largest escalated amount allowed to proceed while slow checks run in the background
+     */
+    public void setAsyncMaxAmount(BigDecimal asyncMaxAmount) {
+        this.asyncMaxAmount = asyncMaxAmount != null ? asyncMaxAmount : BigDecimal.ZERO;
+    }
+    
+    /**
+     * @param reviewListener Called, on a check thread, for background-checked transfers that the checks declined
+     */
+    public void setReviewListener(Consumer<ScoringRequest> reviewListener) {
+        this.reviewListener = reviewListener;
+    }
+    
+    // Statistics
+    
+    /**
+     * Get the latency of {@link #evaluate}, rules and synchronous checks included
+     * @return Scoring latency histogram
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+    
+    public long getScored() {
+        return scored.sum();
+    }
+    
+    public long getEscalated() {
+        return escalated.sum();
+    }
+    
+    public long getDeclined() {
+        return declined.sum();
+    }
+    
+    public long getAsyncChecks() {
+        return asyncChecks.sum();
+    }
+    
+    public long getFlaggedForReview() {
+        return flaggedForReview.sum();
+    }
+    
+    public long getBudgetExceeded() {
+        return budgetExceeded.sum();
+    }
+    
+    public long getCheckFailures() {
+        return checkFailures.sum();
+    }
+    
+    public int getProfiles() {
+        return profiles.size();
+    }
+}
@@ -0,0 +1,16 @@
+package com.banking.fraud;
+
+/**
+ * Cheap in-memory fraud rule, evaluated on every transfer before commit.
+ * Rules must not block or touch the database.
+ */
+public interface RiskRule {
+    
+    /**
+     * Score a transfer
+     * @param request Transfer being scored
+     * @param profile Source account's profile (never null; empty for an account without history)
+     * @return Risk points contributed by this rule, 0 when nothing looks unusual
+     */
+    double score(ScoringRequest request, AccountProfile profile);
+}
@@ -0,0 +1,50 @@
+package com.banking.fraud;
+
+/**
+ * Built-in {@link RiskRule}s over the account profile features. Each needs a
+ * minimum history before it scores, so new accounts are not flagged for
+ * having no pattern yet.
+ */
+public final class RiskRules {
+    public static final int DEFAULT_MIN_HISTORY = 10;
+    
+    private RiskRules() {
+    }
+    
+    /**
+     * Score transfers far above the account's usual amount
+     * @param points Points when the amount is {@code zThreshold} deviations above the mean; scales up beyond
+     * @param zThreshold Deviations above the mean at which the rule starts scoring
+     * @return Rule
+     */
+    public static RiskRule amountDeviation(final double points, final double zThreshold) {
+        return (request, profile) -> {
+            if (profile.getTransfers() < DEFAULT_MIN_HISTORY) {
+                return 0.0;
+            }
+            double z = profile.amountZScore(request.getAmount().doubleValue());
+            return z < zThreshold ? 0.0 : points * Math.min(z / zThreshold, 3.0);
+        };
+    }
+    
+    /**
+     * Score transfers to an account not paid recently
+     * @param points Points for a new counterparty
+     * @return Rule
+     */
+    public static RiskRule newCounterparty(final double points) {
+        return (request, profile) -> profile.getTransfers() >= DEFAULT_MIN_HISTORY
+            && !profile.isKnownCounterparty(request.getToAccountId()) ? points : 0.0;
+    }
+    
+    /**
+     * Score transfers at an hour of day the account rarely uses
+     * @param points Points for an unusual hour
+     * @param minShare Share of past transfers below which the hour counts as unusual
+     * @return Rule
+     */
+    public static RiskRule unusualHour(final double points, final double minShare) {
+        return (request, profile) -> profile.getTransfers() >= DEFAULT_MIN_HISTORY
+            && profile.hourShare(request.getTimeMillis()) < minShare ? points : 0.0;
+    }
+}
@@ -0,0 +1,46 @@
+package com.banking.fraud;
+
+import java.math.BigDecimal;
+
+/**
+ * A transfer presented to fraud scoring before it is committed
+ */
+public class ScoringRequest {
+    private final int fromAccountId;
+    private final int toAccountId;
+    private final BigDecimal amount;
+    private final long timeMillis;
+    
+    public ScoringRequest(int fromAccountId, int toAccountId, BigDecimal amount, long timeMillis) {
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.timeMillis = timeMillis;
+    }
+    
+    public int getFromAccountId() {
+        return fromAccountId;
+    }
+    
+    public int getToAccountId() {
+        return toAccountId;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+    
+    @Override
+    public String toString() {
+        return "ScoringRequest{" +
+                "fromAccountId=" + fromAccountId +
+                ", toAccountId=" + toAccountId +
+                ", amount=" + amount +
+                ", timeMillis=" + timeMillis +
+                '}';
+    }
+}
@@ -0,0 +1,319 @@
+package com.banking.interest;
+
+import com.banking.dao.AccountDAO;
+import com.banking.dao.InterestDAO;
+import com.banking.dao.LedgerDAO;
+import com.banking.dao.TransactionDAO;
+import com.banking.model.Account;
+import com.banking.model.InterestAccrual;
+import com.banking.model.InterestRunPartition;
+import com.banking.model.Transaction;
+import com.banking.service.PartitionedExecutor;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-of-day interest accrual.
+ *
+ * A run credits one day of interest, ACT/365, to every active account of an
+ * interest-bearing type. Daily interest is computed to 10 decimal places and
+ * added to the account's carried sub-cent remainder; whole cents are credited
+ * and the rest is carried to the next day, so nothing is lost to rounding.
+ *
+ * The account ID space is cut into partitions recorded in interest_runs when
+ * the run starts. Partitions are processed in parallel, each in batches of
+ * accounts that are locked, credited with one batched update, recorded with
+ * one batched INTEREST transactions insert and checkpointed, all in one
+ * database transaction. Running the same date again resumes unfinished
+ * partitions and never credits an account twice.
+ *
+ * Balances are read from the accounts table, so a run is refused once the
+ * ledger holds customer postings or while partitioned execution owns the
+ * balances in this JVM.
+ *
+ * Usage: InterestEngine [yyyy-MM-dd] [threads]
+ */
+public class InterestEngine {
+    public static final int DEFAULT_PARTITION_SIZE = 50_000;
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    
+    private static final BigDecimal DAYS_PER_YEAR = BigDecimal.valueOf(365);
+    private static final int CARRY_SCALE = 10;
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    
+    private final AccountDAO accountDAO;
+    private final InterestDAO interestDAO;
+    private final TransactionDAO transactionDAO;
+    private final LedgerDAO ledgerDAO;
+    private final Map<Account.AccountType, BigDecimal> annualRates;
+    private final List<Account.AccountType> accruingTypes;
+    private final int parallelism;
+    private final int partitionSize;
+    private final int batchSize;
+    
+    public InterestEngine() {
+        this(defaultRates(), Runtime.getRuntime().availableProcessors(), DEFAULT_PARTITION_SIZE, DEFAULT_BATCH_SIZE);
+    }
+    
+    /**
+     * @param annualRates Annual rate per account type as a fraction (0.035 for 3.5%); missing types earn nothing
+     * @param parallelism Number of partitions processed at once, capped at the batch bulkhead
+     * @param partitionSize Account IDs per partition, used when a run date is started
+     * @param batchSize Accounts per database transaction
+     */
+    public InterestEngine(Map<Account.AccountType, BigDecimal> annualRates, int parallelism, int partitionSize,
+                          int batchSize) {
+        if (parallelism <= 0 || partitionSize <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Parallelism, partition size and batch size must be positive");
+        }
+        this.accountDAO = new AccountDAO();
+        this.interestDAO = new InterestDAO();
+        this.transactionDAO = new TransactionDAO();
+        this.ledgerDAO = new LedgerDAO();
+        this.annualRates = new EnumMap<>(Account.AccountType.class);
+        List<Account.AccountType> types = new ArrayList<>();
+        for (Map.Entry<Account.AccountType, BigDecimal> rate : annualRates.entrySet()) {
+            if (rate.getValue().signum() < 0) {
+                throw new IllegalArgumentException("Interest rate must not be negative: " + rate.getKey());
+            }
+            if (rate.getValue().signum() > 0) {
+                this.annualRates.put(rate.getKey(), rate.getValue());
+                types.add(rate.getKey());
+            }
+        }
+        this.accruingTypes = Collections.unmodifiableList(types);
+        // Each partition worker holds one batch connection; more workers would only queue for slots
+        this.parallelism = Math.min(parallelism, QueryClass.BATCH.getMaxConnections());
+        this.partitionSize = partitionSize;
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Get the default annual rates: 3.5% on savings, 6.5% on fixed deposits, none on checking
+     * @return Rates per account type
+     */
+    public static Map<Account.AccountType, BigDecimal> defaultRates() {
+        Map<Account.AccountType, BigDecimal> rates = new EnumMap<>(Account.AccountType.class);
+        rates.put(Account.AccountType.SAVINGS, new BigDecimal("0.035"));
+        rates.put(Account.AccountType.FIXED_DEPOSIT, new BigDecimal("0.065"));
+        return rates;
+    }
+    
+    /**
+     * Compute one day of interest on a balance
+     * @param balance Account balance
+     * @param annualRate Annual rate as a fraction
+     * @param carry Sub-cent interest carried from earlier days
+     * @param accrual Receives the amount to credit and the new carry
+     */
+    static void computeDailyInterest(BigDecimal balance, BigDecimal annualRate, BigDecimal carry,
+                                     InterestAccrual accrual) {
+        BigDecimal exact = balance.multiply(annualRate)
+                                  .divide(DAYS_PER_YEAR, CARRY_SCALE, RoundingMode.HALF_EVEN)
+                                  .add(carry);
+        BigDecimal credited = exact.setScale(2, RoundingMode.FLOOR);
+        accrual.setInterestAmount(credited);
+        accrual.setNewInterestCarry(exact.subtract(credited));
+    }
+    
+    /**
+     * Accrue one day of interest, or resume an interrupted run for the same date
+     * @param runDate Business date being accrued
+     * @return Run report
+     * @throws SQLException if a partition fails; completed batches stay committed
+     * @throws IllegalStateException if account balances are kept in the ledger or by partitioned execution
+     */
+    public InterestRunReport accrue(LocalDate runDate) throws SQLException {
+        requireAccountBalances(ledgerDAO);
+        long started = System.nanoTime();
+        Date date = Date.valueOf(runDate);
+        InterestRunReport report = new InterestRunReport(runDate);
+        
+        List<InterestRunPartition> partitions = interestDAO.getRunPartitions(date);
+        if (partitions.isEmpty()) {
+            interestDAO.createRunPartitions(planPartitions(date, accountDAO.getMaxAccountId()));
+            partitions = interestDAO.getRunPartitions(date);
+        }
+        
+        List<InterestRunPartition> pending = new ArrayList<>();
+        for (InterestRunPartition partition : partitions) {
+            if (partition.isCompleted()) {
+                report.recordSkippedPartition();
+            } else {
+                if (partition.getLastAccountId() >= partition.getFirstAccountId()) {
+                    report.recordResumedPartition();
+                }
+                pending.add(partition);
+            }
+        }
+        
+        if (!accruingTypes.isEmpty() && !pending.isEmpty()) {
+            runPartitions(runDate, pending, report);
+        }
+        report.finish(System.nanoTime() - started);
+        return report;
+    }
+    
+    /**
+     * Refuse to run against accounts.balance when something else owns the balances
+     * @param ledgerDAO Ledger to check for customer postings
+     * @throws SQLException if database operation fails
+     * @throws IllegalStateException if the ledger or a partitioned executor owns the balances
+     */
+    static void requireAccountBalances(LedgerDAO ledgerDAO) throws SQLException {
+        if (PartitionedExecutor.isAnyRunning()) {
+            throw new IllegalStateException("Balances are owned by partitioned execution");
+        }
+        if (ledgerDAO.hasPostings()) {
+            throw new IllegalStateException("Balances are kept in the ledger");
+        }
+    }
+    
+    private List<InterestRunPartition> planPartitions(Date date, int maxAccountId) {
+        List<InterestRunPartition> partitions = new ArrayList<>();
+        for (int first = 1, number = 0; first <= maxAccountId; first += partitionSize, number++) {
+            int end = (int) Math.min((long) first + partitionSize - 1, maxAccountId);
+            partitions.add(new InterestRunPartition(date, number, first, end));
+        }
+        return partitions;
+    }
+    
+    private void runPartitions(final LocalDate runDate, List<InterestRunPartition> pending,
+                               final InterestRunReport report) throws SQLException {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, pending.size()), runnable -> {
+            Thread thread = new Thread(runnable, "interest-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (final InterestRunPartition partition : pending) {
+                futures.add(executor.submit(() -> {
+                    accruePartition(runDate, partition, report);
+                    return null;
+                }));
+            }
+            
+            // Let every partition finish so that a restart has as little left as possible
+            SQLException failure = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause() instanceof SQLException
+                            ? (SQLException) e.getCause() : new SQLException("Interest accrual failed", e.getCause());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while accruing interest", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+    
+    private void accruePartition(LocalDate runDate, InterestRunPartition partition, InterestRunReport report)
+                                 throws SQLException {
+        String description = "Interest for " + runDate;
+        while (!partition.isCompleted()) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    accrueBatch(partition, description, report);
+                    break;
+                } catch (SQLException e) {
+                    // Deadlock with online traffic: the batch was rolled back, so just run it again
+                    if (!"40001".equals(e.getSQLState()) || attempt >= MAX_BATCH_ATTEMPTS) {
+                        throw e;
+                    }
+                }
+            }
+        }
+        report.recordCompletedPartition();
+    }
+    
+    private void accrueBatch(InterestRunPartition partition, String description, InterestRunReport report)
+                             throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH)) {
+            connection.setAutoCommit(false);
+            try {
+                List<InterestAccrual> accruals = interestDAO.lockAccountsForAccrual(connection,
+                    partition.getLastAccountId(), partition.getEndAccountId(), accruingTypes, batchSize);
+                
+                List<InterestAccrual> changed = new ArrayList<>(accruals.size());
+                List<Transaction> transactions = new ArrayList<>();
+                BigDecimal posted = BigDecimal.ZERO;
+                for (InterestAccrual accrual : accruals) {
+                    if (accrual.getBalance() == null || accrual.getBalance().signum() <= 0) {
+                        continue;
+                    }
+                    computeDailyInterest(accrual.getBalance(), annualRates.get(accrual.getAccountType()),
+                                         accrual.getInterestCarry(), accrual);
+                    changed.add(accrual);
+                    if (accrual.getInterestAmount().signum() > 0) {
+                        transactions.add(new Transaction(Transaction.TransactionType.INTEREST, null,
+                                                         accrual.getAccountId(), accrual.getInterestAmount(),
+                                                         description));
+                        posted = posted.add(accrual.getInterestAmount());
+                    }
+                }
+                
+                if (!changed.isEmpty()) {
+                    interestDAO.applyAccruals(connection, changed);
+                    transactionDAO.createTransactions(connection, transactions);
+                }
+                
+                InterestRunPartition progress = new InterestRunPartition();
+                progress.setRunDate(partition.getRunDate());
+                progress.setPartitionNo(partition.getPartitionNo());
+                progress.setCompleted(accruals.size() < batchSize);
+                progress.setLastAccountId(progress.isCompleted() ? partition.getEndAccountId()
+                                          : accruals.get(accruals.size() - 1).getAccountId());
+                progress.setAccountsAccrued(partition.getAccountsAccrued() + changed.size());
+                progress.setInterestPosted(partition.getInterestPosted().add(posted));
+                interestDAO.saveRunProgress(connection, progress);
+                connection.commit();
+                
+                partition.setLastAccountId(progress.getLastAccountId());
+                partition.setAccountsAccrued(progress.getAccountsAccrued());
+                partition.setInterestPosted(progress.getInterestPosted());
+                partition.setCompleted(progress.isCompleted());
+                report.recordBatch(accruals.size(), changed.size(), transactions.size(), posted);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    public static void main(String[] args) throws SQLException {
+        LocalDate runDate = args.length > 0 ? LocalDate.parse(args[0]) : LocalDate.now().minusDays(1);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        
+        InterestEngine engine = new InterestEngine(defaultRates(), threads, DEFAULT_PARTITION_SIZE, DEFAULT_BATCH_SIZE);
+        System.out.println(engine.accrue(runDate));
+    }
+}
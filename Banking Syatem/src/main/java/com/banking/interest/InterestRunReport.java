@@ -0,0 +1,121 @@
+package com.banking.interest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for one interest run. Updated concurrently by the partition workers.
+ */
+public class InterestRunReport {
+    private final LocalDate runDate;
+    private final LongAdder accountsScanned = new LongAdder();
+    private final LongAdder accountsAccrued = new LongAdder();
+    private final LongAdder transactionsPosted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder partitionsCompleted = new LongAdder();
+    private final LongAdder partitionsResumed = new LongAdder();
+    private final LongAdder partitionsSkipped = new LongAdder();
+    private BigDecimal interestPosted = BigDecimal.ZERO;
+    private volatile long elapsedNanos;
+    
+    public InterestRunReport(LocalDate runDate) {
+        this.runDate = runDate;
+    }
+    
+    // Getters
+    public LocalDate getRunDate() {
+        return runDate;
+    }
+    
+    public long getAccountsScanned() {
+        return accountsScanned.sum();
+    }
+    
+    public long getAccountsAccrued() {
+        return accountsAccrued.sum();
+    }
+    
+    public long getTransactionsPosted() {
+        return transactionsPosted.sum();
+    }
+    
+    public long getBatches() {
+        return batches.sum();
+    }
+    
+    public long getPartitionsCompleted() {
+        return partitionsCompleted.sum();
+    }
+    
+    /**
+     * Get the number of partitions picked up part way through from an earlier attempt
+     * @return Resumed partition count
+     */
+    public long getPartitionsResumed() {
+        return partitionsResumed.sum();
+    }
+    
+    /**
+     * Get the number of partitions already completed by an earlier attempt
+     * @return Skipped partition count
+     */
+    public long getPartitionsSkipped() {
+        return partitionsSkipped.sum();
+    }
+    
+    public synchronized BigDecimal getInterestPosted() {
+        return interestPosted;
+    }
+    
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+    
+    public double getAccountsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : getAccountsScanned() * 1e9 / elapsedNanos;
+    }
+    
+    // Updated by the engine
+    void recordBatch(int scanned, int accrued, int transactions, BigDecimal posted) {
+        accountsScanned.add(scanned);
+        accountsAccrued.add(accrued);
+        transactionsPosted.add(transactions);
+        batches.increment();
+        synchronized (this) {
+            interestPosted = interestPosted.add(posted);
+        }
+    }
+    
+    void recordCompletedPartition() {
+        partitionsCompleted.increment();
+    }
+    
+    void recordResumedPartition() {
+        partitionsResumed.increment();
+    }
+    
+    void recordSkippedPartition() {
+        partitionsSkipped.increment();
+    }
+    
+    void finish(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return "InterestRunReport{" +
+                "runDate=" + runDate +
+                ", accountsScanned=" + getAccountsScanned() +
+                ", accountsAccrued=" + getAccountsAccrued() +
+                ", transactionsPosted=" + getTransactionsPosted() +
+                ", interestPosted=" + getInterestPosted() +
+                ", partitionsCompleted=" + getPartitionsCompleted() +
+                ", partitionsResumed=" + getPartitionsResumed() +
+                ", partitionsSkipped=" + getPartitionsSkipped() +
+                ", elapsedMillis=" + getElapsedMillis() +
+                String.format(", accountsPerSecond=%.0f", getAccountsPerSecond()) +
+                '}';
+    }
+}
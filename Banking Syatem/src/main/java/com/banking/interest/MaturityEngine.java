@@ -0,0 +1,346 @@
+package com.banking.interest;
+
+import com.banking.dao.AccountDAO;
+import com.banking.dao.FixedDepositDAO;
+import com.banking.dao.LedgerDAO;
+import com.banking.dao.TransactionDAO;
+import com.banking.model.Account;
+import com.banking.model.FixedDepositTerm;
+import com.banking.model.Transaction;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fixed deposit maturity processing.
+ *
+ * Due deposits are read page by page through the maturity date index and each
+ * page is processed as one batch on a worker pool. A batch locks its open
+ * terms and the accounts involved, credits the final interest (the contractual
+ * interest of the term less what daily accrual already credited), transfers
+ * the whole balance to the payout account, makes the deposit account INACTIVE
+ * and marks the term MATURED, all in one database transaction. Because the
+ * status change commits with the money, running the same date again only
+ * picks up what is still open.
+ *
+ * Balances are read from the accounts table, so a run is refused under the
+ * same conditions as an interest run.
+ *
+ * Usage: MaturityEngine [yyyy-MM-dd] [threads]
+ */
+public class MaturityEngine {
+    public static final int DEFAULT_BATCH_SIZE = 200;
+    
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    
+    private final AccountDAO accountDAO;
+    private final FixedDepositDAO fixedDepositDAO;
+    private final TransactionDAO transactionDAO;
+    private final LedgerDAO ledgerDAO;
+    private final int parallelism;
+    private final int batchSize;
+    
+    public MaturityEngine() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_BATCH_SIZE);
+    }
+    
+    /**
+     * @param parallelism Number of batches processed at once, capped below the batch bulkhead
+     * @param batchSize Deposits per database transaction
+     */
+    public MaturityEngine(int parallelism, int batchSize) {
+        if (parallelism <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Parallelism and batch size must be positive");
+        }
+        this.accountDAO = new AccountDAO();
+        this.fixedDepositDAO = new FixedDepositDAO();
+        this.transactionDAO = new TransactionDAO();
+        this.ledgerDAO = new LedgerDAO();
+        // Each worker holds one batch connection; leave one for reading the next page of due terms
+        this.parallelism = Math.max(1, Math.min(parallelism, QueryClass.BATCH.getMaxConnections() - 1));
+        this.batchSize = batchSize;
+    }
+    
+    /**
+     * Mature every open deposit whose maturity date is on or before a date
+     * @param asOf Business date of the run
+     * @return Run summary
+     * @throws SQLException if a batch fails; batches already committed stay committed
+     * @throws IllegalStateException if account balances are kept in the ledger or by partitioned execution
+     */
+    public RunSummary mature(LocalDate asOf) throws SQLException {
+        InterestEngine.requireAccountBalances(ledgerDAO);
+        long started = System.nanoTime();
+        final Date date = Date.valueOf(asOf);
+        final RunSummary summary = new RunSummary(asOf);
+        final AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "maturity-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        try {
+            List<Future<Void>> inFlight = new ArrayList<>();
+            SQLException failure = null;
+            Date afterMaturityDate = null;
+            int afterAccountId = 0;
+            while (failure == null) {
+                List<FixedDepositTerm> page = fixedDepositDAO.getDueTerms(date, afterMaturityDate, afterAccountId,
+                                                                          batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                FixedDepositTerm last = page.get(page.size() - 1);
+                afterMaturityDate = last.getMaturityDate();
+                afterAccountId = last.getAccountId();
+                
+                final List<Integer> accountIds = new ArrayList<>(page.size());
+                for (FixedDepositTerm term : page) {
+                    accountIds.add(term.getAccountId());
+                }
+                inFlight.add(executor.submit(() -> {
+                    matureBatchWithRetry(accountIds, date, summary);
+                    return null;
+                }));
+                
+                // Keep the reader at most a couple of pages ahead of the workers
+                if (inFlight.size() >= parallelism * 2) {
+                    failure = await(inFlight.remove(0), failure);
+                }
+            }
+            for (Future<Void> future : inFlight) {
+                failure = await(future, failure);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        summary.elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+        return summary;
+    }
+    
+    private SQLException await(Future<Void> future, SQLException failure) throws SQLException {
+        try {
+            future.get();
+            return failure;
+        } catch (ExecutionException e) {
+            if (failure != null) {
+                return failure;
+            }
+            return e.getCause() instanceof SQLException
+                ? (SQLException) e.getCause() : new SQLException("Maturity processing failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while maturing deposits", e);
+        }
+    }
+    
+    private void matureBatchWithRetry(List<Integer> accountIds, Date asOf, RunSummary summary) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                matureBatch(accountIds, asOf, summary);
+                return;
+            } catch (SQLException e) {
+                // Deadlock with online traffic on a payout account: the batch was rolled back
+                if (!"40001".equals(e.getSQLState()) || attempt >= MAX_BATCH_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    private void matureBatch(List<Integer> accountIds, Date asOf, RunSummary summary) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH)) {
+            connection.setAutoCommit(false);
+            try {
+                // Terms first, so a concurrent run of the same date waits here and then finds them matured
+                List<FixedDepositTerm> terms = fixedDepositDAO.lockDueTerms(connection, accountIds, asOf);
+                if (terms.isEmpty()) {
+                    connection.commit();
+                    return;
+                }
+                
+                List<Integer> termAccountIds = new ArrayList<>(terms.size());
+                TreeSet<Integer> lockIds = new TreeSet<>();
+                for (FixedDepositTerm term : terms) {
+                    termAccountIds.add(term.getAccountId());
+                    lockIds.add(term.getAccountId());
+                    lockIds.add(term.getPayoutAccountId());
+                }
+                Map<Integer, Account> accounts = new HashMap<>();
+                Map<Integer, BigDecimal> balances = new HashMap<>();
+                for (Account account : accountDAO.getAccountsForUpdate(connection, lockIds)) {
+                    accounts.put(account.getAccountId(), account);
+                    balances.put(account.getAccountId(), account.getBalance());
+                }
+                Map<Integer, BigDecimal> creditedInterest = fixedDepositDAO.getCreditedInterest(connection,
+                                                                                                termAccountIds);
+                
+                Timestamp maturedAt = new Timestamp(System.currentTimeMillis());
+                List<Transaction> transactions = new ArrayList<>();
+                List<FixedDepositTerm> matured = new ArrayList<>();
+                Map<FixedDepositTerm, Transaction> payouts = new HashMap<>();
+                int failed = 0;
+                BigDecimal interestPaid = BigDecimal.ZERO;
+                BigDecimal paidOut = BigDecimal.ZERO;
+                
+                for (FixedDepositTerm term : terms) {
+                    Account deposit = accounts.get(term.getAccountId());
+                    Account payout = accounts.get(term.getPayoutAccountId());
+                    String error = null;
+                    if (deposit.getStatus() != Account.AccountStatus.ACTIVE) {
+                        error = "Deposit account is " + deposit.getStatus();
+                    } else if (payout == null || payout.getStatus() != Account.AccountStatus.ACTIVE) {
+                        error = "Payout account is not active";
+                    }
+                    if (error != null) {
+                        term.setLastError(error);
+                        failed++;
+                        continue;
+                    }
+                    
+                    BigDecimal credited = creditedInterest.getOrDefault(term.getAccountId(), BigDecimal.ZERO);
+                    BigDecimal finalInterest = term.getContractualInterest().subtract(credited).max(BigDecimal.ZERO);
+                    BigDecimal payoutAmount = balances.get(deposit.getAccountId()).add(finalInterest);
+                    
+                    if (finalInterest.signum() > 0) {
+                        transactions.add(new Transaction(Transaction.TransactionType.INTEREST, null,
+                                                         deposit.getAccountId(), finalInterest,
+                                                         "Final interest at maturity"));
+                    }
+                    if (payoutAmount.signum() > 0) {
+                        Transaction transfer = new Transaction(Transaction.TransactionType.TRANSFER,
+                                                               deposit.getAccountId(), payout.getAccountId(),
+                                                               payoutAmount, "Fixed deposit maturity payout from "
+                                                               + deposit.getAccountNumber());
+                        transactions.add(transfer);
+                        payouts.put(term, transfer);
+                    }
+                    balances.put(deposit.getAccountId(), BigDecimal.ZERO);
+                    balances.put(payout.getAccountId(), balances.get(payout.getAccountId()).add(payoutAmount));
+                    
+                    term.setStatus(FixedDepositTerm.TermStatus.MATURED);
+                    term.setFinalInterest(finalInterest);
+                    term.setPayoutAmount(payoutAmount);
+                    term.setMaturedAt(maturedAt);
+                    term.setLastError(null);
+                    matured.add(term);
+                    interestPaid = interestPaid.add(finalInterest);
+                    paidOut = paidOut.add(payoutAmount);
+                }
+                
+                // One balance update per account, however many deposits pay into it
+                for (Integer accountId : lockIds) {
+                    Account account = accounts.get(accountId);
+                    if (account == null) {
+                        continue;
+                    }
+                    BigDecimal delta = balances.get(accountId).subtract(account.getBalance());
+                    if (delta.signum() == 0) {
+                        continue;
+                    }
+                    // The row locks taken above mean neither call can hit a version conflict
+                    boolean updated = delta.signum() > 0
+                        ? accountDAO.creditBalance(connection, account, delta)
+                        : accountDAO.debitBalance(connection, account, delta.negate());
+                    if (!updated) {
+                        throw new SQLException("Account changed during maturity processing: " + accountId, "40001");
+                    }
+                }
+                for (FixedDepositTerm term : matured) {
+                    accountDAO.updateStatus(connection, term.getAccountId(), Account.AccountStatus.INACTIVE);
+                }
+                
+                transactionDAO.createTransactions(connection, transactions);
+                for (Map.Entry<FixedDepositTerm, Transaction> payout : payouts.entrySet()) {
+                    payout.getKey().setPayoutTransactionId(payout.getValue().getTransactionId());
+                }
+                fixedDepositDAO.saveMaturities(connection, terms);
+                connection.commit();
+                
+                summary.record(matured.size(), failed, interestPaid, paidOut);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    public static void main(String[] args) throws SQLException {
+        LocalDate asOf = args.length > 0 ? LocalDate.parse(args[0]) : LocalDate.now();
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        
+        MaturityEngine engine = new MaturityEngine(threads, DEFAULT_BATCH_SIZE);
+        System.out.println(engine.mature(asOf));
+    }
+    
+    /**
+     * Outcome of a maturity run
+     */
+    public static class RunSummary {
+        private final LocalDate asOf;
+        private final AtomicLong matured = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private BigDecimal interestPaid = BigDecimal.ZERO;
+        private BigDecimal paidOut = BigDecimal.ZERO;
+        private long elapsedMillis;
+        
+        RunSummary(LocalDate asOf) {
+            this.asOf = asOf;
+        }
+        
+        void record(int maturedCount, int failedCount, BigDecimal interest, BigDecimal payout) {
+            matured.addAndGet(maturedCount);
+            failed.addAndGet(failedCount);
+            batches.incrementAndGet();
+            synchronized (this) {
+                interestPaid = interestPaid.add(interest);
+                paidOut = paidOut.add(payout);
+            }
+        }
+        
+        public LocalDate getAsOf() { return asOf; }
+        public long getMatured() { return matured.get(); }
+        /** Deposits left open because they could not be paid out; see fixed_deposit_terms.last_error */
+        public long getFailed() { return failed.get(); }
+        public long getBatches() { return batches.get(); }
+        public synchronized BigDecimal getInterestPaid() { return interestPaid; }
+        public synchronized BigDecimal getPaidOut() { return paidOut; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        
+        @Override
+        public String toString() {
+            return "RunSummary{" +
+                    "asOf=" + asOf +
+                    ", matured=" + getMatured() +
+                    ", failed=" + getFailed() +
+                    ", batches=" + getBatches() +
+                    ", interestPaid=" + getInterestPaid() +
+                    ", paidOut=" + getPaidOut() +
+                    ", elapsedMillis=" + elapsedMillis +
+                    '}';
+        }
+    }
+}
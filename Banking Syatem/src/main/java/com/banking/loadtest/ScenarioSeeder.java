@@ -0,0 +1,214 @@
+package com.banking.loadtest;
+
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds the repeatable load-test scenario: recreates the schema from
+ * database.sql on the configured database, removes its sample rows and seeds
+ * customers and accounts from a fixed random seed. Account numbers are ACC001, ACC002, ... so the
+ * workload generator can address them without a lookup; every account has
+ * PIN 1234 and one opening deposit, so history pages are never empty.
+ *
+ * The seeder drops every banking table, so it refuses to run unless
+ * {@code -Dbanking.db.url} points it at a scratch database explicitly.
+ *
+ * Usage: ScenarioSeeder accounts [seed] [schemaFile]
+ */
+public class ScenarioSeeder {
+    public static final String PIN = "1234";
+    private static final int BATCH_SIZE = 1000;
+    private static final String DEFAULT_SCHEMA = "src/main/resources/database.sql";
+    
+    private final int accounts;
+    private final long seed;
+    
+    public ScenarioSeeder(int accounts, long seed) {
+        if (accounts < 2) {
+            throw new IllegalArgumentException("A scenario needs at least two accounts");
+        }
+        this.accounts = accounts;
+        this.seed = seed;
+    }
+    
+    public static void main(String[] args) throws IOException, SQLException {
+        if (args.length < 1) {
+            System.err.println("Usage: ScenarioSeeder accounts [seed] [schemaFile]");
+            System.exit(1);
+        }
+        if (System.getProperty("banking.db.url") == null) {
+            System.err.println("The seeder drops all banking tables; set -Dbanking.db.url to a scratch database");
+            System.exit(1);
+        }
+        int accounts = Integer.parseInt(args[0]);
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        String schemaFile = args.length > 2 ? args[2] : DEFAULT_SCHEMA;
+        
+        ScenarioSeeder seeder = new ScenarioSeeder(accounts, seed);
+        long start = System.nanoTime();
+        seeder.createSchema(readSchema(schemaFile));
+        seeder.seed();
+        System.out.printf("seeded %d accounts (seed %d) in %.1f s%n",
+                          accounts, seed, (System.nanoTime() - start) / 1e9);
+    }
+    
+    /**
+     * Account number of a seeded account
+     * @param index Zero-based account index
+     * @return Account number
+     */
+    public static String accountNumber(int index) {
+        return String.format("ACC%03d", index + 1);
+    }
+    
+    /**
+     * Run a MySQL script, honouring DELIMITER directives
+     * @param script Script text
+     * @throws SQLException if a statement fails
+     */
+    public void createSchema(String script) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH);
+             Statement statement = connection.createStatement()) {
+            for (String sql : splitScript(script)) {
+                statement.execute(sql);
+            }
+        }
+    }
+    
+    /**
+     * Insert the scenario's customers, accounts and opening deposits
+     * @throws SQLException if database operation fails
+     */
+    public void seed() throws SQLException {
+        Random random = new Random(seed);
+        String customerSql = "INSERT INTO customers (customer_id, first_name, last_name, email, phone, address) " +
+                            "VALUES (?, ?, ?, ?, ?, ?)";
+        String accountSql = "INSERT INTO accounts " +
+                           "(account_id, account_number, customer_id, account_type, balance, pin, status) " +
+                           "VALUES (?, ?, ?, ?, ?, ?, 'ACTIVE')";
+        String depositSql = "INSERT INTO transactions (transaction_type, to_account_id, amount, description) " +
+                           "VALUES ('DEPOSIT', ?, ?, 'Opening deposit')";
+        
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH)) {
+            // The schema script's sample rows would collide with ACC001...
+            try (Statement statement = connection.createStatement()) {
+                for (String table : new String[] {"transaction_history_mv", "account_summary_mv", "transactions",
+                                                  "accounts", "customers"}) {
+                    statement.executeUpdate("DELETE FROM " + table);
+                }
+            }
+            
+            connection.setAutoCommit(false);
+            try (PreparedStatement customers = connection.prepareStatement(customerSql);
+                 PreparedStatement accountRows = connection.prepareStatement(accountSql);
+                 PreparedStatement deposits = connection.prepareStatement(depositSql)) {
+                
+                for (int i = 0; i < accounts; i++) {
+                    int id = i + 1;
+                    BigDecimal balance = BigDecimal.valueOf(10_000 + random.nextInt(990_000), 2);
+                    
+                    customers.setInt(1, id);
+                    customers.setString(2, "Load" + id);
+                    customers.setString(3, "Customer" + id);
+                    customers.setString(4, "load" + id + "@example.com");
+                    customers.setString(5, String.format("555%07d", id));
+                    customers.setString(6, id + " Test Street");
+                    customers.addBatch();
+                    
+                    accountRows.setInt(1, id);
+                    accountRows.setString(2, accountNumber(i));
+                    accountRows.setInt(3, id);
+                    accountRows.setString(4, random.nextInt(4) == 0 ? "CHECKING" : "SAVINGS");
+                    accountRows.setBigDecimal(5, balance);
+                    accountRows.setString(6, PIN);
+                    accountRows.addBatch();
+                    
+                    deposits.setInt(1, id);
+                    deposits.setBigDecimal(2, balance);
+                    deposits.addBatch();
+                    
+                    if (id % BATCH_SIZE == 0 || id == accounts) {
+                        // Parents first: the account rows and their triggers need the customers
+                        customers.executeBatch();
+                        accountRows.executeBatch();
+                        deposits.executeBatch();
+                        connection.commit();
+                    }
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+    
+    private static String readSchema(String schemaFile) throws IOException {
+        if (Files.exists(Paths.get(schemaFile))) {
+            return new String(Files.readAllBytes(Paths.get(schemaFile)), StandardCharsets.UTF_8);
+        }
+        try (InputStream in = ScenarioSeeder.class.getResourceAsStream("/database.sql")) {
+            if (in == null) {
+                throw new IOException("Schema not found: " + schemaFile);
+            }
+            StringBuilder script = new StringBuilder();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                script.append(line).append('\n');
+            }
+            return script.toString();
+        }
+    }
+    
+    /**
+     * Split a script into statements the way the mysql client does for this
+     * schema: comment lines are dropped and DELIMITER changes the terminator
+     */
+    static List<String> splitScript(String script) {
+        List<String> statements = new ArrayList<>();
+        String delimiter = ";";
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\r?\n")) {
+            String trimmed = line.trim();
+            if (current.length() == 0 && (trimmed.isEmpty() || trimmed.startsWith("--"))) {
+                continue;
+            }
+            if (trimmed.toUpperCase().startsWith("DELIMITER ")) {
+                delimiter = trimmed.substring("DELIMITER ".length()).trim();
+                continue;
+            }
+            if (trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(delimiter)) {
+                String sql = current.toString().trim();
+                sql = sql.substring(0, sql.length() - delimiter.length()).trim();
+                if (!sql.isEmpty()) {
+                    statements.add(sql);
+                }
+                current.setLength(0);
+            }
+        }
+        if (current.toString().trim().length() > 0) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+}
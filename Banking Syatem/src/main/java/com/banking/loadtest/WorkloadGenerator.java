@@ -0,0 +1,294 @@
+package com.banking.loadtest;
+
+import com.banking.metrics.LatencyHistogram;
+import com.banking.metrics.MetricsReporter;
+import com.banking.service.BankingService;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop workload generator for BankingService.
+ *
+ * Requests arrive like independent customers: Poisson arrivals at the given
+ * rate, whether or not earlier requests have finished. A dispatcher thread
+ * hands each request to a worker pool at its intended start time, and
+ * latency is measured from that intended time. Time spent queued behind a
+ * stalled database is therefore counted instead of silently skipped, which is
+ * the correction for coordinated omission. Service time, measured from when a
+ * worker actually picked the request up, is reported alongside for
+ * comparison.
+ *
+ * The mix is 70% balance reads, 15% deposits, 10% transfers and 5% history
+ * pages over the accounts of a {@link ScenarioSeeder} scenario, picked with
+ * Zipf-distributed popularity. Arrival times, operations, accounts and
+ * amounts all come from one seeded random source, so a run with the same
+ * arguments offers the same requests in the same order.
+ *
+ * Usage: WorkloadGenerator rate seconds accounts [zipfExponent] [workers] [seed]
+ */
+public class WorkloadGenerator {
+    private static final int HISTORY_PAGE_SIZE = 20;
+    private static final long DRAIN_TIMEOUT_SECONDS = 60;
+    
+    /**
+     * Operations of the mix, with their share in percent
+     */
+    enum OperationType {
+        BALANCE(70),
+        DEPOSIT(15),
+        TRANSFER(10),
+        HISTORY(5);
+        
+        private final int percent;
+        
+        OperationType(int percent) {
+            this.percent = percent;
+        }
+    }
+    
+    private final BankingService bankingService;
+    private final double rate;
+    private final ZipfSampler popularity;
+    private final int workers;
+    private final long seed;
+    // Popularity rank to account index, so hot accounts are spread over the table
+    private final int[] accountByRank;
+    private final OperationStats[] stats = new OperationStats[OperationType.values().length];
+    private final OperationStats total = new OperationStats();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private volatile int maxBacklog;
+    private volatile String firstError;
+    
+    public WorkloadGenerator(BankingService bankingService, double rate, int accounts, double zipfExponent,
+                             int workers, long seed) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Arrival rate must be positive");
+        }
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive");
+        }
+        this.bankingService = bankingService;
+        this.rate = rate;
+        this.popularity = new ZipfSampler(accounts, zipfExponent);
+        this.workers = workers;
+        this.seed = seed;
+        
+        List<Integer> indexes = new ArrayList<>(accounts);
+        for (int i = 0; i < accounts; i++) {
+            indexes.add(i);
+        }
+        Collections.shuffle(indexes, new Random(seed));
+        this.accountByRank = new int[accounts];
+        for (int rank = 0; rank < accounts; rank++) {
+            accountByRank[rank] = indexes.get(rank);
+        }
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new OperationStats();
+        }
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.err.println("Usage: WorkloadGenerator rate seconds accounts [zipfExponent] [workers] [seed]");
+            System.exit(1);
+        }
+        double rate = Double.parseDouble(args[0]);
+        int seconds = Integer.parseInt(args[1]);
+        int accounts = Integer.parseInt(args[2]);
+        double exponent = args.length > 3 ? Double.parseDouble(args[3]) : 1.0;
+        int workers = args.length > 4 ? Integer.parseInt(args[4]) : 64;
+        long seed = args.length > 5 ? Long.parseLong(args[5]) : 42;
+        
+        MetricsReporter.startIfConfigured();
+        WorkloadGenerator generator = new WorkloadGenerator(new BankingService(), rate, accounts, exponent,
+                                                            workers, seed);
+        generator.run(seconds);
+    }
+    
+    /**
+     * Offer load for the given time, wait for outstanding requests and print the report
+     * @param seconds Length of the arrival schedule
+     */
+    public void run(int seconds) throws InterruptedException {
+        ExecutorService pool = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(), runnable -> {
+                Thread thread = new Thread(runnable, "workload-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        Random random = new Random(seed);
+        double meanIntervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        long offered = 0;
+        long maxDispatchLag = 0;
+        
+        long intended = start;
+        while (true) {
+            intended += (long) (-Math.log(1.0 - random.nextDouble()) * meanIntervalNanos);
+            if (intended >= end) {
+                break;
+            }
+            Request request = nextRequest(random, intended);
+            
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            maxDispatchLag = Math.max(maxDispatchLag, -wait);
+            int queued = backlog.incrementAndGet();
+            if (queued > maxBacklog) {
+                maxBacklog = queued;
+            }
+            pool.execute(() -> execute(request));
+            offered++;
+        }
+        
+        pool.shutdown();
+        boolean drained = pool.awaitTermination(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+        int abandoned = drained ? 0 : pool.shutdownNow().size();
+        report(seconds, offered, abandoned, elapsed, maxDispatchLag);
+    }
+    
+    private Request nextRequest(Random random, long intended) {
+        int roll = random.nextInt(100);
+        OperationType type = OperationType.HISTORY;
+        for (OperationType candidate : OperationType.values()) {
+            if (roll < candidate.percent) {
+                type = candidate;
+                break;
+            }
+            roll -= candidate.percent;
+        }
+        
+        int account = accountByRank[popularity.sample(random)];
+        int counterparty = account;
+        BigDecimal amount = null;
+        if (type == OperationType.DEPOSIT) {
+            amount = BigDecimal.valueOf(100 + random.nextInt(49_900), 2);
+        } else if (type == OperationType.TRANSFER) {
+            while (counterparty == account) {
+                counterparty = accountByRank[popularity.sample(random)];
+            }
+            amount = BigDecimal.valueOf(100 + random.nextInt(9_900), 2);
+        }
+        return new Request(type, ScenarioSeeder.accountNumber(account), ScenarioSeeder.accountNumber(counterparty),
+                           amount, intended);
+    }
+    
+    private void execute(Request request) {
+        backlog.decrementAndGet();
+        long started = System.nanoTime();
+        OperationStats operation = stats[request.type.ordinal()];
+        try {
+            switch (request.type) {
+                case BALANCE:
+                    bankingService.getAccountBalance(request.account);
+                    break;
+                case DEPOSIT:
+                    bankingService.depositMoney(request.account, request.amount, "Load test deposit");
+                    break;
+                case TRANSFER:
+                    bankingService.transferMoney(request.account, request.counterparty, request.amount,
+                                                 "Load test transfer");
+                    break;
+                default:
+                    bankingService.getTransactionHistoryPage(request.account, null, 0, HISTORY_PAGE_SIZE);
+                    break;
+            }
+            operation.ok.increment();
+            total.ok.increment();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // Insufficient funds, shed by admission control, ...
+            operation.rejected.increment();
+            total.rejected.increment();
+        } catch (SQLException | RuntimeException e) {
+            operation.errors.increment();
+            total.errors.increment();
+            if (firstError == null) {
+                firstError = request.type + ": " + e;
+            }
+        }
+        long finished = System.nanoTime();
+        operation.response.record(finished - request.intendedStart);
+        operation.service.record(finished - started);
+        total.response.record(finished - request.intendedStart);
+        total.service.record(finished - started);
+    }
+    
+    private void report(int seconds, long offered, int abandoned, long elapsedNanos, long maxDispatchLag) {
+        long completed = total.response.getCount();
+        System.out.printf("offered: %d requests over %d s (%.0f req/s target, %.0f req/s offered)%n",
+                          offered, seconds, rate, offered / (double) seconds);
+        System.out.printf("completed: %d in %.1f s (%.0f req/s), abandoned after drain timeout: %d%n",
+                          completed, elapsedNanos / 1e9, completed / (elapsedNanos / 1e9), abandoned);
+        System.out.printf("max backlog: %d requests, max dispatch lag: %.2f ms%n",
+                          maxBacklog, maxDispatchLag / 1e6);
+        System.out.println("response time from intended start, ms (corrected for coordinated omission):");
+        System.out.printf("  %-9s %9s %9s %9s %7s %8s %8s %8s %8s %8s%n",
+                          "operation", "count", "ok", "rejected", "errors", "p50", "p90", "p99", "p99.9", "max");
+        for (OperationType type : OperationType.values()) {
+            printRow(type.name().toLowerCase(), stats[type.ordinal()], stats[type.ordinal()].response.snapshot());
+        }
+        printRow("all", total, total.response.snapshot());
+        System.out.println("service time from worker start, ms (uncorrected):");
+        for (OperationType type : OperationType.values()) {
+            printRow(type.name().toLowerCase(), stats[type.ordinal()], stats[type.ordinal()].service.snapshot());
+        }
+        printRow("all", total, total.service.snapshot());
+        if (firstError != null) {
+            System.out.println("first error: " + firstError);
+        }
+    }
+    
+    private static void printRow(String name, OperationStats operation, LatencyHistogram.Snapshot latency) {
+        System.out.printf("  %-9s %9d %9d %9d %7d %8.2f %8.2f %8.2f %8.2f %8.2f%n",
+                          name, latency.getCount(), operation.ok.sum(), operation.rejected.sum(), operation.errors.sum(),
+                          latency.getValueAtPercentile(50) / 1e6, latency.getValueAtPercentile(90) / 1e6,
+                          latency.getValueAtPercentile(99) / 1e6, latency.getValueAtPercentile(99.9) / 1e6,
+                          latency.getMaxNanos() / 1e6);
+    }
+    
+    /**
+     * One scheduled request
+     */
+    private static final class Request {
+        private final OperationType type;
+        private final String account;
+        private final String counterparty;
+        private final BigDecimal amount;
+        private final long intendedStart;
+        
+        Request(OperationType type, String account, String counterparty, BigDecimal amount, long intendedStart) {
+            this.type = type;
+            this.account = account;
+            this.counterparty = counterparty;
+            this.amount = amount;
+            this.intendedStart = intendedStart;
+        }
+    }
+    
+    /**
+     * Outcomes and latencies of one operation type
+     */
+    private static final class OperationStats {
+        private final LatencyHistogram response = new LatencyHistogram();
+        private final LatencyHistogram service = new LatencyHistogram();
+        private final LongAdder ok = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+    }
+}
@@ -0,0 +1,51 @@
+package com.banking.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf-distributed sampler over ranks 0..n-1: rank k is drawn with
+ * probability proportional to 1 / (k + 1)^exponent, so a few accounts take
+ * most of the traffic and the rest form a long tail. Sampling is a binary
+ * search over a precomputed cumulative table (8 bytes per rank).
+ */
+public class ZipfSampler {
+    private final double[] cumulative;
+    
+    /**
+     * @param size Number of ranks
+     * @param exponent Skew; 0 is uniform, around 1 is typical of account popularity
+     */
+    public ZipfSampler(int size, double exponent) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be positive");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Exponent must not be negative");
+        }
+        cumulative = new double[size];
+        double total = 0;
+        for (int rank = 0; rank < size; rank++) {
+            total += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = total;
+        }
+        for (int rank = 0; rank < size; rank++) {
+            cumulative[rank] /= total;
+        }
+    }
+    
+    /**
+     * Draw a rank
+     * @param random Source of randomness
+     * @return Rank, 0 being the most popular
+     */
+    public int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        int rank = index >= 0 ? index : -index - 1;
+        return Math.min(rank, cumulative.length - 1);
+    }
+    
+    public int size() {
+        return cumulative.length;
+    }
+}
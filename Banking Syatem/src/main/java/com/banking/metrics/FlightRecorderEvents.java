@@ -0,0 +1,193 @@
+package com.banking.metrics;
+
+import java.math.BigDecimal;
+import java.security.SecureRandom;
+
+/**
+ * Java Flight Recorder events for banking operations, SQL statements and
+ * connection acquisition.
+ *
+ * Callers never see jdk.jfr types: on a JDK without Flight Recorder, in a
+ * build without src/jfr/java (JDK 8) or with {@code -Dbanking.jfr.enabled=false}
+ * every method is a no-op. While no
+ * recording is running, {@code begin*} methods return null without
+ * allocating, and {@code end*} methods ignore a null event.
+ *
+ * Account numbers are recorded as a keyed 64-bit hash, so recordings can be
+ * grouped by account without containing account numbers. The key is random
+ * per JVM unless {@code banking.jfr.accountSalt} is set, e.g. to correlate
+ * recordings across restarts. Amounts are recorded as decade buckets.
+ *
+ * Connection-wait time of an operation is the time spent acquiring
+ * connections on the calling thread while the operation ran; work handed to
+ * other threads (group commit, partitioned executor) is not included.
+ */
+public final class FlightRecorderEvents {
+    public static final String OUTCOME_OK = "ok";
+    public static final String OUTCOME_DENIED = "denied";
+    public static final String OUTCOME_REJECTED = "rejected";
+    public static final String OUTCOME_ERROR = "error";
+    
+    private static final String[] AMOUNT_BUCKETS = {
+        "<1", "1-10", "10-100", "100-1K", "1K-10K", "10K-100K", "100K-1M", ">=1M"
+    };
+    
+    private static final long ACCOUNT_SALT = Long.getLong("banking.jfr.accountSalt", new SecureRandom().nextLong());
+    private static final FlightRecorderSink SINK = install();
+    
+    // Nanoseconds this thread has waited for connections while a recording ran
+    private static final ThreadLocal<long[]> CONNECTION_WAIT = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+    
+    /**
+     * Banking operations with their own event type
+     */
+    public enum Operation {
+        DEPOSIT,
+        WITHDRAWAL,
+        TRANSFER,
+        PIN_VERIFY,
+        HISTORY_LOAD
+    }
+    
+    private FlightRecorderEvents() {
+    }
+    
+    private static FlightRecorderSink install() {
+        if (!Boolean.parseBoolean(System.getProperty("banking.jfr.enabled", "true"))) {
+            return null;
+        }
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+            // Loaded by name: JfrEvents is only compiled on JDK 11+
+            FlightRecorderSink sink = (FlightRecorderSink) Class.forName("com.banking.metrics.JfrEvents")
+                .getDeclaredConstructor().newInstance();
+            return sink.install() ? sink : null;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+    
+    /**
+     * @return true if Flight Recorder is present and a recording is running
+     */
+    public static boolean isRecording() {
+        return SINK != null && SINK.isRecording();
+    }
+    
+    /**
+     * Start timing a banking operation
+     * @param operation Operation (null for operations without an event)
+     * @return Event to pass to {@link #endOperation}, or null if it will not be recorded
+     */
+    public static Object beginOperation(Operation operation) {
+        if (operation == null || !isRecording()) {
+            return null;
+        }
+        return SINK.beginOperation(operation, CONNECTION_WAIT.get()[0]);
+    }
+    
+    /**
+     * Finish and commit a banking operation event
+     * @param event Event from {@link #beginOperation} (may be null)
+     * @param accountNumber Account number, recorded hashed (may be null)
+     * @param amount Amount, recorded as a bucket (may be null)
+     * @param rows Rows returned, e.g. history entries (-1 if not applicable)
+     * @param outcome One of the OUTCOME constants
+     */
+    public static void endOperation(Object event, String accountNumber, BigDecimal amount, long rows, String outcome) {
+        if (event != null) {
+            SINK.endOperation(event, accountHash(accountNumber), amountBucket(amount), rows, outcome,
+                              CONNECTION_WAIT.get()[0]);
+        }
+    }
+    
+    /**
+     * Start timing a SQL statement execution
+     * @return Event to pass to {@link #endStatement}, or null if it will not be recorded
+     */
+    public static Object beginStatement() {
+        return isRecording() ? SINK.beginStatement() : null;
+    }
+    
+    /**
+     * Finish and commit a SQL statement event
+     * @param event Event from {@link #beginStatement} (may be null)
+     * @param queryClass Query class of the connection
+     * @param sql SQL as prepared (may be null for batches of plain statements)
+     * @param rows Rows returned or affected (-1 if unknown)
+     * @param outcome One of the OUTCOME constants
+     */
+    public static void endStatement(Object event, String queryClass, String sql, long rows, String outcome) {
+        if (event != null) {
+            SINK.endStatement(event, queryClass, sql, rows, outcome);
+        }
+    }
+    
+    /**
+     * Start timing a connection acquisition
+     * @return Event to pass to {@link #endConnectionAcquire}, or null if it will not be recorded
+     */
+    public static Object beginConnectionAcquire() {
+        return isRecording() ? SINK.beginConnectionAcquire() : null;
+    }
+    
+    /**
+     * Finish and commit a connection acquisition event, and add the wait to
+     * the calling thread's current operation
+     * @param event Event from {@link #beginConnectionAcquire} (may be null)
+     * @param queryClass Query class the connection was for
+     * @param outcome One of the OUTCOME constants
+     * @param waitNanos Time spent acquiring
+     */
+    public static void endConnectionAcquire(Object event, String queryClass, String outcome, long waitNanos) {
+        if (event != null) {
+            CONNECTION_WAIT.get()[0] += waitNanos;
+            SINK.endConnectionAcquire(event, queryClass, outcome);
+        }
+    }
+    
+    /**
+     * Keyed hash of an account number
+     * @param accountNumber Account number (may be null)
+     * @return Hash, or 0 for null
+     */
+    public static long accountHash(String accountNumber) {
+        if (accountNumber == null) {
+            return 0;
+        }
+        // FNV-1a seeded with the key, then a 64-bit finalizer to spread the bits
+        long hash = 0xcbf29ce484222325L ^ ACCOUNT_SALT;
+        for (int i = 0; i < accountNumber.length(); i++) {
+            hash ^= accountNumber.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+    
+    /**
+     * Decade bucket of an amount
+     * @param amount Amount (may be null)
+     * @return Bucket label such as "100-1K", or null for null
+     */
+    public static String amountBucket(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        BigDecimal magnitude = amount.abs();
+        if (magnitude.compareTo(BigDecimal.ONE) < 0) {
+            return AMOUNT_BUCKETS[0];
+        }
+        int integerDigits = magnitude.precision() - magnitude.scale();
+        return AMOUNT_BUCKETS[Math.min(integerDigits, AMOUNT_BUCKETS.length - 1)];
+    }
+}
@@ -0,0 +1,32 @@
+package com.banking.metrics;
+
+/**
+ * What FlightRecorderEvents needs from jdk.jfr. The implementation, JfrEvents,
+ * lives in src/jfr/java and is only built on JDK 11 or later, so this
+ * source tree still compiles for Java 8.
+ */
+interface FlightRecorderSink {
+    /**
+     * Register the event types and start tracking recordings
+     * @return false if Flight Recorder is not available in this JVM
+     */
+    boolean install();
+    
+    /**
+     * @return true if any recording is running
+     */
+    boolean isRecording();
+    
+    Object beginOperation(FlightRecorderEvents.Operation operation, long connectionWaitSoFar);
+    
+    void endOperation(Object started, long accountHash, String amountBucket, long rows, String outcome,
+                      long connectionWaitSoFar);
+    
+    Object beginStatement();
+    
+    void endStatement(Object started, String queryClass, String sql, long rows, String outcome);
+    
+    Object beginConnectionAcquire();
+    
+    void endConnectionAcquire(Object started, String queryClass, String outcome);
+}
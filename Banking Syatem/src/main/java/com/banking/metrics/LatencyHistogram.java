@@ -0,0 +1,196 @@
+package com.banking.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent log-linear latency histogram in the style of HdrHistogram.
+ *
+ * Values (nanoseconds) below 64 get a bucket each; above that every power of
+ * two is split into 32 linear sub-buckets, so a reported percentile is within
+ * about 3% of the true value across the whole long range. Recording is a
+ * couple of bit operations and atomic increments and allocates nothing.
+ *
+ * Percentiles are read from a {@link Snapshot}, which copies the counters;
+ * recording may continue while a snapshot is taken.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    
+    /**
+     * Record one latency
+     * @param nanos Latency in nanoseconds; negative values count as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+    
+    /**
+     * Record a latency measured against a schedule, back-filling the requests
+     * that a stalled caller would have issued in the meantime (correction for
+     * coordinated omission)
+     * @param nanos Latency in nanoseconds
+     * @param expectedIntervalNanos Interval at which requests were meant to start (0 for no correction)
+     */
+    public void recordWithExpectedInterval(long nanos, long expectedIntervalNanos) {
+        record(nanos);
+        if (expectedIntervalNanos <= 0) {
+            return;
+        }
+        for (long missed = nanos - expectedIntervalNanos; missed >= expectedIntervalNanos;
+             missed -= expectedIntervalNanos) {
+            record(missed);
+        }
+    }
+    
+    public long getCount() {
+        return totalCount.get();
+    }
+    
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+    
+    /**
+     * Copy the current counts for percentile queries
+     * @return Snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalNanos.get(), maxNanos.get());
+    }
+    
+    /**
+     * Clear all counts, e.g. at the start of a reporting interval
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+    
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    /**
+     * Highest value that falls into a bucket
+     */
+    static long highestValueOf(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+    
+    /**
+     * Point-in-time copy of a histogram
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        
+        Snapshot(long[] counts, long count, long totalNanos, long maxNanos) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+        
+        public long getCount() {
+            return count;
+        }
+        
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+        
+        public double getMeanNanos() {
+            return count == 0 ? 0.0 : (double) totalNanos / count;
+        }
+        
+        /**
+         * Get the latency at a percentile
+         * @param percentile Percentile between 0 and 100, e.g. 99.9
+         * @return Latency in nanoseconds that the given share of recordings did not exceed (0 if empty)
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueOf(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+        
+        public double getValueAtPercentileMicros(double percentile) {
+            return getValueAtPercentile(percentile) / 1000.0;
+        }
+        
+        /**
+         * Get what was recorded between an earlier snapshot of the same histogram and this one
+         * @param earlier Earlier snapshot (null for everything)
+         * @return Snapshot of the interval; its maximum is the top of the highest bucket used
+         */
+        public Snapshot minus(Snapshot earlier) {
+            if (earlier == null) {
+                return this;
+            }
+            long[] interval = new long[counts.length];
+            long intervalMax = 0;
+            for (int i = 0; i < counts.length; i++) {
+                interval[i] = counts[i] - earlier.counts[i];
+                if (interval[i] > 0) {
+                    intervalMax = Math.min(highestValueOf(i), maxNanos);
+                }
+            }
+            return new Snapshot(interval, count - earlier.count, totalNanos - earlier.totalNanos, intervalMax);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.1fus, p50=%.1fus, p90=%.1fus, p99=%.1fus, p99.9=%.1fus, max=%.1fus",
+                                 count, getMeanNanos() / 1000.0, getValueAtPercentileMicros(50),
+                                 getValueAtPercentileMicros(90), getValueAtPercentileMicros(99),
+                                 getValueAtPercentileMicros(99.9), maxNanos / 1000.0);
+        }
+    }
+}
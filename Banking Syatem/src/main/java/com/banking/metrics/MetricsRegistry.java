@@ -0,0 +1,59 @@
+package com.banking.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of timers.
+ *
+ * Names are dotted paths: {@code service.<method>} for BankingService calls,
+ * {@code sql.<statement>} for DAO statements and
+ * {@code db.connection.<query class>} for connection acquisition. Looking up
+ * an existing timer allocates nothing, so callers may look timers up by name
+ * on every call. The number of timers is capped; names beyond the cap share
+ * one overflow timer.
+ */
+public final class MetricsRegistry {
+    public static final int MAX_TIMERS = 2000;
+    public static final String OVERFLOW_TIMER = "other";
+    
+    private static final ConcurrentHashMap<String, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Timer OVERFLOW = new Timer(OVERFLOW_TIMER);
+    
+    private MetricsRegistry() {
+    }
+    
+    /**
+     * Get or create a timer
+     * @param name Timer name
+     * @return Timer
+     */
+    public static Timer timer(String name) {
+        Timer timer = TIMERS.get(name);
+        if (timer != null) {
+            return timer;
+        }
+        if (TIMERS.size() >= MAX_TIMERS) {
+            return OVERFLOW;
+        }
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+    
+    /**
+     * Get all timers that have recorded anything
+     * @return Timers by name, sorted
+     */
+    public static Map<String, Timer> getTimers() {
+        Map<String, Timer> timers = new TreeMap<>();
+        for (Timer timer : TIMERS.values()) {
+            if (timer.getCount() > 0) {
+                timers.put(timer.getName(), timer);
+            }
+        }
+        if (OVERFLOW.getCount() > 0) {
+            timers.put(OVERFLOW_TIMER, OVERFLOW);
+        }
+        return timers;
+    }
+}
@@ -0,0 +1,111 @@
+package com.banking.metrics;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically logs, for every timer that was used since the last report, the
+ * interval's call rate, latency percentiles and rejected/error counts
+ */
+public class MetricsReporter {
+    public static final String INTERVAL_PROPERTY = "banking.metrics.logIntervalSeconds";
+    
+    private final PrintStream out;
+    private final Map<String, Interval> previous = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+    private long lastReportNanos;
+    
+    public MetricsReporter(PrintStream out) {
+        this.out = out;
+        this.lastReportNanos = System.nanoTime();
+    }
+    
+    /**
+     * Start reporting to standard output if the banking.metrics.logIntervalSeconds
+     * system property is set
+     * @return The running reporter, or null if reporting is not configured
+     */
+    public static MetricsReporter startIfConfigured() {
+        long intervalSeconds = Long.getLong(INTERVAL_PROPERTY, 0);
+        if (intervalSeconds <= 0) {
+            return null;
+        }
+        MetricsReporter reporter = new MetricsReporter(System.out);
+        reporter.start(intervalSeconds);
+        return reporter;
+    }
+    
+    /**
+     * Start reporting on a background thread
+     * @param intervalSeconds Seconds between reports
+     */
+    public synchronized void start(long intervalSeconds) {
+        if (intervalSeconds <= 0) {
+            throw new IllegalArgumentException("Report interval must be positive");
+        }
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::report, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+    
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    /**
+     * Log one report covering the time since the previous one
+     */
+    public synchronized void report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - lastReportNanos) / 1e9);
+        lastReportNanos = now;
+        
+        StringBuilder report = new StringBuilder();
+        for (Timer timer : MetricsRegistry.getTimers().values()) {
+            Interval current = new Interval(timer);
+            Interval last = previous.put(timer.getName(), current);
+            LatencyHistogram.Snapshot interval = current.latency.minus(last != null ? last.latency : null);
+            if (interval.getCount() == 0) {
+                continue;
+            }
+            report.append(String.format("%-60s %9.1f/s p50=%.0fus p99=%.0fus p99.9=%.0fus max=%.0fus rejected=%d errors=%d%n",
+                timer.getName(), interval.getCount() / seconds,
+                interval.getValueAtPercentileMicros(50), interval.getValueAtPercentileMicros(99),
+                interval.getValueAtPercentileMicros(99.9), interval.getMaxNanos() / 1000.0,
+                current.rejected - (last != null ? last.rejected : 0),
+                current.errors - (last != null ? last.errors : 0)));
+        }
+        if (report.length() > 0) {
+            out.print("[metrics] " + String.format("%.0f", seconds) + "s interval" + System.lineSeparator() + report);
+            out.flush();
+        }
+    }
+    
+    /**
+     * A timer's cumulative state at one report
+     */
+    private static class Interval {
+        private final LatencyHistogram.Snapshot latency;
+        private final long rejected;
+        private final long errors;
+        
+        Interval(Timer timer) {
+            this.rejected = timer.getRejected();
+            this.errors = timer.getErrors();
+            this.latency = timer.getLatency().snapshot();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.banking.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency distribution and outcome counts of one operation.
+ *
+ * Every call is recorded in the latency histogram, whatever its outcome;
+ * rejected calls (failed validation, shed by admission control) and errors
+ * (database or unexpected failures) are also counted separately. Recording
+ * allocates nothing.
+ */
+public class Timer {
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    
+    public Timer(String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Record a call that succeeded
+     * @param nanos Call latency in nanoseconds
+     */
+    public void record(long nanos) {
+        latency.record(nanos);
+    }
+    
+    /**
+     * Record a call that was turned down, e.g. for insufficient balance
+     * @param nanos Call latency in nanoseconds
+     */
+    public void recordRejected(long nanos) {
+        latency.record(nanos);
+        rejected.increment();
+    }
+    
+    /**
+     * Record a call that failed
+     * @param nanos Call latency in nanoseconds
+     */
+    public void recordError(long nanos) {
+        latency.record(nanos);
+        errors.increment();
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+    
+    public long getCount() {
+        return latency.getCount();
+    }
+    
+    public long getRejected() {
+        return rejected.sum();
+    }
+    
+    public long getErrors() {
+        return errors.sum();
+    }
+}
@@ -14,6 +14,8 @@ public class Account {
     private BigDecimal balance;
     private String pin;
     private AccountStatus status;
+    private int version;
+    private int balanceSlots;
     private Timestamp createdAt;
     private Timestamp updatedAt;
 
@@ -146,6 +148,22 @@ public class Account {
         this.status = status;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public int getBalanceSlots() {
+        return balanceSlots;
+    }
+
+    public void setBalanceSlots(int balanceSlots) {
+        this.balanceSlots = balanceSlots;
+    }
+
     public Timestamp getCreatedAt() {
         return createdAt;
     }
@@ -196,6 +214,11 @@ public class Account {
         return this.status == AccountStatus.ACTIVE;
     }
 
+    // True if the balance is spread across slot rows (hot accounts)
+    public boolean isSlotted() {
+        return this.balanceSlots > 0;
+    }
+
     @Override
     public String toString() {
         return "Account{" +
@@ -206,6 +229,7 @@ public class Account {
                 ", balance=" + balance +
                 ", pin='****'" +
                 ", status=" + status +
+                ", version=" + version +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
                 '}';
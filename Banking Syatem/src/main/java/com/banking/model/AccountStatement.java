@@ -0,0 +1,155 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * AccountStatement model class holding the header and totals of one account's
+ * statement for a period. The entries themselves are streamed, not stored.
+ */
+public class AccountStatement {
+    private int accountId;
+    private String accountNumber;
+    private String customerName;
+    private Account.AccountType accountType;
+    private Timestamp periodStart;
+    private Timestamp periodEnd;
+    private BigDecimal openingBalance;
+    private BigDecimal closingBalance;
+    private int entryCount;
+    private final Map<Transaction.TransactionType, BigDecimal> credits = new EnumMap<>(Transaction.TransactionType.class);
+    private final Map<Transaction.TransactionType, BigDecimal> debits = new EnumMap<>(Transaction.TransactionType.class);
+
+    // Default constructor
+    public AccountStatement() {}
+
+    // Constructor for a new statement of an account over [periodStart, periodEnd)
+    public AccountStatement(AccountSummary account, Timestamp periodStart, Timestamp periodEnd) {
+        this.accountId = account.getAccountId();
+        this.accountNumber = account.getAccountNumber();
+        this.customerName = account.getCustomerName();
+        this.accountType = account.getAccountType();
+        this.periodStart = periodStart;
+        this.periodEnd = periodEnd;
+    }
+
+    // Getters and Setters
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public void setAccountNumber(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public Account.AccountType getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(Account.AccountType accountType) {
+        this.accountType = accountType;
+    }
+
+    public Timestamp getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(Timestamp periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public Timestamp getPeriodEnd() {
+        return periodEnd;
+    }
+
+    public void setPeriodEnd(Timestamp periodEnd) {
+        this.periodEnd = periodEnd;
+    }
+
+    public BigDecimal getOpeningBalance() {
+        return openingBalance;
+    }
+
+    public void setOpeningBalance(BigDecimal openingBalance) {
+        this.openingBalance = openingBalance;
+    }
+
+    public BigDecimal getClosingBalance() {
+        return closingBalance;
+    }
+
+    public void setClosingBalance(BigDecimal closingBalance) {
+        this.closingBalance = closingBalance;
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    public void setEntryCount(int entryCount) {
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * Get the money credited to the account in the period, by transaction type
+     * @return Credits per type
+     */
+    public Map<Transaction.TransactionType, BigDecimal> getCredits() {
+        return credits;
+    }
+
+    /**
+     * Get the money debited from the account in the period, by transaction type
+     * @return Debits per type
+     */
+    public Map<Transaction.TransactionType, BigDecimal> getDebits() {
+        return debits;
+    }
+
+    // Helper methods
+    public void addCredit(Transaction.TransactionType type, BigDecimal amount) {
+        credits.merge(type, amount, BigDecimal::add);
+    }
+
+    public void addDebit(Transaction.TransactionType type, BigDecimal amount) {
+        debits.merge(type, amount, BigDecimal::add);
+    }
+
+    public BigDecimal getTotalCredits() {
+        return credits.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public BigDecimal getTotalDebits() {
+        return debits.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Override
+    public String toString() {
+        return "AccountStatement{" +
+                "accountNumber='" + accountNumber + '\'' +
+                ", periodStart=" + periodStart +
+                ", periodEnd=" + periodEnd +
+                ", openingBalance=" + openingBalance +
+                ", closingBalance=" + closingBalance +
+                ", entryCount=" + entryCount +
+                '}';
+    }
+}
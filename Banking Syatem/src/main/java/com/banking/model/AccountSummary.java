@@ -0,0 +1,110 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Read model for a row of the materialized account summary
+ */
+public class AccountSummary {
+    private int accountId;
+    private String accountNumber;
+    private int customerId;
+    private String customerName;
+    private String email;
+    private Account.AccountType accountType;
+    private BigDecimal balance;
+    private Account.AccountStatus status;
+    private Timestamp createdAt;
+
+    // Default constructor
+    public AccountSummary() {}
+
+    // Getters and Setters
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public void setAccountNumber(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+
+    public int getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(int customerId) {
+        this.customerId = customerId;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public Account.AccountType getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(Account.AccountType accountType) {
+        this.accountType = accountType;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public Account.AccountStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(Account.AccountStatus status) {
+        this.status = status;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountSummary{" +
+                "accountId=" + accountId +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", customerId=" + customerId +
+                ", customerName='" + customerName + '\'' +
+                ", email='" + email + '\'' +
+                ", accountType=" + accountType +
+                ", balance=" + balance +
+                ", status=" + status +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
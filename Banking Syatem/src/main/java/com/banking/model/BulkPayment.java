@@ -0,0 +1,110 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+
+/**
+ * BulkPayment model class representing one deposit or transfer record of a
+ * bulk payment file. Posting sets the reject reason of records that could
+ * not be applied.
+ */
+public class BulkPayment {
+    private Transaction.TransactionType transactionType;
+    private String accountNumber;
+    private String counterpartyAccountNumber;
+    private BigDecimal amount;
+    private String description;
+    private String idempotencyKey;
+    private String rejectReason;
+
+    // Default constructor
+    public BulkPayment() {}
+
+    // Constructor for deposits (counterparty is null) and transfers (account is the source)
+    public BulkPayment(Transaction.TransactionType transactionType, String accountNumber,
+                       String counterpartyAccountNumber, BigDecimal amount, String description) {
+        this.transactionType = transactionType;
+        this.accountNumber = accountNumber;
+        this.counterpartyAccountNumber = counterpartyAccountNumber;
+        this.amount = amount;
+        this.description = description;
+    }
+
+    // Getters and Setters
+    public Transaction.TransactionType getTransactionType() {
+        return transactionType;
+    }
+
+    public void setTransactionType(Transaction.TransactionType transactionType) {
+        this.transactionType = transactionType;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public void setAccountNumber(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+
+    public String getCounterpartyAccountNumber() {
+        return counterpartyAccountNumber;
+    }
+
+    public void setCounterpartyAccountNumber(String counterpartyAccountNumber) {
+        this.counterpartyAccountNumber = counterpartyAccountNumber;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getRejectReason() {
+        return rejectReason;
+    }
+
+    public void setRejectReason(String rejectReason) {
+        this.rejectReason = rejectReason;
+    }
+
+    // Helper methods
+    public boolean isTransfer() {
+        return transactionType == Transaction.TransactionType.TRANSFER;
+    }
+
+    public boolean isRejected() {
+        return rejectReason != null;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkPayment{" +
+                "transactionType=" + transactionType +
+                ", accountNumber='" + accountNumber + '\'' +
+                ", counterpartyAccountNumber='" + counterpartyAccountNumber + '\'' +
+                ", amount=" + amount +
+                ", description='" + description + '\'' +
+                ", idempotencyKey='" + idempotencyKey + '\'' +
+                ", rejectReason='" + rejectReason + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,213 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * FixedDepositTerm model class representing the term of a FIXED_DEPOSIT
+ * account: principal, rate, maturity date and the account paid out to at
+ * maturity.
+ */
+public class FixedDepositTerm {
+    private int accountId;
+    private String accountNumber;
+    private BigDecimal principal;
+    private BigDecimal annualRate;
+    private int termMonths;
+    private Date startDate;
+    private Date maturityDate;
+    private int payoutAccountId;
+    private TermStatus status;
+    private BigDecimal finalInterest;
+    private BigDecimal payoutAmount;
+    private Integer payoutTransactionId;
+    private Timestamp maturedAt;
+    private String lastError;
+
+    // Term status enum
+    public enum TermStatus {
+        OPEN("OPEN"),
+        MATURED("MATURED");
+
+        private final String value;
+
+        TermStatus(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public static TermStatus fromString(String text) {
+            for (TermStatus status : TermStatus.values()) {
+                if (status.value.equalsIgnoreCase(text)) {
+                    return status;
+                }
+            }
+            throw new IllegalArgumentException("No constant with text " + text + " found");
+        }
+    }
+
+    // Default constructor
+    public FixedDepositTerm() {
+        this.status = TermStatus.OPEN;
+    }
+
+    // Constructor for new terms; maturity is termMonths after startDate
+    public FixedDepositTerm(int accountId, BigDecimal principal, BigDecimal annualRate, int termMonths,
+                            Date startDate, int payoutAccountId) {
+        this();
+        this.accountId = accountId;
+        this.principal = principal;
+        this.annualRate = annualRate;
+        this.termMonths = termMonths;
+        this.startDate = startDate;
+        this.maturityDate = Date.valueOf(startDate.toLocalDate().plusMonths(termMonths));
+        this.payoutAccountId = payoutAccountId;
+    }
+
+    // Getters and Setters
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+
+    public void setAccountNumber(String accountNumber) {
+        this.accountNumber = accountNumber;
+    }
+
+    public BigDecimal getPrincipal() {
+        return principal;
+    }
+
+    public void setPrincipal(BigDecimal principal) {
+        this.principal = principal;
+    }
+
+    public BigDecimal getAnnualRate() {
+        return annualRate;
+    }
+
+    public void setAnnualRate(BigDecimal annualRate) {
+        this.annualRate = annualRate;
+    }
+
+    public int getTermMonths() {
+        return termMonths;
+    }
+
+    public void setTermMonths(int termMonths) {
+        this.termMonths = termMonths;
+    }
+
+    public Date getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(Date startDate) {
+        this.startDate = startDate;
+    }
+
+    public Date getMaturityDate() {
+        return maturityDate;
+    }
+
+    public void setMaturityDate(Date maturityDate) {
+        this.maturityDate = maturityDate;
+    }
+
+    public int getPayoutAccountId() {
+        return payoutAccountId;
+    }
+
+    public void setPayoutAccountId(int payoutAccountId) {
+        this.payoutAccountId = payoutAccountId;
+    }
+
+    public TermStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(TermStatus status) {
+        this.status = status;
+    }
+
+    public BigDecimal getFinalInterest() {
+        return finalInterest;
+    }
+
+    public void setFinalInterest(BigDecimal finalInterest) {
+        this.finalInterest = finalInterest;
+    }
+
+    public BigDecimal getPayoutAmount() {
+        return payoutAmount;
+    }
+
+    public void setPayoutAmount(BigDecimal payoutAmount) {
+        this.payoutAmount = payoutAmount;
+    }
+
+    public Integer getPayoutTransactionId() {
+        return payoutTransactionId;
+    }
+
+    public void setPayoutTransactionId(Integer payoutTransactionId) {
+        this.payoutTransactionId = payoutTransactionId;
+    }
+
+    public Timestamp getMaturedAt() {
+        return maturedAt;
+    }
+
+    public void setMaturedAt(Timestamp maturedAt) {
+        this.maturedAt = maturedAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    // Helper methods
+    public boolean isMatured() {
+        return status == TermStatus.MATURED;
+    }
+
+    /**
+     * Get the simple interest earned over the whole term, ACT/365
+     * @return Interest on the principal from start date to maturity date
+     */
+    public BigDecimal getContractualInterest() {
+        long days = ChronoUnit.DAYS.between(startDate.toLocalDate(), maturityDate.toLocalDate());
+        return principal.multiply(annualRate).multiply(BigDecimal.valueOf(days))
+                        .divide(BigDecimal.valueOf(365), 2, RoundingMode.HALF_EVEN);
+    }
+
+    @Override
+    public String toString() {
+        return "FixedDepositTerm{" +
+                "accountId=" + accountId +
+                ", principal=" + principal +
+                ", annualRate=" + annualRate +
+                ", termMonths=" + termMonths +
+                ", maturityDate=" + maturityDate +
+                ", payoutAccountId=" + payoutAccountId +
+                ", status=" + status +
+                '}';
+    }
+}
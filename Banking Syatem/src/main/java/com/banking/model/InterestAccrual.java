@@ -0,0 +1,95 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+
+/**
+ * InterestAccrual model class holding one account's state for an interest run:
+ * the balance and carried sub-cent interest as read, and the amount to credit
+ * and new carry once computed.
+ */
+public class InterestAccrual {
+    private int accountId;
+    private Account.AccountType accountType;
+    private BigDecimal balance;
+    private int balanceSlots;
+    private BigDecimal interestCarry;
+    private BigDecimal interestAmount;
+    private BigDecimal newInterestCarry;
+
+    // Default constructor
+    public InterestAccrual() {}
+
+    // Getters and Setters
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public Account.AccountType getAccountType() {
+        return accountType;
+    }
+
+    public void setAccountType(Account.AccountType accountType) {
+        this.accountType = accountType;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    public int getBalanceSlots() {
+        return balanceSlots;
+    }
+
+    public void setBalanceSlots(int balanceSlots) {
+        this.balanceSlots = balanceSlots;
+    }
+
+    public BigDecimal getInterestCarry() {
+        return interestCarry;
+    }
+
+    public void setInterestCarry(BigDecimal interestCarry) {
+        this.interestCarry = interestCarry;
+    }
+
+    public BigDecimal getInterestAmount() {
+        return interestAmount;
+    }
+
+    public void setInterestAmount(BigDecimal interestAmount) {
+        this.interestAmount = interestAmount;
+    }
+
+    public BigDecimal getNewInterestCarry() {
+        return newInterestCarry;
+    }
+
+    public void setNewInterestCarry(BigDecimal newInterestCarry) {
+        this.newInterestCarry = newInterestCarry;
+    }
+
+    // Helper methods
+    public boolean isSlotted() {
+        return balanceSlots > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "InterestAccrual{" +
+                "accountId=" + accountId +
+                ", accountType=" + accountType +
+                ", balance=" + balance +
+                ", interestCarry=" + interestCarry +
+                ", interestAmount=" + interestAmount +
+                ", newInterestCarry=" + newInterestCarry +
+                '}';
+    }
+}
@@ -0,0 +1,112 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+/**
+ * InterestRunPartition model class representing the progress of one account ID
+ * range in an end-of-day interest run (interest_runs table). Accounts from
+ * firstAccountId up to lastAccountId have been accrued.
+ */
+public class InterestRunPartition {
+    private Date runDate;
+    private int partitionNo;
+    private int firstAccountId;
+    private int endAccountId;
+    private int lastAccountId;
+    private int accountsAccrued;
+    private BigDecimal interestPosted;
+    private boolean completed;
+
+    // Default constructor
+    public InterestRunPartition() {}
+
+    // Constructor for a new partition covering [firstAccountId, endAccountId]
+    public InterestRunPartition(Date runDate, int partitionNo, int firstAccountId, int endAccountId) {
+        this.runDate = runDate;
+        this.partitionNo = partitionNo;
+        this.firstAccountId = firstAccountId;
+        this.endAccountId = endAccountId;
+        this.lastAccountId = firstAccountId - 1;
+        this.interestPosted = BigDecimal.ZERO;
+    }
+
+    // Getters and Setters
+    public Date getRunDate() {
+        return runDate;
+    }
+
+    public void setRunDate(Date runDate) {
+        this.runDate = runDate;
+    }
+
+    public int getPartitionNo() {
+        return partitionNo;
+    }
+
+    public void setPartitionNo(int partitionNo) {
+        this.partitionNo = partitionNo;
+    }
+
+    public int getFirstAccountId() {
+        return firstAccountId;
+    }
+
+    public void setFirstAccountId(int firstAccountId) {
+        this.firstAccountId = firstAccountId;
+    }
+
+    public int getEndAccountId() {
+        return endAccountId;
+    }
+
+    public void setEndAccountId(int endAccountId) {
+        this.endAccountId = endAccountId;
+    }
+
+    public int getLastAccountId() {
+        return lastAccountId;
+    }
+
+    public void setLastAccountId(int lastAccountId) {
+        this.lastAccountId = lastAccountId;
+    }
+
+    public int getAccountsAccrued() {
+        return accountsAccrued;
+    }
+
+    public void setAccountsAccrued(int accountsAccrued) {
+        this.accountsAccrued = accountsAccrued;
+    }
+
+    public BigDecimal getInterestPosted() {
+        return interestPosted;
+    }
+
+    public void setInterestPosted(BigDecimal interestPosted) {
+        this.interestPosted = interestPosted;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    @Override
+    public String toString() {
+        return "InterestRunPartition{" +
+                "runDate=" + runDate +
+                ", partitionNo=" + partitionNo +
+                ", firstAccountId=" + firstAccountId +
+                ", endAccountId=" + endAccountId +
+                ", lastAccountId=" + lastAccountId +
+                ", accountsAccrued=" + accountsAccrued +
+                ", interestPosted=" + interestPosted +
+                ", completed=" + completed +
+                '}';
+    }
+}
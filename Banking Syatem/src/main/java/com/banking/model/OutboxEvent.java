@@ -0,0 +1,108 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * A committed transaction waiting in the transactional outbox for export
+ */
+public class OutboxEvent {
+    private long outboxId;
+    private int transactionId;
+    private Transaction.TransactionType transactionType;
+    private Integer fromAccountId;
+    private Integer toAccountId;
+    private BigDecimal amount;
+    private String description;
+    private Timestamp transactionDate;
+    private Timestamp createdAt;
+
+    // Default constructor
+    public OutboxEvent() {}
+
+    // Getters and Setters
+    public long getOutboxId() {
+        return outboxId;
+    }
+
+    public void setOutboxId(long outboxId) {
+        this.outboxId = outboxId;
+    }
+
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(int transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public Transaction.TransactionType getTransactionType() {
+        return transactionType;
+    }
+
+    public void setTransactionType(Transaction.TransactionType transactionType) {
+        this.transactionType = transactionType;
+    }
+
+    public Integer getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public void setFromAccountId(Integer fromAccountId) {
+        this.fromAccountId = fromAccountId;
+    }
+
+    public Integer getToAccountId() {
+        return toAccountId;
+    }
+
+    public void setToAccountId(Integer toAccountId) {
+        this.toAccountId = toAccountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Timestamp getTransactionDate() {
+        return transactionDate;
+    }
+
+    public void setTransactionDate(Timestamp transactionDate) {
+        this.transactionDate = transactionDate;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "outboxId=" + outboxId +
+                ", transactionId=" + transactionId +
+                ", transactionType=" + transactionType +
+                ", fromAccountId=" + fromAccountId +
+                ", toAccountId=" + toAccountId +
+                ", amount=" + amount +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
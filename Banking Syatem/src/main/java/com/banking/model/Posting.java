@@ -0,0 +1,96 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Posting model class representing one side of a double-entry journal.
+ * The transactions row is the journal header; the postings of one
+ * transaction always sum to zero.
+ */
+public class Posting {
+    // System account taking the other side of cash deposits and withdrawals
+    public static final int CASH_CLEARING_ACCOUNT_ID = -1;
+
+    private int accountId;
+    private long postingSeq;
+    private int transactionId;
+    private BigDecimal amount;
+    private BigDecimal runningBalance;
+    private Timestamp postedAt;
+
+    // Default constructor
+    public Posting() {}
+
+    // Constructor for new postings (amount is positive for a credit, negative for a debit)
+    public Posting(int accountId, BigDecimal amount) {
+        this.accountId = accountId;
+        this.amount = amount;
+    }
+
+    // Getters and Setters
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public long getPostingSeq() {
+        return postingSeq;
+    }
+
+    public void setPostingSeq(long postingSeq) {
+        this.postingSeq = postingSeq;
+    }
+
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(int transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public BigDecimal getRunningBalance() {
+        return runningBalance;
+    }
+
+    public void setRunningBalance(BigDecimal runningBalance) {
+        this.runningBalance = runningBalance;
+    }
+
+    public Timestamp getPostedAt() {
+        return postedAt;
+    }
+
+    public void setPostedAt(Timestamp postedAt) {
+        this.postedAt = postedAt;
+    }
+
+    // Helper methods
+    public boolean isSystemAccount() {
+        return accountId < 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Posting{" +
+                "accountId=" + accountId +
+                ", postingSeq=" + postingSeq +
+                ", transactionId=" + transactionId +
+                ", amount=" + amount +
+                ", runningBalance=" + runningBalance +
+                ", postedAt=" + postedAt +
+                '}';
+    }
+}
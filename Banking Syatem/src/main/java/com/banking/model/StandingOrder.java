@@ -0,0 +1,329 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * StandingOrder model class representing a recurring transfer. Occurrence n
+ * falls on startAt plus n periods of the frequency, so monthly orders keep
+ * their day of month (clamped to the month length) instead of drifting.
+ */
+public class StandingOrder {
+    private int orderId;
+    private int fromAccountId;
+    private int toAccountId;
+    private String fromAccountNumber;
+    private String toAccountNumber;
+    private BigDecimal amount;
+    private String description;
+    private Frequency frequency;
+    private Timestamp startAt;
+    private Timestamp endAt;
+    private Timestamp nextRunAt;
+    private int occurrence;
+    private MisfirePolicy misfirePolicy;
+    private OrderStatus status;
+    private Timestamp lastRunAt;
+    private int failureCount;
+    private String lastFailure;
+    private Timestamp createdAt;
+
+    // Frequency enum
+    public enum Frequency {
+        DAILY("DAILY"),
+        WEEKLY("WEEKLY"),
+        MONTHLY("MONTHLY");
+
+        private final String value;
+
+        Frequency(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public static Frequency fromString(String text) {
+            for (Frequency frequency : Frequency.values()) {
+                if (frequency.value.equalsIgnoreCase(text)) {
+                    return frequency;
+                }
+            }
+            throw new IllegalArgumentException("No constant with text " + text + " found");
+        }
+    }
+
+    // Misfire policy enum: what to do with occurrences missed while the scheduler was down
+    public enum MisfirePolicy {
+        FIRE_ONCE("FIRE_ONCE"),
+        FIRE_ALL("FIRE_ALL"),
+        SKIP("SKIP");
+
+        private final String value;
+
+        MisfirePolicy(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public static MisfirePolicy fromString(String text) {
+            for (MisfirePolicy policy : MisfirePolicy.values()) {
+                if (policy.value.equalsIgnoreCase(text)) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("No constant with text " + text + " found");
+        }
+    }
+
+    // Order status enum
+    public enum OrderStatus {
+        ACTIVE("ACTIVE"),
+        PAUSED("PAUSED"),
+        COMPLETED("COMPLETED"),
+        CANCELLED("CANCELLED");
+
+        private final String value;
+
+        OrderStatus(String value) {
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public static OrderStatus fromString(String text) {
+            for (OrderStatus status : OrderStatus.values()) {
+                if (status.value.equalsIgnoreCase(text)) {
+                    return status;
+                }
+            }
+            throw new IllegalArgumentException("No constant with text " + text + " found");
+        }
+    }
+
+    // Default constructor
+    public StandingOrder() {
+        this.misfirePolicy = MisfirePolicy.FIRE_ONCE;
+        this.status = OrderStatus.ACTIVE;
+    }
+
+    // Constructor for new standing orders; the first occurrence is at startAt
+    public StandingOrder(int fromAccountId, int toAccountId, BigDecimal amount, String description,
+                         Frequency frequency, Timestamp startAt, Timestamp endAt) {
+        this();
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.description = description;
+        this.frequency = frequency;
+        this.startAt = startAt;
+        this.endAt = endAt;
+        this.nextRunAt = startAt;
+    }
+
+    // Getters and Setters
+    public int getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(int orderId) {
+        this.orderId = orderId;
+    }
+
+    public int getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public void setFromAccountId(int fromAccountId) {
+        this.fromAccountId = fromAccountId;
+    }
+
+    public int getToAccountId() {
+        return toAccountId;
+    }
+
+    public void setToAccountId(int toAccountId) {
+        this.toAccountId = toAccountId;
+    }
+
+    public String getFromAccountNumber() {
+        return fromAccountNumber;
+    }
+
+    public void setFromAccountNumber(String fromAccountNumber) {
+        this.fromAccountNumber = fromAccountNumber;
+    }
+
+    public String getToAccountNumber() {
+        return toAccountNumber;
+    }
+
+    public void setToAccountNumber(String toAccountNumber) {
+        this.toAccountNumber = toAccountNumber;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public void setFrequency(Frequency frequency) {
+        this.frequency = frequency;
+    }
+
+    public Timestamp getStartAt() {
+        return startAt;
+    }
+
+    public void setStartAt(Timestamp startAt) {
+        this.startAt = startAt;
+    }
+
+    public Timestamp getEndAt() {
+        return endAt;
+    }
+
+    public void setEndAt(Timestamp endAt) {
+        this.endAt = endAt;
+    }
+
+    public Timestamp getNextRunAt() {
+        return nextRunAt;
+    }
+
+    public void setNextRunAt(Timestamp nextRunAt) {
+        this.nextRunAt = nextRunAt;
+    }
+
+    public int getOccurrence() {
+        return occurrence;
+    }
+
+    public void setOccurrence(int occurrence) {
+        this.occurrence = occurrence;
+    }
+
+    public MisfirePolicy getMisfirePolicy() {
+        return misfirePolicy;
+    }
+
+    public void setMisfirePolicy(MisfirePolicy misfirePolicy) {
+        this.misfirePolicy = misfirePolicy;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public Timestamp getLastRunAt() {
+        return lastRunAt;
+    }
+
+    public void setLastRunAt(Timestamp lastRunAt) {
+        this.lastRunAt = lastRunAt;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    public void setFailureCount(int failureCount) {
+        this.failureCount = failureCount;
+    }
+
+    public String getLastFailure() {
+        return lastFailure;
+    }
+
+    public void setLastFailure(String lastFailure) {
+        this.lastFailure = lastFailure;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Timestamp createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    // Helper methods
+    public boolean isActive() {
+        return status == OrderStatus.ACTIVE;
+    }
+
+    /**
+     * Get the time of an occurrence
+     * @param n Occurrence number, 0 being startAt
+     * @return Scheduled time of occurrence n
+     */
+    public Timestamp getOccurrenceTime(int n) {
+        LocalDateTime start = startAt.toLocalDateTime();
+        switch (frequency) {
+            case DAILY:
+                return Timestamp.valueOf(start.plusDays(n));
+            case WEEKLY:
+                return Timestamp.valueOf(start.plusWeeks(n));
+            default:
+                return Timestamp.valueOf(start.plusMonths(n));
+        }
+    }
+
+    /**
+     * Check whether an occurrence falls after the end of the order
+     * @param n Occurrence number
+     * @return true if the order has an end and occurrence n is after it
+     */
+    public boolean isPastEnd(int n) {
+        return endAt != null && getOccurrenceTime(n).after(endAt);
+    }
+
+    /**
+     * Get the idempotency key of the payment made for an occurrence
+     * @param n Occurrence number
+     * @return Idempotency key
+     */
+    public String getIdempotencyKey(int n) {
+        return "SO-" + orderId + "-" + n;
+    }
+
+    @Override
+    public String toString() {
+        return "StandingOrder{" +
+                "orderId=" + orderId +
+                ", fromAccountNumber='" + fromAccountNumber + '\'' +
+                ", toAccountNumber='" + toAccountNumber + '\'' +
+                ", amount=" + amount +
+                ", frequency=" + frequency +
+                ", nextRunAt=" + nextRunAt +
+                ", occurrence=" + occurrence +
+                ", status=" + status +
+                '}';
+    }
+}
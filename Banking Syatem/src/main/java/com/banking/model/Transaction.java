@@ -14,13 +14,15 @@ public class Transaction {
     private BigDecimal amount;
     private String description;
     private Timestamp transactionDate;
+    private String idempotencyKey;
 
     // Transaction type enum
     public enum TransactionType {
         DEPOSIT("DEPOSIT"),
         WITHDRAWAL("WITHDRAWAL"),
         TRANSFER("TRANSFER"),
-        OPENING_BALANCE("OPENING_BALANCE");
+        OPENING_BALANCE("OPENING_BALANCE"),
+        INTEREST("INTEREST");
 
         private final String value;
 
@@ -141,6 +143,14 @@ public class Transaction {
         this.transactionDate = transactionDate;
     }
 
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
     // Helper methods
     public boolean isDeposit() {
         return transactionType == TransactionType.DEPOSIT;
@@ -158,6 +168,10 @@ public class Transaction {
         return transactionType == TransactionType.OPENING_BALANCE;
     }
 
+    public boolean isInterest() {
+        return transactionType == TransactionType.INTEREST;
+    }
+
     public String getFormattedAmount() {
         return "$" + amount.toString();
     }
@@ -0,0 +1,128 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Read model for a row of the materialized transaction history
+ */
+public class TransactionHistoryEntry {
+    private int transactionId;
+    private Transaction.TransactionType transactionType;
+    private BigDecimal amount;
+    private String description;
+    private Timestamp transactionDate;
+    private Integer fromAccountId;
+    private Integer toAccountId;
+    private String fromCustomer;
+    private String toCustomer;
+    private String fromAccount;
+    private String toAccount;
+
+    // Default constructor
+    public TransactionHistoryEntry() {}
+
+    // Getters and Setters
+    public int getTransactionId() {
+        return transactionId;
+    }
+
+    public void setTransactionId(int transactionId) {
+        this.transactionId = transactionId;
+    }
+
+    public Transaction.TransactionType getTransactionType() {
+        return transactionType;
+    }
+
+    public void setTransactionType(Transaction.TransactionType transactionType) {
+        this.transactionType = transactionType;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Timestamp getTransactionDate() {
+        return transactionDate;
+    }
+
+    public void setTransactionDate(Timestamp transactionDate) {
+        this.transactionDate = transactionDate;
+    }
+
+    public Integer getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public void setFromAccountId(Integer fromAccountId) {
+        this.fromAccountId = fromAccountId;
+    }
+
+    public Integer getToAccountId() {
+        return toAccountId;
+    }
+
+    public void setToAccountId(Integer toAccountId) {
+        this.toAccountId = toAccountId;
+    }
+
+    public String getFromCustomer() {
+        return fromCustomer;
+    }
+
+    public void setFromCustomer(String fromCustomer) {
+        this.fromCustomer = fromCustomer;
+    }
+
+    public String getToCustomer() {
+        return toCustomer;
+    }
+
+    public void setToCustomer(String toCustomer) {
+        this.toCustomer = toCustomer;
+    }
+
+    public String getFromAccount() {
+        return fromAccount;
+    }
+
+    public void setFromAccount(String fromAccount) {
+        this.fromAccount = fromAccount;
+    }
+
+    public String getToAccount() {
+        return toAccount;
+    }
+
+    public void setToAccount(String toAccount) {
+        this.toAccount = toAccount;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionHistoryEntry{" +
+                "transactionId=" + transactionId +
+                ", transactionType=" + transactionType +
+                ", amount=" + amount +
+                ", description='" + description + '\'' +
+                ", transactionDate=" + transactionDate +
+                ", fromAccount='" + fromAccount + '\'' +
+                ", toAccount='" + toAccount + '\'' +
+                ", fromCustomer='" + fromCustomer + '\'' +
+                ", toCustomer='" + toCustomer + '\'' +
+                '}';
+    }
+}
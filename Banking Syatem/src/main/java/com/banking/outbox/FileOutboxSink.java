@@ -0,0 +1,44 @@
+package com.banking.outbox;
+
+import com.banking.model.OutboxEvent;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends events to a file as newline-delimited JSON, forcing each batch to disk
+ */
+public class FileOutboxSink implements OutboxSink, Closeable {
+    private final FileChannel channel;
+    private final Writer writer;
+
+    public FileOutboxSink(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                        StandardOpenOption.APPEND);
+        this.writer = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel),
+                                                                StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        for (OutboxEvent event : events) {
+            OutboxEventFormat.writeLine(writer, event);
+        }
+        writer.flush();
+        channel.force(false);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,30 @@
+package com.banking.outbox;
+
+import com.banking.api.JsonWriter;
+import com.banking.model.OutboxEvent;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Newline-delimited JSON encoding shared by the file and socket sinks
+ */
+final class OutboxEventFormat {
+
+    private OutboxEventFormat() {
+    }
+
+    static void writeLine(Writer out, OutboxEvent event) throws IOException {
+        new JsonWriter(out).beginObject()
+            .name("outboxId").value(event.getOutboxId())
+            .name("transactionId").value(event.getTransactionId())
+            .name("type").value(event.getTransactionType())
+            .name("fromAccountId").value(event.getFromAccountId())
+            .name("toAccountId").value(event.getToAccountId())
+            .name("amount").value(event.getAmount())
+            .name("description").value(event.getDescription())
+            .name("transactionDate").value(event.getTransactionDate())
+            .endObject();
+        out.write('\n');
+    }
+}
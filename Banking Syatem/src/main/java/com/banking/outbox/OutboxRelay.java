@@ -0,0 +1,331 @@
+package com.banking.outbox;
+
+import com.banking.dao.OutboxDAO;
+import com.banking.model.OutboxEvent;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Tails the transactional outbox and publishes events to a sink in batches.
+ *
+ * Outbox IDs are allocated at insert time but become visible at commit, so a
+ * lower ID can appear after a higher one has been read. The relay therefore
+ * keeps the checkpoint at the last ID below which everything has been
+ * published, remembers what it published above it, and re-reads that window
+ * until the gap fills. A gap still open after {@code gapTimeoutMillis} is
+ * checked with a locking read, which waits for inserts still in flight: what
+ * it finds is published, and only IDs it does not find are skipped, counted
+ * and logged.
+ *
+ * The relay runs on its own thread and never touches the write path; the
+ * only cost to writers is the outbox insert itself.
+ */
+public class OutboxRelay {
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_POLL_INTERVAL_MILLIS = 100;
+    public static final long DEFAULT_GAP_TIMEOUT_MILLIS = 10_000;
+    
+    private static final long MAX_BACKOFF_MILLIS = 5_000;
+    
+    private final String name;
+    private final OutboxDAO outboxDAO;
+    private final OutboxSink sink;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long gapTimeoutNanos;
+    private volatile boolean prunePublished;
+    
+    // Relay-thread state
+    private final TreeSet<Long> publishedAhead = new TreeSet<>();
+    private long checkpoint;
+    private long highWater;
+    private long gapSinceNanos;
+    
+    private Thread thread;
+    private volatile boolean running;
+    private volatile long publishedEvents;
+    private volatile long publishedBatches;
+    private volatile long failedBatches;
+    private volatile long skippedEvents;
+    private volatile long pendingEvents;
+    private volatile long lagMillis;
+    private volatile long savedCheckpoint;
+    private volatile String lastError;
+    
+    public OutboxRelay(String name, OutboxDAO outboxDAO, OutboxSink sink) {
+        this(name, outboxDAO, sink, DEFAULT_BATCH_SIZE, DEFAULT_POLL_INTERVAL_MILLIS, DEFAULT_GAP_TIMEOUT_MILLIS);
+    }
+    
+    /**
+     * @param name Relay name; each relay keeps its own checkpoint
+     * @param outboxDAO Outbox data access
+     * @param sink Destination of the events
+     * @param batchSize Maximum events per sink call
+     * @param pollIntervalMillis Wait between polls when the outbox is drained
+     * @param gapTimeoutMillis How long a missing outbox ID holds back the checkpoint before
+     *                         it is checked with a locking read
+     */
+    public OutboxRelay(String name, OutboxDAO outboxDAO, OutboxSink sink, int batchSize,
+                       long pollIntervalMillis, long gapTimeoutMillis) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.name = name;
+        this.outboxDAO = outboxDAO;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.gapTimeoutNanos = gapTimeoutMillis * 1_000_000L;
+    }
+    
+    /**
+     * Delete events from the outbox once they are below the checkpoint.
+     * Only safe when this is the only relay reading the outbox.
+     * @param prunePublished true to delete published events
+     */
+    public void setPrunePublished(boolean prunePublished) {
+        this.prunePublished = prunePublished;
+    }
+    
+    /**
+     * Load the checkpoint and start tailing on a background thread
+     * @throws SQLException if the checkpoint cannot be read
+     */
+    public synchronized void start() throws SQLException {
+        if (running) {
+            return;
+        }
+        checkpoint = outboxDAO.getCheckpoint(name);
+        savedCheckpoint = checkpoint;
+        highWater = checkpoint;
+        publishedAhead.clear();
+        running = true;
+        thread = new Thread(this::run, "outbox-relay-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Stop tailing; a batch being published is finished first
+     */
+    public void stop() throws InterruptedException {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+        }
+        if (current != null) {
+            current.interrupt();
+            current.join();
+        }
+    }
+    
+    private void run() {
+        long backoff = pollIntervalMillis;
+        while (running) {
+            try {
+                int published = pollOnce();
+                backoff = pollIntervalMillis;
+                if (published < batchSize) {
+                    Thread.sleep(pollIntervalMillis);
+                }
+            } catch (SQLException | IOException e) {
+                failedBatches = failedBatches + 1;
+                lastError = e.getMessage();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Publish the next batch of events and advance the checkpoint
+     * @return Number of events published
+     * @throws SQLException if the outbox cannot be read or the checkpoint saved
+     * @throws IOException if the sink rejects the batch
+     */
+    public synchronized int pollOnce() throws SQLException, IOException {
+        List<OutboxEvent> batch = new ArrayList<>();
+        if (!publishedAhead.isEmpty()) {
+            // Late commits filling a gap below what was already published
+            for (OutboxEvent event : outboxDAO.getEventsInRange(checkpoint, highWater)) {
+                if (!publishedAhead.contains(event.getOutboxId()) && batch.size() < batchSize) {
+                    batch.add(event);
+                }
+            }
+        }
+        if (batch.size() < batchSize) {
+            batch.addAll(outboxDAO.getEventsAfter(highWater, batchSize - batch.size()));
+        }
+        
+        if (!batch.isEmpty()) {
+            sink.publish(batch);
+            for (OutboxEvent event : batch) {
+                publishedAhead.add(event.getOutboxId());
+                highWater = Math.max(highWater, event.getOutboxId());
+            }
+            OutboxEvent newest = batch.get(batch.size() - 1);
+            if (newest.getCreatedAt() != null) {
+                lagMillis = Math.max(0, System.currentTimeMillis() - newest.getCreatedAt().getTime());
+            }
+            recordPublished(batch.size());
+        } else {
+            lagMillis = 0;
+        }
+        
+        advanceCheckpoint();
+        if (checkpoint != savedCheckpoint) {
+            outboxDAO.saveCheckpoint(name, checkpoint);
+            savedCheckpoint = checkpoint;
+            if (prunePublished) {
+                outboxDAO.deleteEventsUpTo(checkpoint);
+            }
+        }
+        pendingEvents = Math.max(0, outboxDAO.getMaxOutboxId() - highWater);
+        return batch.size();
+    }
+    
+    private void advanceCheckpoint() throws SQLException, IOException {
+        while (!publishedAhead.isEmpty()) {
+            long first = publishedAhead.first();
+            if (first == checkpoint + 1) {
+                publishedAhead.pollFirst();
+                checkpoint = first;
+                gapSinceNanos = 0;
+                continue;
+            }
+            
+            long now = System.nanoTime();
+            if (gapSinceNanos == 0) {
+                gapSinceNanos = now;
+                return;
+            }
+            if (now - gapSinceNanos < gapTimeoutNanos) {
+                return;
+            }
+            closeGap(first);
+            gapSinceNanos = 0;
+        }
+    }
+    
+    /**
+     * Settle the IDs between the checkpoint and {@code first} once the gap has
+     * been open past the timeout: publish the events a locking read finds and
+     * skip the rest, which belong to rolled-back inserts
+     */
+    private void closeGap(long first) throws SQLException, IOException {
+        List<OutboxEvent> late = outboxDAO.getEventsInRangeLocking(checkpoint, first - 1);
+        if (!late.isEmpty()) {
+            sink.publish(late);
+            recordPublished(late.size());
+        }
+        
+        Set<Long> found = new HashSet<>();
+        for (OutboxEvent event : late) {
+            found.add(event.getOutboxId());
+        }
+        long skipped = 0;
+        long runStart = -1;
+        for (long id = checkpoint + 1; id <= first; id++) {
+            boolean missing = id < first && !found.contains(id);
+            if (missing) {
+                skipped++;
+                if (runStart < 0) {
+                    runStart = id;
+                }
+            } else if (runStart >= 0) {
+                System.err.println("Outbox relay " + name + " skipped missing outbox ID"
+                                   + (runStart == id - 1 ? " " + runStart : "s " + runStart + "-" + (id - 1)));
+                runStart = -1;
+            }
+        }
+        skippedEvents = skippedEvents + skipped;
+        checkpoint = first - 1;
+    }
+    
+    private void recordPublished(int count) {
+        publishedEvents = publishedEvents + count;
+        publishedBatches = publishedBatches + 1;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public long getPublishedEvents() {
+        return publishedEvents;
+    }
+    
+    public long getPublishedBatches() {
+        return publishedBatches;
+    }
+    
+    public long getFailedBatches() {
+        return failedBatches;
+    }
+    
+    /**
+     * Get the number of outbox IDs given up as rolled back
+     * @return Skipped ID count
+     */
+    public long getSkippedEvents() {
+        return skippedEvents;
+    }
+    
+    /**
+     * Get the last saved checkpoint
+     * @return Outbox ID up to which every event has been published
+     */
+    public long getCheckpoint() {
+        return savedCheckpoint;
+    }
+    
+    /**
+     * Get the number of events written but not yet read by the relay, as of the last poll
+     * @return Pending event count
+     */
+    public long getPendingEvents() {
+        return pendingEvents;
+    }
+    
+    /**
+     * Get the delay between commit and publication of the newest published event.
+     * Measured against the database clock, so it includes any clock skew.
+     * @return Lag in milliseconds, 0 when the last poll found nothing new
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public boolean isRunning() {
+        return running;
+    }
+    
+    @Override
+    public String toString() {
+        return "OutboxRelay{" +
+                "name='" + name + '\'' +
+                ", checkpoint=" + savedCheckpoint +
+                ", publishedEvents=" + publishedEvents +
+                ", skippedEvents=" + skippedEvents +
+                ", pendingEvents=" + pendingEvents +
+                ", lagMillis=" + lagMillis +
+                '}';
+    }
+}
@@ -0,0 +1,23 @@
+package com.banking.outbox;
+
+import com.banking.model.OutboxEvent;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of events published by the {@link OutboxRelay}.
+ *
+ * Delivery is at least once: after a crash between publishing a batch and
+ * saving the checkpoint, the batch is published again. Downstream consumers
+ * get exactly-once effects by ignoring outbox IDs they have already seen.
+ */
+public interface OutboxSink {
+    /**
+     * Publish a batch of events in outbox ID order. Returning normally means
+     * the whole batch is durably handed over; throwing means none of it counts.
+     * @param events Events to publish
+     * @throws IOException if the batch could not be published
+     */
+    void publish(List<OutboxEvent> events) throws IOException;
+}
@@ -0,0 +1,63 @@
+package com.banking.outbox;
+
+import com.banking.model.OutboxEvent;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Streams events to a TCP endpoint as newline-delimited JSON. The connection
+ * is opened lazily and reopened on the next batch after a failure.
+ */
+public class SocketOutboxSink implements OutboxSink, Closeable {
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private final String host;
+    private final int port;
+    private Socket socket;
+    private Writer writer;
+
+    public SocketOutboxSink(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) throws IOException {
+        try {
+            if (socket == null) {
+                socket = new Socket();
+                socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+                socket.setTcpNoDelay(true);
+                writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            }
+            for (OutboxEvent event : events) {
+                OutboxEventFormat.writeLine(writer, event);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Reconnect on the next batch regardless
+            }
+            socket = null;
+            writer = null;
+        }
+    }
+}
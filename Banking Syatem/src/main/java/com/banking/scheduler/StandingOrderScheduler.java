@@ -0,0 +1,512 @@
+package com.banking.scheduler;
+
+import com.banking.dao.AccountDAO;
+import com.banking.dao.StandingOrderDAO;
+import com.banking.dao.TransactionDAO;
+import com.banking.model.Account;
+import com.banking.model.BulkPayment;
+import com.banking.model.StandingOrder;
+import com.banking.model.Transaction;
+import com.banking.service.BankingService;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires standing orders (recurring transfers).
+ *
+ * Only the orders due within the next {@code windowMillis} are held in memory,
+ * in a {@link TimingWheel}; the window is reloaded from standing_orders with a
+ * keyset scan before it runs out. Orders falling due on the same tick are
+ * posted together through {@link BankingService#postBulkPayments}, up to
+ * {@code batchSize} per database transaction, and then advanced to their next
+ * occurrence with one batched update.
+ *
+ * Every payment carries the idempotency key of its occurrence, so an
+ * occurrence that was posted just before a crash is recognised and only
+ * advanced on restart. Occurrences missed while the scheduler was down
+ * (misfires) are handled per order: FIRE_ONCE posts one catch-up payment,
+ * FIRE_ALL posts every missed occurrence and SKIP posts none.
+ *
+ * Bulk posting is not available in ledger mode or under partitioned
+ * execution, so the scheduler refuses to start in those modes and stops if
+ * the service is switched to one of them while it runs.
+ *
+ * Run one scheduler per database. Orders paused, cancelled or edited directly
+ * in the table are noticed when they come due; orders created or resumed
+ * directly in the table are picked up by the next window load.
+ */
+public class StandingOrderScheduler {
+    public static final long DEFAULT_TICK_MILLIS = 1000;
+    public static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    public static final int DEFAULT_BATCH_SIZE = 500;
+    public static final long DEFAULT_MISFIRE_THRESHOLD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_LEVELS = 3;
+    private static final int LOAD_PAGE_SIZE = 5000;
+    private static final int MAX_POST_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 30_000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    
+    private final BankingService bankingService;
+    private final AccountDAO accountDAO;
+    private final StandingOrderDAO standingOrderDAO;
+    private final TransactionDAO transactionDAO;
+    private final long tickMillis;
+    private final long windowMillis;
+    private final int batchSize;
+    private final long misfireThresholdMillis;
+    private final Queue<StandingOrder> incoming = new ConcurrentLinkedQueue<>();
+    
+    // Scheduler-thread state
+    private TimingWheel<StandingOrder> wheel;
+    private long loadedUntil;
+    
+    private Thread thread;
+    private volatile boolean running;
+    private volatile long firedOccurrences;
+    private volatile long postedPayments;
+    private volatile long rejectedPayments;
+    private volatile long skippedOccurrences;
+    private volatile long postedBatches;
+    private volatile long failedBatches;
+    private volatile int scheduledOrders;
+    private volatile String lastError;
+    
+    public StandingOrderScheduler(BankingService bankingService) {
+        this(bankingService, DEFAULT_TICK_MILLIS, DEFAULT_WINDOW_MILLIS, DEFAULT_BATCH_SIZE,
+             DEFAULT_MISFIRE_THRESHOLD_MILLIS);
+    }
+    
+    /**
+     * @param bankingService Service whose bulk posting path makes the payments
+     * @param tickMillis Timing wheel resolution
+     * @param windowMillis How far ahead orders are loaded into memory
+     * @param batchSize Maximum payments per database transaction
+     * @param misfireThresholdMillis How late an occurrence may fire before its misfire policy applies
+     */
+    public StandingOrderScheduler(BankingService bankingService, long tickMillis, long windowMillis, int batchSize,
+                                  long misfireThresholdMillis) {
+        if (tickMillis <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Tick and batch size must be positive");
+        }
+        if (windowMillis < tickMillis * 2
+                || windowMillis > ((1L << (WHEEL_BITS * WHEEL_LEVELS)) - 1) * tickMillis - RETRY_DELAY_MILLIS) {
+            throw new IllegalArgumentException("Window must span at least two ticks and fit in the timing wheel");
+        }
+        this.bankingService = bankingService;
+        this.accountDAO = new AccountDAO();
+        this.standingOrderDAO = new StandingOrderDAO();
+        this.transactionDAO = new TransactionDAO();
+        this.tickMillis = tickMillis;
+        this.windowMillis = windowMillis;
+        this.batchSize = batchSize;
+        this.misfireThresholdMillis = misfireThresholdMillis;
+    }
+    
+    /**
+     * Start firing orders on a background thread. Orders overdue from downtime are handled first.
+     * @throws IllegalStateException if the service is in ledger mode or partitioned execution
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        if (!bankingService.isBulkPostingAvailable()) {
+            throw new IllegalStateException(
+                "Standing orders cannot be fired in ledger mode or partitioned execution");
+        }
+        wheel = new TimingWheel<>(tickMillis, WHEEL_BITS, WHEEL_LEVELS, System.currentTimeMillis());
+        loadedUntil = 0;
+        incoming.clear();
+        running = true;
+        thread = new Thread(this::run, "standing-orders");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Stop firing; a batch being posted is finished first
+     */
+    public void stop() throws InterruptedException {
+        Thread current;
+        synchronized (this) {
+            running = false;
+            current = thread;
+        }
+        if (current != null) {
+            current.interrupt();
+            current.join();
+        }
+    }
+    
+    /**
+     * Create a standing order
+     * @param fromAccountNumber Account to pay from
+     * @param toAccountNumber Account to pay to
+     * @param amount Amount of each payment
+     * @param description Payment description (may be null)
+     * @param frequency How often to pay
+     * @param startAt Time of the first payment
+     * @param endAt Time after which no more payments are made (may be null)
+     * @param misfirePolicy What to do with payments missed while the scheduler is down
+     * @return Created standing order
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if an account is not found or the order is invalid
+     */
+    public StandingOrder createStandingOrder(String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                                             String description, StandingOrder.Frequency frequency,
+                                             Timestamp startAt, Timestamp endAt,
+                                             StandingOrder.MisfirePolicy misfirePolicy) throws SQLException {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Standing order amount must be positive");
+        }
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            throw new IllegalArgumentException("Cannot create a standing order to the same account");
+        }
+        if (endAt != null && endAt.before(startAt)) {
+            throw new IllegalArgumentException("Standing order ends before it starts");
+        }
+        
+        Account fromAccount = accountDAO.getAccountByNumber(fromAccountNumber);
+        if (fromAccount == null) {
+            throw new IllegalArgumentException("Source account not found: " + fromAccountNumber);
+        }
+        Account toAccount = accountDAO.getAccountByNumber(toAccountNumber);
+        if (toAccount == null) {
+            throw new IllegalArgumentException("Destination account not found: " + toAccountNumber);
+        }
+        
+        StandingOrder order = new StandingOrder(fromAccount.getAccountId(), toAccount.getAccountId(), amount,
+                                                description, frequency, startAt, endAt);
+        order.setMisfirePolicy(misfirePolicy);
+        standingOrderDAO.createStandingOrder(order);
+        order.setFromAccountNumber(fromAccountNumber);
+        order.setToAccountNumber(toAccountNumber);
+        
+        if (running) {
+            incoming.add(order);
+        }
+        return order;
+    }
+    
+    /**
+     * Pause a standing order; occurrences falling due while paused are treated as misfires on resume
+     * @param orderId Order ID
+     * @return true if the order was found
+     * @throws SQLException if database operation fails
+     */
+    public boolean pauseStandingOrder(int orderId) throws SQLException {
+        return standingOrderDAO.updateStatus(orderId, StandingOrder.OrderStatus.PAUSED);
+    }
+    
+    /**
+     * Resume a paused standing order
+     * @param orderId Order ID
+     * @return true if the order was found
+     * @throws SQLException if database operation fails
+     */
+    public boolean resumeStandingOrder(int orderId) throws SQLException {
+        if (!standingOrderDAO.updateStatus(orderId, StandingOrder.OrderStatus.ACTIVE)) {
+            return false;
+        }
+        StandingOrder order = standingOrderDAO.getStandingOrderById(orderId);
+        if (running && order != null) {
+            incoming.add(order);
+        }
+        return true;
+    }
+    
+    /**
+     * Cancel a standing order for good
+     * @param orderId Order ID
+     * @return true if the order was found
+     * @throws SQLException if database operation fails
+     */
+    public boolean cancelStandingOrder(int orderId) throws SQLException {
+        return standingOrderDAO.updateStatus(orderId, StandingOrder.OrderStatus.CANCELLED);
+    }
+    
+    private void run() {
+        List<StandingOrder> due = new ArrayList<>();
+        long backoff = tickMillis;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                if (now >= loadedUntil - windowMillis / 2) {
+                    loadWindow(now, due);
+                }
+                for (StandingOrder order; (order = incoming.poll()) != null; ) {
+                    if (order.getNextRunAt().getTime() < loadedUntil) {
+                        schedule(order, order.getNextRunAt().getTime(), due);
+                    }
+                }
+                wheel.advanceTo(now, due);
+                if (!due.isEmpty()) {
+                    fireDue(due, now);
+                    due.clear();
+                }
+                scheduledOrders = wheel.size();
+                backoff = tickMillis;
+                Thread.sleep(tickMillis - System.currentTimeMillis() % tickMillis);
+            } catch (SQLException e) {
+                lastError = e.getMessage();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } catch (IllegalStateException e) {
+                // The service was switched to a mode without bulk posting; retrying cannot help
+                lastError = e.getMessage();
+                running = false;
+                System.err.println("Standing order scheduler stopped: " + e.getMessage());
+                return;
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Load the orders due before the end of the next window. The first load
+     * also picks up every order left overdue by downtime.
+     */
+    private void loadWindow(long now, List<StandingOrder> due) throws SQLException {
+        Timestamp windowEnd = new Timestamp(now + windowMillis);
+        Timestamp afterRunAt = new Timestamp(loadedUntil);
+        int afterOrderId = 0;
+        
+        List<StandingOrder> page;
+        do {
+            page = standingOrderDAO.getDueOrders(afterRunAt, afterOrderId, windowEnd, LOAD_PAGE_SIZE);
+            for (StandingOrder order : page) {
+                schedule(order, order.getNextRunAt().getTime(), due);
+            }
+            if (!page.isEmpty()) {
+                StandingOrder last = page.get(page.size() - 1);
+                afterRunAt = last.getNextRunAt();
+                afterOrderId = last.getOrderId();
+            }
+        } while (page.size() == LOAD_PAGE_SIZE);
+        
+        loadedUntil = windowEnd.getTime();
+    }
+    
+    private void schedule(StandingOrder order, long dueMillis, List<StandingOrder> due) {
+        if (!wheel.add(order, dueMillis)) {
+            due.add(order);
+        }
+    }
+    
+    private void fireDue(List<StandingOrder> due, long now) {
+        // fireBatch appends FIRE_ALL orders that are still catching up, so the size is re-read each pass
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<StandingOrder> chunk = new ArrayList<>(due.subList(from, Math.min(from + batchSize, due.size())));
+            try {
+                fireBatch(chunk, now, due);
+            } catch (SQLException e) {
+                // Nothing from this batch was advanced; try again shortly
+                failedBatches = failedBatches + 1;
+                lastError = e.getMessage();
+                for (StandingOrder order : chunk) {
+                    schedule(order, now + RETRY_DELAY_MILLIS, new ArrayList<>());
+                }
+            }
+        }
+    }
+    
+    private void fireBatch(List<StandingOrder> chunk, long now, List<StandingOrder> due) throws SQLException {
+        // The same order can be queued twice, e.g. when resumed while still in the wheel
+        Map<Integer, StandingOrder> unique = new LinkedHashMap<>();
+        for (StandingOrder order : chunk) {
+            unique.put(order.getOrderId(), order);
+        }
+        Set<Integer> stillDue = standingOrderDAO.getStillDueOrderIds(unique.values());
+        
+        List<StandingOrder> firing = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        for (StandingOrder order : unique.values()) {
+            if (stillDue.contains(order.getOrderId())) {
+                firing.add(order);
+                keys.add(order.getIdempotencyKey(order.getOccurrence()));
+            }
+        }
+        if (firing.isEmpty()) {
+            return;
+        }
+        Set<String> alreadyPosted = transactionDAO.getExistingIdempotencyKeys(keys);
+        
+        List<BulkPayment> payments = new ArrayList<>();
+        Map<Integer, BulkPayment> paymentByOrder = new LinkedHashMap<>();
+        for (StandingOrder order : firing) {
+            String key = order.getIdempotencyKey(order.getOccurrence());
+            if (isMisfire(order, now) && order.getMisfirePolicy() == StandingOrder.MisfirePolicy.SKIP
+                    || alreadyPosted.contains(key)) {
+                continue;
+            }
+            BulkPayment payment = new BulkPayment(Transaction.TransactionType.TRANSFER, order.getFromAccountNumber(),
+                                                  order.getToAccountNumber(), order.getAmount(),
+                                                  order.getDescription() != null ? order.getDescription()
+                                                  : "Standing order #" + order.getOrderId());
+            payment.setIdempotencyKey(key);
+            payments.add(payment);
+            paymentByOrder.put(order.getOrderId(), payment);
+        }
+        
+        int posted = payments.isEmpty() ? 0 : postWithRetry(payments);
+        
+        // Advance copies, so that the loaded orders still match the table if the update fails
+        List<StandingOrder> advanced = new ArrayList<>(firing.size());
+        List<Timestamp> firedRunAt = new ArrayList<>(firing.size());
+        int skipped = 0;
+        for (StandingOrder order : firing) {
+            StandingOrder next = copyOf(order);
+            firedRunAt.add(order.getNextRunAt());
+            BulkPayment payment = paymentByOrder.get(order.getOrderId());
+            if (payment == null) {
+                if (!alreadyPosted.contains(order.getIdempotencyKey(order.getOccurrence()))) {
+                    skipped++;
+                }
+            } else if (payment.isRejected()) {
+                next.setFailureCount(order.getFailureCount() + 1);
+                next.setLastFailure(payment.getRejectReason());
+            } else {
+                next.setLastRunAt(new Timestamp(now));
+            }
+            advance(next, now);
+            advanced.add(next);
+        }
+        int[] updated = standingOrderDAO.advanceOrders(advanced, firedRunAt);
+        
+        firedOccurrences = firedOccurrences + firing.size();
+        postedPayments = postedPayments + posted;
+        rejectedPayments = rejectedPayments + (payments.size() - posted);
+        skippedOccurrences = skippedOccurrences + skipped;
+        postedBatches = postedBatches + 1;
+        
+        // Put orders whose next occurrence falls inside the loaded window back on the wheel
+        for (int i = 0; i < advanced.size(); i++) {
+            StandingOrder order = advanced.get(i);
+            if (updated[i] != 0 && order.isActive() && order.getNextRunAt().getTime() < loadedUntil) {
+                schedule(order, order.getNextRunAt().getTime(), due);
+            }
+        }
+    }
+    
+    private int postWithRetry(List<BulkPayment> payments) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return bankingService.postBulkPayments(payments);
+            } catch (SQLException e) {
+                if (!"40001".equals(e.getSQLState()) || attempt >= MAX_POST_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+    
+    private boolean isMisfire(StandingOrder order, long now) {
+        return now - order.getNextRunAt().getTime() > misfireThresholdMillis;
+    }
+    
+    /**
+     * Move an order to its next occurrence. After a misfire, FIRE_ONCE and SKIP
+     * orders jump straight to the first occurrence in the future.
+     */
+    private void advance(StandingOrder order, long now) {
+        int next = order.getOccurrence() + 1;
+        if (isMisfire(order, now) && order.getMisfirePolicy() != StandingOrder.MisfirePolicy.FIRE_ALL) {
+            while (!order.isPastEnd(next) && order.getOccurrenceTime(next).getTime() <= now) {
+                next++;
+            }
+        }
+        order.setOccurrence(next);
+        order.setNextRunAt(order.getOccurrenceTime(next));
+        if (order.isPastEnd(next)) {
+            order.setStatus(StandingOrder.OrderStatus.COMPLETED);
+        }
+    }
+    
+    private static StandingOrder copyOf(StandingOrder order) {
+        StandingOrder copy = new StandingOrder(order.getFromAccountId(), order.getToAccountId(), order.getAmount(),
+                                               order.getDescription(), order.getFrequency(), order.getStartAt(),
+                                               order.getEndAt());
+        copy.setOrderId(order.getOrderId());
+        copy.setFromAccountNumber(order.getFromAccountNumber());
+        copy.setToAccountNumber(order.getToAccountNumber());
+        copy.setNextRunAt(order.getNextRunAt());
+        copy.setOccurrence(order.getOccurrence());
+        copy.setMisfirePolicy(order.getMisfirePolicy());
+        copy.setStatus(order.getStatus());
+        copy.setLastRunAt(order.getLastRunAt());
+        copy.setFailureCount(order.getFailureCount());
+        copy.setLastFailure(order.getLastFailure());
+        copy.setCreatedAt(order.getCreatedAt());
+        return copy;
+    }
+    
+    // Statistics
+    public long getFiredOccurrences() {
+        return firedOccurrences;
+    }
+    
+    public long getPostedPayments() {
+        return postedPayments;
+    }
+    
+    public long getRejectedPayments() {
+        return rejectedPayments;
+    }
+    
+    public long getSkippedOccurrences() {
+        return skippedOccurrences;
+    }
+    
+    public long getPostedBatches() {
+        return postedBatches;
+    }
+    
+    public long getFailedBatches() {
+        return failedBatches;
+    }
+    
+    /**
+     * Get the number of orders waiting in the timing wheel
+     * @return Orders scheduled within the loaded window
+     */
+    public int getScheduledOrders() {
+        return scheduledOrders;
+    }
+    
+    public String getLastError() {
+        return lastError;
+    }
+    
+    public static void main(String[] args) throws InterruptedException {
+        StandingOrderScheduler scheduler = new StandingOrderScheduler(new BankingService());
+        scheduler.start();
+        System.out.println("Standing order scheduler started");
+        
+        while (true) {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            System.out.println("fired=" + scheduler.getFiredOccurrences() +
+                               ", posted=" + scheduler.getPostedPayments() +
+                               ", rejected=" + scheduler.getRejectedPayments() +
+                               ", skipped=" + scheduler.getSkippedOccurrences() +
+                               ", scheduled=" + scheduler.getScheduledOrders() +
+                               (scheduler.getLastError() != null ? ", lastError=" + scheduler.getLastError() : ""));
+        }
+    }
+}
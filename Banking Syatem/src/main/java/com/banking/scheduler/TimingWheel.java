@@ -0,0 +1,155 @@
+package com.banking.scheduler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel.
+ *
+ * Level 0 has one slot per tick; each higher level has slots as wide as a full
+ * turn of the level below. An item is placed on the lowest level whose span
+ * covers its deadline and cascades down a level each time the wheel below
+ * wraps, so adding, and firing on a tick, cost O(1) per item however many items
+ * are scheduled. With {@code wheelBits} bits per level and {@code levels}
+ * levels the wheel reaches {@code 2^(wheelBits * levels)} ticks ahead.
+ *
+ * Not thread-safe; meant to be owned by one scheduler thread.
+ *
+ * @param <T> Scheduled item type
+ */
+public class TimingWheel<T> {
+    private final long tickMillis;
+    private final int wheelBits;
+    private final int levels;
+    private final int mask;
+    private final List<List<Entry<T>>> slots;
+    private long currentTick;
+    private int size;
+    
+    /**
+     * @param tickMillis Resolution of the wheel
+     * @param wheelBits log2 of the number of slots per level
+     * @param levels Number of levels
+     * @param startMillis Current time; deadlines at or before it are already due
+     */
+    public TimingWheel(long tickMillis, int wheelBits, int levels, long startMillis) {
+        if (tickMillis <= 0 || wheelBits <= 0 || levels <= 0 || (long) wheelBits * levels >= 63) {
+            throw new IllegalArgumentException("Invalid timing wheel dimensions");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelBits = wheelBits;
+        this.levels = levels;
+        this.mask = (1 << wheelBits) - 1;
+        this.slots = new ArrayList<>(levels << wheelBits);
+        for (int i = 0; i < levels << wheelBits; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+    
+    /**
+     * Schedule an item
+     * @param item Item to schedule
+     * @param deadlineMillis Time at which the item is due
+     * @return false if the deadline is already due, in which case the item is not added
+     * @throws IllegalArgumentException if the deadline is beyond the reach of the wheel
+     */
+    public boolean add(T item, long deadlineMillis) {
+        long tick = Math.floorDiv(deadlineMillis, tickMillis);
+        if (tick <= currentTick) {
+            return false;
+        }
+        if (tick - currentTick >= 1L << (wheelBits * levels)) {
+            throw new IllegalArgumentException("Deadline beyond the timing wheel horizon: " + deadlineMillis);
+        }
+        place(new Entry<>(item, tick));
+        size++;
+        return true;
+    }
+    
+    /**
+     * Advance the wheel to the current time and collect the items that fell due
+     * @param nowMillis Current time
+     * @param due Receives the due items, in deadline order (items sharing a tick in no particular order)
+     * @return Number of items collected
+     */
+    public int advanceTo(long nowMillis, List<T> due) {
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        int collected = 0;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                break;
+            }
+            currentTick++;
+            
+            // Cascade each level whose lower neighbour just completed a turn
+            for (int level = 1; level < levels; level++) {
+                if ((currentTick & ((1L << (wheelBits * level)) - 1)) != 0) {
+                    break;
+                }
+                List<Entry<T>> slot = slot(level, currentTick);
+                if (!slot.isEmpty()) {
+                    List<Entry<T>> cascading = new ArrayList<>(slot);
+                    slot.clear();
+                    for (Entry<T> entry : cascading) {
+                        place(entry);
+                    }
+                }
+            }
+            
+            List<Entry<T>> slot = slot(0, currentTick);
+            for (Entry<T> entry : slot) {
+                due.add(entry.item);
+            }
+            collected += slot.size();
+            size -= slot.size();
+            slot.clear();
+        }
+        return collected;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /**
+     * Get how far ahead of the current time a deadline may be
+     * @return Horizon in milliseconds
+     */
+    public long getHorizonMillis() {
+        return ((1L << (wheelBits * levels)) - 1) * tickMillis;
+    }
+    
+    public long getTickMillis() {
+        return tickMillis;
+    }
+    
+    private void place(Entry<T> entry) {
+        long delta = entry.tick - currentTick;
+        int level = 0;
+        while (level < levels - 1 && delta >= 1L << (wheelBits * (level + 1))) {
+            level++;
+        }
+        slot(level, entry.tick).add(entry);
+    }
+    
+    private List<Entry<T>> slot(int level, long tick) {
+        int index = (int) ((tick >>> (wheelBits * level)) & mask);
+        return slots.get((level << wheelBits) + index);
+    }
+    
+    private static class Entry<T> {
+        private final T item;
+        private final long tick;
+        
+        Entry(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
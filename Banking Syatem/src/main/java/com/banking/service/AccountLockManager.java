@@ -0,0 +1,155 @@
+package com.banking.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped in-process locks keyed by account ID.
+ *
+ * Holding an account's stripe across read, check and write keeps two threads
+ * of this JVM from interleaving on the same account. Accounts sharing a stripe
+ * also serialize, so more stripes mean fewer false conflicts. Two-account
+ * operations take their stripes in index order, which rules out deadlock.
+ */
+public class AccountLockManager {
+    public static final int DEFAULT_STRIPES = 64;
+    
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final AtomicLongArray acquisitions;
+    private final AtomicLongArray contentions;
+    private final AtomicLongArray waitNanos;
+    
+    public AccountLockManager() {
+        this(DEFAULT_STRIPES);
+    }
+    
+    /**
+     * @param stripeCount Number of locks, a power of two
+     */
+    public AccountLockManager(int stripeCount) {
+        if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1) {
+            throw new IllegalArgumentException("Stripe count must be a power of two");
+        }
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = stripeCount - 1;
+        this.acquisitions = new AtomicLongArray(stripeCount);
+        this.contentions = new AtomicLongArray(stripeCount);
+        this.waitNanos = new AtomicLongArray(stripeCount);
+    }
+    
+    /**
+     * Lock one account
+     * @param accountId Account ID
+     */
+    public void lock(int accountId) {
+        acquire(stripeOf(accountId));
+    }
+    
+    public void unlock(int accountId) {
+        stripes[stripeOf(accountId)].unlock();
+    }
+    
+    /**
+     * Lock two accounts, always taking the lower stripe first
+     * @param firstAccountId First account ID
+     * @param secondAccountId Second account ID
+     */
+    public void lock(int firstAccountId, int secondAccountId) {
+        int first = stripeOf(firstAccountId);
+        int second = stripeOf(secondAccountId);
+        if (first == second) {
+            acquire(first);
+            return;
+        }
+        acquire(Math.min(first, second));
+        acquire(Math.max(first, second));
+    }
+    
+    public void unlock(int firstAccountId, int secondAccountId) {
+        int first = stripeOf(firstAccountId);
+        int second = stripeOf(secondAccountId);
+        stripes[Math.max(first, second)].unlock();
+        if (first != second) {
+            stripes[Math.min(first, second)].unlock();
+        }
+    }
+    
+    private void acquire(int stripe) {
+        ReentrantLock lock = stripes[stripe];
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            contentions.incrementAndGet(stripe);
+            waitNanos.addAndGet(stripe, System.nanoTime() - start);
+        }
+        acquisitions.incrementAndGet(stripe);
+    }
+    
+    private int stripeOf(int accountId) {
+        // Spread sequential IDs before masking
+        int hash = accountId * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+    
+    public int getStripeCount() {
+        return stripes.length;
+    }
+    
+    /**
+     * Get lock acquisitions per stripe
+     * @return Array where element i is the count for stripe i
+     */
+    public long[] getAcquisitions() {
+        return snapshot(acquisitions);
+    }
+    
+    /**
+     * Get acquisitions per stripe that had to wait for another thread
+     * @return Array where element i is the count for stripe i
+     */
+    public long[] getContentions() {
+        return snapshot(contentions);
+    }
+    
+    /**
+     * Get the total time spent waiting per stripe
+     * @return Array where element i is the wait time of stripe i in nanoseconds
+     */
+    public long[] getWaitNanos() {
+        return snapshot(waitNanos);
+    }
+    
+    /**
+     * Get the fraction of acquisitions that had to wait, over all stripes
+     * @return Contention rate between 0 and 1
+     */
+    public double getContentionRate() {
+        long total = 0;
+        long contended = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            total += acquisitions.get(i);
+            contended += contentions.get(i);
+        }
+        return total == 0 ? 0.0 : (double) contended / total;
+    }
+    
+    private static long[] snapshot(AtomicLongArray counters) {
+        long[] values = new long[counters.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = counters.get(i);
+        }
+        return values;
+    }
+    
+    @Override
+    public String toString() {
+        return "AccountLockManager{" +
+                "stripes=" + stripes.length +
+                ", contentionRate=" + String.format("%.4f", getContentionRate()) +
+                '}';
+    }
+}
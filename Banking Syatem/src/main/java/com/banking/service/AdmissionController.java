@@ -0,0 +1,350 @@
+package com.banking.service;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of BankingService.
+ *
+ * A call is admitted only while three concurrency limits hold:
+ * <ul>
+ * <li>a global limit that adapts to observed latency (AIMD): it grows by one
+ * for every limit's worth of calls completing within the target latency, and
+ * shrinks by a tenth, at most once per target latency, when calls are slower
+ * or fail with a database error;</li>
+ * <li>an optional fixed limit per operation type;</li>
+ * <li>a fixed limit per account, so one busy account cannot take all slots.</li>
+ * </ul>
+ * Lower priority operations may only use part of the global limit, so as the
+ * limit shrinks balance inquiries and history reads are shed before money
+ * movements. A shed call fails at once with an {@link OverloadedException}
+ * carrying a retry-after hint, instead of queueing for a database connection.
+ */
+public class AdmissionController {
+    public static final int DEFAULT_INITIAL_LIMIT = 32;
+    public static final int DEFAULT_MIN_LIMIT = 4;
+    public static final int DEFAULT_MAX_LIMIT = 256;
+    public static final long DEFAULT_TARGET_LATENCY_MILLIS = 200;
+    public static final int DEFAULT_ACCOUNT_LIMIT = 8;
+    
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final long MIN_RETRY_AFTER_MILLIS = 50;
+    private static final long MAX_RETRY_AFTER_MILLIS = 10000;
+    // Weight of the newest sample in the average latency behind retry-after hints
+    private static final double LATENCY_SMOOTHING = 0.05;
+    
+    /**
+     * Share of the global limit an operation may use; the lowest is shed first
+     */
+    public enum Priority {
+        LOW(0.5), NORMAL(0.8), HIGH(1.0);
+        
+        private final double share;
+        
+        Priority(double share) {
+            this.share = share;
+        }
+        
+        public double getShare() {
+            return share;
+        }
+    }
+    
+    public enum Operation {
+        BALANCE_INQUIRY(Priority.LOW),
+        ACCOUNT_LOOKUP(Priority.LOW),
+        HISTORY(Priority.LOW),
+        PIN_VERIFY(Priority.NORMAL),
+        DEPOSIT(Priority.HIGH),
+        WITHDRAWAL(Priority.HIGH),
+        TRANSFER(Priority.HIGH);
+        
+        private final Priority priority;
+        
+        Operation(Priority priority) {
+            this.priority = priority;
+        }
+        
+        public Priority getPriority() {
+            return priority;
+        }
+    }
+    
+    /**
+     * Which limit a shed call hit
+     */
+    public enum ShedReason {
+        GLOBAL_LIMIT, OPERATION_LIMIT, ACCOUNT_LIMIT
+    }
+    
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final ShedReason[] SHED_REASONS = ShedReason.values();
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final long targetLatencyNanos;
+    private final int accountLimit;
+    
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicIntegerArray operationInFlight = new AtomicIntegerArray(OPERATIONS.length);
+    private final int[] operationLimits = new int[OPERATIONS.length];
+    private final ConcurrentHashMap<String, AtomicInteger> accountInFlight = new ConcurrentHashMap<>();
+    
+    private final Object limitLock = new Object();
+    private volatile double limit;
+    private long lastDecreaseNanos;
+    private volatile double averageLatencyNanos;
+    
+    private final LongAdder[] admitted = new LongAdder[OPERATIONS.length];
+    private final LongAdder[][] shed = new LongAdder[OPERATIONS.length][SHED_REASONS.length];
+    private final LongAdder limitDecreases = new LongAdder();
+    
+    public AdmissionController() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT,
+             DEFAULT_TARGET_LATENCY_MILLIS, DEFAULT_ACCOUNT_LIMIT);
+    }
+    
+    /**
+     * @param initialLimit Starting global concurrency limit
+     * @param minLimit Lowest the global limit may shrink to
+     * @param maxLimit Highest the global limit may grow to
+     * @param targetLatencyMillis Call latency above which the global limit shrinks
+     * @param accountLimit Concurrent calls allowed per account (0 for no per-account limit)
+     */
+    public AdmissionController(int initialLimit, int minLimit, int maxLimit, long targetLatencyMillis,
+                               int accountLimit) {
+        if (minLimit <= 0 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 0 < min <= initial <= max");
+        }
+        if (targetLatencyMillis <= 0) {
+            throw new IllegalArgumentException("Target latency must be positive");
+        }
+        if (accountLimit < 0) {
+            throw new IllegalArgumentException("Account limit must not be negative");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+        this.accountLimit = accountLimit;
+        this.limit = initialLimit;
+        this.averageLatencyNanos = targetLatencyNanos / 2.0;
+        this.lastDecreaseNanos = System.nanoTime() - targetLatencyNanos - 1;
+        Arrays.fill(operationLimits, Integer.MAX_VALUE);
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            admitted[i] = new LongAdder();
+            for (int j = 0; j < SHED_REASONS.length; j++) {
+                shed[i][j] = new LongAdder();
+            }
+        }
+    }
+    
+    /**
+     * Cap the concurrent calls of one operation type, regardless of the global limit
+     * @param operation Operation type
+     * @param maxConcurrent Maximum concurrent calls (Integer.MAX_VALUE for no cap)
+     */
+    public void setOperationLimit(Operation operation, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("Operation limit must be positive");
+        }
+        operationLimits[operation.ordinal()] = maxConcurrent;
+    }
+    
+    /**
+     * Admit a call or shed it
+     * @param operation Operation type
+     * @param accountNumber Account the call is for (null if none)
+     * @return Permit to release when the call completes
+     * @throws OverloadedException if a limit is reached
+     */
+    public Permit acquire(Operation operation, String accountNumber) {
+        int index = operation.ordinal();
+        if (!tryIncrement(operationInFlight, index, operationLimits[index])) {
+            throw shed(operation, ShedReason.OPERATION_LIMIT);
+        }
+        
+        int globalLimit = Math.max(1, (int) (limit * operation.getPriority().getShare()));
+        if (!tryIncrement(inFlight, globalLimit)) {
+            operationInFlight.decrementAndGet(index);
+            throw shed(operation, ShedReason.GLOBAL_LIMIT);
+        }
+        
+        if (accountNumber != null && accountLimit > 0 && !tryAcquireAccount(accountNumber)) {
+            inFlight.decrementAndGet();
+            operationInFlight.decrementAndGet(index);
+            throw shed(operation, ShedReason.ACCOUNT_LIMIT);
+        }
+        
+        admitted[index].increment();
+        return new Permit(operation, accountLimit > 0 ? accountNumber : null, System.nanoTime());
+    }
+    
+    private static boolean tryIncrement(AtomicInteger counter, int max) {
+        for (;;) {
+            int current = counter.get();
+            if (current >= max) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    private static boolean tryIncrement(AtomicIntegerArray counters, int index, int max) {
+        for (;;) {
+            int current = counters.get(index);
+            if (current >= max) {
+                return false;
+            }
+            if (counters.compareAndSet(index, current, current + 1)) {
+                return true;
+            }
+        }
+    }
+    
+    private boolean tryAcquireAccount(String accountNumber) {
+        AtomicInteger count = accountInFlight.compute(accountNumber, (key, current) -> {
+            AtomicInteger counter = current != null ? current : new AtomicInteger();
+            counter.incrementAndGet();
+            return counter;
+        });
+        if (count.get() > accountLimit) {
+            releaseAccount(accountNumber);
+            return false;
+        }
+        return true;
+    }
+    
+    private void releaseAccount(String accountNumber) {
+        // Counters are removed at zero so idle accounts take no memory
+        accountInFlight.computeIfPresent(accountNumber,
+            (key, counter) -> counter.decrementAndGet() == 0 ? null : counter);
+    }
+    
+    private OverloadedException shed(Operation operation, ShedReason reason) {
+        shed[operation.ordinal()][reason.ordinal()].increment();
+        // Lower priorities are asked to stay away longer; jitter spreads the retries out
+        double base = averageLatencyNanos * (4.0 - 2.0 * operation.getPriority().getShare());
+        long millis = TimeUnit.NANOSECONDS.toMillis((long) (base * (1.0 + ThreadLocalRandom.current().nextDouble())));
+        return new OverloadedException(operation,
+            Math.max(MIN_RETRY_AFTER_MILLIS, Math.min(MAX_RETRY_AFTER_MILLIS, millis)));
+    }
+    
+    private void onComplete(Permit permit, long latencyNanos, boolean failed) {
+        inFlight.decrementAndGet();
+        operationInFlight.decrementAndGet(permit.operation.ordinal());
+        if (permit.accountNumber != null) {
+            releaseAccount(permit.accountNumber);
+        }
+        
+        // A racing update may be lost; the average only steers retry hints
+        averageLatencyNanos += (latencyNanos - averageLatencyNanos) * LATENCY_SMOOTHING;
+        
+        synchronized (limitLock) {
+            if (failed || latencyNanos > targetLatencyNanos) {
+                // One slow period should shrink the limit once, not once per call that saw it
+                if (permit.startNanos - lastDecreaseNanos > targetLatencyNanos) {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                    lastDecreaseNanos = System.nanoTime();
+                    limitDecreases.increment();
+                }
+            } else if (permit.inFlightAtStart * 2 >= limit) {
+                // Only grow while the limit is actually being used
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+    }
+    
+    // Statistics
+    
+    public int getLimit() {
+        return (int) limit;
+    }
+    
+    public int getInFlight() {
+        return inFlight.get();
+    }
+    
+    public int getInFlight(Operation operation) {
+        return operationInFlight.get(operation.ordinal());
+    }
+    
+    public long getAdmitted(Operation operation) {
+        return admitted[operation.ordinal()].sum();
+    }
+    
+    public long getShed(Operation operation) {
+        long total = 0;
+        for (LongAdder counter : shed[operation.ordinal()]) {
+            total += counter.sum();
+        }
+        return total;
+    }
+    
+    public long getShed(Operation operation, ShedReason reason) {
+        return shed[operation.ordinal()][reason.ordinal()].sum();
+    }
+    
+    public long getShed() {
+        long total = 0;
+        for (Operation operation : OPERATIONS) {
+            total += getShed(operation);
+        }
+        return total;
+    }
+    
+    public long getLimitDecreases() {
+        return limitDecreases.sum();
+    }
+    
+    public long getAverageLatencyMicros() {
+        return TimeUnit.NANOSECONDS.toMicros((long) averageLatencyNanos);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("AdmissionController{limit=").append(getLimit())
+            .append(", inFlight=").append(getInFlight())
+            .append(", limitDecreases=").append(getLimitDecreases());
+        for (Operation operation : OPERATIONS) {
+            text.append(", ").append(operation).append("=")
+                .append(getAdmitted(operation)).append("/").append(getShed(operation));
+        }
+        return text.append('}').toString();
+    }
+    
+    /**
+     * An admitted call; release exactly once when it completes
+     */
+    public final class Permit {
+        private final Operation operation;
+        private final String accountNumber;
+        private final long startNanos;
+        private final int inFlightAtStart;
+        private boolean released;
+        
+        private Permit(Operation operation, String accountNumber, long startNanos) {
+            this.operation = operation;
+            this.accountNumber = accountNumber;
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlight.get();
+        }
+        
+        /**
+         * @param failed true if the call failed in a way that signals overload, such as a query timeout
+         */
+        public void release(boolean failed) {
+            if (released) {
+                return;
+            }
+            released = true;
+            onComplete(this, System.nanoTime() - startNanos, failed);
+        }
+    }
+}
@@ -2,27 +2,263 @@ package com.banking.service;
 
 import com.banking.dao.AccountDAO;
 import com.banking.dao.CustomerDAO;
+import com.banking.dao.FixedDepositDAO;
+import com.banking.dao.LedgerDAO;
+import com.banking.dao.ReportDAO;
 import com.banking.dao.TransactionDAO;
+import com.banking.event.AccountBalanceChanged;
+import com.banking.event.EventBus;
+import com.banking.event.TransactionPosted;
+import com.banking.fraud.FraudDecision;
+import com.banking.fraud.FraudScorer;
+import com.banking.fraud.ScoringRequest;
+import com.banking.metrics.FlightRecorderEvents;
+import com.banking.metrics.MetricsRegistry;
+import com.banking.metrics.Timer;
 import com.banking.model.Account;
+import com.banking.model.AccountSummary;
+import com.banking.model.BulkPayment;
 import com.banking.model.Customer;
+import com.banking.model.FixedDepositTerm;
+import com.banking.model.Posting;
 import com.banking.model.Transaction;
+import com.banking.model.TransactionHistoryEntry;
+import com.banking.util.CircuitBreaker;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Service class for banking operations
  */
 public class BankingService {
+    // Attempts per operation before a version conflict is reported to the caller
+    private static final int MAX_UPDATE_ATTEMPTS = 5;
+    // Longest wait for a group-committed or partitioned operation, e.g. -Dbanking.commitWaitSeconds=60
+    private static final long COMMIT_WAIT_SECONDS = Long.getLong("banking.commitWaitSeconds", 30);
+    
     private CustomerDAO customerDAO;
     private AccountDAO accountDAO;
     private TransactionDAO transactionDAO;
+    private ReportDAO reportDAO;
+    private LedgerDAO ledgerDAO;
+    private FixedDepositDAO fixedDepositDAO;
+    private IdempotencyCache idempotencyCache;
+    private volatile GroupCommitExecutor groupCommitExecutor;
+    private volatile PartitionedExecutor partitionedExecutor;
+    private volatile AccountLockManager accountLockManager;
+    private volatile VelocityLimiter velocityLimiter;
+    private volatile FraudScorer fraudScorer;
+    private volatile AdmissionController admissionController;
+    // Account numbers never change, so their IDs can be cached for lock striping
+    private final ConcurrentHashMap<String, Integer> accountIds = new ConcurrentHashMap<>();
+    private final OptimisticLockStats optimisticLockStats = new OptimisticLockStats();
+    private final EventBus eventBus = new EventBus();
+    private final PinAttemptLimiter pinAttemptLimiter = new PinAttemptLimiter(
+        Integer.getInteger("banking.pin.maxFailures", PinAttemptLimiter.DEFAULT_MAX_FAILURES),
+        Long.getLong("banking.pin.lockoutMillis", PinAttemptLimiter.DEFAULT_LOCKOUT_MILLIS));
+    private volatile boolean ledgerMode;
     
     public BankingService() {
         this.customerDAO = new CustomerDAO();
         this.accountDAO = new AccountDAO();
         this.transactionDAO = new TransactionDAO();
+        this.reportDAO = new ReportDAO();
+        this.ledgerDAO = new LedgerDAO();
+        this.fixedDepositDAO = new FixedDepositDAO();
+        this.idempotencyCache = new IdempotencyCache();
+    }
+    
+    /**
+     * Route deposits and withdrawals through a group-commit executor so that
+     * concurrent callers share database commits
+     * @param maxBatchSize Maximum number of operations per commit
+     * @param maxWaitMicros Maximum time the first operation of a batch waits for others
+     * @return The running executor, for inspecting batch statistics
+     */
+    public synchronized GroupCommitExecutor enableGroupCommit(int maxBatchSize, long maxWaitMicros) {
+        if (groupCommitExecutor == null) {
+            GroupCommitExecutor executor = new GroupCommitExecutor(accountDAO, transactionDAO,
+                                                                   maxBatchSize, maxWaitMicros);
+            executor.start();
+            groupCommitExecutor = executor;
+        }
+        return groupCommitExecutor;
+    }
+    
+    /**
+     * Stop group commit; queued operations are committed before this returns
+     * @throws InterruptedException if interrupted while waiting for the committer
+     */
+    public synchronized void disableGroupCommit() throws InterruptedException {
+        GroupCommitExecutor executor = groupCommitExecutor;
+        if (executor != null) {
+            groupCommitExecutor = null;
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Route deposits, withdrawals and transfers to single-writer partitions that
+     * own their accounts' balances. Nothing else may change balances while this is on.
+     * @param partitions Number of partitions, a power of two
+     * @param ringSize Commands buffered per partition, a power of two
+     * @return The running executor, for inspecting throughput and queue depths
+     */
+    public synchronized PartitionedExecutor enablePartitionedExecution(int partitions, int ringSize) {
+        if (partitionedExecutor == null) {
+            PartitionedExecutor executor = new PartitionedExecutor(accountDAO, transactionDAO, partitions, ringSize);
+            executor.start();
+            partitionedExecutor = executor;
+        }
+        return partitionedExecutor;
+    }
+    
+    /**
+     * Stop partitioned execution; queued commands complete before this returns
+     * @throws InterruptedException if interrupted while waiting for the partitions
+     */
+    public synchronized void disablePartitionedExecution() throws InterruptedException {
+        PartitionedExecutor executor = partitionedExecutor;
+        if (executor != null) {
+            partitionedExecutor = null;
+            executor.shutdown();
+        }
+    }
+    
+    /**
+     * Serialize deposits, withdrawals and transfers on the same account within
+     * this JVM using striped in-process locks. Version checks still guard
+     * against writers in other processes.
+     * @param stripes Number of lock stripes, a power of two
+     * @return The lock manager, for inspecting per-stripe contention
+     */
+    public synchronized AccountLockManager enableAccountLocking(int stripes) {
+        if (accountLockManager == null) {
+            accountLockManager = new AccountLockManager(stripes);
+        }
+        return accountLockManager;
+    }
+    
+    public synchronized void disableAccountLocking() {
+        accountLockManager = null;
+    }
+    
+    /**
+     * Check every withdrawal and transfer against in-memory velocity limits on
+     * the source account. The limiter is first primed with the last day of
+     * outgoing transactions.
+     * @param rules Rules for all accounts; per-account rules can be set on the returned limiter
+     * @return The limiter, for per-account rules and statistics
+     * @throws SQLException if recent transactions cannot be read
+     */
+    public synchronized VelocityLimiter enableVelocityLimits(List<VelocityRule> rules) throws SQLException {
+        if (velocityLimiter == null) {
+            VelocityLimiter limiter = new VelocityLimiter(rules);
+            limiter.rebuild(transactionDAO);
+            velocityLimiter = limiter;
+        } else {
+            velocityLimiter.setDefaultRules(rules);
+        }
+        return velocityLimiter;
+    }
+    
+    public synchronized void disableVelocityLimits() {
+        velocityLimiter = null;
+    }
+    
+    /**
+     * Score every transfer before it is applied. Declined transfers fail with
+     * IllegalArgumentException; committed transfers update the scorer's profiles.
+     * @param scorer Scorer with its rules, checks and policy configured
+     */
+    public synchronized void enableFraudScoring(FraudScorer scorer) {
+        FraudScorer previous = fraudScorer;
+        fraudScorer = scorer;
+        if (previous != null && previous != scorer) {
+            previous.shutdown();
+        }
+    }
+    
+    public synchronized void disableFraudScoring() {
+        FraudScorer previous = fraudScorer;
+        fraudScorer = null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+    
+    /**
+     * @return The active fraud scorer, or null if scoring is off
+     */
+    public FraudScorer getFraudScorer() {
+        return fraudScorer;
+    }
+    
+    /**
+     * Put admission control in front of balance inquiries, lookups, history,
+     * PIN checks and money movements. Calls over the limits fail at once with
+     * OverloadedException instead of waiting for a database connection.
+     * @param controller Controller with its limits configured
+     */
+    public synchronized void enableAdmissionControl(AdmissionController controller) {
+        admissionController = controller;
+    }
+    
+    public synchronized void disableAdmissionControl() {
+        admissionController = null;
+    }
+    
+    /**
+     * @return The active admission controller, or null if admission control is off
+     */
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+    
+    /**
+     * Switch double-entry ledger mode on or off. In ledger mode money movements
+     * append balanced postings instead of updating accounts.balance, balances are
+     * read from the postings' running sums, and history is read from postings.
+     * An account's first posting starts from its current accounts.balance.
+     * Group commit and balance slots are bypassed while ledger mode is on.
+     *
+     * Switching off is refused once customer postings exist: accounts.balance
+     * stopped moving when the ledger took over, so leaving ledger mode would
+     * silently drop every posted movement.
+     * @param ledgerMode true to post to the ledger
+     * @throws SQLException if database operation fails
+     * @throws IllegalStateException if switching off after postings were made
+     */
+    public void setLedgerMode(boolean ledgerMode) throws SQLException {
+        if (!ledgerMode && this.ledgerMode && ledgerDAO.hasPostings()) {
+            throw new IllegalStateException("Ledger mode cannot be switched off once postings exist");
+        }
+        this.ledgerMode = ledgerMode;
+    }
+    
+    public boolean isLedgerMode() {
+        return ledgerMode;
     }
     
     /**
@@ -40,7 +276,17 @@ public class BankingService {
      * @throws SQLException if database operation fails
      * @throws IllegalArgumentException if validation fails
      */
-    public Account createCustomerAccount(String firstName, String lastName, String email,
+    public Account createCustomerAccount(final String firstName, final String lastName, final String email,
+                                       final String phone, final String address, final java.sql.Date dateOfBirth,
+                                       final Account.AccountType accountType, final BigDecimal initialBalance,
+                                       final String pin) 
+                                       throws SQLException, IllegalArgumentException {
+        return call("service.createCustomerAccount", null, null,
+            () -> executeCreateCustomerAccount(firstName, lastName, email, phone, address, dateOfBirth,
+                                               accountType, initialBalance, pin));
+    }
+    
+    private Account executeCreateCustomerAccount(String firstName, String lastName, String email,
                                        String phone, String address, java.sql.Date dateOfBirth,
                                        Account.AccountType accountType, BigDecimal initialBalance,
                                        String pin) 
@@ -96,37 +342,103 @@ public class BankingService {
      */
     public Account depositMoney(String accountNumber, BigDecimal amount, String description) 
                                throws SQLException, IllegalArgumentException {
+        return depositMoney(accountNumber, amount, description, null);
+    }
+    
+    /**
+     * Deposit money into an account at most once per idempotency key.
+     * A retry with the same key returns the account without depositing again.
+     * @param accountNumber Account number
+     * @param amount Amount to deposit
+     * @param description Transaction description
+     * @param idempotencyKey Client-supplied request key (null to disable deduplication)
+     * @return Updated account
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if validation fails or the key was used for a different request
+     */
+    public Account depositMoney(final String accountNumber, final BigDecimal amount, final String description,
+                                final String idempotencyKey) throws SQLException, IllegalArgumentException {
+        return call("service.depositMoney", AdmissionController.Operation.DEPOSIT, accountNumber, amount, () -> {
+            if (idempotencyKey == null) {
+                return executeDeposit(accountNumber, amount, description, null);
+            }
+            return executeIdempotent(idempotencyKey, Account.class,
+                () -> executeDeposit(accountNumber, amount, description, idempotencyKey),
+                original -> replayAccountOperation(original, Transaction.TransactionType.DEPOSIT,
+                                                   original.getToAccountId(), accountNumber, amount));
+        });
+    }
+    
+    private Account executeDeposit(String accountNumber, BigDecimal amount, String description,
+                                   String idempotencyKey) throws SQLException, IllegalArgumentException {
+        AccountLockManager locks = accountLockManager;
+        Account account;
+        String postedDescription = description != null ? description : "Cash deposit";
+        if (locks == null) {
+            account = applyDeposit(accountNumber, amount, description, idempotencyKey);
+            publishPosted(Transaction.TransactionType.DEPOSIT, null, account, amount, postedDescription);
+        } else {
+            int accountId = resolveAccountId(accountNumber);
+            locks.lock(accountId);
+            try {
+                account = applyDeposit(accountNumber, amount, description, idempotencyKey);
+                // Publish before unlocking so the account's events leave in commit order
+                publishPosted(Transaction.TransactionType.DEPOSIT, null, account, amount, postedDescription);
+            } finally {
+                locks.unlock(accountId);
+            }
+        }
+        return account;
+    }
+    
+    private Account applyDeposit(String accountNumber, BigDecimal amount, String description,
+                                 String idempotencyKey) throws SQLException, IllegalArgumentException {
+        
+        GroupCommitExecutor executor = groupCommitExecutor;
+        if (executor != null && !ledgerMode) {
+            return awaitCommit(executor.deposit(accountNumber, amount, description, idempotencyKey));
+        }
         
         // Validate input
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Deposit amount must be positive");
         }
         
-        // Get account
-        Account account = accountDAO.getAccountByNumber(accountNumber);
-        if (account == null) {
-            throw new IllegalArgumentException("Account not found: " + accountNumber);
-        }
-        
-        if (!account.isActive()) {
-            throw new IllegalArgumentException("Account is not active: " + accountNumber);
+        for (int attempt = 1; ; attempt++) {
+            // Get account
+            Account account = loadAccount(accountNumber);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountNumber);
+            }
+            
+            if (!account.isActive()) {
+                throw new IllegalArgumentException("Account is not active: " + accountNumber);
+            }
+            
+            PartitionedExecutor partitioned = partitionedExecutor;
+            if (partitioned != null && !ledgerMode) {
+                CompletableFuture<Account> future = new CompletableFuture<>();
+                partitioned.deposit(account.getAccountId(), toCents(amount),
+                                    description != null ? description : "Cash deposit",
+                                    idempotencyKey, accountCallback(account, future));
+                return awaitCommit(future);
+            }
+            
+            // Create transaction record
+            Transaction transaction = new Transaction(
+                Transaction.TransactionType.DEPOSIT,
+                account.getAccountId(),
+                amount,
+                description != null ? description : "Cash deposit"
+            );
+            transaction.setIdempotencyKey(idempotencyKey);
+            
+            // Update balance unless the account changed since it was read
+            if (commitBalanceChange(account, amount, transaction)) {
+                return account;
+            }
+            awaitRetry(accountNumber, attempt);
         }
-        
-        // Update balance
-        BigDecimal newBalance = account.getBalance().add(amount);
-        accountDAO.updateBalance(account.getAccountId(), newBalance);
-        account.setBalance(newBalance);
-        
-        // Create transaction record
-        Transaction transaction = new Transaction(
-            Transaction.TransactionType.DEPOSIT,
-            account.getAccountId(),
-            amount,
-            description != null ? description : "Cash deposit"
-        );
-        transactionDAO.createTransaction(transaction);
-        
-        return account;
     }
     
     /**
@@ -140,42 +452,125 @@ public class BankingService {
      */
     public Account withdrawMoney(String accountNumber, BigDecimal amount, String description) 
                                 throws SQLException, IllegalArgumentException {
-        
-        // Validate input
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new IllegalArgumentException("Withdrawal amount must be positive");
+        return withdrawMoney(accountNumber, amount, description, null);
+    }
+    
+    /**
+     * Withdraw money from an account at most once per idempotency key.
+     * A retry with the same key returns the account without withdrawing again.
+     * @param accountNumber Account number
+     * @param amount Amount to withdraw
+     * @param description Transaction description
+     * @param idempotencyKey Client-supplied request key (null to disable deduplication)
+     * @return Updated account
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if validation fails or the key was used for a different request
+     */
+    public Account withdrawMoney(final String accountNumber, final BigDecimal amount, final String description,
+                                 final String idempotencyKey) throws SQLException, IllegalArgumentException {
+        return call("service.withdrawMoney", AdmissionController.Operation.WITHDRAWAL, accountNumber, amount, () -> {
+            if (idempotencyKey == null) {
+                return executeWithdrawal(accountNumber, amount, description, null);
+            }
+            return executeIdempotent(idempotencyKey, Account.class,
+                () -> executeWithdrawal(accountNumber, amount, description, idempotencyKey),
+                original -> replayAccountOperation(original, Transaction.TransactionType.WITHDRAWAL,
+                                                   original.getFromAccountId(), accountNumber, amount));
+        });
+    }
+    
+    private Account executeWithdrawal(String accountNumber, BigDecimal amount, String description,
+                                      String idempotencyKey) throws SQLException, IllegalArgumentException {
+        VelocityLimiter limiter = velocityLimiter;
+        int limitedAccountId = 0;
+        long reservedAt = 0;
+        if (limiter != null && amount.signum() > 0) {
+            limitedAccountId = resolveAccountId(accountNumber);
+            reservedAt = limiter.acquire(limitedAccountId, amount);
         }
         
-        // Get account
-        Account account = accountDAO.getAccountByNumber(accountNumber);
-        if (account == null) {
-            throw new IllegalArgumentException("Account not found: " + accountNumber);
+        AccountLockManager locks = accountLockManager;
+        Account account;
+        String postedDescription = description != null ? description : "Cash withdrawal";
+        try {
+            if (locks == null) {
+                account = applyWithdrawal(accountNumber, amount, description, idempotencyKey);
+            } else {
+                int accountId = resolveAccountId(accountNumber);
+                locks.lock(accountId);
+                try {
+                    account = applyWithdrawal(accountNumber, amount, description, idempotencyKey);
+                    // Publish before unlocking so the account's events leave in commit order
+                    publishPosted(Transaction.TransactionType.WITHDRAWAL, account, null, amount, postedDescription);
+                    return account;
+                } finally {
+                    locks.unlock(accountId);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (reservedAt != 0) {
+                limiter.release(limitedAccountId, amount, reservedAt);
+            }
+            throw e;
         }
+        publishPosted(Transaction.TransactionType.WITHDRAWAL, account, null, amount, postedDescription);
+        return account;
+    }
+    
+    private Account applyWithdrawal(String accountNumber, BigDecimal amount, String description,
+                                    String idempotencyKey) throws SQLException, IllegalArgumentException {
         
-        if (!account.isActive()) {
-            throw new IllegalArgumentException("Account is not active: " + accountNumber);
+        GroupCommitExecutor executor = groupCommitExecutor;
+        if (executor != null && !ledgerMode) {
+            return awaitCommit(executor.withdraw(accountNumber, amount, description, idempotencyKey));
         }
         
-        // Check sufficient balance
-        if (account.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient balance. Available: $" + account.getBalance());
+        // Validate input
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Withdrawal amount must be positive");
         }
         
-        // Update balance
-        BigDecimal newBalance = account.getBalance().subtract(amount);
-        accountDAO.updateBalance(account.getAccountId(), newBalance);
-        account.setBalance(newBalance);
-        
-        // Create transaction record
-        Transaction transaction = new Transaction(
-            Transaction.TransactionType.WITHDRAWAL,
-            account.getAccountId(),
-            amount,
-            description != null ? description : "Cash withdrawal"
-        );
-        transactionDAO.createTransaction(transaction);
-        
-        return account;
+        for (int attempt = 1; ; attempt++) {
+            // Get account
+            Account account = loadAccount(accountNumber);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountNumber);
+            }
+            
+            if (!account.isActive()) {
+                throw new IllegalArgumentException("Account is not active: " + accountNumber);
+            }
+            
+            // The owning partition checks the balance against its in-memory copy
+            PartitionedExecutor partitioned = partitionedExecutor;
+            if (partitioned != null && !ledgerMode) {
+                CompletableFuture<Account> future = new CompletableFuture<>();
+                partitioned.withdraw(account.getAccountId(), toCents(amount),
+                                     description != null ? description : "Cash withdrawal",
+                                     idempotencyKey, accountCallback(account, future));
+                return awaitCommit(future);
+            }
+            
+            // Check sufficient balance
+            if (account.getBalance().compareTo(amount) < 0) {
+                throw new IllegalArgumentException("Insufficient balance. Available: $" + account.getBalance());
+            }
+            
+            // Create transaction record
+            Transaction transaction = new Transaction(
+                Transaction.TransactionType.WITHDRAWAL,
+                account.getAccountId(),
+                amount,
+                description != null ? description : "Cash withdrawal"
+            );
+            transaction.setIdempotencyKey(idempotencyKey);
+            
+            // Update balance unless the account changed since it was read
+            if (commitBalanceChange(account, amount.negate(), transaction)) {
+                return account;
+            }
+            awaitRetry(accountNumber, attempt);
+        }
     }
     
     /**
@@ -191,6 +586,96 @@ public class BankingService {
     public TransferResult transferMoney(String fromAccountNumber, String toAccountNumber, 
                                       BigDecimal amount, String description) 
                                       throws SQLException, IllegalArgumentException {
+        return transferMoney(fromAccountNumber, toAccountNumber, amount, description, null);
+    }
+    
+    /**
+     * Transfer money between accounts at most once per idempotency key.
+     * A retry with the same key returns the accounts without transferring again.
+     * @param fromAccountNumber Source account number
+     * @param toAccountNumber Destination account number
+     * @param amount Amount to transfer
+     * @param description Transaction description
+     * @param idempotencyKey Client-supplied request key (null to disable deduplication)
+     * @return Transfer result with updated accounts
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if validation fails or the key was used for a different request
+     */
+    public TransferResult transferMoney(final String fromAccountNumber, final String toAccountNumber,
+                                        final BigDecimal amount, final String description,
+                                        final String idempotencyKey) throws SQLException, IllegalArgumentException {
+        return call("service.transferMoney", AdmissionController.Operation.TRANSFER, fromAccountNumber, amount, () -> {
+            if (idempotencyKey == null) {
+                return executeTransfer(fromAccountNumber, toAccountNumber, amount, description, null);
+            }
+            return executeIdempotent(idempotencyKey, TransferResult.class,
+                () -> executeTransfer(fromAccountNumber, toAccountNumber, amount, description, idempotencyKey),
+                original -> replayTransfer(original, fromAccountNumber, toAccountNumber, amount));
+        });
+    }
+    
+    private TransferResult executeTransfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                                           String description, String idempotencyKey)
+                                           throws SQLException, IllegalArgumentException {
+        VelocityLimiter limiter = velocityLimiter;
+        int limitedAccountId = 0;
+        long reservedAt = 0;
+        if (limiter != null && amount.signum() > 0 && !fromAccountNumber.equals(toAccountNumber)) {
+            limitedAccountId = resolveAccountId(fromAccountNumber);
+            reservedAt = limiter.acquire(limitedAccountId, amount);
+        }
+        
+        AccountLockManager locks = accountLockManager;
+        FraudScorer scorer = fraudScorer;
+        ScoringRequest scoring = null;
+        TransferResult result;
+        boolean published = false;
+        String postedDescription = description != null
+            ? description : "Transfer from " + fromAccountNumber + " to " + toAccountNumber;
+        try {
+            if (scorer != null && amount.signum() > 0 && !fromAccountNumber.equals(toAccountNumber)) {
+                scoring = new ScoringRequest(resolveAccountId(fromAccountNumber), resolveAccountId(toAccountNumber),
+                                             amount, System.currentTimeMillis());
+                if (scorer.evaluate(scoring) == FraudDecision.DECLINE) {
+                    throw new IllegalArgumentException("Transfer declined by fraud screening");
+                }
+            }
+            
+            if (locks == null || fromAccountNumber.equals(toAccountNumber)) {
+                result = applyTransfer(fromAccountNumber, toAccountNumber, amount, description, idempotencyKey);
+            } else {
+                int fromAccountId = resolveAccountId(fromAccountNumber);
+                int toAccountId = resolveAccountId(toAccountNumber);
+                locks.lock(fromAccountId, toAccountId);
+                try {
+                    result = applyTransfer(fromAccountNumber, toAccountNumber, amount, description, idempotencyKey);
+                    // Publish before unlocking so the accounts' events leave in commit order
+                    publishPosted(Transaction.TransactionType.TRANSFER, result.getFromAccount(),
+                                  result.getToAccount(), amount, postedDescription);
+                    published = true;
+                } finally {
+                    locks.unlock(fromAccountId, toAccountId);
+                }
+            }
+        } catch (SQLException | RuntimeException e) {
+            if (reservedAt != 0) {
+                limiter.release(limitedAccountId, amount, reservedAt);
+            }
+            throw e;
+        }
+        if (scoring != null) {
+            scorer.recordCompleted(scoring);
+        }
+        if (!published) {
+            publishPosted(Transaction.TransactionType.TRANSFER, result.getFromAccount(), result.getToAccount(),
+                          amount, postedDescription);
+        }
+        return result;
+    }
+    
+    private TransferResult applyTransfer(String fromAccountNumber, String toAccountNumber, BigDecimal amount,
+                                         String description, String idempotencyKey)
+                                         throws SQLException, IllegalArgumentException {
         
         // Validate input
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
@@ -201,52 +686,162 @@ public class BankingService {
             throw new IllegalArgumentException("Cannot transfer to the same account");
         }
         
-        // Get accounts
-        Account fromAccount = accountDAO.getAccountByNumber(fromAccountNumber);
-        Account toAccount = accountDAO.getAccountByNumber(toAccountNumber);
-        
-        if (fromAccount == null) {
-            throw new IllegalArgumentException("Source account not found: " + fromAccountNumber);
+        for (int attempt = 1; ; attempt++) {
+            // Get accounts
+            Account fromAccount = loadAccount(fromAccountNumber);
+            Account toAccount = loadAccount(toAccountNumber);
+            
+            if (fromAccount == null) {
+                throw new IllegalArgumentException("Source account not found: " + fromAccountNumber);
+            }
+            
+            if (toAccount == null) {
+                throw new IllegalArgumentException("Destination account not found: " + toAccountNumber);
+            }
+            
+            if (!fromAccount.isActive()) {
+                throw new IllegalArgumentException("Source account is not active: " + fromAccountNumber);
+            }
+            
+            if (!toAccount.isActive()) {
+                throw new IllegalArgumentException("Destination account is not active: " + toAccountNumber);
+            }
+            
+            PartitionedExecutor partitioned = partitionedExecutor;
+            if (partitioned != null && !ledgerMode) {
+                return submitPartitionedTransfer(partitioned, fromAccount, toAccount, amount,
+                    description != null ? description : "Transfer from " + fromAccountNumber + " to " + toAccountNumber,
+                    idempotencyKey);
+            }
+            
+            // Check sufficient balance
+            if (fromAccount.getBalance().compareTo(amount) < 0) {
+                throw new IllegalArgumentException("Insufficient balance in source account. Available: $" + fromAccount.getBalance());
+            }
+            
+            // Create transaction record
+            Transaction transaction = new Transaction(
+                Transaction.TransactionType.TRANSFER,
+                fromAccount.getAccountId(),
+                toAccount.getAccountId(),
+                amount,
+                description != null ? description : "Transfer from " + fromAccountNumber + " to " + toAccountNumber
+            );
+            transaction.setIdempotencyKey(idempotencyKey);
+            
+            // Update both balances unless either account changed since it was read
+            if (commitTransfer(fromAccount, toAccount, amount, transaction)) {
+                return new TransferResult(fromAccount, toAccount, amount);
+            }
+            awaitRetry(fromAccountNumber, attempt);
         }
-        
-        if (toAccount == null) {
-            throw new IllegalArgumentException("Destination account not found: " + toAccountNumber);
+    }
+    
+    /**
+     * Post a batch of deposits and transfers in one database transaction.
+     * Every account involved is locked up front and the records are applied in
+     * list order against those balances, so a record may spend money credited by
+     * an earlier one. Records that cannot be applied get a reject reason and are
+     * skipped; the rest commit with one balance update per account and one
+     * batched transactions insert.
+     * @param payments Records to post; reject reasons are set on failed records
+     * @return Number of records posted
+     * @throws SQLException if database operation fails, in which case nothing is posted
+     * @throws IllegalStateException if ledger mode or partitioned execution is on
+     */
+    public int postBulkPayments(final List<BulkPayment> payments) throws SQLException {
+        return call("service.postBulkPayments", null, null, () -> executePostBulkPayments(payments));
+    }
+    
+    /**
+     * @return false in ledger mode and under partitioned execution, where
+     *         {@link #postBulkPayments} refuses to post
+     */
+    public boolean isBulkPostingAvailable() {
+        return !ledgerMode && partitionedExecutor == null;
+    }
+    
+    private int executePostBulkPayments(List<BulkPayment> payments) throws SQLException {
+        if (!isBulkPostingAvailable()) {
+            throw new IllegalStateException("Bulk posting is not available in ledger mode or partitioned execution");
         }
         
-        if (!fromAccount.isActive()) {
-            throw new IllegalArgumentException("Source account is not active: " + fromAccountNumber);
+        // Lock in account ID order, like commitTransfer, so concurrent batches cannot deadlock
+        Map<Integer, String> lockOrder = new TreeMap<>();
+        Set<String> seen = new HashSet<>();
+        for (BulkPayment payment : payments) {
+            payment.setRejectReason(null);
+            for (String accountNumber : new String[] {payment.getAccountNumber(), payment.getCounterpartyAccountNumber()}) {
+                if (accountNumber != null && seen.add(accountNumber)) {
+                    try {
+                        lockOrder.put(resolveAccountId(accountNumber), accountNumber);
+                    } catch (IllegalArgumentException e) {
+                        // Rejected below as not found
+                    }
+                }
+            }
         }
         
-        if (!toAccount.isActive()) {
-            throw new IllegalArgumentException("Destination account is not active: " + toAccountNumber);
-        }
+        Map<String, Account> accounts = new HashMap<>();
+        Map<Integer, BigDecimal> balances = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>();
+        List<BulkPayment> posted = new ArrayList<>();
         
-        // Check sufficient balance
-        if (fromAccount.getBalance().compareTo(amount) < 0) {
-            throw new IllegalArgumentException("Insufficient balance in source account. Available: $" + fromAccount.getBalance());
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.BATCH)) {
+            connection.setAutoCommit(false);
+            try {
+                for (String accountNumber : lockOrder.values()) {
+                    Account account = accountDAO.getAccountByNumberForUpdate(connection, accountNumber);
+                    if (account != null) {
+                        accounts.put(accountNumber, account);
+                        balances.put(account.getAccountId(), account.getBalance());
+                    }
+                }
+                
+                for (BulkPayment payment : payments) {
+                    String rejectReason = applyBulkPayment(payment, accounts, balances);
+                    if (rejectReason != null) {
+                        payment.setRejectReason(rejectReason);
+                        continue;
+                    }
+                    transactions.add(toBulkTransaction(payment, accounts));
+                    posted.add(payment);
+                }
+                
+                for (String accountNumber : lockOrder.values()) {
+                    Account account = accounts.get(accountNumber);
+                    if (account == null) {
+                        continue;
+                    }
+                    BigDecimal delta = balances.get(account.getAccountId()).subtract(account.getBalance());
+                    if (delta.signum() == 0) {
+                        continue;
+                    }
+                    // The row lock taken above means neither call can hit a version conflict
+                    boolean updated = delta.signum() > 0
+                        ? accountDAO.creditBalance(connection, account, delta)
+                        : accountDAO.debitBalance(connection, account, delta.negate());
+                    if (!updated) {
+                        throw new SQLException("Account changed during bulk posting: " + accountNumber, "40001");
+                    }
+                }
+                
+                transactionDAO.createTransactions(connection, transactions);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
         }
         
-        // Update balances
-        BigDecimal fromNewBalance = fromAccount.getBalance().subtract(amount);
-        BigDecimal toNewBalance = toAccount.getBalance().add(amount);
-        
-        accountDAO.updateBalance(fromAccount.getAccountId(), fromNewBalance);
-        accountDAO.updateBalance(toAccount.getAccountId(), toNewBalance);
-        
-        fromAccount.setBalance(fromNewBalance);
-        toAccount.setBalance(toNewBalance);
-        
-        // Create transaction record
-        Transaction transaction = new Transaction(
-            Transaction.TransactionType.TRANSFER,
-            fromAccount.getAccountId(),
-            toAccount.getAccountId(),
-            amount,
-            description != null ? description : "Transfer from " + fromAccountNumber + " to " + toAccountNumber
-        );
-        transactionDAO.createTransaction(transaction);
-        
-        return new TransferResult(fromAccount, toAccount, amount);
+        for (Account account : accounts.values()) {
+            BigDecimal delta = balances.get(account.getAccountId()).subtract(account.getBalance());
+            if (delta.signum() != 0) {
+                applyCommittedChange(account, delta);
+            }
+        }
+        publishBulkPosted(posted, transactions, accounts);
+        return posted.size();
     }
     
     /**
@@ -256,12 +851,14 @@ public class BankingService {
      * @throws SQLException if database operation fails
      * @throws IllegalArgumentException if account not found
      */
-    public BigDecimal getAccountBalance(String accountNumber) throws SQLException, IllegalArgumentException {
-        Account account = accountDAO.getAccountByNumber(accountNumber);
-        if (account == null) {
-            throw new IllegalArgumentException("Account not found: " + accountNumber);
-        }
-        return account.getBalance();
+    public BigDecimal getAccountBalance(final String accountNumber) throws SQLException, IllegalArgumentException {
+        return call("service.getAccountBalance", AdmissionController.Operation.BALANCE_INQUIRY, accountNumber, () -> {
+            Account account = loadAccount(accountNumber);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountNumber);
+            }
+            return account.getBalance();
+        });
     }
     
     /**
@@ -271,12 +868,14 @@ public class BankingService {
      * @throws SQLException if database operation fails
      * @throws IllegalArgumentException if account not found
      */
-    public Account getAccountDetails(String accountNumber) throws SQLException, IllegalArgumentException {
-        Account account = accountDAO.getAccountByNumber(accountNumber);
-        if (account == null) {
-            throw new IllegalArgumentException("Account not found: " + accountNumber);
-        }
-        return account;
+    public Account getAccountDetails(final String accountNumber) throws SQLException, IllegalArgumentException {
+        return call("service.getAccountDetails", AdmissionController.Operation.ACCOUNT_LOOKUP, accountNumber, () -> {
+            Account account = loadAccount(accountNumber);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountNumber);
+            }
+            return account;
+        });
     }
     
     /**
@@ -286,7 +885,11 @@ public class BankingService {
      * @throws SQLException if database operation fails
      * @throws IllegalArgumentException if customer not found
      */
-    public Customer getCustomerDetails(int customerId) throws SQLException, IllegalArgumentException {
+    public Customer getCustomerDetails(final int customerId) throws SQLException, IllegalArgumentException {
+        return call("service.getCustomerDetails", null, null, () -> executeGetCustomerDetails(customerId));
+    }
+    
+    private Customer executeGetCustomerDetails(int customerId) throws SQLException, IllegalArgumentException {
         Customer customer = customerDAO.getCustomerById(customerId);
         if (customer == null) {
             throw new IllegalArgumentException("Customer not found: " + customerId);
@@ -300,8 +903,9 @@ public class BankingService {
      * @return List of customer accounts
      * @throws SQLException if database operation fails
      */
-    public List<Account> getCustomerAccounts(int customerId) throws SQLException {
-        return accountDAO.getAccountsByCustomerId(customerId);
+    public List<Account> getCustomerAccounts(final int customerId) throws SQLException {
+        return call("service.getCustomerAccounts", AdmissionController.Operation.ACCOUNT_LOOKUP, null,
+            () -> withLedgerBalances(accountDAO.getAccountsByCustomerId(customerId)));
     }
     
     /**
@@ -311,12 +915,68 @@ public class BankingService {
      * @throws SQLException if database operation fails
      * @throws IllegalArgumentException if account not found
      */
-    public List<Transaction> getTransactionHistory(String accountNumber) throws SQLException, IllegalArgumentException {
-        Account account = accountDAO.getAccountByNumber(accountNumber);
-        if (account == null) {
-            throw new IllegalArgumentException("Account not found: " + accountNumber);
-        }
-        return transactionDAO.getTransactionsByAccountId(account.getAccountId());
+    public List<Transaction> getTransactionHistory(final String accountNumber) throws SQLException, IllegalArgumentException {
+        return call("service.getTransactionHistory", AdmissionController.Operation.HISTORY, accountNumber, () -> {
+            Account account = accountDAO.getAccountByNumber(accountNumber);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountNumber);
+            }
+            if (ledgerMode) {
+                return transactionDAO.getTransactionsByPostings(account.getAccountId(), Long.MAX_VALUE, Integer.MAX_VALUE);
+            }
+            return transactionDAO.getTransactionsByAccountId(account.getAccountId());
+        });
+    }
+    
+    /**
+     * Get one page of transaction history for an account from the materialized history
+     * @param accountNumber Account number
+     * @param beforeDate Date of the last entry of the previous page (null for the first page)
+     * @param beforeTransactionId Transaction ID of the last entry of the previous page
+     * @param pageSize Maximum number of entries to return
+     * @return List of history entries, newest first
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if account not found
+     */
+    public List<TransactionHistoryEntry> getTransactionHistoryPage(final String accountNumber, final Timestamp beforeDate,
+                                                                   final int beforeTransactionId, final int pageSize)
+                                                                   throws SQLException, IllegalArgumentException {
+        return call("service.getTransactionHistoryPage", AdmissionController.Operation.HISTORY, accountNumber, () -> {
+            Account account = accountDAO.getAccountByNumber(accountNumber);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountNumber);
+            }
+            return reportDAO.getTransactionHistoryForAccount(account.getAccountId(), beforeDate,
+                                                             beforeTransactionId, pageSize);
+        });
+    }
+    
+    /**
+     * Get one page of account summaries from the materialized summary
+     * @param afterAccountId Last account ID of the previous page (0 for the first page)
+     * @param pageSize Maximum number of summaries to return
+     * @return List of account summaries ordered by account ID
+     * @throws SQLException if database operation fails
+     */
+    public List<AccountSummary> getAccountSummaries(final int afterAccountId, final int pageSize) throws SQLException {
+        return call("service.getAccountSummaries", AdmissionController.Operation.ACCOUNT_LOOKUP, null, () -> {
+            List<AccountSummary> summaries = reportDAO.getAccountSummaries(afterAccountId, pageSize);
+            if (ledgerMode && !summaries.isEmpty()) {
+                // The summary follows accounts.balance, which the ledger no longer updates
+                List<Integer> accountIds = new ArrayList<>(summaries.size());
+                for (AccountSummary summary : summaries) {
+                    accountIds.add(summary.getAccountId());
+                }
+                Map<Integer, BigDecimal> balances = ledgerDAO.getBalances(accountIds);
+                for (AccountSummary summary : summaries) {
+                    BigDecimal balance = balances.get(summary.getAccountId());
+                    if (balance != null) {
+                        summary.setBalance(balance);
+                    }
+                }
+            }
+            return summaries;
+        });
     }
     
     /**
@@ -325,7 +985,7 @@ public class BankingService {
      * @throws SQLException if database operation fails
      */
     public List<Customer> getAllCustomers() throws SQLException {
-        return customerDAO.getAllCustomers();
+        return call("service.getAllCustomers", null, null, () -> customerDAO.getAllCustomers());
     }
     
     /**
@@ -337,7 +997,12 @@ public class BankingService {
      * @throws SQLException if database operation fails
      * @throws IllegalArgumentException if validation fails
      */
-    public boolean updatePin(String accountNumber, String currentPin, String newPin) 
+    public boolean updatePin(final String accountNumber, final String currentPin, final String newPin) 
+                            throws SQLException, IllegalArgumentException {
+        return call("service.updatePin", null, null, () -> executeUpdatePin(accountNumber, currentPin, newPin));
+    }
+    
+    private boolean executeUpdatePin(String accountNumber, String currentPin, String newPin) 
                             throws SQLException, IllegalArgumentException {
         
         // Validate PIN format
@@ -345,30 +1010,198 @@ public class BankingService {
             throw new IllegalArgumentException("PIN must be exactly 4 digits");
         }
         
-        // Get account
+        for (int attempt = 1; ; attempt++) {
+            // Get account
+            Account account = accountDAO.getAccountByNumber(accountNumber);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountNumber);
+            }
+            
+            // Verify current PIN against the version being updated
+            if (!account.getPin().equals(currentPin)) {
+                throw new IllegalArgumentException("Current PIN is incorrect");
+            }
+            
+            // Update PIN unless the account changed since it was read
+            boolean updated = accountDAO.updatePinIfVersion(account.getAccountId(), newPin, account.getVersion());
+            optimisticLockStats.recordAttempt(!updated);
+            if (updated) {
+                return true;
+            }
+            awaitRetry(accountNumber, attempt);
+        }
+    }
+    
+    /**
+     * Update account status
+     * @param accountNumber Account number
+     * @param status New status
+     * @return Updated account
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if account not found
+     */
+    public Account updateAccountStatus(final String accountNumber, final Account.AccountStatus status)
+                                      throws SQLException, IllegalArgumentException {
+        return call("service.updateAccountStatus", null, null,
+            () -> executeUpdateAccountStatus(accountNumber, status));
+    }
+    
+    private Account executeUpdateAccountStatus(String accountNumber, Account.AccountStatus status)
+                                      throws SQLException, IllegalArgumentException {
+        if (status == null) {
+            throw new IllegalArgumentException("Account status is required");
+        }
+        
+        for (int attempt = 1; ; attempt++) {
+            Account account = accountDAO.getAccountByNumber(accountNumber);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountNumber);
+            }
+            
+            boolean updated = accountDAO.updateStatusIfVersion(account.getAccountId(), status, account.getVersion());
+            optimisticLockStats.recordAttempt(!updated);
+            if (updated) {
+                account.setStatus(status);
+                account.setVersion(account.getVersion() + 1);
+                return account;
+            }
+            awaitRetry(accountNumber, attempt);
+        }
+    }
+    
+    /**
+     * Spread a high-traffic account's balance across slot rows so that concurrent
+     * credits no longer serialize on one row. Callers see no difference.
+     * @param accountNumber Account number
+     * @param slots Number of slot rows (at least 2)
+     * @return true if switched, false if the account is already slotted
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if account not found
+     */
+    public boolean enableBalanceSlots(final String accountNumber, final int slots) throws SQLException, IllegalArgumentException {
+        return call("service.enableBalanceSlots", null, null, () -> executeEnableBalanceSlots(accountNumber, slots));
+    }
+    
+    private boolean executeEnableBalanceSlots(String accountNumber, int slots) throws SQLException, IllegalArgumentException {
+        Account account = accountDAO.getAccountByNumber(accountNumber);
+        if (account == null) {
+            throw new IllegalArgumentException("Account not found: " + accountNumber);
+        }
+        return accountDAO.enableBalanceSlots(account.getAccountId(), slots);
+    }
+    
+    /**
+     * Fold a slotted account's balance back into a single row
+     * @param accountNumber Account number
+     * @return true if switched, false if the account was not slotted
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if account not found
+     */
+    public boolean disableBalanceSlots(final String accountNumber) throws SQLException, IllegalArgumentException {
+        return call("service.disableBalanceSlots", null, null, () -> executeDisableBalanceSlots(accountNumber));
+    }
+    
+    private boolean executeDisableBalanceSlots(String accountNumber) throws SQLException, IllegalArgumentException {
+        Account account = accountDAO.getAccountByNumber(accountNumber);
+        if (account == null) {
+            throw new IllegalArgumentException("Account not found: " + accountNumber);
+        }
+        return accountDAO.disableBalanceSlots(account.getAccountId());
+    }
+    
+    /**
+     * Start the term of a fixed deposit account. The current balance becomes
+     * the principal and the term starts today; at maturity MaturityEngine pays
+     * the balance and final interest out to the payout account.
+     * @param accountNumber Fixed deposit account number
+     * @param termMonths Length of the term in months
+     * @param annualRate Annual interest rate as a fraction (0.065 for 6.5%)
+     * @param payoutAccountNumber Account the deposit is paid out to at maturity
+     * @return Created term
+     * @throws SQLException if database operation fails
+     * @throws IllegalArgumentException if an account is not found or the term is invalid
+     */
+    public FixedDepositTerm openFixedDepositTerm(final String accountNumber, final int termMonths, final BigDecimal annualRate,
+                                                 final String payoutAccountNumber) throws SQLException, IllegalArgumentException {
+        return call("service.openFixedDepositTerm", null, null,
+            () -> executeOpenFixedDepositTerm(accountNumber, termMonths, annualRate, payoutAccountNumber));
+    }
+    
+    private FixedDepositTerm executeOpenFixedDepositTerm(String accountNumber, int termMonths, BigDecimal annualRate,
+                                                 String payoutAccountNumber) throws SQLException, IllegalArgumentException {
+        if (termMonths <= 0) {
+            throw new IllegalArgumentException("Term must be at least one month");
+        }
+        if (annualRate == null || annualRate.signum() < 0) {
+            throw new IllegalArgumentException("Interest rate must not be negative");
+        }
+        
         Account account = accountDAO.getAccountByNumber(accountNumber);
         if (account == null) {
             throw new IllegalArgumentException("Account not found: " + accountNumber);
         }
+        if (account.getAccountType() != Account.AccountType.FIXED_DEPOSIT) {
+            throw new IllegalArgumentException("Not a fixed deposit account: " + accountNumber);
+        }
+        if (!account.isActive()) {
+            throw new IllegalArgumentException("Account is not active: " + accountNumber);
+        }
+        if (fixedDepositDAO.getTermByAccountId(account.getAccountId()) != null) {
+            throw new IllegalArgumentException("Fixed deposit term already exists: " + accountNumber);
+        }
         
-        // Verify current PIN
-        if (!accountDAO.verifyPin(accountNumber, currentPin)) {
-            throw new IllegalArgumentException("Current PIN is incorrect");
+        Account payoutAccount = accountDAO.getAccountByNumber(payoutAccountNumber);
+        if (payoutAccount == null) {
+            throw new IllegalArgumentException("Payout account not found: " + payoutAccountNumber);
+        }
+        if (payoutAccount.getAccountId() == account.getAccountId()) {
+            throw new IllegalArgumentException("Payout account must differ from the deposit account");
         }
         
-        // Update PIN
-        return accountDAO.updatePin(account.getAccountId(), newPin);
+        FixedDepositTerm term = new FixedDepositTerm(account.getAccountId(), account.getBalance(), annualRate,
+                                                     termMonths, java.sql.Date.valueOf(java.time.LocalDate.now()),
+                                                     payoutAccount.getAccountId());
+        term.setAccountNumber(accountNumber);
+        return fixedDepositDAO.createTerm(term);
+    }
+    
+    /**
+     * Get optimistic concurrency statistics for account updates
+     * @return Attempt, conflict and exhausted-retry counters
+     */
+    public OptimisticLockStats getOptimisticLockStats() {
+        return optimisticLockStats;
+    }
+    
+    public PinAttemptLimiter getPinAttemptLimiter() {
+        return pinAttemptLimiter;
     }
     
     /**
-     * Verify account PIN
+     * Verify account PIN. Repeated failures lock the account out of PIN checks
+     * for a while, e.g. -Dbanking.pin.maxFailures=5 -Dbanking.pin.lockoutMillis=300000
      * @param accountNumber Account number
      * @param pin PIN to verify
      * @return true if PIN is correct, false otherwise
+     * @throws PinLockedException if the account has too many recent failures
      * @throws SQLException if database operation fails
      */
-    public boolean verifyPin(String accountNumber, String pin) throws SQLException {
-        return accountDAO.verifyPin(accountNumber, pin);
+    public boolean verifyPin(final String accountNumber, final String pin) throws SQLException {
+        pinAttemptLimiter.acquire(accountNumber);
+        boolean valid;
+        try {
+            valid = call("service.verifyPin", AdmissionController.Operation.PIN_VERIFY, accountNumber,
+                () -> accountDAO.verifyPin(accountNumber, pin));
+        } catch (SQLException | RuntimeException e) {
+            pinAttemptLimiter.abandoned(accountNumber);
+            throw e;
+        }
+        if (valid) {
+            pinAttemptLimiter.succeeded(accountNumber);
+        } else {
+            pinAttemptLimiter.failed(accountNumber);
+        }
+        return valid;
     }
     
     /**
@@ -377,7 +1210,7 @@ public class BankingService {
      * @throws SQLException if database operation fails
      */
     public List<Account> getAllAccounts() throws SQLException {
-        return accountDAO.getAllAccounts();
+        return call("service.getAllAccounts", null, null, () -> withLedgerBalances(accountDAO.getAllAccounts()));
     }
     
     /**
@@ -386,8 +1219,570 @@ public class BankingService {
      * @return List of matching customers
      * @throws SQLException if database operation fails
      */
-    public List<Customer> searchCustomersByName(String name) throws SQLException {
-        return customerDAO.searchCustomersByName(name);
+    public List<Customer> searchCustomersByName(final String name) throws SQLException {
+        return call("service.searchCustomersByName", null, null, () -> customerDAO.searchCustomersByName(name));
+    }
+    
+    // Optimistic concurrency support
+    
+    /**
+     * Apply a balance change and its transaction record atomically, provided the
+     * account is still at the version it was read at
+     * @param delta Positive to credit, negative to debit
+     * @return true if committed, false if the account was changed concurrently
+     */
+    private boolean commitBalanceChange(Account account, BigDecimal delta, Transaction transaction)
+                                        throws SQLException {
+        if (ledgerMode) {
+            Posting accountPosting = new Posting(account.getAccountId(), delta);
+            Posting cashPosting = new Posting(Posting.CASH_CLEARING_ACCOUNT_ID, delta.negate());
+            if (!commitJournal(transaction, Arrays.asList(accountPosting, cashPosting))) {
+                return false;
+            }
+            account.setBalance(accountPosting.getRunningBalance());
+            return true;
+        }
+        
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                boolean updated = delta.signum() >= 0
+                    ? accountDAO.creditBalance(connection, account, delta)
+                    : accountDAO.debitBalance(connection, account, delta.negate());
+                optimisticLockStats.recordAttempt(!updated);
+                if (!updated) {
+                    connection.rollback();
+                    return false;
+                }
+                transactionDAO.createTransaction(connection, transaction);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        
+        applyCommittedChange(account, delta);
+        return true;
+    }
+    
+    /**
+     * Apply both sides of a transfer and its transaction record atomically, provided
+     * neither account changed since it was read. Rows are updated in account ID order
+     * so that opposing transfers cannot deadlock.
+     * @return true if committed, false if either account was changed concurrently
+     */
+    private boolean commitTransfer(Account fromAccount, Account toAccount, BigDecimal amount,
+                                   Transaction transaction) throws SQLException {
+        if (ledgerMode) {
+            Posting debit = new Posting(fromAccount.getAccountId(), amount.negate());
+            Posting credit = new Posting(toAccount.getAccountId(), amount);
+            if (!commitJournal(transaction, Arrays.asList(debit, credit))) {
+                return false;
+            }
+            fromAccount.setBalance(debit.getRunningBalance());
+            toAccount.setBalance(credit.getRunningBalance());
+            return true;
+        }
+        
+        boolean fromFirst = fromAccount.getAccountId() < toAccount.getAccountId();
+        
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                boolean updated = fromFirst
+                    ? accountDAO.debitBalance(connection, fromAccount, amount)
+                      && accountDAO.creditBalance(connection, toAccount, amount)
+                    : accountDAO.creditBalance(connection, toAccount, amount)
+                      && accountDAO.debitBalance(connection, fromAccount, amount);
+                optimisticLockStats.recordAttempt(!updated);
+                if (!updated) {
+                    connection.rollback();
+                    return false;
+                }
+                transactionDAO.createTransaction(connection, transaction);
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+        
+        applyCommittedChange(fromAccount, amount.negate());
+        applyCommittedChange(toAccount, amount);
+        return true;
+    }
+    
+    /**
+     * Reflect a committed change in the caller's copy of the account. Slotted
+     * accounts do not bump the version and may also have received concurrent credits.
+     */
+    private void applyCommittedChange(Account account, BigDecimal delta) {
+        account.setBalance(account.getBalance().add(delta));
+        if (!account.isSlotted()) {
+            account.setVersion(account.getVersion() + 1);
+        }
+    }
+    
+    // Bulk posting support
+    
+    /**
+     * Apply one bulk record to the running balances
+     * @return Reject reason, or null if applied
+     */
+    private String applyBulkPayment(BulkPayment payment, Map<String, Account> accounts,
+                                    Map<Integer, BigDecimal> balances) {
+        BigDecimal amount = payment.getAmount();
+        if (amount == null || amount.signum() <= 0) {
+            return "Amount must be positive";
+        }
+        
+        Account account = accounts.get(payment.getAccountNumber());
+        if (account == null) {
+            return "Account not found: " + payment.getAccountNumber();
+        }
+        if (!account.isActive()) {
+            return "Account is not active: " + payment.getAccountNumber();
+        }
+        
+        if (payment.getTransactionType() == Transaction.TransactionType.DEPOSIT) {
+            balances.put(account.getAccountId(), balances.get(account.getAccountId()).add(amount));
+            return null;
+        }
+        if (!payment.isTransfer()) {
+            return "Unsupported transaction type: " + payment.getTransactionType();
+        }
+        
+        Account toAccount = accounts.get(payment.getCounterpartyAccountNumber());
+        if (toAccount == null) {
+            return "Destination account not found: " + payment.getCounterpartyAccountNumber();
+        }
+        if (toAccount == account) {
+            return "Cannot transfer to the same account";
+        }
+        if (!toAccount.isActive()) {
+            return "Destination account is not active: " + payment.getCounterpartyAccountNumber();
+        }
+        
+        BigDecimal available = balances.get(account.getAccountId());
+        if (available.compareTo(amount) < 0) {
+            return "Insufficient balance in source account. Available: $" + available;
+        }
+        balances.put(account.getAccountId(), available.subtract(amount));
+        balances.put(toAccount.getAccountId(), balances.get(toAccount.getAccountId()).add(amount));
+        return null;
+    }
+    
+    private Transaction toBulkTransaction(BulkPayment payment, Map<String, Account> accounts) {
+        Account account = accounts.get(payment.getAccountNumber());
+        Transaction transaction;
+        if (!payment.isTransfer()) {
+            transaction = new Transaction(Transaction.TransactionType.DEPOSIT, account.getAccountId(), payment.getAmount(),
+                                          payment.getDescription() != null ? payment.getDescription() : "Cash deposit");
+        } else {
+            Account toAccount = accounts.get(payment.getCounterpartyAccountNumber());
+            transaction = new Transaction(Transaction.TransactionType.TRANSFER, account.getAccountId(),
+                                          toAccount.getAccountId(), payment.getAmount(),
+                                          payment.getDescription() != null ? payment.getDescription()
+                                          : "Transfer from " + account.getAccountNumber() + " to " + toAccount.getAccountNumber());
+        }
+        transaction.setIdempotencyKey(payment.getIdempotencyKey());
+        return transaction;
+    }
+    
+    /**
+     * Publish the transactions of a committed bulk batch and one balance change per touched account
+     */
+    private void publishBulkPosted(List<BulkPayment> posted, List<Transaction> transactions,
+                                   Map<String, Account> accounts) {
+        if (!eventBus.hasSubscribers()) {
+            return;
+        }
+        Set<Account> touched = new LinkedHashSet<>();
+        for (int i = 0; i < posted.size(); i++) {
+            BulkPayment payment = posted.get(i);
+            Transaction transaction = transactions.get(i);
+            Account fromAccount = payment.isTransfer() ? accounts.get(payment.getAccountNumber()) : null;
+            Account toAccount = accounts.get(payment.isTransfer()
+                ? payment.getCounterpartyAccountNumber() : payment.getAccountNumber());
+            eventBus.publish(new TransactionPosted(eventBus.nextSequence(), transaction.getTransactionType(),
+                fromAccount != null ? fromAccount.getAccountId() : null,
+                fromAccount != null ? fromAccount.getAccountNumber() : null,
+                toAccount.getAccountId(), toAccount.getAccountNumber(),
+                transaction.getAmount(), transaction.getDescription()));
+            if (fromAccount != null) {
+                touched.add(fromAccount);
+            }
+            touched.add(toAccount);
+        }
+        for (Account account : touched) {
+            eventBus.publish(new AccountBalanceChanged(eventBus.nextSequence(), account.getAccountId(),
+                                                       account.getAccountNumber(), account.getBalance(),
+                                                       account.getVersion()));
+        }
+    }
+    
+    // Event publishing support
+    
+    /**
+     * Get the bus on which committed balance changes and transactions are published
+     * @return Event bus
+     */
+    public EventBus getEventBus() {
+        return eventBus;
+    }
+    
+    /**
+     * Publish a committed money movement and the resulting balances
+     * @param fromAccount Debited account (null for deposits)
+     * @param toAccount Credited account (null for withdrawals)
+     */
+    private void publishPosted(Transaction.TransactionType type, Account fromAccount, Account toAccount,
+                               BigDecimal amount, String description) {
+        if (!eventBus.hasSubscribers()) {
+            return;
+        }
+        eventBus.publish(new TransactionPosted(eventBus.nextSequence(), type,
+            fromAccount != null ? fromAccount.getAccountId() : null,
+            fromAccount != null ? fromAccount.getAccountNumber() : null,
+            toAccount != null ? toAccount.getAccountId() : null,
+            toAccount != null ? toAccount.getAccountNumber() : null,
+            amount, description));
+        for (Account account : new Account[] {fromAccount, toAccount}) {
+            if (account != null) {
+                eventBus.publish(new AccountBalanceChanged(eventBus.nextSequence(), account.getAccountId(),
+                                                           account.getAccountNumber(), account.getBalance(),
+                                                           account.getVersion()));
+            }
+        }
+    }
+    
+    // Account locking support
+    
+    /**
+     * Get the ID of an account for lock striping
+     * @throws IllegalArgumentException if account not found
+     */
+    private int resolveAccountId(String accountNumber) throws SQLException {
+        Integer accountId = accountIds.get(accountNumber);
+        if (accountId == null) {
+            Account account = accountDAO.getAccountByNumber(accountNumber);
+            if (account == null) {
+                throw new IllegalArgumentException("Account not found: " + accountNumber);
+            }
+            accountId = account.getAccountId();
+            accountIds.put(accountNumber, accountId);
+        }
+        return accountId;
+    }
+    
+    // Partitioned execution support
+    
+    private PartitionedExecutor.CommandCallback accountCallback(final Account account,
+                                                                final CompletableFuture<Account> future) {
+        return (balanceCents, counterpartyBalanceCents, failure) -> {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                account.setBalance(BigDecimal.valueOf(balanceCents, 2));
+                future.complete(account);
+            }
+        };
+    }
+    
+    private TransferResult submitPartitionedTransfer(PartitionedExecutor partitioned, final Account fromAccount,
+                                                     final Account toAccount, final BigDecimal amount,
+                                                     String description, String idempotencyKey)
+                                                     throws SQLException {
+        final CompletableFuture<TransferResult> future = new CompletableFuture<>();
+        partitioned.transfer(fromAccount.getAccountId(), toAccount.getAccountId(), toCents(amount),
+                             description, idempotencyKey, (fromBalanceCents, toBalanceCents, failure) -> {
+            if (failure != null) {
+                future.completeExceptionally(failure);
+            } else {
+                fromAccount.setBalance(BigDecimal.valueOf(fromBalanceCents, 2));
+                toAccount.setBalance(BigDecimal.valueOf(toBalanceCents, 2));
+                future.complete(new TransferResult(fromAccount, toAccount, amount));
+            }
+        });
+        return awaitCommit(future);
+    }
+    
+    private long toCents(BigDecimal amount) {
+        try {
+            return amount.movePointRight(2).longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Amount must be in whole cents: " + amount);
+        }
+    }
+    
+    // Ledger mode support
+    
+    /**
+     * Read an account, taking its balance from the postings ledger in ledger mode
+     * @return Account or null if not found
+     */
+    private Account loadAccount(String accountNumber) throws SQLException {
+        Account account = accountDAO.getAccountByNumber(accountNumber);
+        if (account != null && ledgerMode) {
+            account.setBalance(ledgerDAO.getBalance(account.getAccountId()));
+        }
+        return account;
+    }
+    
+    /**
+     * Replace the accounts.balance values with ledger balances in ledger mode
+     * @return The same list
+     */
+    private List<Account> withLedgerBalances(List<Account> accounts) throws SQLException {
+        if (!ledgerMode || accounts.isEmpty()) {
+            return accounts;
+        }
+        List<Integer> accountIds = new ArrayList<>(accounts.size());
+        for (Account account : accounts) {
+            accountIds.add(account.getAccountId());
+        }
+        Map<Integer, BigDecimal> balances = ledgerDAO.getBalances(accountIds);
+        for (Account account : accounts) {
+            BigDecimal balance = balances.get(account.getAccountId());
+            if (balance != null) {
+                account.setBalance(balance);
+            }
+        }
+        return accounts;
+    }
+    
+    /**
+     * Insert a journal header and its postings in one database transaction.
+     * Only inserts are issued; no existing row is updated.
+     * @return true if committed, false if a balance no longer covers a debit or
+     *         a concurrent first posting collided (the caller re-reads and retries)
+     */
+    private boolean commitJournal(Transaction transaction, List<Posting> postings) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                transactionDAO.createTransaction(connection, transaction);
+                boolean posted = ledgerDAO.postJournal(connection, transaction.getTransactionId(), postings);
+                optimisticLockStats.recordAttempt(!posted);
+                if (!posted) {
+                    connection.rollback();
+                    return false;
+                }
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                if ("40001".equals(e.getSQLState())) {
+                    // Deadlock between two first postings to the same account
+                    optimisticLockStats.recordAttempt(true);
+                    return false;
+                }
+                throw e;
+            }
+        }
+    }
+    
+    /**
+     * Back off before re-reading an account after a version conflict, or give up
+     * once {@link #MAX_UPDATE_ATTEMPTS} attempts have conflicted
+     * @throws SQLException with SQLState 40001 when the attempts are exhausted
+     */
+    private void awaitRetry(String accountNumber, int attempt) throws SQLException {
+        if (attempt >= MAX_UPDATE_ATTEMPTS) {
+            optimisticLockStats.recordRetriesExhausted();
+            throw new SQLException("Account " + accountNumber + " is being updated concurrently, please retry",
+                                   "40001");
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(1 << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying update of account " + accountNumber, e);
+        }
+    }
+    
+    /**
+     * Wait for a group-committed or partitioned operation and rethrow its failure unwrapped.
+     * On timeout the operation may still commit later; retrying with the same
+     * idempotency key is safe.
+     */
+    private <T> T awaitCommit(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.get(COMMIT_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new SQLTimeoutException("Timed out after " + COMMIT_WAIT_SECONDS + "s waiting for commit");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Group commit failed", cause);
+        }
+    }
+    
+    // Idempotency support
+    
+    /**
+     * Run a money movement at most once per key. The in-memory cache answers
+     * most retries; the transactions table answers retries after eviction or restart.
+     */
+    private <T> T executeIdempotent(String idempotencyKey, Class<T> resultType, SqlOperation<T> operation,
+                                    SqlReplay<T> replay) throws SQLException {
+        if (idempotencyKey.trim().isEmpty() || idempotencyKey.length() > 64) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to 64 characters");
+        }
+        
+        Object cached = idempotencyCache.begin(idempotencyKey);
+        if (cached != null) {
+            if (!resultType.isInstance(cached)) {
+                throw new IllegalArgumentException("Idempotency key was already used for a different request: "
+                                                   + idempotencyKey);
+            }
+            return resultType.cast(cached);
+        }
+        
+        boolean completed = false;
+        try {
+            Transaction original = transactionDAO.getTransactionByIdempotencyKey(idempotencyKey);
+            T result = original != null ? replay.replay(original) : operation.execute();
+            idempotencyCache.complete(idempotencyKey, result);
+            completed = true;
+            return result;
+        } finally {
+            if (!completed) {
+                idempotencyCache.abandon(idempotencyKey);
+            }
+        }
+    }
+    
+    private Account replayAccountOperation(Transaction original, Transaction.TransactionType expectedType,
+                                           Integer accountId, String accountNumber, BigDecimal amount)
+                                           throws SQLException {
+        Account account = accountId != null ? accountDAO.getAccountById(accountId) : null;
+        if (original.getTransactionType() != expectedType
+                || original.getAmount().compareTo(amount) != 0
+                || account == null || !account.getAccountNumber().equals(accountNumber)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different request: "
+                                               + original.getIdempotencyKey());
+        }
+        return account;
+    }
+    
+    private TransferResult replayTransfer(Transaction original, String fromAccountNumber, String toAccountNumber,
+                                          BigDecimal amount) throws SQLException {
+        Account fromAccount = original.getFromAccountId() != null
+            ? accountDAO.getAccountById(original.getFromAccountId()) : null;
+        Account toAccount = original.getToAccountId() != null
+            ? accountDAO.getAccountById(original.getToAccountId()) : null;
+        if (!original.isTransfer()
+                || original.getAmount().compareTo(amount) != 0
+                || fromAccount == null || !fromAccount.getAccountNumber().equals(fromAccountNumber)
+                || toAccount == null || !toAccount.getAccountNumber().equals(toAccountNumber)) {
+            throw new IllegalArgumentException("Idempotency key was already used for a different request: "
+                                               + original.getIdempotencyKey());
+        }
+        return new TransferResult(fromAccount, toAccount, amount);
+    }
+    
+    // Admission control and instrumentation support
+    
+    private <T> T call(String timerName, AdmissionController.Operation operation, String accountNumber,
+                       SqlOperation<T> body) throws SQLException {
+        return call(timerName, operation, accountNumber, null, body);
+    }
+    
+    /**
+     * Run a public operation, under admission control if it is on and an
+     * admission operation is given, and time it. Validation failures and shed
+     * calls are recorded as rejections, database errors as errors. Deposits,
+     * withdrawals, transfers, PIN checks and history loads are also recorded
+     * as flight recorder events while a recording runs.
+     * @param timerName Timer to record the call in, service.&lt;method&gt;
+     * @param operation Admission operation type (null to bypass admission control)
+     * @param accountNumber Account the call is for (may be null)
+     * @param amount Amount moved, for the flight recorder event (may be null)
+     */
+    private <T> T call(String timerName, AdmissionController.Operation operation, String accountNumber,
+                       BigDecimal amount, SqlOperation<T> body) throws SQLException {
+        Timer timer = MetricsRegistry.timer(timerName);
+        Object event = FlightRecorderEvents.beginOperation(recordedOperation(operation));
+        long started = System.nanoTime();
+        try {
+            T result = operation != null ? admit(operation, accountNumber, body) : body.execute();
+            timer.record(System.nanoTime() - started);
+            if (event != null) {
+                FlightRecorderEvents.endOperation(event, accountNumber, amount,
+                    result instanceof List ? ((List<?>) result).size() : -1,
+                    Boolean.FALSE.equals(result) ? FlightRecorderEvents.OUTCOME_DENIED : FlightRecorderEvents.OUTCOME_OK);
+            }
+            return result;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            timer.recordRejected(System.nanoTime() - started);
+            FlightRecorderEvents.endOperation(event, accountNumber, amount, -1, FlightRecorderEvents.OUTCOME_REJECTED);
+            throw e;
+        } catch (SQLException | RuntimeException e) {
+            timer.recordError(System.nanoTime() - started);
+            FlightRecorderEvents.endOperation(event, accountNumber, amount, -1, FlightRecorderEvents.OUTCOME_ERROR);
+            throw e;
+        }
+    }
+    
+    private static FlightRecorderEvents.Operation recordedOperation(AdmissionController.Operation operation) {
+        if (operation == null) {
+            return null;
+        }
+        switch (operation) {
+            case DEPOSIT:
+                return FlightRecorderEvents.Operation.DEPOSIT;
+            case WITHDRAWAL:
+                return FlightRecorderEvents.Operation.WITHDRAWAL;
+            case TRANSFER:
+                return FlightRecorderEvents.Operation.TRANSFER;
+            case PIN_VERIFY:
+                return FlightRecorderEvents.Operation.PIN_VERIFY;
+            case HISTORY:
+                return FlightRecorderEvents.Operation.HISTORY_LOAD;
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Run a call under admission control, if it is on. Timeouts and connection
+     * failures count as overload; deadlocks, constraint violations and
+     * validation failures do not, since they say nothing about load.
+     */
+    private <T> T admit(AdmissionController.Operation operation, String accountNumber,
+                        SqlOperation<T> call) throws SQLException {
+        AdmissionController admission = admissionController;
+        if (admission == null) {
+            return call.execute();
+        }
+        AdmissionController.Permit permit = admission.acquire(operation, accountNumber);
+        boolean failed = false;
+        try {
+            return call.execute();
+        } catch (SQLException e) {
+            failed = CircuitBreaker.isOutage(e, QueryClass.TRANSACTIONAL);
+            throw e;
+        } finally {
+            permit.release(failed);
+        }
+    }
+    
+    private interface SqlOperation<T> {
+        T execute() throws SQLException;
+    }
+    
+    private interface SqlReplay<T> {
+        T replay(Transaction original) throws SQLException;
     }
     
     // Validation methods
@@ -0,0 +1,356 @@
+package com.banking.service;
+
+import com.banking.dao.AccountDAO;
+import com.banking.dao.TransactionDAO;
+import com.banking.model.Account;
+import com.banking.model.Transaction;
+import com.banking.util.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Group-commit executor for deposits and withdrawals.
+ *
+ * Operations submitted by concurrent callers are collected for up to
+ * {@code maxWaitMicros} (or until {@code maxBatchSize} operations are queued)
+ * and applied in a single database transaction, so the whole batch pays for
+ * one commit. Each operation runs under its own savepoint: a failed validation
+ * rolls back only that operation. A deadlock or serialization failure (SQLState
+ * 40001) rolls back the whole transaction, so the batch is run again in a new
+ * one. Callers' futures complete after the commit.
+ *
+ * Larger batches and longer waits raise throughput at the cost of latency;
+ * {@link #getBatchSizeDistribution()} shows what the current settings achieve.
+ */
+public class GroupCommitExecutor {
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    public static final long DEFAULT_MAX_WAIT_MICROS = 2000;
+
+    // Bucket i counts batches with size in [2^i, 2^(i+1))
+    private static final int HISTOGRAM_BUCKETS = 16;
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+
+    private final AccountDAO accountDAO;
+    private final TransactionDAO transactionDAO;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Operation> queue = new LinkedBlockingQueue<>();
+    private final AtomicLongArray batchSizeHistogram = new AtomicLongArray(HISTOGRAM_BUCKETS);
+    private final Thread committer;
+    private volatile boolean running;
+    private volatile long committedBatches;
+    private volatile long committedOperations;
+
+    public GroupCommitExecutor(AccountDAO accountDAO, TransactionDAO transactionDAO) {
+        this(accountDAO, transactionDAO, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_WAIT_MICROS);
+    }
+
+    public GroupCommitExecutor(AccountDAO accountDAO, TransactionDAO transactionDAO,
+                               int maxBatchSize, long maxWaitMicros) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (maxWaitMicros < 0) {
+            throw new IllegalArgumentException("Wait time must not be negative");
+        }
+        this.accountDAO = accountDAO;
+        this.transactionDAO = transactionDAO;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = TimeUnit.MICROSECONDS.toNanos(maxWaitMicros);
+        this.committer = new Thread(this::runCommitLoop, "group-commit");
+        this.committer.setDaemon(true);
+    }
+
+    /**
+     * Start the committer thread
+     */
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            committer.start();
+        }
+    }
+
+    /**
+     * Stop accepting operations, commit what is queued and stop the committer thread
+     */
+    public void shutdown() throws InterruptedException {
+        running = false;
+        committer.interrupt();
+        committer.join();
+
+        // Operations that raced with shutdown
+        List<Operation> rejected = new ArrayList<>();
+        queue.drainTo(rejected);
+        for (Operation operation : rejected) {
+            operation.future.completeExceptionally(new IllegalStateException("Group commit executor is shut down"));
+        }
+    }
+
+    /**
+     * Queue a deposit
+     * @param accountNumber Account number
+     * @param amount Amount to deposit
+     * @param description Transaction description
+     * @param idempotencyKey Idempotency key to store with the transaction (may be null)
+     * @return Future completed with the updated account once the batch commits
+     */
+    public CompletableFuture<Account> deposit(String accountNumber, BigDecimal amount, String description,
+                                              String idempotencyKey) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Deposit amount must be positive");
+        }
+        return submit(new Operation(Transaction.TransactionType.DEPOSIT, accountNumber, amount,
+                                    description != null ? description : "Cash deposit", idempotencyKey));
+    }
+
+    /**
+     * Queue a withdrawal
+     * @param accountNumber Account number
+     * @param amount Amount to withdraw
+     * @param description Transaction description
+     * @param idempotencyKey Idempotency key to store with the transaction (may be null)
+     * @return Future completed with the updated account once the batch commits
+     */
+    public CompletableFuture<Account> withdraw(String accountNumber, BigDecimal amount, String description,
+                                               String idempotencyKey) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new IllegalArgumentException("Withdrawal amount must be positive");
+        }
+        return submit(new Operation(Transaction.TransactionType.WITHDRAWAL, accountNumber, amount,
+                                    description != null ? description : "Cash withdrawal", idempotencyKey));
+    }
+
+    private CompletableFuture<Account> submit(Operation operation) {
+        if (!running) {
+            throw new IllegalStateException("Group commit executor is not running");
+        }
+        queue.add(operation);
+        // Shutdown may have drained the queue between the check and the add; if the
+        // operation is still queued nobody else will complete it
+        if (!running && queue.remove(operation)) {
+            throw new IllegalStateException("Group commit executor is not running");
+        }
+        return operation.future;
+    }
+
+    /**
+     * Get the batch size distribution
+     * @return Array where element i is the number of committed batches whose size was in [2^i, 2^(i+1))
+     */
+    public long[] getBatchSizeDistribution() {
+        long[] distribution = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            distribution[i] = batchSizeHistogram.get(i);
+        }
+        return distribution;
+    }
+
+    public long getCommittedBatches() {
+        return committedBatches;
+    }
+
+    public long getCommittedOperations() {
+        return committedOperations;
+    }
+
+    public double getAverageBatchSize() {
+        long batches = committedBatches;
+        return batches == 0 ? 0.0 : (double) committedOperations / batches;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxWaitMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxWaitNanos);
+    }
+
+    private void runCommitLoop() {
+        List<Operation> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                // Shutdown requested: flush whatever is already queued
+                queue.drainTo(batch, maxBatchSize - batch.size());
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    commitBatch(batch);
+                } catch (RuntimeException e) {
+                    // Keep the committer alive; futures that already completed keep their result
+                    for (Operation operation : batch) {
+                        operation.future.completeExceptionally(e);
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void collectBatch(List<Operation> batch) throws InterruptedException {
+        Operation first = queue.take();
+        batch.add(first);
+        long deadline = System.nanoTime() + maxWaitNanos;
+
+        while (batch.size() < maxBatchSize) {
+            queue.drainTo(batch, maxBatchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatchSize || remaining <= 0) {
+                break;
+            }
+            Operation next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void commitBatch(List<Operation> batch) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                applyBatch(batch);
+                break;
+            } catch (SQLException e) {
+                // Deadlock victim: the whole transaction was rolled back, so run every operation again
+                if (!isTransactionRolledBack(e) || attempt >= MAX_BATCH_ATTEMPTS) {
+                    for (Operation operation : batch) {
+                        operation.future.completeExceptionally(e);
+                    }
+                    return;
+                }
+            }
+        }
+
+        recordBatch(batch.size());
+        for (Operation operation : batch) {
+            if (operation.failure != null) {
+                operation.future.completeExceptionally(operation.failure);
+            } else {
+                operation.future.complete(operation.result);
+            }
+        }
+    }
+
+    private void applyBatch(List<Operation> batch) throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                for (Operation operation : batch) {
+                    operation.result = null;
+                    operation.failure = null;
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        operation.result = apply(connection, operation);
+                        connection.releaseSavepoint(savepoint);
+                    } catch (SQLException e) {
+                        if (isTransactionRolledBack(e)) {
+                            // The savepoint is gone with the transaction; rolling back to it would throw
+                            throw e;
+                        }
+                        connection.rollback(savepoint);
+                        operation.failure = e;
+                    } catch (RuntimeException e) {
+                        connection.rollback(savepoint);
+                        operation.failure = e;
+                    }
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static boolean isTransactionRolledBack(SQLException e) {
+        return "40001".equals(e.getSQLState());
+    }
+
+    private Account apply(Connection connection, Operation operation) throws SQLException {
+        Account account = accountDAO.getAccountByNumberForUpdate(connection, operation.accountNumber);
+        if (account == null) {
+            throw new IllegalArgumentException("Account not found: " + operation.accountNumber);
+        }
+
+        if (!account.isActive()) {
+            throw new IllegalArgumentException("Account is not active: " + operation.accountNumber);
+        }
+
+        // The row lock taken above means neither call can hit a version conflict
+        if (operation.type == Transaction.TransactionType.DEPOSIT) {
+            accountDAO.creditBalance(connection, account, operation.amount);
+            account.setBalance(account.getBalance().add(operation.amount));
+            bumpVersion(account);
+        } else {
+            if (account.getBalance().compareTo(operation.amount) < 0
+                    || !accountDAO.debitBalance(connection, account, operation.amount)) {
+                throw new IllegalArgumentException("Insufficient balance. Available: $" + account.getBalance());
+            }
+            account.setBalance(account.getBalance().subtract(operation.amount));
+            bumpVersion(account);
+        }
+
+        Transaction transaction = new Transaction(operation.type, account.getAccountId(),
+                                                  operation.amount, operation.description);
+        transaction.setIdempotencyKey(operation.idempotencyKey);
+        transactionDAO.createTransaction(connection, transaction);
+
+        return account;
+    }
+
+    private static void bumpVersion(Account account) {
+        // Slotted accounts keep their version; the database bumps it for the others
+        if (!account.isSlotted()) {
+            account.setVersion(account.getVersion() + 1);
+        }
+    }
+
+    private void recordBatch(int size) {
+        int bucket = Math.min(31 - Integer.numberOfLeadingZeros(size), HISTOGRAM_BUCKETS - 1);
+        batchSizeHistogram.incrementAndGet(bucket);
+        // Only the committer thread writes these
+        committedBatches = committedBatches + 1;
+        committedOperations = committedOperations + size;
+    }
+
+    /**
+     * A queued deposit or withdrawal
+     */
+    private static class Operation {
+        private final Transaction.TransactionType type;
+        private final String accountNumber;
+        private final BigDecimal amount;
+        private final String description;
+        private final String idempotencyKey;
+        private final CompletableFuture<Account> future = new CompletableFuture<>();
+        private Account result;
+        private Exception failure;
+
+        Operation(Transaction.TransactionType type, String accountNumber, BigDecimal amount,
+                  String description, String idempotencyKey) {
+            this.type = type;
+            this.accountNumber = accountNumber;
+            this.amount = amount;
+            this.description = description;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.banking.service;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Bounded in-memory cache of results for idempotent money movements.
+ *
+ * Sits in front of the persistent idempotency_key lookup so that a client
+ * retrying a request costs a map lookup instead of a database round trip.
+ * The least recently used results are evicted once the cache is full; an
+ * evicted key is still protected by the unique key on the transactions table.
+ */
+public class IdempotencyCache {
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+    
+    private final Map<String, Object> results;
+    private final Set<String> inFlight = new HashSet<>();
+    private long hits;
+    private long misses;
+    
+    public IdempotencyCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+    
+    public IdempotencyCache(final int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.results = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+    
+    /**
+     * Start processing a request with the given key
+     * @param key Idempotency key
+     * @return Cached result of an earlier request with this key, or null if the caller
+     *         should execute the request and then call {@link #complete} or {@link #abandon}
+     * @throws RequestInProgressException if a request with the same key is still executing
+     */
+    public synchronized Object begin(String key) {
+        Object result = results.get(key);
+        if (result != null) {
+            hits++;
+            return result;
+        }
+        if (!inFlight.add(key)) {
+            throw new RequestInProgressException(key);
+        }
+        misses++;
+        return null;
+    }
+    
+    /**
+     * Record the result of a request started with {@link #begin}
+     * @param key Idempotency key
+     * @param result Result to return to retries
+     */
+    public synchronized void complete(String key, Object result) {
+        inFlight.remove(key);
+        results.put(key, result);
+    }
+    
+    /**
+     * Release a key whose request failed so that it can be retried
+     * @param key Idempotency key
+     */
+    public synchronized void abandon(String key) {
+        inFlight.remove(key);
+    }
+    
+    public synchronized int size() {
+        return results.size();
+    }
+    
+    public synchronized long getHits() {
+        return hits;
+    }
+    
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
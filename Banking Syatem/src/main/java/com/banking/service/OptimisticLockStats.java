@@ -0,0 +1,61 @@
+package com.banking.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for optimistic (version-checked) account updates
+ */
+public class OptimisticLockStats {
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retriesExhausted = new LongAdder();
+    
+    /**
+     * Record one compare-and-set attempt
+     * @param conflicted true if the account had changed since it was read
+     */
+    public void recordAttempt(boolean conflicted) {
+        attempts.increment();
+        if (conflicted) {
+            conflicts.increment();
+        }
+    }
+    
+    /**
+     * Record an operation that gave up after the maximum number of attempts
+     */
+    public void recordRetriesExhausted() {
+        retriesExhausted.increment();
+    }
+    
+    public long getAttempts() {
+        return attempts.sum();
+    }
+    
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+    
+    public long getRetriesExhausted() {
+        return retriesExhausted.sum();
+    }
+    
+    /**
+     * Get the fraction of attempts that hit a concurrent update
+     * @return Conflict rate between 0 and 1
+     */
+    public double getConflictRate() {
+        long total = attempts.sum();
+        return total == 0 ? 0.0 : (double) conflicts.sum() / total;
+    }
+    
+    @Override
+    public String toString() {
+        return "OptimisticLockStats{" +
+                "attempts=" + getAttempts() +
+                ", conflicts=" + getConflicts() +
+                ", retriesExhausted=" + getRetriesExhausted() +
+                ", conflictRate=" + String.format("%.4f", getConflictRate()) +
+                '}';
+    }
+}
@@ -0,0 +1,27 @@
+package com.banking.service;
+
+/**
+ * Thrown when admission control sheds a call instead of letting it queue.
+ * Nothing was executed, so the call can be retried after the suggested delay.
+ */
+public class OverloadedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+    
+    private final AdmissionController.Operation operation;
+    private final long retryAfterMillis;
+    
+    public OverloadedException(AdmissionController.Operation operation, long retryAfterMillis) {
+        super("System busy, retry " + operation.name().toLowerCase().replace('_', ' ')
+              + " in " + retryAfterMillis + " ms");
+        this.operation = operation;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+    
+    public AdmissionController.Operation getOperation() {
+        return operation;
+    }
+    
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
@@ -0,0 +1,733 @@
+package com.banking.service;
+
+import com.banking.dao.AccountDAO;
+import com.banking.dao.TransactionDAO;
+import com.banking.model.Account;
+import com.banking.model.Transaction;
+import com.banking.util.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer execution model for deposits, withdrawals and transfers.
+ *
+ * Accounts are split into partitions by account ID. Each partition is owned by
+ * one thread that consumes commands from a pre-allocated ring buffer and keeps
+ * the balances of its accounts in memory, so balance checks and updates take no
+ * locks and the command path allocates nothing. Every drained run of commands
+ * is persisted in one database transaction before its callbacks fire.
+ *
+ * A transfer between two partitions runs as two commands: the source partition
+ * debits and records the transfer, then hands a credit command to the
+ * destination partition.
+ *
+ * While the executor runs it must be the only writer of account balances:
+ * a balance is read from the database once and then only kept in memory.
+ */
+public class PartitionedExecutor {
+    public static final int DEFAULT_PARTITIONS = 4;
+    public static final int DEFAULT_RING_SIZE = 1024;
+    
+    // Largest run of commands persisted in one database transaction
+    private static final int MAX_BATCH_SIZE = 256;
+    
+    // Idle owner threads spin this many times before parking
+    private static final int SPIN_TRIES = 200;
+    private static final long PARK_NANOS = 50_000;
+    
+    // Executors started and not yet shut down in this JVM
+    private static final AtomicInteger RUNNING_EXECUTORS = new AtomicInteger();
+    
+    /**
+     * Receives the outcome of a command, on the thread of the partition that completed it
+     */
+    public interface CommandCallback {
+        /**
+         * @param balanceCents Balance of the account (the source account for transfers) after the command
+         * @param counterpartyBalanceCents Balance of the destination account for transfers, otherwise 0
+         * @param failure null on success, otherwise why the command was rejected or not persisted
+         */
+        void onComplete(long balanceCents, long counterpartyBalanceCents, Exception failure);
+    }
+    
+    private enum CommandType { DEPOSIT, WITHDRAWAL, TRANSFER_DEBIT, TRANSFER_CREDIT }
+    
+    private final AccountDAO accountDAO;
+    private final TransactionDAO transactionDAO;
+    private final Partition[] partitions;
+    private final int partitionMask;
+    private volatile boolean accepting;
+    private volatile boolean running;
+    private volatile long startedAtNanos;
+    
+    public PartitionedExecutor(AccountDAO accountDAO, TransactionDAO transactionDAO) {
+        this(accountDAO, transactionDAO, DEFAULT_PARTITIONS, DEFAULT_RING_SIZE);
+    }
+    
+    /**
+     * @param partitionCount Number of partitions (owner threads), a power of two
+     * @param ringSize Commands buffered per partition, a power of two
+     */
+    public PartitionedExecutor(AccountDAO accountDAO, TransactionDAO transactionDAO,
+                               int partitionCount, int ringSize) {
+        if (partitionCount <= 0 || Integer.bitCount(partitionCount) != 1) {
+            throw new IllegalArgumentException("Partition count must be a power of two");
+        }
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two");
+        }
+        this.accountDAO = accountDAO;
+        this.transactionDAO = transactionDAO;
+        this.partitionMask = partitionCount - 1;
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i, ringSize);
+        }
+    }
+    
+    /**
+     * Check whether any executor in this JVM currently owns account balances
+     * @return true if an executor has been started and not shut down
+     */
+    public static boolean isAnyRunning() {
+        return RUNNING_EXECUTORS.get() > 0;
+    }
+    
+    /**
+     * Start the partition owner threads
+     */
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            RUNNING_EXECUTORS.incrementAndGet();
+            accepting = true;
+            startedAtNanos = System.nanoTime();
+            for (Partition partition : partitions) {
+                partition.thread.start();
+            }
+        }
+    }
+    
+    /**
+     * Stop accepting commands, finish the queued ones and stop the owner threads
+     */
+    public void shutdown() throws InterruptedException {
+        accepting = false;
+        // Wait for queued commands, including transfer credits still moving between partitions
+        while (!isDrained()) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+        synchronized (this) {
+            if (running) {
+                running = false;
+                RUNNING_EXECUTORS.decrementAndGet();
+            }
+        }
+        for (Partition partition : partitions) {
+            LockSupport.unpark(partition.thread);
+        }
+        for (Partition partition : partitions) {
+            partition.thread.join();
+        }
+    }
+    
+    /**
+     * Queue a deposit
+     * @param accountId Account ID
+     * @param amountCents Amount in cents
+     * @param description Transaction description
+     * @param idempotencyKey Idempotency key to store with the transaction (may be null)
+     * @param callback Receives the outcome once persisted
+     */
+    public void deposit(int accountId, long amountCents, String description, String idempotencyKey,
+                        CommandCallback callback) {
+        submit(CommandType.DEPOSIT, accountId, 0, amountCents, description, idempotencyKey, callback);
+    }
+    
+    /**
+     * Queue a withdrawal
+     * @param accountId Account ID
+     * @param amountCents Amount in cents
+     * @param description Transaction description
+     * @param idempotencyKey Idempotency key to store with the transaction (may be null)
+     * @param callback Receives the outcome once persisted
+     */
+    public void withdraw(int accountId, long amountCents, String description, String idempotencyKey,
+                         CommandCallback callback) {
+        submit(CommandType.WITHDRAWAL, accountId, 0, amountCents, description, idempotencyKey, callback);
+    }
+    
+    /**
+     * Queue a transfer
+     * @param fromAccountId Source account ID
+     * @param toAccountId Destination account ID
+     * @param amountCents Amount in cents
+     * @param description Transaction description
+     * @param idempotencyKey Idempotency key to store with the transaction (may be null)
+     * @param callback Receives the outcome once the destination has been credited
+     */
+    public void transfer(int fromAccountId, int toAccountId, long amountCents, String description,
+                         String idempotencyKey, CommandCallback callback) {
+        submit(CommandType.TRANSFER_DEBIT, fromAccountId, toAccountId, amountCents, description,
+               idempotencyKey, callback);
+    }
+    
+    private boolean isDrained() {
+        for (Partition partition : partitions) {
+            if (partition.ring.depth() > 0 || partition.pendingCreditCount > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private void submit(CommandType type, int accountId, int counterpartyId, long amountCents,
+                        String description, String idempotencyKey, CommandCallback callback) {
+        if (!accepting) {
+            throw new IllegalStateException("Partitioned executor is not running");
+        }
+        if (amountCents <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        CommandRing ring = partitionOf(accountId).ring;
+        long sequence = ring.claim();
+        ring.get(sequence).set(type, accountId, counterpartyId, amountCents, description, idempotencyKey,
+                               callback, 0);
+        ring.publish(sequence);
+    }
+    
+    private Partition partitionOf(int accountId) {
+        // Spread sequential IDs before masking
+        int hash = accountId * 0x9E3779B9;
+        return partitions[(hash ^ (hash >>> 16)) & partitionMask];
+    }
+    
+    public int getPartitionCount() {
+        return partitions.length;
+    }
+    
+    /**
+     * Get the number of queued commands per partition
+     * @return Array where element i is the queue depth of partition i
+     */
+    public long[] getQueueDepths() {
+        long[] depths = new long[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            depths[i] = partitions[i].ring.depth();
+        }
+        return depths;
+    }
+    
+    /**
+     * Get the number of commands completed per partition
+     * @return Array where element i is the count for partition i
+     */
+    public long[] getProcessedCounts() {
+        long[] counts = new long[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            counts[i] = partitions[i].processed;
+        }
+        return counts;
+    }
+    
+    public long getProcessedCommands() {
+        long total = 0;
+        for (Partition partition : partitions) {
+            total += partition.processed;
+        }
+        return total;
+    }
+    
+    public long getCommittedBatches() {
+        long total = 0;
+        for (Partition partition : partitions) {
+            total += partition.committedBatches;
+        }
+        return total;
+    }
+    
+    /**
+     * Get the average number of commands completed per second since start
+     * @return Commands per second
+     */
+    public double getThroughputPerSecond() {
+        if (!running) {
+            return 0.0;
+        }
+        long elapsed = System.nanoTime() - startedAtNanos;
+        return elapsed <= 0 ? 0.0 : getProcessedCommands() * 1e9 / elapsed;
+    }
+    
+    /**
+     * One account partition: its ring, its balances and the thread that owns both
+     */
+    private final class Partition implements Runnable {
+        private final CommandRing ring;
+        private final BalanceTable balances = new BalanceTable();
+        private final Thread thread;
+        // Credits for other partitions whose ring was full
+        private final ArrayDeque<Command> pendingCredits = new ArrayDeque<>();
+        private volatile int pendingCreditCount;
+        private volatile long processed;
+        private volatile long committedBatches;
+        
+        Partition(int index, int ringSize) {
+            this.ring = new CommandRing(ringSize);
+            this.thread = new Thread(this, "partition-" + index);
+            this.thread.setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            long next = 0;
+            int idle = 0;
+            while (running) {
+                handOffPendingCredits();
+                
+                long last = ring.availableUpTo(next, MAX_BATCH_SIZE);
+                if (last < next) {
+                    if (++idle > SPIN_TRIES) {
+                        LockSupport.parkNanos(PARK_NANOS);
+                    } else {
+                        Thread.yield();
+                    }
+                    continue;
+                }
+                idle = 0;
+                
+                for (long sequence = next; sequence <= last; sequence++) {
+                    apply(ring.get(sequence));
+                }
+                persist(next, last);
+                for (long sequence = next; sequence <= last; sequence++) {
+                    complete(ring.get(sequence));
+                }
+                ring.release(last);
+                processed = processed + (last - next + 1);
+                next = last + 1;
+            }
+        }
+        
+        private void apply(Command command) {
+            command.failure = null;
+            int slot = balanceSlot(command, command.accountId);
+            if (slot < 0) {
+                if (command.type == CommandType.TRANSFER_CREDIT && command.failure instanceof SQLException) {
+                    // The debit is already committed, so the credit must be retried
+                    retryCredit(command);
+                }
+                return;
+            }
+            
+            switch (command.type) {
+                case DEPOSIT:
+                    command.balanceCents = balances.add(slot, command.amountCents);
+                    break;
+                case WITHDRAWAL:
+                    if (balances.get(slot) < command.amountCents) {
+                        command.failure = insufficientBalance("Insufficient balance. Available: $",
+                                                              balances.get(slot));
+                        return;
+                    }
+                    command.balanceCents = balances.add(slot, -command.amountCents);
+                    break;
+                case TRANSFER_DEBIT:
+                    if (balances.get(slot) < command.amountCents) {
+                        command.failure = insufficientBalance("Insufficient balance in source account. Available: $",
+                                                              balances.get(slot));
+                        return;
+                    }
+                    int counterpartySlot = -1;
+                    if (partitionOf(command.counterpartyId) == this) {
+                        counterpartySlot = balanceSlot(command, command.counterpartyId);
+                        if (counterpartySlot < 0) {
+                            return;
+                        }
+                        // Loading the counterparty may have grown the table and moved the source
+                        slot = balances.find(command.accountId);
+                    }
+                    command.balanceCents = balances.add(slot, -command.amountCents);
+                    if (counterpartySlot >= 0) {
+                        command.counterpartyBalanceCents = balances.add(counterpartySlot, command.amountCents);
+                    }
+                    break;
+                case TRANSFER_CREDIT:
+                    command.counterpartyBalanceCents = balances.add(slot, command.amountCents);
+                    break;
+            }
+        }
+        
+        private int balanceSlot(Command command, int accountId) {
+            int slot = balances.find(accountId);
+            if (slot >= 0) {
+                return slot;
+            }
+            try {
+                Account account = accountDAO.getAccountById(accountId);
+                if (account == null) {
+                    command.failure = new IllegalArgumentException("Account not found: " + accountId);
+                    return -1;
+                }
+                return balances.insert(accountId, account.getBalance().movePointRight(2).longValueExact());
+            } catch (SQLException e) {
+                command.failure = e;
+                return -1;
+            }
+        }
+        
+        private void persist(long first, long last) {
+            if (balances.dirtyCount() == 0) {
+                return;
+            }
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    for (int i = 0; i < balances.dirtyCount(); i++) {
+                        int slot = balances.dirtySlot(i);
+                        accountDAO.updateBalance(connection, balances.accountId(slot),
+                                                 BigDecimal.valueOf(balances.get(slot), 2));
+                    }
+                    for (long sequence = first; sequence <= last; sequence++) {
+                        Command command = ring.get(sequence);
+                        if (command.failure == null && command.type != CommandType.TRANSFER_CREDIT) {
+                            transactionDAO.createTransaction(connection, command.toTransaction());
+                        }
+                    }
+                    connection.commit();
+                } catch (SQLException e) {
+                    connection.rollback();
+                    throw e;
+                }
+                balances.clearDirty();
+                committedBatches = committedBatches + 1;
+            } catch (SQLException e) {
+                // In-memory balances no longer match the database: reload on next use
+                balances.clear();
+                for (long sequence = first; sequence <= last; sequence++) {
+                    Command command = ring.get(sequence);
+                    if (command.failure == null && command.type == CommandType.TRANSFER_CREDIT) {
+                        // The debit is already committed, so the credit must be retried
+                        retryCredit(command);
+                    } else if (command.failure == null) {
+                        command.failure = e;
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Queue a credit again and retire its ring slot without completing it
+         */
+        private void retryCredit(Command credit) {
+            pendingCredits.add(credit.copy());
+            pendingCreditCount = pendingCredits.size();
+            credit.type = null;
+        }
+        
+        private void complete(Command command) {
+            if (command.type == null) {
+                return;
+            }
+            if (command.failure == null && command.type == CommandType.TRANSFER_DEBIT
+                    && partitionOf(command.counterpartyId) != this) {
+                handOffCredit(command);
+                return;
+            }
+            try {
+                command.callback.onComplete(command.balanceCents, command.counterpartyBalanceCents, command.failure);
+            } catch (RuntimeException e) {
+                // A failing callback must not stop the partition
+            }
+        }
+        
+        private void handOffCredit(Command debit) {
+            Partition target = partitionOf(debit.counterpartyId);
+            long sequence = target.ring.tryClaim();
+            if (sequence < 0) {
+                // Never block on another partition's ring: two full rings would deadlock
+                Command credit = debit.copy();
+                credit.type = CommandType.TRANSFER_CREDIT;
+                pendingCredits.add(credit);
+                pendingCreditCount = pendingCredits.size();
+                return;
+            }
+            target.ring.get(sequence).set(CommandType.TRANSFER_CREDIT, debit.counterpartyId, debit.accountId,
+                                          debit.amountCents, debit.description, debit.idempotencyKey,
+                                          debit.callback, debit.balanceCents);
+            target.ring.publish(sequence);
+        }
+        
+        private void handOffPendingCredits() {
+            while (!pendingCredits.isEmpty()) {
+                Command credit = pendingCredits.peek();
+                CommandRing targetRing = partitionOf(credit.accountId).ring;
+                long sequence = targetRing.tryClaim();
+                if (sequence < 0) {
+                    return;
+                }
+                pendingCredits.poll();
+                pendingCreditCount = pendingCredits.size();
+                targetRing.get(sequence).set(CommandType.TRANSFER_CREDIT, credit.accountId, credit.counterpartyId,
+                                             credit.amountCents, credit.description, credit.idempotencyKey,
+                                             credit.callback, credit.balanceCents);
+                targetRing.publish(sequence);
+            }
+        }
+    }
+    
+    private static IllegalArgumentException insufficientBalance(String message, long availableCents) {
+        return new IllegalArgumentException(message + BigDecimal.valueOf(availableCents, 2));
+    }
+    
+    /**
+     * A ring slot. Slots are reused, so a command is only valid until its partition releases it.
+     */
+    private static final class Command {
+        private CommandType type;
+        private int accountId;
+        private int counterpartyId;
+        private long amountCents;
+        private String description;
+        private String idempotencyKey;
+        private CommandCallback callback;
+        private long balanceCents;
+        private long counterpartyBalanceCents;
+        private Exception failure;
+        
+        void set(CommandType type, int accountId, int counterpartyId, long amountCents, String description,
+                 String idempotencyKey, CommandCallback callback, long balanceCents) {
+            this.type = type;
+            this.accountId = accountId;
+            this.counterpartyId = counterpartyId;
+            this.amountCents = amountCents;
+            this.description = description;
+            this.idempotencyKey = idempotencyKey;
+            this.callback = callback;
+            this.balanceCents = balanceCents;
+            this.counterpartyBalanceCents = 0;
+            this.failure = null;
+        }
+        
+        Command copy() {
+            Command copy = new Command();
+            copy.set(type, accountId, counterpartyId, amountCents, description, idempotencyKey, callback,
+                     balanceCents);
+            return copy;
+        }
+        
+        Transaction toTransaction() {
+            BigDecimal amount = BigDecimal.valueOf(amountCents, 2);
+            Transaction transaction;
+            if (type == CommandType.TRANSFER_DEBIT) {
+                transaction = new Transaction(Transaction.TransactionType.TRANSFER, accountId, counterpartyId,
+                                              amount, description);
+            } else {
+                Transaction.TransactionType transactionType = type == CommandType.DEPOSIT
+                    ? Transaction.TransactionType.DEPOSIT : Transaction.TransactionType.WITHDRAWAL;
+                transaction = new Transaction(transactionType, accountId, amount, description);
+            }
+            transaction.setIdempotencyKey(idempotencyKey);
+            return transaction;
+        }
+    }
+    
+    /**
+     * Multi-producer, single-consumer ring of pre-allocated commands.
+     * Producers claim a sequence, fill the slot and publish it; the owner thread
+     * releases slots once their commands have completed.
+     */
+    private static final class CommandRing {
+        private final Command[] slots;
+        private final int mask;
+        private final AtomicLong claimed = new AtomicLong(-1);
+        private final AtomicLongArray published;
+        private volatile long released = -1;
+        
+        CommandRing(int size) {
+            this.slots = new Command[size];
+            this.mask = size - 1;
+            this.published = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                slots[i] = new Command();
+                published.set(i, -1);
+            }
+        }
+        
+        /**
+         * Claim the next sequence, waiting while the ring is full
+         */
+        long claim() {
+            long sequence;
+            while ((sequence = tryClaim()) < 0) {
+                LockSupport.parkNanos(PARK_NANOS);
+            }
+            return sequence;
+        }
+        
+        /**
+         * Claim the next sequence
+         * @return The sequence, or -1 if the ring is full
+         */
+        long tryClaim() {
+            while (true) {
+                long current = claimed.get();
+                long next = current + 1;
+                if (next - released > slots.length) {
+                    return -1;
+                }
+                if (claimed.compareAndSet(current, next)) {
+                    return next;
+                }
+            }
+        }
+        
+        Command get(long sequence) {
+            return slots[(int) sequence & mask];
+        }
+        
+        void publish(long sequence) {
+            published.set((int) sequence & mask, sequence);
+        }
+        
+        /**
+         * Find the end of the contiguous run of published commands starting at {@code first}
+         * @return Last published sequence of the run, or first - 1 if none is published
+         */
+        long availableUpTo(long first, int maxCount) {
+            long last = first - 1;
+            long limit = first + maxCount;
+            while (last + 1 < limit && published.get((int) (last + 1) & mask) == last + 1) {
+                last++;
+            }
+            return last;
+        }
+        
+        void release(long sequence) {
+            released = sequence;
+        }
+        
+        long depth() {
+            return claimed.get() - released;
+        }
+    }
+    
+    /**
+     * Open-addressing map from account ID to balance in cents, with a list of
+     * entries changed since the last commit. Only the owner thread touches it.
+     */
+    private static final class BalanceTable {
+        private static final int EMPTY = Integer.MIN_VALUE;
+        
+        private int[] keys = newKeys(64);
+        private long[] values = new long[64];
+        private boolean[] dirty = new boolean[64];
+        private int[] dirtySlots = new int[64];
+        private int dirtyCount;
+        private int size;
+        
+        private static int[] newKeys(int capacity) {
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+        
+        int find(int accountId) {
+            int mask = keys.length - 1;
+            for (int slot = (accountId * 0x9E3779B9) >>> 16 & mask; ; slot = (slot + 1) & mask) {
+                if (keys[slot] == accountId) {
+                    return slot;
+                }
+                if (keys[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+        
+        int insert(int accountId, long balance) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int slot = (accountId * 0x9E3779B9) >>> 16 & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = accountId;
+            values[slot] = balance;
+            size++;
+            return slot;
+        }
+        
+        long get(int slot) {
+            return values[slot];
+        }
+        
+        int accountId(int slot) {
+            return keys[slot];
+        }
+        
+        long add(int slot, long delta) {
+            values[slot] += delta;
+            if (!dirty[slot]) {
+                dirty[slot] = true;
+                if (dirtyCount == dirtySlots.length) {
+                    dirtySlots = Arrays.copyOf(dirtySlots, dirtyCount * 2);
+                }
+                dirtySlots[dirtyCount++] = slot;
+            }
+            return values[slot];
+        }
+        
+        int dirtyCount() {
+            return dirtyCount;
+        }
+        
+        int dirtySlot(int index) {
+            return dirtySlots[index];
+        }
+        
+        void clearDirty() {
+            for (int i = 0; i < dirtyCount; i++) {
+                dirty[dirtySlots[i]] = false;
+            }
+            dirtyCount = 0;
+        }
+        
+        void clear() {
+            Arrays.fill(keys, EMPTY);
+            Arrays.fill(dirty, false);
+            dirtyCount = 0;
+            size = 0;
+        }
+        
+        private void grow() {
+            int[] oldKeys = keys;
+            long[] oldValues = values;
+            boolean[] oldDirty = dirty;
+            keys = newKeys(oldKeys.length * 2);
+            values = new long[oldKeys.length * 2];
+            dirty = new boolean[oldKeys.length * 2];
+            size = 0;
+            dirtyCount = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = insert(oldKeys[i], oldValues[i]);
+                    if (oldDirty[i]) {
+                        add(slot, 0);
+                    }
+                }
+            }
+        }
+    }
+}
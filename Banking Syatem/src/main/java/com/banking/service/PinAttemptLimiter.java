@@ -0,0 +1,176 @@
+package com.banking.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-account limit on failed PIN attempts.
+ *
+ * An account that fails {@code maxFailures} checks in a row is locked out
+ * for the lockout period; a correct PIN clears its count, and failures older
+ * than the lockout period are forgotten. Checks still running count against
+ * the limit, so parallel guesses cannot get past it before their failures are
+ * recorded. Unknown account numbers are tracked like real ones, which keeps
+ * the limiter from revealing which numbers exist. Limits are per JVM, like the
+ * velocity limiter.
+ */
+public class PinAttemptLimiter {
+    public static final int DEFAULT_MAX_FAILURES = 5;
+    public static final long DEFAULT_LOCKOUT_MILLIS = 5 * 60_000;
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+    
+    private final int maxFailures;
+    private final long lockoutMillis;
+    private final ConcurrentHashMap<String, Attempts> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweepMillis = new AtomicLong();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    
+    public PinAttemptLimiter() {
+        this(DEFAULT_MAX_FAILURES, DEFAULT_LOCKOUT_MILLIS);
+    }
+    
+    /**
+     * @param maxFailures Failed attempts in a row that lock an account out
+     * @param lockoutMillis How long a lockout lasts and how long failures are remembered
+     */
+    public PinAttemptLimiter(int maxFailures, long lockoutMillis) {
+        if (maxFailures <= 0 || lockoutMillis <= 0) {
+            throw new IllegalArgumentException("PIN attempt limits must be positive");
+        }
+        this.maxFailures = maxFailures;
+        this.lockoutMillis = lockoutMillis;
+    }
+    
+    /**
+     * Start a PIN check; finish it with {@link #succeeded}, {@link #failed} or {@link #abandoned}
+     * @param accountNumber Account number the PIN is for
+     * @throws PinLockedException if the account is locked out
+     */
+    public void acquire(String accountNumber) {
+        acquire(accountNumber, System.currentTimeMillis());
+    }
+    
+    void acquire(String accountNumber, long now) {
+        sweepExpired(now);
+        while (true) {
+            Attempts attempts = accounts.computeIfAbsent(accountNumber, number -> new Attempts());
+            synchronized (attempts) {
+                if (accounts.get(accountNumber) != attempts) {
+                    // Swept between the lookup and the lock
+                    continue;
+                }
+                acquire(attempts, now);
+                return;
+            }
+        }
+    }
+    
+    // Called holding the attempts monitor
+    private void acquire(Attempts attempts, long now) {
+        if (attempts.lockedUntil > now) {
+            rejected.increment();
+            throw new PinLockedException(attempts.lockedUntil - now);
+        }
+        if (attempts.failures > 0 && now - attempts.lastFailure >= lockoutMillis) {
+            attempts.failures = 0;
+        }
+        if (attempts.failures + attempts.pending >= maxFailures) {
+            // Enough checks are already running to use up the remaining attempts
+            rejected.increment();
+            throw new PinLockedException(1000);
+        }
+        attempts.pending++;
+    }
+    
+    public void succeeded(String accountNumber) {
+        Attempts attempts = accounts.get(accountNumber);
+        if (attempts != null) {
+            synchronized (attempts) {
+                attempts.pending--;
+                attempts.failures = 0;
+            }
+        }
+    }
+    
+    public void failed(String accountNumber) {
+        failed(accountNumber, System.currentTimeMillis());
+    }
+    
+    void failed(String accountNumber, long now) {
+        Attempts attempts = accounts.get(accountNumber);
+        if (attempts == null) {
+            return;
+        }
+        failures.increment();
+        synchronized (attempts) {
+            attempts.pending--;
+            attempts.failures++;
+            attempts.lastFailure = now;
+            if (attempts.failures >= maxFailures) {
+                attempts.failures = 0;
+                attempts.lockedUntil = now + lockoutMillis;
+                lockouts.increment();
+                System.err.println("PIN attempts locked for account " + accountNumber + " after "
+                                   + maxFailures + " failures");
+            }
+        }
+    }
+    
+    /**
+     * Finish a PIN check that could not be made, e.g. because the database failed
+     */
+    public void abandoned(String accountNumber) {
+        Attempts attempts = accounts.get(accountNumber);
+        if (attempts != null) {
+            synchronized (attempts) {
+                attempts.pending--;
+            }
+        }
+    }
+    
+    private void sweepExpired(long now) {
+        long next = nextSweepMillis.get();
+        if (now < next || !nextSweepMillis.compareAndSet(next, now + SWEEP_INTERVAL_MILLIS)) {
+            return;
+        }
+        for (Map.Entry<String, Attempts> entry : accounts.entrySet()) {
+            Attempts attempts = entry.getValue();
+            synchronized (attempts) {
+                if (attempts.pending == 0 && attempts.lockedUntil <= now
+                    && (attempts.failures == 0 || now - attempts.lastFailure >= lockoutMillis)) {
+                    accounts.remove(entry.getKey(), attempts);
+                }
+            }
+        }
+    }
+    
+    public long getFailures() {
+        return failures.sum();
+    }
+    
+    public long getLockouts() {
+        return lockouts.sum();
+    }
+    
+    public long getRejected() {
+        return rejected.sum();
+    }
+    
+    public int getTrackedAccounts() {
+        return accounts.size();
+    }
+    
+    /**
+     * Attempt state of one account, guarded by its own monitor
+     */
+    private static final class Attempts {
+        int failures;
+        int pending;
+        long lastFailure;
+        long lockedUntil;
+    }
+}
@@ -0,0 +1,20 @@
+package com.banking.service;
+
+/**
+ * Thrown when an account has had too many failed PIN attempts. The PIN was
+ * not checked; a new attempt can be made after the suggested delay.
+ */
+public class PinLockedException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+    
+    private final long retryAfterMillis;
+    
+    public PinLockedException(long retryAfterMillis) {
+        super("Too many failed PIN attempts, retry in " + (retryAfterMillis + 999) / 1000 + " s");
+        this.retryAfterMillis = retryAfterMillis;
+    }
+    
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
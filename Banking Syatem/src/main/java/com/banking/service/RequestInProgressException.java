@@ -0,0 +1,20 @@
+package com.banking.service;
+
+/**
+ * Thrown when a request arrives with an idempotency key whose first request
+ * is still executing. The retry can be repeated once that request finishes.
+ */
+public class RequestInProgressException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+    
+    private final String idempotencyKey;
+    
+    public RequestInProgressException(String idempotencyKey) {
+        super("A request with idempotency key " + idempotencyKey + " is already in progress");
+        this.idempotencyKey = idempotencyKey;
+    }
+    
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+}
@@ -0,0 +1,313 @@
+package com.banking.service;
+
+import com.banking.dao.TransactionDAO;
+import com.banking.model.Transaction;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory velocity limits on withdrawals and transfers.
+ *
+ * Each account that moved money recently has, per {@link VelocityRule.Window},
+ * a ring of buckets with running totals. A check advances the rings past
+ * expired buckets and compares the totals with the limits, so it costs a map
+ * lookup and a few array updates instead of an aggregate over transactions.
+ * The window slides a bucket at a time: a minute window covers the last 60 to
+ * 61 seconds.
+ *
+ * Operations reserve their amount before they touch the database and release
+ * it if they fail. Accounts idle for longer than a day are evicted; on startup
+ * {@link #rebuild(TransactionDAO)} replays the last day of outgoing transactions.
+ * Limits are per JVM, like the account lock manager.
+ */
+public class VelocityLimiter {
+    private static final VelocityRule.Window[] WINDOWS = VelocityRule.Window.values();
+    private static final long IDLE_MILLIS = VelocityRule.Window.DAY.getSpanMillis();
+    private static final long SWEEP_INTERVAL_MILLIS = 60_000;
+    private static final int REBUILD_PAGE_SIZE = 10_000;
+    
+    private final ConcurrentHashMap<Integer, AccountWindows> accounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, List<VelocityRule>> accountRules = new ConcurrentHashMap<>();
+    private volatile List<VelocityRule> defaultRules;
+    private final AtomicLong nextSweepMillis = new AtomicLong();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    /**
+     * @param defaultRules Rules for accounts without rules of their own
+     */
+    public VelocityLimiter(List<VelocityRule> defaultRules) {
+        setDefaultRules(defaultRules);
+    }
+    
+    public void setDefaultRules(List<VelocityRule> rules) {
+        this.defaultRules = Collections.unmodifiableList(new ArrayList<>(rules));
+    }
+    
+    public List<VelocityRule> getDefaultRules() {
+        return defaultRules;
+    }
+    
+    /**
+     * Give an account its own rules in place of the defaults
+     * @param accountId Account ID
+     * @param rules Rules for the account (an empty list exempts it; null restores the defaults)
+     */
+    public void setAccountRules(int accountId, List<VelocityRule> rules) {
+        if (rules == null) {
+            accountRules.remove(accountId);
+        } else {
+            accountRules.put(accountId, Collections.unmodifiableList(new ArrayList<>(rules)));
+        }
+    }
+    
+    /**
+     * Check an outgoing amount against the account's limits and reserve it
+     * @param accountId Account ID
+     * @param amount Amount leaving the account
+     * @return Reservation time, to pass to {@link #release} if the operation fails
+     * @throws IllegalArgumentException if a limit would be exceeded
+     */
+    public long acquire(int accountId, BigDecimal amount) {
+        return acquire(accountId, amount, System.currentTimeMillis());
+    }
+    
+    long acquire(int accountId, BigDecimal amount, long now) {
+        long cents = VelocityRule.toCents(amount);
+        List<VelocityRule> rules = accountRules.getOrDefault(accountId, defaultRules);
+        checks.increment();
+        
+        while (true) {
+            AccountWindows windows = accounts.computeIfAbsent(accountId, id -> new AccountWindows());
+            synchronized (windows) {
+                if (windows.evicted) {
+                    continue;
+                }
+                for (VelocityRule rule : rules) {
+                    WindowCounter counter = windows.counters[rule.getWindow().ordinal()];
+                    counter.advance(now);
+                    if (rule.hasCountLimit() && counter.count + 1 > rule.getMaxCount()) {
+                        rejections.increment();
+                        throw new IllegalArgumentException("Velocity limit exceeded: at most " + rule.getMaxCount()
+                            + " withdrawals and transfers per " + rule.getWindow().name().toLowerCase());
+                    }
+                    if (rule.hasAmountLimit() && counter.cents + cents > rule.getMaxAmountCents()) {
+                        rejections.increment();
+                        throw new IllegalArgumentException("Velocity limit exceeded: at most $"
+                            + BigDecimal.valueOf(rule.getMaxAmountCents(), 2) + " per "
+                            + rule.getWindow().name().toLowerCase() + ". Remaining: $"
+                            + BigDecimal.valueOf(Math.max(0, rule.getMaxAmountCents() - counter.cents), 2));
+                    }
+                }
+                windows.add(now, cents);
+            }
+            break;
+        }
+        
+        sweepIdle(now);
+        return now;
+    }
+    
+    /**
+     * Give back a reservation whose operation did not go through
+     * @param accountId Account ID
+     * @param amount Amount that was reserved
+     * @param reservedAt Time returned by {@link #acquire}
+     */
+    public void release(int accountId, BigDecimal amount, long reservedAt) {
+        AccountWindows windows = accounts.get(accountId);
+        if (windows == null) {
+            return;
+        }
+        long cents = VelocityRule.toCents(amount);
+        synchronized (windows) {
+            for (WindowCounter counter : windows.counters) {
+                counter.remove(reservedAt, cents);
+            }
+        }
+    }
+    
+    /**
+     * Count an operation that already happened, without checking limits
+     * @param accountId Account ID
+     * @param amount Amount that left the account
+     * @param timeMillis When it happened
+     */
+    public void record(int accountId, BigDecimal amount, long timeMillis) {
+        long cents = VelocityRule.toCents(amount);
+        while (true) {
+            AccountWindows windows = accounts.computeIfAbsent(accountId, id -> new AccountWindows());
+            synchronized (windows) {
+                if (windows.evicted) {
+                    continue;
+                }
+                windows.add(timeMillis, cents);
+            }
+            return;
+        }
+    }
+    
+    /**
+     * Replay the withdrawals and transfers of the last day, e.g. after a restart
+     * @param transactionDAO Transaction data access
+     * @return Number of transactions replayed
+     * @throws SQLException if database operation fails
+     */
+    public int rebuild(TransactionDAO transactionDAO) throws SQLException {
+        Timestamp since = new Timestamp(System.currentTimeMillis() - VelocityRule.Window.DAY.getSpanMillis());
+        int afterTransactionId = 0;
+        int replayed = 0;
+        List<Transaction> page;
+        do {
+            page = transactionDAO.getOutgoingTransactionsSince(since, afterTransactionId, REBUILD_PAGE_SIZE);
+            for (Transaction transaction : page) {
+                record(transaction.getFromAccountId(), transaction.getAmount(),
+                       transaction.getTransactionDate().getTime());
+                afterTransactionId = transaction.getTransactionId();
+            }
+            replayed += page.size();
+        } while (page.size() == REBUILD_PAGE_SIZE);
+        return replayed;
+    }
+    
+    private void sweepIdle(long now) {
+        long next = nextSweepMillis.get();
+        if (now < next || !nextSweepMillis.compareAndSet(next, now + SWEEP_INTERVAL_MILLIS)) {
+            return;
+        }
+        for (Map.Entry<Integer, AccountWindows> entry : accounts.entrySet()) {
+            AccountWindows windows = entry.getValue();
+            synchronized (windows) {
+                if (now - windows.lastSeenMillis > IDLE_MILLIS) {
+                    windows.evicted = true;
+                    accounts.remove(entry.getKey(), windows);
+                    evictions.increment();
+                }
+            }
+        }
+    }
+    
+    // Statistics
+    public long getChecks() {
+        return checks.sum();
+    }
+    
+    public long getRejections() {
+        return rejections.sum();
+    }
+    
+    public long getEvictions() {
+        return evictions.sum();
+    }
+    
+    /**
+     * Get the number of accounts with velocity state in memory
+     * @return Tracked account count
+     */
+    public int getTrackedAccounts() {
+        return accounts.size();
+    }
+    
+    /**
+     * Sliding-window state of one account; guarded by its own monitor
+     */
+    private static class AccountWindows {
+        private final WindowCounter[] counters = new WindowCounter[WINDOWS.length];
+        private long lastSeenMillis;
+        private boolean evicted;
+        
+        AccountWindows() {
+            for (VelocityRule.Window window : WINDOWS) {
+                counters[window.ordinal()] = new WindowCounter(window.getBucketMillis(), window.getBuckets());
+            }
+        }
+        
+        void add(long timeMillis, long cents) {
+            for (WindowCounter counter : counters) {
+                counter.add(timeMillis, cents);
+            }
+            lastSeenMillis = Math.max(lastSeenMillis, timeMillis);
+        }
+    }
+    
+    /**
+     * Ring of time buckets with running totals over the whole ring
+     */
+    private static class WindowCounter {
+        private final long bucketMillis;
+        private final int buckets;
+        private final int[] bucketCounts;
+        private final long[] bucketCents;
+        private long head = Long.MIN_VALUE;
+        private long count;
+        private long cents;
+        
+        WindowCounter(long bucketMillis, int buckets) {
+            this.bucketMillis = bucketMillis;
+            this.buckets = buckets;
+            this.bucketCounts = new int[buckets];
+            this.bucketCents = new long[buckets];
+        }
+        
+        /**
+         * Move the newest bucket up to the current time, dropping buckets that slid out of the window
+         */
+        void advance(long nowMillis) {
+            long bucket = nowMillis / bucketMillis;
+            if (bucket <= head) {
+                return;
+            }
+            if (head == Long.MIN_VALUE || bucket - head >= buckets) {
+                Arrays.fill(bucketCounts, 0);
+                Arrays.fill(bucketCents, 0);
+                count = 0;
+                cents = 0;
+            } else {
+                for (long expired = head + 1; expired <= bucket; expired++) {
+                    int slot = (int) (expired % buckets);
+                    count -= bucketCounts[slot];
+                    cents -= bucketCents[slot];
+                    bucketCounts[slot] = 0;
+                    bucketCents[slot] = 0;
+                }
+            }
+            head = bucket;
+        }
+        
+        void add(long timeMillis, long amountCents) {
+            advance(timeMillis);
+            long bucket = timeMillis / bucketMillis;
+            if (bucket <= head - buckets) {
+                return;
+            }
+            int slot = (int) (bucket % buckets);
+            bucketCounts[slot]++;
+            bucketCents[slot] += amountCents;
+            count++;
+            cents += amountCents;
+        }
+        
+        void remove(long timeMillis, long amountCents) {
+            long bucket = timeMillis / bucketMillis;
+            if (bucket > head || bucket <= head - buckets) {
+                return;
+            }
+            int slot = (int) (bucket % buckets);
+            bucketCounts[slot]--;
+            bucketCents[slot] -= amountCents;
+            count--;
+            cents -= amountCents;
+        }
+    }
+}
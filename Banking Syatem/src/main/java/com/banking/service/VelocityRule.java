@@ -0,0 +1,106 @@
+package com.banking.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A velocity limit on outgoing money movements (withdrawals and transfers)
+ * from one account: at most {@code maxCount} operations and at most
+ * {@code maxAmount} in total within a sliding window.
+ */
+public class VelocityRule {
+    
+    // Sliding windows, each kept as a ring of buckets
+    public enum Window {
+        MINUTE(TimeUnit.MINUTES.toMillis(1), 60),
+        HOUR(TimeUnit.HOURS.toMillis(1), 60),
+        DAY(TimeUnit.DAYS.toMillis(1), 96);
+        
+        private final long spanMillis;
+        private final int buckets;
+        
+        Window(long spanMillis, int buckets) {
+            this.spanMillis = spanMillis;
+            this.buckets = buckets;
+        }
+        
+        public long getSpanMillis() {
+            return spanMillis;
+        }
+        
+        public int getBuckets() {
+            return buckets;
+        }
+        
+        public long getBucketMillis() {
+            return spanMillis / buckets;
+        }
+    }
+    
+    private final Window window;
+    private final int maxCount;
+    private final long maxAmountCents;
+    
+    /**
+     * @param window Sliding window the limits apply to
+     * @param maxCount Maximum operations in the window (0 for no count limit)
+     * @param maxAmount Maximum total amount in the window (null for no amount limit)
+     */
+    public VelocityRule(Window window, int maxCount, BigDecimal maxAmount) {
+        if (window == null) {
+            throw new IllegalArgumentException("Velocity window is required");
+        }
+        if (maxCount < 0 || (maxAmount != null && maxAmount.signum() < 0)) {
+            throw new IllegalArgumentException("Velocity limits must not be negative");
+        }
+        this.window = window;
+        this.maxCount = maxCount;
+        this.maxAmountCents = maxAmount != null ? toCents(maxAmount) : -1;
+    }
+    
+    public static VelocityRule perMinute(int maxCount, BigDecimal maxAmount) {
+        return new VelocityRule(Window.MINUTE, maxCount, maxAmount);
+    }
+    
+    public static VelocityRule perHour(int maxCount, BigDecimal maxAmount) {
+        return new VelocityRule(Window.HOUR, maxCount, maxAmount);
+    }
+    
+    public static VelocityRule perDay(int maxCount, BigDecimal maxAmount) {
+        return new VelocityRule(Window.DAY, maxCount, maxAmount);
+    }
+    
+    public Window getWindow() {
+        return window;
+    }
+    
+    public int getMaxCount() {
+        return maxCount;
+    }
+    
+    public boolean hasCountLimit() {
+        return maxCount > 0;
+    }
+    
+    public long getMaxAmountCents() {
+        return maxAmountCents;
+    }
+    
+    public boolean hasAmountLimit() {
+        return maxAmountCents >= 0;
+    }
+    
+    static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.UP).longValueExact();
+    }
+    
+    @Override
+    public String toString() {
+        return "VelocityRule{" +
+                "window=" + window +
+                ", maxCount=" + maxCount +
+                ", maxAmount=" + (hasAmountLimit() ? BigDecimal.valueOf(maxAmountCents, 2) : null) +
+                '}';
+    }
+}
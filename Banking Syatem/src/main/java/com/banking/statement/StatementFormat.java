@@ -0,0 +1,30 @@
+package com.banking.statement;
+
+/**
+ * Output formats of the statement generator
+ */
+public enum StatementFormat {
+    /** Printable statement per account */
+    TEXT("txt"),
+    /** One row per opening balance, entry, type total and closing balance */
+    CSV("csv");
+    
+    private final String fileExtension;
+    
+    StatementFormat(String fileExtension) {
+        this.fileExtension = fileExtension;
+    }
+    
+    public String getFileExtension() {
+        return fileExtension;
+    }
+    
+    public static StatementFormat fromString(String value) {
+        for (StatementFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown statement format: " + value);
+    }
+}
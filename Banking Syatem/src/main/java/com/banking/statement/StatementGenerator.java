@@ -0,0 +1,329 @@
+package com.banking.statement;
+
+import com.banking.dao.AccountDAO;
+import com.banking.dao.LedgerDAO;
+import com.banking.dao.ReportDAO;
+import com.banking.model.AccountStatement;
+import com.banking.model.AccountSummary;
+import com.banking.model.TransactionHistoryEntry;
+import com.banking.util.DatabaseConnection;
+import com.banking.util.QueryClass;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates period statements for every account.
+ *
+ * The account ID space is split recursively on a fork-join pool until a range
+ * holds at most {@code accountsPerTask} IDs. Each such range is written to its
+ * own file from one read-only REPEATABLE READ transaction, so all statements
+ * in a file see the same snapshot. Entries are read in keyset pages from
+ * transaction_history_mv and written as they arrive; memory use does not
+ * depend on the number of accounts or entries.
+ *
+ * The closing balance is the current balance less everything posted after the
+ * period, and the opening balance is the closing balance less the period's net
+ * change, so no history before the period is read.
+ *
+ * Usage: StatementGenerator yyyy-MM output-directory [text|csv] [threads]
+ */
+public class StatementGenerator {
+    public static final int DEFAULT_ACCOUNTS_PER_TASK = 1000;
+    
+    private static final int ENTRY_PAGE_SIZE = 500;
+    
+    private final AccountDAO accountDAO;
+    private final ReportDAO reportDAO;
+    private final LedgerDAO ledgerDAO;
+    private final StatementFormat format;
+    private final StatementRenderer renderer;
+    private final int parallelism;
+    private final int accountsPerTask;
+    private volatile boolean ledgerBalances;
+    
+    public StatementGenerator(StatementFormat format) {
+        this(format, Runtime.getRuntime().availableProcessors(), DEFAULT_ACCOUNTS_PER_TASK);
+    }
+    
+    /**
+     * @param format Output format
+     * @param parallelism Fork-join pool size; each worker holds one reporting connection, so this
+     *                    is capped at the reporting bulkhead rather than leaving workers to time out
+     * @param accountsPerTask Width of the account ID range written per task and file
+     */
+    public StatementGenerator(StatementFormat format, int parallelism, int accountsPerTask) {
+        if (parallelism <= 0 || accountsPerTask <= 0) {
+            throw new IllegalArgumentException("Parallelism and accounts per task must be positive");
+        }
+        this.accountDAO = new AccountDAO();
+        this.reportDAO = new ReportDAO();
+        this.ledgerDAO = new LedgerDAO();
+        this.format = format;
+        this.renderer = StatementRenderer.forFormat(format);
+        this.parallelism = Math.min(parallelism, QueryClass.REPORTING.getMaxConnections());
+        this.accountsPerTask = accountsPerTask;
+    }
+    
+    /**
+     * Read current balances from the postings ledger instead of the accounts table.
+     * Needed when BankingService runs in ledger mode.
+     * @param ledgerBalances true to use ledger balances
+     */
+    public void setLedgerBalances(boolean ledgerBalances) {
+        this.ledgerBalances = ledgerBalances;
+    }
+    
+    /**
+     * Generate statements for a calendar month
+     * @param month Statement month
+     * @param outputDirectory Directory receiving the statement files
+     * @return Run summary
+     * @throws SQLException if database operation fails
+     * @throws IOException if a statement file cannot be written
+     */
+    public RunSummary generateMonthly(YearMonth month, Path outputDirectory) throws SQLException, IOException {
+        return generate(Timestamp.valueOf(month.atDay(1).atStartOfDay()),
+                        Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()), outputDirectory);
+    }
+    
+    /**
+     * Generate statements for a period
+     * @param periodStart Start of the period (inclusive)
+     * @param periodEnd End of the period (exclusive)
+     * @param outputDirectory Directory receiving the statement files
+     * @return Run summary
+     * @throws SQLException if database operation fails
+     * @throws IOException if a statement file cannot be written
+     */
+    public RunSummary generate(Timestamp periodStart, Timestamp periodEnd, Path outputDirectory)
+                               throws SQLException, IOException {
+        if (!periodStart.before(periodEnd)) {
+            throw new IllegalArgumentException("Statement period must end after it starts");
+        }
+        Files.createDirectories(outputDirectory);
+        
+        long started = System.nanoTime();
+        Run run = new Run(periodStart, periodEnd, outputDirectory);
+        int maxAccountId = accountDAO.getMaxAccountId();
+        
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            if (maxAccountId > 0) {
+                pool.invoke(run.new RangeTask(1, maxAccountId));
+            }
+        } catch (RuntimeException e) {
+            // Fork-join may rethrow a copy of the task's exception; the original is in the cause chain
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof SQLException) {
+                    throw (SQLException) cause;
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+        
+        return new RunSummary(run.statements.sum(), run.entries.sum(), run.files.sum(),
+                              (System.nanoTime() - started) / 1_000_000);
+    }
+    
+    /**
+     * State of one generation run
+     */
+    private class Run {
+        private final Timestamp periodStart;
+        private final Timestamp periodEnd;
+        private final Path outputDirectory;
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder entries = new LongAdder();
+        private final LongAdder files = new LongAdder();
+        
+        Run(Timestamp periodStart, Timestamp periodEnd, Path outputDirectory) {
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+            this.outputDirectory = outputDirectory;
+        }
+        
+        /**
+         * Write the statements of accounts firstId..lastId to one file
+         */
+        private void writeRange(int firstId, int lastId) throws SQLException, IOException {
+            try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING)) {
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                connection.setAutoCommit(false);
+                connection.setReadOnly(true);
+                
+                Writer out = null;
+                try {
+                    List<AccountSummary> accounts =
+                        reportDAO.getAccountSummaries(connection, firstId - 1, lastId - firstId + 1);
+                    for (AccountSummary account : accounts) {
+                        if (account.getAccountId() > lastId) {
+                            break;
+                        }
+                        if (account.getCreatedAt() != null && !account.getCreatedAt().before(periodEnd)) {
+                            continue;
+                        }
+                        if (out == null) {
+                            out = Files.newBufferedWriter(outputDirectory.resolve(fileName(firstId)),
+                                                          StandardCharsets.UTF_8);
+                            renderer.beginFile(out);
+                            files.increment();
+                        }
+                        writeStatement(connection, account, out);
+                    }
+                    connection.commit();
+                } finally {
+                    if (out != null) {
+                        out.close();
+                    }
+                }
+            }
+        }
+        
+        private void writeStatement(Connection connection, AccountSummary account, Writer out)
+                                    throws SQLException, IOException {
+            AccountStatement statement = new AccountStatement(account, periodStart, periodEnd);
+            int accountId = account.getAccountId();
+            
+            BigDecimal balance = ledgerBalances ? ledgerDAO.getBalance(connection, accountId) : account.getBalance();
+            BigDecimal closingBalance = balance.subtract(reportDAO.getStatementTotals(connection, statement));
+            statement.setClosingBalance(closingBalance);
+            statement.setOpeningBalance(closingBalance.subtract(statement.getTotalCredits())
+                                                      .add(statement.getTotalDebits()));
+            
+            renderer.begin(out, statement);
+            BigDecimal runningBalance = statement.getOpeningBalance();
+            Timestamp afterDate = null;
+            int afterTransactionId = 0;
+            int remaining = statement.getEntryCount();
+            while (remaining > 0) {
+                List<TransactionHistoryEntry> page = reportDAO.getStatementEntries(connection, accountId,
+                    periodStart, periodEnd, afterDate, afterTransactionId, ENTRY_PAGE_SIZE);
+                for (TransactionHistoryEntry entry : page) {
+                    boolean credit = entry.getToAccountId() != null && entry.getToAccountId() == accountId;
+                    runningBalance = credit ? runningBalance.add(entry.getAmount())
+                                            : runningBalance.subtract(entry.getAmount());
+                    renderer.entry(out, statement, entry, credit, runningBalance);
+                }
+                if (page.size() < ENTRY_PAGE_SIZE) {
+                    break;
+                }
+                remaining -= page.size();
+                TransactionHistoryEntry last = page.get(page.size() - 1);
+                afterDate = last.getTransactionDate();
+                afterTransactionId = last.getTransactionId();
+            }
+            renderer.end(out, statement);
+            
+            statements.increment();
+            entries.add(statement.getEntryCount());
+        }
+        
+        private String fileName(int firstId) {
+            return String.format("statements_%s_%010d.%s", StatementRenderer.formatDate(periodStart), firstId,
+                                 format.getFileExtension());
+        }
+        
+        /**
+         * Splits an account ID range until it fits one task
+         */
+        private class RangeTask extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+            
+            private final int firstId;
+            private final int lastId;
+            
+            RangeTask(int firstId, int lastId) {
+                this.firstId = firstId;
+                this.lastId = lastId;
+            }
+            
+            @Override
+            protected void compute() {
+                if (lastId - firstId < accountsPerTask) {
+                    try {
+                        writeRange(firstId, lastId);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Statement generation failed for accounts "
+                                                        + firstId + "-" + lastId, e);
+                    }
+                    return;
+                }
+                int middle = firstId + (lastId - firstId) / 2;
+                invokeAll(new RangeTask(firstId, middle), new RangeTask(middle + 1, lastId));
+            }
+        }
+    }
+    
+    /**
+     * Result of a generation run
+     */
+    public static class RunSummary {
+        private final long statements;
+        private final long entries;
+        private final long files;
+        private final long elapsedMillis;
+        
+        public RunSummary(long statements, long entries, long files, long elapsedMillis) {
+            this.statements = statements;
+            this.entries = entries;
+            this.files = files;
+            this.elapsedMillis = elapsedMillis;
+        }
+        
+        public long getStatements() { return statements; }
+        public long getEntries() { return entries; }
+        public long getFiles() { return files; }
+        public long getElapsedMillis() { return elapsedMillis; }
+        
+        public double getStatementsPerSecond() {
+            return elapsedMillis == 0 ? 0.0 : statements * 1000.0 / elapsedMillis;
+        }
+        
+        @Override
+        public String toString() {
+            return "RunSummary{" +
+                    "statements=" + statements +
+                    ", entries=" + entries +
+                    ", files=" + files +
+                    ", elapsedMillis=" + elapsedMillis +
+                    String.format(", statementsPerSecond=%.0f", getStatementsPerSecond()) +
+                    '}';
+        }
+    }
+    
+    public static void main(String[] args) throws SQLException, IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: StatementGenerator yyyy-MM output-directory [text|csv] [threads]");
+            System.exit(1);
+        }
+        YearMonth month = YearMonth.parse(args[0]);
+        Path outputDirectory = Paths.get(args[1]);
+        StatementFormat format = args.length > 2 ? StatementFormat.fromString(args[2]) : StatementFormat.TEXT;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        
+        StatementGenerator generator = new StatementGenerator(format, threads, DEFAULT_ACCOUNTS_PER_TASK);
+        System.out.println(generator.generateMonthly(month, outputDirectory));
+    }
+}
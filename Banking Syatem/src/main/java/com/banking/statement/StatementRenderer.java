@@ -0,0 +1,185 @@
+package com.banking.statement;
+
+import com.banking.model.AccountStatement;
+import com.banking.model.Transaction;
+import com.banking.model.TransactionHistoryEntry;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Writes statements in one output format. Renderers are stateless and shared
+ * between threads; a statement is written as begin, its entries in order, end.
+ */
+abstract class StatementRenderer {
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    static StatementRenderer forFormat(StatementFormat format) {
+        return format == StatementFormat.CSV ? new CsvRenderer() : new TextRenderer();
+    }
+    
+    /**
+     * Write anything that precedes the first statement of a file
+     */
+    void beginFile(Writer out) throws IOException {
+    }
+    
+    abstract void begin(Writer out, AccountStatement statement) throws IOException;
+    
+    abstract void entry(Writer out, AccountStatement statement, TransactionHistoryEntry entry, boolean credit,
+                        BigDecimal balance) throws IOException;
+    
+    abstract void end(Writer out, AccountStatement statement) throws IOException;
+    
+    static String formatDate(Timestamp timestamp) {
+        return DATE.format(timestamp.toLocalDateTime());
+    }
+    
+    static String formatDateTime(Timestamp timestamp) {
+        return DATE_TIME.format(timestamp.toLocalDateTime());
+    }
+    
+    /**
+     * Get the last day of a period whose end is exclusive
+     */
+    static String formatLastDay(Timestamp periodEnd) {
+        return DATE.format(periodEnd.toLocalDateTime().minusNanos(1));
+    }
+    
+    static String describe(TransactionHistoryEntry entry, boolean credit) {
+        if (entry.getDescription() != null && !entry.getDescription().isEmpty()) {
+            return entry.getDescription();
+        }
+        if (entry.getTransactionType() == Transaction.TransactionType.TRANSFER) {
+            return credit ? "Transfer from " + entry.getFromAccount() : "Transfer to " + entry.getToAccount();
+        }
+        return entry.getTransactionType().getValue();
+    }
+    
+    static Set<Transaction.TransactionType> typesWithActivity(AccountStatement statement) {
+        Set<Transaction.TransactionType> types = EnumSet.noneOf(Transaction.TransactionType.class);
+        types.addAll(statement.getCredits().keySet());
+        types.addAll(statement.getDebits().keySet());
+        return types;
+    }
+    
+    static String amountOrBlank(BigDecimal amount) {
+        return amount == null ? "" : amount.toPlainString();
+    }
+    
+    /**
+     * Fixed-width printable statement
+     */
+    private static final class TextRenderer extends StatementRenderer {
+        private static final String ROW = "%-19s  %-36s %14s %14s %14s";
+        private static final String RULE =
+            "----------------------------------------------------------------------------------------------------%n";
+        
+        @Override
+        void begin(Writer out, AccountStatement statement) throws IOException {
+            out.write(String.format("STATEMENT OF ACCOUNT %s%n", statement.getAccountNumber()));
+            out.write(String.format("Customer:     %s%n", statement.getCustomerName()));
+            out.write(String.format("Account type: %s%n", statement.getAccountType().getValue()));
+            out.write(String.format("Period:       %s to %s%n", formatDate(statement.getPeriodStart()),
+                                    formatLastDay(statement.getPeriodEnd())));
+            out.write(String.format(RULE));
+            row(out, "Date", "Description", "Debit", "Credit", "Balance");
+            row(out, formatDate(statement.getPeriodStart()), "Opening balance", "", "",
+                statement.getOpeningBalance().toPlainString());
+        }
+        
+        @Override
+        void entry(Writer out, AccountStatement statement, TransactionHistoryEntry entry, boolean credit,
+                   BigDecimal balance) throws IOException {
+            String description = describe(entry, credit);
+            if (description.length() > 36) {
+                description = description.substring(0, 33) + "...";
+            }
+            String amount = entry.getAmount().toPlainString();
+            row(out, formatDateTime(entry.getTransactionDate()), description,
+                credit ? "" : amount, credit ? amount : "", balance.toPlainString());
+        }
+        
+        @Override
+        void end(Writer out, AccountStatement statement) throws IOException {
+            row(out, formatLastDay(statement.getPeriodEnd()), "Closing balance", "", "",
+                statement.getClosingBalance().toPlainString());
+            out.write(String.format(RULE));
+            for (Transaction.TransactionType type : typesWithActivity(statement)) {
+                row(out, "", type.getValue(), amountOrBlank(statement.getDebits().get(type)),
+                    amountOrBlank(statement.getCredits().get(type)), "");
+            }
+            row(out, "", "Total (" + statement.getEntryCount() + " entries)",
+                statement.getTotalDebits().toPlainString(), statement.getTotalCredits().toPlainString(), "");
+            out.write(String.format("%n%n"));
+        }
+        
+        private static void row(Writer out, Object... columns) throws IOException {
+            String line = String.format(ROW, columns);
+            int end = line.length();
+            while (end > 0 && line.charAt(end - 1) == ' ') {
+                end--;
+            }
+            out.write(line, 0, end);
+            out.write(System.lineSeparator());
+        }
+    }
+    
+    /**
+     * Flat CSV; every row carries the account number so files can be split or merged freely
+     */
+    private static final class CsvRenderer extends StatementRenderer {
+        
+        @Override
+        void beginFile(Writer out) throws IOException {
+            out.write("account_number,record_type,date,transaction_id,transaction_type,description,debit,credit,balance\n");
+        }
+        
+        @Override
+        void begin(Writer out, AccountStatement statement) throws IOException {
+            row(out, statement, "OPENING", formatDate(statement.getPeriodStart()), "", "", "", "", "",
+                statement.getOpeningBalance().toPlainString());
+        }
+        
+        @Override
+        void entry(Writer out, AccountStatement statement, TransactionHistoryEntry entry, boolean credit,
+                   BigDecimal balance) throws IOException {
+            String amount = entry.getAmount().toPlainString();
+            row(out, statement, "ENTRY", formatDateTime(entry.getTransactionDate()),
+                Integer.toString(entry.getTransactionId()), entry.getTransactionType().getValue(),
+                quote(describe(entry, credit)), credit ? "" : amount, credit ? amount : "", balance.toPlainString());
+        }
+        
+        @Override
+        void end(Writer out, AccountStatement statement) throws IOException {
+            for (Transaction.TransactionType type : typesWithActivity(statement)) {
+                row(out, statement, "TOTAL", "", "", type.getValue(), "",
+                    amountOrBlank(statement.getDebits().get(type)), amountOrBlank(statement.getCredits().get(type)), "");
+            }
+            row(out, statement, "CLOSING", formatLastDay(statement.getPeriodEnd()), "", "", "", "", "",
+                statement.getClosingBalance().toPlainString());
+        }
+        
+        private void row(Writer out, AccountStatement statement, String... fields) throws IOException {
+            out.write(statement.getAccountNumber());
+            for (String field : fields) {
+                out.write(',');
+                out.write(field);
+            }
+            out.write('\n');
+        }
+        
+        private static String quote(String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
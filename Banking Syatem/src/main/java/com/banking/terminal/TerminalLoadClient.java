@@ -0,0 +1,230 @@
+package com.banking.terminal;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Load generator for the terminal protocol. Opens a number of connections,
+ * keeps each one pipelined to a fixed depth for the given duration and prints
+ * throughput, status counts and latency percentiles.
+ *
+ * Usage: TerminalLoadClient host port connections depth seconds operation accounts [pin]
+ * where operation is balance, verify, deposit, withdraw or transfer, and
+ * accounts is a comma-separated list of account numbers sharing the PIN.
+ * Money operations move one cent at a time.
+ */
+public class TerminalLoadClient {
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_SAMPLES = 10_000_000;
+    
+    private final byte opcode;
+    private final byte[][] accounts;
+    private final byte[] pin;
+    private final Random random = new Random();
+    private final long[] statusCounts = new long[8];
+    private long[] latencies = new long[1 << 16];
+    private int latencyCount;
+    private long completed;
+    
+    private TerminalLoadClient(byte opcode, byte[][] accounts, byte[] pin) {
+        this.opcode = opcode;
+        this.accounts = accounts;
+        this.pin = pin;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        if (args.length < 7) {
+            System.err.println("Usage: TerminalLoadClient host port connections depth seconds "
+                               + "balance|verify|deposit|withdraw|transfer accounts [pin]");
+            System.exit(1);
+        }
+        String host = args[0];
+        int port = Integer.parseInt(args[1]);
+        int connections = Integer.parseInt(args[2]);
+        int depth = Integer.parseInt(args[3]);
+        int seconds = Integer.parseInt(args[4]);
+        byte opcode = parseOperation(args[5]);
+        String[] accountNumbers = args[6].split(",");
+        byte[][] accounts = new byte[accountNumbers.length][];
+        for (int i = 0; i < accountNumbers.length; i++) {
+            accounts[i] = accountNumbers[i].trim().getBytes(StandardCharsets.US_ASCII);
+        }
+        byte[] pin = (args.length > 7 ? args[7] : "1234").getBytes(StandardCharsets.US_ASCII);
+        if (opcode == TerminalProtocol.OP_TRANSFER && accounts.length < 2) {
+            throw new IllegalArgumentException("Transfers need at least two accounts");
+        }
+        
+        TerminalLoadClient client = new TerminalLoadClient(opcode, accounts, pin);
+        client.run(new InetSocketAddress(host, port), connections, depth, seconds);
+    }
+    
+    private static byte parseOperation(String operation) {
+        switch (operation) {
+            case "balance": return TerminalProtocol.OP_BALANCE;
+            case "verify": return TerminalProtocol.OP_VERIFY_PIN;
+            case "deposit": return TerminalProtocol.OP_DEPOSIT;
+            case "withdraw": return TerminalProtocol.OP_WITHDRAW;
+            case "transfer": return TerminalProtocol.OP_TRANSFER;
+            default: throw new IllegalArgumentException("Unknown operation: " + operation);
+        }
+    }
+    
+    private void run(InetSocketAddress address, int connectionCount, int depth, int seconds) throws IOException {
+        Selector selector = Selector.open();
+        ClientConnection[] connections = new ClientConnection[connectionCount];
+        for (int i = 0; i < connectionCount; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.socket().setTcpNoDelay(true);
+            channel.configureBlocking(false);
+            connections[i] = new ClientConnection(channel, depth);
+            connections[i].key = channel.register(selector, SelectionKey.OP_READ, connections[i]);
+        }
+        
+        long start = System.nanoTime();
+        long end = start + seconds * 1_000_000_000L;
+        for (ClientConnection connection : connections) {
+            fill(connection);
+        }
+        
+        while (System.nanoTime() < end) {
+            selector.select(100);
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                ClientConnection connection = (ClientConnection) key.attachment();
+                if (key.isReadable()) {
+                    readResponses(connection);
+                }
+                if (System.nanoTime() < end) {
+                    fill(connection);
+                } else {
+                    flush(connection);
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        
+        for (ClientConnection connection : connections) {
+            connection.channel.close();
+        }
+        selector.close();
+        report(elapsed);
+    }
+    
+    /**
+     * Top the connection up to its pipeline depth and write what is buffered
+     */
+    private void fill(ClientConnection connection) throws IOException {
+        ByteBuffer out = connection.writeBuffer;
+        while (connection.freeCount > 0 && out.remaining() >= TerminalProtocol.MAX_FRAME_BYTES) {
+            int slot = connection.freeSlots[--connection.freeCount];
+            byte[] account = accounts[random.nextInt(accounts.length)];
+            byte[] toAccount = account;
+            while (opcode == TerminalProtocol.OP_TRANSFER && toAccount == account) {
+                toAccount = accounts[random.nextInt(accounts.length)];
+            }
+            connection.sentAt[slot] = System.nanoTime();
+            TerminalProtocol.writeRequest(out, opcode, slot, account, pin, toAccount, 1);
+        }
+        flush(connection);
+    }
+    
+    private void flush(ClientConnection connection) throws IOException {
+        ByteBuffer out = connection.writeBuffer;
+        out.flip();
+        connection.channel.write(out);
+        out.compact();
+        int ops = out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        connection.key.interestOps(ops);
+    }
+    
+    private void readResponses(ClientConnection connection) throws IOException {
+        ByteBuffer in = connection.readBuffer;
+        if (connection.channel.read(in) < 0) {
+            throw new IOException("Server closed the connection");
+        }
+        in.flip();
+        int frameBytes = TerminalProtocol.LENGTH_BYTES + TerminalProtocol.RESPONSE_FRAME_BYTES;
+        while (in.remaining() >= frameBytes) {
+            long now = System.nanoTime();
+            in.getInt();
+            in.get();
+            int slot = in.getInt();
+            byte status = in.get();
+            in.getLong();
+            
+            statusCounts[status & 7]++;
+            record(now - connection.sentAt[slot]);
+            connection.freeSlots[connection.freeCount++] = slot;
+            completed++;
+        }
+        in.compact();
+    }
+    
+    private void record(long latencyNanos) {
+        if (latencyCount == MAX_SAMPLES) {
+            return;
+        }
+        if (latencyCount == latencies.length) {
+            latencies = Arrays.copyOf(latencies, Math.min(latencies.length * 2, MAX_SAMPLES));
+        }
+        latencies[latencyCount++] = latencyNanos;
+    }
+    
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("requests: %d in %.1f s (%.0f req/s)%n", completed, seconds, completed / seconds);
+        String[] names = {"OK", "BAD_REQUEST", "NOT_FOUND", "DENIED", "INSUFFICIENT_FUNDS", "REJECTED", "BUSY", "ERROR"};
+        for (int i = 0; i < statusCounts.length; i++) {
+            if (statusCounts[i] > 0) {
+                System.out.printf("  %-18s %d%n", names[i], statusCounts[i]);
+            }
+        }
+        if (latencyCount == 0) {
+            return;
+        }
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        System.out.printf("latency us: p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n",
+                          percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                          percentile(sorted, 0.999), sorted[sorted.length - 1] / 1000.0);
+    }
+    
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1000.0;
+    }
+    
+    /**
+     * Client side of one connection. Correlation IDs are slot numbers, and a
+     * slot is reused only after its response has arrived.
+     */
+    private static final class ClientConnection {
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final long[] sentAt;
+        private final int[] freeSlots;
+        private int freeCount;
+        private SelectionKey key;
+        
+        ClientConnection(SocketChannel channel, int depth) {
+            this.channel = channel;
+            this.sentAt = new long[depth];
+            this.freeSlots = new int[depth];
+            for (int i = 0; i < depth; i++) {
+                freeSlots[i] = i;
+            }
+            this.freeCount = depth;
+        }
+    }
+}
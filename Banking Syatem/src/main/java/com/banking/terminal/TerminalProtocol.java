@@ -0,0 +1,103 @@
+package com.banking.terminal;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format of the binary terminal protocol.
+ *
+ * Every frame is a 4-byte big-endian length followed by that many bytes.
+ * <pre>
+ * request:  opcode(1) correlationId(4) payload
+ * response: opcode(1) correlationId(4) status(1) balanceCents(8)
+ * </pre>
+ * Request payloads by opcode, where an account is a length byte followed by
+ * ASCII characters, a PIN is 4 ASCII digits and an amount is 8-byte cents:
+ * <pre>
+ * BALANCE     account pin
+ * VERIFY_PIN  account pin
+ * DEPOSIT     account amount
+ * WITHDRAW    account pin amount
+ * TRANSFER    account pin toAccount amount
+ * </pre>
+ * Clients may pipeline requests; responses can arrive in any order and are
+ * matched by correlation ID. Bytes above 0x7F in an account or PIN make the
+ * request BAD_REQUEST. The balance in a response is the (source) account's
+ * balance after a BALANCE, WITHDRAW or TRANSFER, whose PIN was checked; it is
+ * 0 for VERIFY_PIN and DEPOSIT, which do not reveal balances, and whenever
+ * the status is not OK.
+ */
+public final class TerminalProtocol {
+    public static final byte OP_BALANCE = 1;
+    public static final byte OP_VERIFY_PIN = 2;
+    public static final byte OP_DEPOSIT = 3;
+    public static final byte OP_WITHDRAW = 4;
+    public static final byte OP_TRANSFER = 5;
+    
+    public static final byte STATUS_OK = 0;
+    public static final byte STATUS_BAD_REQUEST = 1;
+    public static final byte STATUS_NOT_FOUND = 2;
+    public static final byte STATUS_DENIED = 3;
+    public static final byte STATUS_INSUFFICIENT_FUNDS = 4;
+    public static final byte STATUS_REJECTED = 5;
+    public static final byte STATUS_BUSY = 6;
+    public static final byte STATUS_ERROR = 7;
+    
+    public static final int LENGTH_BYTES = 4;
+    public static final int MAX_FRAME_BYTES = 128;
+    // opcode, correlation ID and the account length byte
+    public static final int MIN_REQUEST_BYTES = 6;
+    public static final int RESPONSE_FRAME_BYTES = 14;
+    public static final int MAX_ACCOUNT_NUMBER_BYTES = 32;
+    public static final int PIN_BYTES = 4;
+    
+    private TerminalProtocol() {
+    }
+    
+    /**
+     * Encode a request frame
+     * @param out Buffer to write to; needs room for the whole frame
+     * @param opcode One of the OP_ constants
+     * @param correlationId Client-chosen ID echoed in the response
+     * @param account ASCII account number
+     * @param pin ASCII PIN (all but DEPOSIT)
+     * @param toAccount ASCII destination account number (TRANSFER only)
+     * @param amountCents Amount in cents (DEPOSIT, WITHDRAW and TRANSFER only)
+     */
+    public static void writeRequest(ByteBuffer out, byte opcode, int correlationId, byte[] account,
+                                    byte[] pin, byte[] toAccount, long amountCents) {
+        int lengthPosition = out.position();
+        out.putInt(0);
+        out.put(opcode);
+        out.putInt(correlationId);
+        putAccount(out, account);
+        if (opcode != OP_DEPOSIT) {
+            out.put(pin, 0, PIN_BYTES);
+        }
+        if (opcode == OP_TRANSFER) {
+            putAccount(out, toAccount);
+        }
+        if (opcode == OP_DEPOSIT || opcode == OP_WITHDRAW || opcode == OP_TRANSFER) {
+            out.putLong(amountCents);
+        }
+        out.putInt(lengthPosition, out.position() - lengthPosition - LENGTH_BYTES);
+    }
+    
+    /**
+     * Encode a response frame
+     */
+    static void writeResponse(ByteBuffer out, byte opcode, int correlationId, byte status, long balanceCents) {
+        out.putInt(RESPONSE_FRAME_BYTES);
+        out.put(opcode);
+        out.putInt(correlationId);
+        out.put(status);
+        out.putLong(balanceCents);
+    }
+    
+    private static void putAccount(ByteBuffer out, byte[] account) {
+        if (account.length > MAX_ACCOUNT_NUMBER_BYTES) {
+            throw new IllegalArgumentException("Account number too long");
+        }
+        out.put((byte) account.length);
+        out.put(account);
+    }
+}
@@ -0,0 +1,27 @@
+package com.banking.terminal;
+
+/**
+ * A decoded terminal request and, once executed, its outcome.
+ * Instances are pooled by the server and reused for many requests.
+ */
+final class TerminalRequest {
+    TerminalServer.Connection connection;
+    byte opcode;
+    int correlationId;
+    String accountNumber;
+    String pin;
+    String toAccountNumber;
+    long amountCents;
+    byte status;
+    long balanceCents;
+    
+    void clear() {
+        connection = null;
+        accountNumber = null;
+        pin = null;
+        toAccountNumber = null;
+        amountCents = 0;
+        status = TerminalProtocol.STATUS_OK;
+        balanceCents = 0;
+    }
+}
@@ -0,0 +1,618 @@
+package com.banking.terminal;
+
+import com.banking.metrics.MetricsReporter;
+import com.banking.model.Account;
+import com.banking.service.BankingService;
+import com.banking.service.PinLockedException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * NIO server for the binary terminal protocol (see {@link TerminalProtocol}).
+ *
+ * One selector thread owns all sockets: it reads into per-connection direct
+ * buffers, decodes frames in place into pooled {@link TerminalRequest}s and
+ * writes responses. Worker threads run the requests against BankingService,
+ * since those calls block on the database. Decoding reuses pooled requests and
+ * cached account number and PIN strings, so a steady stream of requests from
+ * the same terminals creates no garbage in the protocol layer.
+ *
+ * A connection may have up to {@code maxPipelineDepth} requests in flight;
+ * beyond that the server stops reading from it until responses go out.
+ */
+public class TerminalServer {
+    public static final int DEFAULT_PORT = 9090;
+    public static final int DEFAULT_WORKERS = 32;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4096;
+    public static final int DEFAULT_MAX_PIPELINE_DEPTH = 64;
+    
+    private static final int BUFFER_BYTES = 16 * 1024;
+    
+    private final BankingService bankingService;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final int maxPipelineDepth;
+    private final ArrayBlockingQueue<TerminalRequest> freeRequests;
+    private final ArrayBlockingQueue<TerminalRequest> pendingRequests;
+    private final ArrayBlockingQueue<TerminalRequest> completedRequests;
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final AsciiCache strings = new AsciiCache(4096);
+    // Selector-thread state
+    private final ArrayDeque<Connection> blocked = new ArrayDeque<>();
+    private final ArrayDeque<Connection> toFlush = new ArrayDeque<>();
+    private final Thread selectorThread;
+    private final Thread[] workers;
+    private volatile boolean running;
+    
+    public TerminalServer(BankingService bankingService, int port) throws IOException {
+        this(bankingService, port, DEFAULT_WORKERS, DEFAULT_MAX_IN_FLIGHT, DEFAULT_MAX_PIPELINE_DEPTH);
+    }
+    
+    /**
+     * @param bankingService Service requests are executed against
+     * @param port TCP port to listen on
+     * @param workerCount Threads executing requests
+     * @param maxInFlight Requests decoded but not yet answered, over all connections
+     * @param maxPipelineDepth Requests in flight per connection
+     * @throws IOException if the port cannot be bound
+     */
+    public TerminalServer(BankingService bankingService, int port, int workerCount, int maxInFlight,
+                          int maxPipelineDepth) throws IOException {
+        this.bankingService = bankingService;
+        this.maxPipelineDepth = maxPipelineDepth;
+        this.freeRequests = new ArrayBlockingQueue<>(maxInFlight);
+        this.pendingRequests = new ArrayBlockingQueue<>(maxInFlight);
+        this.completedRequests = new ArrayBlockingQueue<>(maxInFlight);
+        for (int i = 0; i < maxInFlight; i++) {
+            freeRequests.add(new TerminalRequest());
+        }
+        
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.configureBlocking(false);
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        
+        this.selectorThread = new Thread(this::runSelector, "terminal-selector");
+        this.workers = new Thread[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new Thread(this::runWorker, "terminal-worker-" + i);
+            workers[i].setDaemon(true);
+        }
+    }
+    
+    public synchronized void start() {
+        if (!running) {
+            running = true;
+            selectorThread.start();
+            for (Thread worker : workers) {
+                worker.start();
+            }
+        }
+    }
+    
+    /**
+     * Stop the server and close all connections; requests in flight are dropped
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+        selectorThread.join();
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+    
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    }
+    
+    // Selector thread
+    
+    private void runSelector() {
+        try {
+            while (running) {
+                selector.select();
+                wakeupPending.set(false);
+                drainCompletions();
+                
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(connection);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(connection);
+                        }
+                    } catch (RuntimeException e) {
+                        closeOnError(connection, e);
+                    }
+                }
+                
+                flushPending();
+                retryBlocked();
+            }
+        } catch (IOException e) {
+            System.err.println("Terminal server stopped: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+    
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        Connection connection = new Connection(channel);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+    }
+    
+    private void read(Connection connection) {
+        int read;
+        try {
+            read = connection.channel.read(connection.readBuffer);
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        if (read < 0) {
+            close(connection);
+            return;
+        }
+        decodeFrames(connection);
+    }
+    
+    /**
+     * Decode every complete frame in the connection's read buffer
+     */
+    private void decodeFrames(Connection connection) {
+        ByteBuffer buffer = connection.readBuffer;
+        buffer.flip();
+        try {
+            while (buffer.remaining() >= TerminalProtocol.LENGTH_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                if (length < TerminalProtocol.MIN_REQUEST_BYTES || length > TerminalProtocol.MAX_FRAME_BYTES) {
+                    // Framing is lost; nothing after this can be trusted
+                    close(connection);
+                    return;
+                }
+                if (buffer.remaining() < TerminalProtocol.LENGTH_BYTES + length) {
+                    break;
+                }
+                TerminalRequest request = connection.inFlight < maxPipelineDepth ? freeRequests.poll() : null;
+                if (request == null) {
+                    block(connection);
+                    break;
+                }
+                
+                int frameEnd = start + TerminalProtocol.LENGTH_BYTES + length;
+                request.connection = connection;
+                connection.inFlight++;
+                boolean decoded;
+                try {
+                    decoded = decode(buffer, start + TerminalProtocol.LENGTH_BYTES, frameEnd, request);
+                } catch (RuntimeException e) {
+                    connection.inFlight--;
+                    release(request);
+                    throw e;
+                }
+                if (decoded) {
+                    pendingRequests.add(request);
+                } else {
+                    request.status = TerminalProtocol.STATUS_BAD_REQUEST;
+                    completeOnSelector(request);
+                }
+                buffer.position(frameEnd);
+            }
+        } finally {
+            buffer.compact();
+        }
+    }
+    
+    /**
+     * Decode one frame body into a request, reading the buffer in place.
+     * Every field is checked against {@code end} before it is read.
+     * @return false if the body is malformed
+     */
+    boolean decode(ByteBuffer buffer, int position, int end, TerminalRequest request) {
+        if (end - position < TerminalProtocol.MIN_REQUEST_BYTES || end > buffer.limit()) {
+            return false;
+        }
+        request.opcode = buffer.get(position++);
+        request.correlationId = buffer.getInt(position);
+        position += 4;
+        
+        int accountLength = buffer.get(position++) & 0xFF;
+        if (accountLength == 0 || accountLength > TerminalProtocol.MAX_ACCOUNT_NUMBER_BYTES
+                || position + accountLength > end) {
+            return false;
+        }
+        request.accountNumber = strings.get(buffer, position, accountLength);
+        if (request.accountNumber == null) {
+            return false;
+        }
+        position += accountLength;
+        
+        byte opcode = request.opcode;
+        if (opcode != TerminalProtocol.OP_DEPOSIT) {
+            if (position + TerminalProtocol.PIN_BYTES > end) {
+                return false;
+            }
+            request.pin = strings.get(buffer, position, TerminalProtocol.PIN_BYTES);
+            if (request.pin == null) {
+                return false;
+            }
+            position += TerminalProtocol.PIN_BYTES;
+        }
+        if (opcode == TerminalProtocol.OP_TRANSFER) {
+            if (position >= end) {
+                return false;
+            }
+            int toLength = buffer.get(position++) & 0xFF;
+            if (toLength == 0 || toLength > TerminalProtocol.MAX_ACCOUNT_NUMBER_BYTES || position + toLength > end) {
+                return false;
+            }
+            request.toAccountNumber = strings.get(buffer, position, toLength);
+            if (request.toAccountNumber == null) {
+                return false;
+            }
+            position += toLength;
+        }
+        if (opcode == TerminalProtocol.OP_DEPOSIT || opcode == TerminalProtocol.OP_WITHDRAW
+                || opcode == TerminalProtocol.OP_TRANSFER) {
+            if (position + 8 > end) {
+                return false;
+            }
+            request.amountCents = buffer.getLong(position);
+            position += 8;
+        }
+        return opcode >= TerminalProtocol.OP_BALANCE && opcode <= TerminalProtocol.OP_TRANSFER && position == end;
+    }
+    
+    private void drainCompletions() {
+        TerminalRequest request;
+        while ((request = completedRequests.poll()) != null) {
+            completeOnSelector(request);
+        }
+    }
+    
+    private void completeOnSelector(TerminalRequest request) {
+        Connection connection = request.connection;
+        connection.inFlight--;
+        if (connection.open) {
+            connection.unsent.add(request);
+            if (!connection.flushQueued) {
+                connection.flushQueued = true;
+                toFlush.add(connection);
+            }
+        } else {
+            release(request);
+        }
+    }
+    
+    private void flushPending() {
+        Connection connection;
+        while ((connection = toFlush.poll()) != null) {
+            connection.flushQueued = false;
+            flush(connection);
+        }
+    }
+    
+    /**
+     * Encode queued responses and write as much as the socket takes
+     */
+    private void flush(Connection connection) {
+        if (!connection.open) {
+            return;
+        }
+        ByteBuffer buffer = connection.writeBuffer;
+        try {
+            while (true) {
+                TerminalRequest request;
+                while (buffer.remaining() >= TerminalProtocol.LENGTH_BYTES + TerminalProtocol.RESPONSE_FRAME_BYTES
+                        && (request = connection.unsent.poll()) != null) {
+                    TerminalProtocol.writeResponse(buffer, request.opcode, request.correlationId,
+                                                   request.status, request.balanceCents);
+                    release(request);
+                }
+                buffer.flip();
+                connection.channel.write(buffer);
+                boolean drained = !buffer.hasRemaining();
+                buffer.compact();
+                if (!drained) {
+                    connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                if (connection.unsent.isEmpty()) {
+                    connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            close(connection);
+        }
+    }
+    
+    /**
+     * Stop reading from a connection that has reached its pipeline depth or
+     * found the request pool empty; its buffered frames are retried later
+     */
+    private void block(Connection connection) {
+        if (!connection.blocked) {
+            connection.blocked = true;
+            connection.key.interestOps(connection.key.interestOps() & ~SelectionKey.OP_READ);
+            blocked.add(connection);
+        }
+    }
+    
+    private void retryBlocked() {
+        int count = blocked.size();
+        for (int i = 0; i < count && !freeRequests.isEmpty(); i++) {
+            Connection connection = blocked.poll();
+            connection.blocked = false;
+            if (!connection.open) {
+                continue;
+            }
+            try {
+                decodeFrames(connection);
+            } catch (RuntimeException e) {
+                closeOnError(connection, e);
+                continue;
+            }
+            if (!connection.blocked) {
+                connection.key.interestOps(connection.key.interestOps() | SelectionKey.OP_READ);
+            }
+        }
+    }
+    
+    private void release(TerminalRequest request) {
+        request.clear();
+        freeRequests.add(request);
+    }
+    
+    private void close(Connection connection) {
+        if (!connection.open) {
+            return;
+        }
+        connection.open = false;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+        TerminalRequest request;
+        while ((request = connection.unsent.poll()) != null) {
+            release(request);
+        }
+    }
+    
+    /**
+     * Drop a connection whose handling failed unexpectedly; the server keeps serving the others
+     */
+    private void closeOnError(Connection connection, RuntimeException e) {
+        System.err.println("Closing terminal connection after error: " + e);
+        close(connection);
+    }
+    
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                close((Connection) key.attachment());
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            // Shutting down anyway
+        }
+    }
+    
+    // Worker threads
+    
+    private void runWorker() {
+        while (running) {
+            TerminalRequest request;
+            try {
+                request = pendingRequests.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            execute(request);
+            completedRequests.add(request);
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+    }
+    
+    private void execute(TerminalRequest request) {
+        try {
+            switch (request.opcode) {
+                case TerminalProtocol.OP_BALANCE:
+                    if (!bankingService.verifyPin(request.accountNumber, request.pin)) {
+                        request.status = TerminalProtocol.STATUS_DENIED;
+                        break;
+                    }
+                    request.balanceCents = toCents(bankingService.getAccountBalance(request.accountNumber));
+                    break;
+                case TerminalProtocol.OP_VERIFY_PIN:
+                    if (!bankingService.verifyPin(request.accountNumber, request.pin)) {
+                        request.status = TerminalProtocol.STATUS_DENIED;
+                    }
+                    break;
+                case TerminalProtocol.OP_DEPOSIT:
+                    // No PIN: confirm the deposit without revealing the balance
+                    bankingService.depositMoney(request.accountNumber,
+                        BigDecimal.valueOf(request.amountCents, 2), "Terminal deposit");
+                    break;
+                case TerminalProtocol.OP_WITHDRAW:
+                    if (!bankingService.verifyPin(request.accountNumber, request.pin)) {
+                        request.status = TerminalProtocol.STATUS_DENIED;
+                        break;
+                    }
+                    Account withdrawn = bankingService.withdrawMoney(request.accountNumber,
+                        BigDecimal.valueOf(request.amountCents, 2), "Terminal withdrawal");
+                    request.balanceCents = toCents(withdrawn.getBalance());
+                    break;
+                case TerminalProtocol.OP_TRANSFER:
+                    if (!bankingService.verifyPin(request.accountNumber, request.pin)) {
+                        request.status = TerminalProtocol.STATUS_DENIED;
+                        break;
+                    }
+                    BankingService.TransferResult result = bankingService.transferMoney(request.accountNumber,
+                        request.toAccountNumber, BigDecimal.valueOf(request.amountCents, 2), null);
+                    request.balanceCents = toCents(result.getFromAccount().getBalance());
+                    break;
+                default:
+                    request.status = TerminalProtocol.STATUS_BAD_REQUEST;
+            }
+        } catch (IllegalArgumentException e) {
+            String message = e.getMessage() != null ? e.getMessage() : "";
+            if (message.contains("not found")) {
+                request.status = TerminalProtocol.STATUS_NOT_FOUND;
+            } else if (message.startsWith("Insufficient balance")) {
+                request.status = TerminalProtocol.STATUS_INSUFFICIENT_FUNDS;
+            } else {
+                request.status = TerminalProtocol.STATUS_REJECTED;
+            }
+        } catch (PinLockedException e) {
+            request.status = TerminalProtocol.STATUS_DENIED;
+        } catch (IllegalStateException e) {
+            request.status = TerminalProtocol.STATUS_BUSY;
+        } catch (SQLException e) {
+            request.status = "40001".equals(e.getSQLState()) || e instanceof SQLTransientConnectionException
+                ? TerminalProtocol.STATUS_BUSY : TerminalProtocol.STATUS_ERROR;
+        } catch (RuntimeException e) {
+            request.status = TerminalProtocol.STATUS_ERROR;
+        }
+        if (request.status != TerminalProtocol.STATUS_OK) {
+            request.balanceCents = 0;
+        }
+    }
+    
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).longValue();
+    }
+    
+    /**
+     * One terminal connection; only the selector thread touches its state
+     */
+    static final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final ArrayDeque<TerminalRequest> unsent = new ArrayDeque<>();
+        private SelectionKey key;
+        private int inFlight;
+        private boolean open = true;
+        private boolean blocked;
+        private boolean flushQueued;
+        
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+    
+    /**
+     * Direct-mapped cache of short ASCII strings such as account numbers and
+     * PINs, so decoding a known value returns the cached String without allocating.
+     * Bytes above 0x7F are rejected rather than masked, so no two distinct byte
+     * sequences decode to the same string.
+     */
+    private static final class AsciiCache {
+        private final String[] entries;
+        private final int mask;
+        
+        AsciiCache(int size) {
+            this.entries = new String[size];
+            this.mask = size - 1;
+        }
+        
+        /**
+         * @return The decoded string, or null if a byte is not ASCII
+         */
+        String get(ByteBuffer buffer, int position, int length) {
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                byte b = buffer.get(position + i);
+                if (b < 0) {
+                    return null;
+                }
+                hash = 31 * hash + b;
+            }
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            String cached = entries[slot];
+            if (cached != null && matches(cached, buffer, position, length)) {
+                return cached;
+            }
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = (char) buffer.get(position + i);
+            }
+            String value = new String(chars);
+            entries[slot] = value;
+            return value;
+        }
+        
+        private static boolean matches(String cached, ByteBuffer buffer, int position, int length) {
+            if (cached.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (cached.charAt(i) != buffer.get(position + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
+    /**
+     * Run the terminal server until the process is stopped
+     * @param args Optional port (default 9090)
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        final TerminalServer server = new TerminalServer(new BankingService(), port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        server.start();
+        MetricsReporter.startIfConfigured();
+        System.out.println("Terminal server listening on port " + server.getPort());
+    }
+}
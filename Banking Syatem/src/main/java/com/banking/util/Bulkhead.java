@@ -0,0 +1,69 @@
+package com.banking.util;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the connections one query class may hold at once
+ */
+public class Bulkhead {
+    private final QueryClass queryClass;
+    private final Semaphore permits;
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    
+    public Bulkhead(QueryClass queryClass) {
+        if (queryClass.getMaxConnections() <= 0) {
+            throw new IllegalArgumentException("Bulkhead size must be positive for " + queryClass.getValue());
+        }
+        this.queryClass = queryClass;
+        this.permits = new Semaphore(queryClass.getMaxConnections(), true);
+    }
+    
+    /**
+     * Take a connection slot, waiting at most the query class's maximum wait
+     * @throws SQLException if no slot frees up in time, or the thread is interrupted
+     */
+    public void acquire() throws SQLException {
+        boolean granted;
+        try {
+            granted = permits.tryAcquire(queryClass.getMaxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", "08004", e);
+        }
+        if (!granted) {
+            rejected.increment();
+            throw new SQLTransientConnectionException("Too many concurrent " + queryClass.getValue()
+                                                      + " database connections", "08004");
+        }
+        acquired.increment();
+    }
+    
+    public void release() {
+        permits.release();
+    }
+    
+    public QueryClass getQueryClass() {
+        return queryClass;
+    }
+    
+    public int getInUse() {
+        return queryClass.getMaxConnections() - permits.availablePermits();
+    }
+    
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+    
+    public long getAcquired() {
+        return acquired.sum();
+    }
+    
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -0,0 +1,152 @@
+package com.banking.util;
+
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker around the database.
+ *
+ * After {@code failureThreshold} consecutive outage failures (connection errors,
+ * and query timeouts where the query class says they matter) the breaker opens
+ * and connection requests fail at once for {@code openMillis}. It then goes
+ * half-open and lets {@code probes} connections through; the first to finish
+ * cleanly closes the breaker, the first to fail opens it again.
+ */
+public class CircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+    public static final long DEFAULT_OPEN_MILLIS = 5000;
+    public static final int DEFAULT_PROBES = 1;
+    
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+    
+    private final int failureThreshold;
+    private final long openNanos;
+    private final int probes;
+    
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private int probesInFlight;
+    
+    private final LongAdder trips = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    
+    public CircuitBreaker() {
+        this(DEFAULT_FAILURE_THRESHOLD, DEFAULT_OPEN_MILLIS, DEFAULT_PROBES);
+    }
+    
+    /**
+     * @param failureThreshold Consecutive failures that open the breaker
+     * @param openMillis Time the breaker stays open before probing
+     * @param probes Connections let through while half-open
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis, int probes) {
+        if (failureThreshold <= 0 || openMillis <= 0 || probes <= 0) {
+            throw new IllegalArgumentException("Circuit breaker settings must be positive");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.probes = probes;
+    }
+    
+    /**
+     * Ask to use the database
+     * @return true if the caller is a half-open probe
+     * @throws SQLException if the breaker is open
+     */
+    public synchronized boolean acquirePermission() throws SQLException {
+        if (state == State.OPEN) {
+            long waited = System.nanoTime() - openedAtNanos;
+            if (waited < openNanos) {
+                rejected.increment();
+                throw new SQLTransientConnectionException("Database unavailable (circuit open), retry in "
+                    + TimeUnit.NANOSECONDS.toMillis(openNanos - waited) + " ms", "08001");
+            }
+            state = State.HALF_OPEN;
+            probesInFlight = 0;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight >= probes) {
+                rejected.increment();
+                throw new SQLTransientConnectionException("Database unavailable (circuit half-open, probing)", "08001");
+            }
+            probesInFlight++;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Give back a half-open probe slot that was not used
+     */
+    public synchronized void releaseProbe() {
+        if (state == State.HALF_OPEN && probesInFlight > 0) {
+            probesInFlight--;
+        }
+    }
+    
+    /**
+     * Record a connection that was used without outage failures
+     * @param probe Whether the connection was a half-open probe
+     */
+    public synchronized void onSuccess(boolean probe) {
+        if (probe && state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+        }
+    }
+    
+    /**
+     * Record an outage failure
+     * @param probe Whether the connection was a half-open probe
+     */
+    public synchronized void onFailure(boolean probe) {
+        if (probe && state == State.HALF_OPEN) {
+            probesInFlight--;
+        }
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold)) {
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+            trips.increment();
+        }
+    }
+    
+    /**
+     * Decide whether an exception means the database is unreachable or stuck,
+     * as opposed to a constraint violation, deadlock or bad SQL
+     * @param e Exception thrown by JDBC
+     * @param queryClass Class of the connection it was thrown on
+     * @return true if it counts towards opening the breaker
+     */
+    public static boolean isOutage(SQLException e, QueryClass queryClass) {
+        if (e instanceof SQLTimeoutException) {
+            return queryClass.isTimeoutSignalsOutage();
+        }
+        String sqlState = e.getSQLState();
+        return e instanceof SQLTransientConnectionException
+            || e instanceof SQLNonTransientConnectionException
+            || (sqlState != null && sqlState.startsWith("08"));
+    }
+    
+    public synchronized State getState() {
+        return state;
+    }
+    
+    public long getTrips() {
+        return trips.sum();
+    }
+    
+    public long getRejected() {
+        return rejected.sum();
+    }
+}
@@ -1,21 +1,50 @@
 package com.banking.util;
 
+import com.banking.metrics.FlightRecorderEvents;
+import com.banking.metrics.MetricsRegistry;
+import com.banking.metrics.Timer;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Database connection utility class
+ * Database connection utility class.
+ *
+ * Connections are opened through a circuit breaker and a per-query-class
+ * bulkhead, and every statement on them gets its query class's timeout.
  */
 public class DatabaseConnection {
-    // Database configuration
-    private static final String URL = "jdbc:mysql://localhost:3306/banking_system";
-    private static final String USERNAME = "root";
-    private static final String PASSWORD = "Kushagra@20";
+    // Database configuration, overridable with -Dbanking.db.url, -Dbanking.db.user and -Dbanking.db.password
+    // Batched statements are sent as multi-row statements rather than one round trip per row
+    private static final String URL = System.getProperty("banking.db.url",
+        "jdbc:mysql://localhost:3306/banking_system?rewriteBatchedStatements=true");
+    private static final String USERNAME = System.getProperty("banking.db.user", "root");
+    private static final String PASSWORD = System.getProperty("banking.db.password", "Kushagra@20");
     
     // JDBC Driver
     private static final String DRIVER = "com.mysql.cj.jdbc.Driver";
     
+    // Resilience settings
+    private static final int CONNECT_TIMEOUT_MILLIS = Integer.getInteger("banking.db.connectTimeoutMillis", 3000);
+    // Backstop for a dead socket that a query timeout cannot cancel
+    private static final int NETWORK_TIMEOUT_MARGIN_MILLIS = 10000;
+    
+    private static final CircuitBreaker CIRCUIT_BREAKER = new CircuitBreaker();
+    private static final Map<QueryClass, Bulkhead> BULKHEADS = new EnumMap<>(QueryClass.class);
+    private static final Map<QueryClass, Timer> ACQUIRE_TIMERS = new EnumMap<>(QueryClass.class);
+    private static final ExecutorService NETWORK_TIMEOUT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "jdbc-network-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
     // Static block to load the driver
     static {
         try {
@@ -24,20 +53,108 @@ public class DatabaseConnection {
             System.err.println("MySQL JDBC Driver not found: " + e.getMessage());
             throw new RuntimeException("Failed to load MySQL JDBC Driver", e);
         }
+        for (QueryClass queryClass : QueryClass.values()) {
+            BULKHEADS.put(queryClass, new Bulkhead(queryClass));
+            ACQUIRE_TIMERS.put(queryClass, MetricsRegistry.timer("db.connection." + queryClass.getValue()));
+        }
     }
     
     /**
-     * Get a database connection
+     * Get a database connection for money movement and single-account reads
      * @return Connection object
      * @throws SQLException if connection fails
      */
     public static Connection getConnection() throws SQLException {
+        return getConnection(QueryClass.TRANSACTIONAL);
+    }
+    
+    /**
+     * Get a database connection for a class of queries
+     * @param queryClass Kind of work the connection is for
+     * @return Connection object; closing it frees the query class's slot
+     * @throws SQLException if connection fails, the circuit breaker is open or the query class has no free slot
+     */
+    public static Connection getConnection(QueryClass queryClass) throws SQLException {
+        Timer acquireTimer = ACQUIRE_TIMERS.get(queryClass);
+        Object event = FlightRecorderEvents.beginConnectionAcquire();
+        long started = System.nanoTime();
+        boolean probe;
+        Bulkhead bulkhead = BULKHEADS.get(queryClass);
         try {
-            return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+            probe = CIRCUIT_BREAKER.acquirePermission();
         } catch (SQLException e) {
+            long waited = System.nanoTime() - started;
+            acquireTimer.recordRejected(waited);
+            FlightRecorderEvents.endConnectionAcquire(event, queryClass.getValue(),
+                                                      FlightRecorderEvents.OUTCOME_REJECTED, waited);
+            throw e;
+        }
+        try {
+            bulkhead.acquire();
+        } catch (SQLException e) {
+            // Not the database's fault: give back the probe slot without judging
+            if (probe) {
+                CIRCUIT_BREAKER.releaseProbe();
+            }
+            long waited = System.nanoTime() - started;
+            acquireTimer.recordRejected(waited);
+            FlightRecorderEvents.endConnectionAcquire(event, queryClass.getValue(),
+                                                      FlightRecorderEvents.OUTCOME_REJECTED, waited);
+            throw e;
+        }
+        
+        Connection connection;
+        try {
+            connection = openConnection(queryClass);
+        } catch (SQLException e) {
+            bulkhead.release();
+            CIRCUIT_BREAKER.onFailure(probe);
+            long waited = System.nanoTime() - started;
+            acquireTimer.recordError(waited);
+            FlightRecorderEvents.endConnectionAcquire(event, queryClass.getValue(),
+                                                      FlightRecorderEvents.OUTCOME_ERROR, waited);
             System.err.println("Failed to connect to database: " + e.getMessage());
             throw e;
         }
+        long waited = System.nanoTime() - started;
+        acquireTimer.record(waited);
+        FlightRecorderEvents.endConnectionAcquire(event, queryClass.getValue(), FlightRecorderEvents.OUTCOME_OK, waited);
+        return GuardedConnection.wrap(connection, queryClass, bulkhead, CIRCUIT_BREAKER, probe);
+    }
+    
+    private static Connection openConnection(QueryClass queryClass) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("user", USERNAME);
+        properties.setProperty("password", PASSWORD);
+        properties.setProperty("connectTimeout", String.valueOf(CONNECT_TIMEOUT_MILLIS));
+        Connection connection = DriverManager.getConnection(URL, properties);
+        try {
+            connection.setNetworkTimeout(NETWORK_TIMEOUT_EXECUTOR,
+                queryClass.getQueryTimeoutSeconds() * 1000 + NETWORK_TIMEOUT_MARGIN_MILLIS);
+        } catch (SQLFeatureNotSupportedException e) {
+            // Query timeouts still apply
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+    
+    /**
+     * Get the circuit breaker guarding all connections
+     * @return Circuit breaker
+     */
+    public static CircuitBreaker getCircuitBreaker() {
+        return CIRCUIT_BREAKER;
+    }
+    
+    /**
+     * Get the bulkhead of a query class
+     * @param queryClass Query class
+     * @return Bulkhead, for inspecting usage and rejections
+     */
+    public static Bulkhead getBulkhead(QueryClass queryClass) {
+        return BULKHEADS.get(queryClass);
     }
     
     /**
@@ -0,0 +1,298 @@
+package com.banking.util;
+
+import com.banking.metrics.FlightRecorderEvents;
+import com.banking.metrics.MetricsRegistry;
+import com.banking.metrics.Timer;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connection proxy that applies its query class's timeout to every statement,
+ * times statement executions, reports outage failures to the circuit breaker,
+ * and gives the bulkhead slot back when the connection is closed.
+ *
+ * While the slow-query log is enabled, statements also capture their bound
+ * parameters and count the rows they return so slow executions can be logged.
+ * While a flight recording runs, each execution is recorded as an event.
+ */
+final class GuardedConnection implements InvocationHandler {
+    // SQL text to its timer, so preparing a known statement does not normalize again
+    private static final int MAX_CACHED_STATEMENTS = 5000;
+    private static final ConcurrentHashMap<String, Timer> STATEMENT_TIMERS = new ConcurrentHashMap<>();
+    
+    private final Connection connection;
+    private final QueryClass queryClass;
+    private final Bulkhead bulkhead;
+    private final CircuitBreaker circuitBreaker;
+    private final boolean probe;
+    private Connection proxy;
+    private boolean failed;
+    private boolean closed;
+    
+    private GuardedConnection(Connection connection, QueryClass queryClass, Bulkhead bulkhead,
+                              CircuitBreaker circuitBreaker, boolean probe) {
+        this.connection = connection;
+        this.queryClass = queryClass;
+        this.bulkhead = bulkhead;
+        this.circuitBreaker = circuitBreaker;
+        this.probe = probe;
+    }
+    
+    /**
+     * Wrap an open connection; closing the result releases the bulkhead slot
+     */
+    static Connection wrap(Connection connection, QueryClass queryClass, Bulkhead bulkhead,
+                           CircuitBreaker circuitBreaker, boolean probe) {
+        GuardedConnection handler = new GuardedConnection(connection, queryClass, bulkhead, circuitBreaker, probe);
+        handler.proxy = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                                             new Class<?>[] { Connection.class }, handler);
+        return handler.proxy;
+    }
+    
+    @Override
+    public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (name.equals("close")) {
+            close();
+            return null;
+        }
+        if (name.equals("isClosed") && closed) {
+            return true;
+        }
+        
+        Object result = call(connection, method, args);
+        if (result instanceof Statement && (name.equals("createStatement") || name.equals("prepareStatement")
+                                            || name.equals("prepareCall"))) {
+            Statement statement = (Statement) result;
+            statement.setQueryTimeout(queryClass.getQueryTimeoutSeconds());
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            Timer timer = sql != null ? statementTimer(sql) : null;
+            return Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { method.getReturnType() },
+                                          new StatementHandler(statement, sql, timer, SlowQueryLog.isEnabled()));
+        }
+        return result;
+    }
+    
+    private Object call(Object delegate, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException && CircuitBreaker.isOutage((SQLException) cause, queryClass)) {
+                recordFailure();
+            }
+            throw cause;
+        }
+    }
+    
+    static Timer statementTimer(String sql) {
+        Timer timer = STATEMENT_TIMERS.get(sql);
+        if (timer == null) {
+            timer = MetricsRegistry.timer("sql." + SqlText.normalize(sql));
+            if (STATEMENT_TIMERS.size() < MAX_CACHED_STATEMENTS) {
+                STATEMENT_TIMERS.put(sql, timer);
+            }
+        }
+        return timer;
+    }
+    
+    private synchronized void recordFailure() {
+        if (!failed) {
+            failed = true;
+            circuitBreaker.onFailure(probe);
+        }
+    }
+    
+    private void close() throws SQLException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        try {
+            connection.close();
+        } finally {
+            bulkhead.release();
+            synchronized (this) {
+                if (!failed) {
+                    circuitBreaker.onSuccess(probe);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Statement proxy timing executions, reporting outage failures and handing out the connection proxy
+     */
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+        private final Timer timer;
+        // Bound parameters by index; only captured if the slow-query log was on at prepare time
+        private final List<Object> parameters;
+        private RowCounter openResult;
+        
+        StatementHandler(Statement statement, String sql, Timer timer, boolean captureParameters) {
+            this.statement = statement;
+            this.sql = sql;
+            this.timer = timer;
+            this.parameters = captureParameters && sql != null ? new ArrayList<>() : null;
+        }
+        
+        @Override
+        public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getConnection")) {
+                return proxy;
+            }
+            if (!name.startsWith("execute")) {
+                if (parameters != null) {
+                    captureParameter(name, args);
+                }
+                if (name.equals("close")) {
+                    finishResult();
+                }
+                return call(statement, method, args);
+            }
+            
+            // Plain statements carry their SQL in the execute call
+            String executedSql = sql != null ? sql
+                : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            Timer executeTimer = timer != null ? timer
+                : executedSql != null ? statementTimer(executedSql) : MetricsRegistry.timer("sql.batch");
+            Object event = FlightRecorderEvents.beginStatement();
+            long started = System.nanoTime();
+            Object result;
+            try {
+                result = call(statement, method, args);
+                executeTimer.record(System.nanoTime() - started);
+            } catch (Throwable e) {
+                executeTimer.recordError(System.nanoTime() - started);
+                FlightRecorderEvents.endStatement(event, queryClass.getValue(), executedSql, -1,
+                                                  FlightRecorderEvents.OUTCOME_ERROR);
+                throw e;
+            }
+            
+            boolean logSlow = executedSql != null && SlowQueryLog.isEnabled();
+            if (result instanceof ResultSet && (logSlow || event != null)) {
+                // Fetching is part of the cost; finish when the result set is closed
+                finishResult();
+                openResult = new RowCounter((ResultSet) result, executedSql, started, logSlow, event);
+                return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                              new Class<?>[] { ResultSet.class }, openResult);
+            }
+            if (logSlow) {
+                SlowQueryLog.record(queryClass, executedSql, parameters, SlowQueryLog.redactedParameters(executedSql),
+                                    affectedRows(result), System.nanoTime() - started);
+            }
+            if (event != null) {
+                FlightRecorderEvents.endStatement(event, queryClass.getValue(), executedSql, affectedRows(result),
+                                                  FlightRecorderEvents.OUTCOME_OK);
+            }
+            return result;
+        }
+        
+        private void captureParameter(String name, Object[] args) {
+            if (name.equals("clearParameters")) {
+                parameters.clear();
+                return;
+            }
+            if (!name.startsWith("set") || args == null || args.length < 2 || !(args[0] instanceof Integer)) {
+                return;
+            }
+            int index = (Integer) args[0];
+            while (parameters.size() <= index) {
+                parameters.add(null);
+            }
+            Object value = args[1];
+            if (name.equals("setNull")) {
+                value = null;
+            } else if (name.endsWith("Stream") || name.endsWith("Reader") || name.endsWith("lob")) {
+                value = "<stream>";
+            }
+            parameters.set(index, value);
+        }
+        
+        private void finishResult() {
+            if (openResult != null) {
+                openResult.finish();
+                openResult = null;
+            }
+        }
+        
+        private long affectedRows(Object result) {
+            if (result instanceof Integer || result instanceof Long) {
+                return ((Number) result).longValue();
+            }
+            if (result instanceof int[]) {
+                long rows = 0;
+                for (int count : (int[]) result) {
+                    rows += Math.max(count, 0);
+                }
+                return rows;
+            }
+            return -1;
+        }
+        
+        /**
+         * Result set proxy counting fetched rows for the slow-query log and the flight recorder event
+         */
+        private final class RowCounter implements InvocationHandler {
+            private final ResultSet resultSet;
+            private final String executedSql;
+            private final List<Object> executedParameters;
+            private final long started;
+            private final boolean logSlow;
+            private final Object event;
+            private long rows;
+            private boolean finished;
+            
+            RowCounter(ResultSet resultSet, String executedSql, long started, boolean logSlow, Object event) {
+                this.resultSet = resultSet;
+                this.executedSql = executedSql;
+                this.executedParameters = logSlow && parameters != null ? new ArrayList<>(parameters) : null;
+                this.started = started;
+                this.logSlow = logSlow;
+                this.event = event;
+            }
+            
+            @Override
+            public Object invoke(Object target, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (name.equals("close")) {
+                    finish();
+                }
+                Object result = call(resultSet, method, args);
+                if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                    rows++;
+                }
+                return result;
+            }
+            
+            void finish() {
+                if (!finished) {
+                    finished = true;
+                    if (logSlow) {
+                        BitSet redacted = SlowQueryLog.redactedParameters(executedSql);
+                        SlowQueryLog.record(queryClass, executedSql, executedParameters, redacted,
+                                            rows, System.nanoTime() - started);
+                    }
+                    FlightRecorderEvents.endStatement(event, queryClass.getValue(), executedSql, rows,
+                                                      FlightRecorderEvents.OUTCOME_OK);
+                }
+            }
+        }
+    }
+}
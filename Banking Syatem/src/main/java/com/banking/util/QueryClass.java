@@ -0,0 +1,77 @@
+package com.banking.util;
+
+/**
+ * Kinds of database work, each with its own query timeout and connection bulkhead
+ * so that one kind cannot starve another.
+ *
+ * Defaults can be overridden with system properties, for example
+ * {@code -Dbanking.db.reporting.queryTimeoutSeconds=600} or
+ * {@code -Dbanking.db.transactional.maxConnections=64}.
+ */
+public enum QueryClass {
+    /** Money movement and single-account reads */
+    TRANSACTIONAL("transactional", 5, 32, 1000, true),
+    /** Nightly and background jobs: interest, maturities, standing orders, outbox relay, view refresh */
+    BATCH("batch", 60, 4, 30000, false),
+    /** Scans and exports: full listings, date ranges, statements */
+    REPORTING("reporting", 300, 4, 5000, false);
+    
+    private final String value;
+    private final int queryTimeoutSeconds;
+    private final int maxConnections;
+    private final long maxWaitMillis;
+    private final boolean timeoutSignalsOutage;
+    
+    QueryClass(String value, int queryTimeoutSeconds, int maxConnections, long maxWaitMillis,
+               boolean timeoutSignalsOutage) {
+        this.value = value;
+        this.queryTimeoutSeconds = Integer.getInteger("banking.db." + value + ".queryTimeoutSeconds",
+                                                      queryTimeoutSeconds);
+        this.maxConnections = Integer.getInteger("banking.db." + value + ".maxConnections", maxConnections);
+        this.maxWaitMillis = Long.getLong("banking.db." + value + ".maxWaitMillis", maxWaitMillis);
+        this.timeoutSignalsOutage = timeoutSignalsOutage;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    /**
+     * @return Timeout applied to every statement on connections of this class
+     */
+    public int getQueryTimeoutSeconds() {
+        return queryTimeoutSeconds;
+    }
+    
+    /**
+     * @return Connections of this class that may be open at once
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+    
+    /**
+     * @return Longest a caller waits for a free connection slot
+     */
+    public long getMaxWaitMillis() {
+        return maxWaitMillis;
+    }
+    
+    /**
+     * A timed-out payment query means the database is in trouble; a timed-out
+     * report more likely means the report is too big.
+     * @return true if query timeouts of this class count towards opening the circuit breaker
+     */
+    public boolean isTimeoutSignalsOutage() {
+        return timeoutSignalsOutage;
+    }
+    
+    public static QueryClass fromString(String value) {
+        for (QueryClass queryClass : QueryClass.values()) {
+            if (queryClass.value.equalsIgnoreCase(value)) {
+                return queryClass;
+            }
+        }
+        throw new IllegalArgumentException("Invalid query class: " + value);
+    }
+}
@@ -0,0 +1,368 @@
+package com.banking.util;
+
+import java.io.PrintStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Slow-query log for every statement run on DatabaseConnection connections.
+ *
+ * When enabled, statements whose execution plus result fetching takes at least
+ * the threshold are logged with their parameter count, rows returned or
+ * affected and elapsed time, and aggregated by normalized SQL
+ * for a top-N report. Optionally the plan of a slow statement is captured with
+ * EXPLAIN on a separate reporting connection, at most once per statement per
+ * ten minutes. When disabled the connection proxy checks one flag per
+ * statement and captures nothing.
+ *
+ * Bound values are customer data (account numbers, names, emails), so they
+ * are shown as {@code ****} unless {@code -Dbanking.db.slowQueryParameters=true}
+ * or {@link #setParameterLogging} asks for them; PIN columns stay redacted
+ * either way.
+ *
+ * Can be enabled at startup with {@code -Dbanking.db.slowQueryMillis=200}
+ * and {@code -Dbanking.db.slowQueryExplain=true}.
+ */
+public final class SlowQueryLog {
+    public static final int MAX_STATEMENTS = 1000;
+    
+    private static final long EXPLAIN_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int MAX_VALUE_LENGTH = 100;
+    private static final String REDACTED = "****";
+    
+    // Columns whose values never appear in the log
+    private static final Pattern SENSITIVE_COLUMN = Pattern.compile("pin", Pattern.CASE_INSENSITIVE);
+    private static final Pattern COMPARED_COLUMN = Pattern.compile("(\\w+)\\s*(=|<>|!=|<=|>=|<|>)\\s*$");
+    private static final Pattern INSERT_COLUMNS = Pattern.compile(
+        "^\\s*(?:INSERT|REPLACE)\\s+(?:IGNORE\\s+)?INTO\\s+\\S+\\s*\\(([^)]*)\\)\\s*VALUES\\s*\\(",
+        Pattern.CASE_INSENSITIVE);
+    private static final Pattern EXPLAINABLE = Pattern.compile("^\\s*(SELECT|UPDATE|DELETE|INSERT|REPLACE)\\b",
+                                                               Pattern.CASE_INSENSITIVE);
+    private static final Pattern LOCKING_CLAUSE = Pattern.compile("\\s+FOR\\s+UPDATE\\s*$", Pattern.CASE_INSENSITIVE);
+    
+    private static final ConcurrentHashMap<String, BitSet> REDACTIONS = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, StatementStats> STATEMENTS = new ConcurrentHashMap<>();
+    private static final ThreadPoolExecutor EXPLAIN_EXECUTOR = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(16), runnable -> {
+            Thread thread = new Thread(runnable, "slow-query-explain");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.DiscardPolicy());
+    
+    private static volatile long thresholdNanos = -1;
+    private static volatile boolean explain;
+    private static volatile boolean logParameters = Boolean.getBoolean("banking.db.slowQueryParameters");
+    private static volatile PrintStream out = System.err;
+    
+    static {
+        long millis = Long.getLong("banking.db.slowQueryMillis", -1);
+        if (millis >= 0) {
+            enable(millis, Boolean.getBoolean("banking.db.slowQueryExplain"));
+        }
+    }
+    
+    private SlowQueryLog() {
+    }
+    
+    /**
+     * Start logging slow statements
+     * @param thresholdMillis Elapsed time from which a statement is slow (0 logs everything)
+     * @param explainPlans Whether to capture EXPLAIN output for slow statements
+     */
+    public static void enable(long thresholdMillis, boolean explainPlans) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("Slow query threshold must not be negative");
+        }
+        explain = explainPlans;
+        thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+    }
+    
+    public static void disable() {
+        thresholdNanos = -1;
+    }
+    
+    public static boolean isEnabled() {
+        return thresholdNanos >= 0;
+    }
+    
+    /**
+     * @param enabled Whether bound values other than PINs appear in the log (off by default)
+     */
+    public static void setParameterLogging(boolean enabled) {
+        logParameters = enabled;
+    }
+    
+    /**
+     * @param output Stream slow statements are logged to (standard error by default)
+     */
+    public static void setOutput(PrintStream output) {
+        out = output;
+    }
+    
+    /**
+     * Get the statements with the most total slow time
+     * @param limit Maximum number of statements
+     * @return Statements, slowest in total first
+     */
+    public static List<StatementStats> getTopStatements(int limit) {
+        List<StatementStats> statements = new ArrayList<>(STATEMENTS.values());
+        statements.sort((a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+        return statements.size() > limit ? new ArrayList<>(statements.subList(0, limit)) : statements;
+    }
+    
+    /**
+     * Render the top-N report as text
+     * @param limit Maximum number of statements
+     * @return Report, one block per statement
+     */
+    public static String report(int limit) {
+        StringBuilder report = new StringBuilder();
+        for (StatementStats stats : getTopStatements(limit)) {
+            report.append(String.format(Locale.ROOT, "%6d slow  total=%.1fms  max=%.1fms  maxRows=%d  %s%n",
+                stats.getCount(), stats.getTotalNanos() / 1e6, stats.getMaxNanos() / 1e6,
+                stats.getMaxRows(), stats.getSql()));
+            if (stats.getLastParameters() != null) {
+                report.append("       last parameters: ").append(stats.getLastParameters())
+                      .append(System.lineSeparator());
+            }
+            if (stats.getPlan() != null) {
+                report.append(stats.getPlan());
+            }
+        }
+        return report.toString();
+    }
+    
+    /**
+     * Forget all aggregated statements
+     */
+    public static void reset() {
+        STATEMENTS.clear();
+    }
+    
+    /**
+     * Work out which parameters of a statement bind PIN columns
+     * @param sql SQL as prepared
+     * @return 1-based indexes of parameters to redact
+     */
+    static BitSet redactedParameters(String sql) {
+        BitSet redacted = REDACTIONS.get(sql);
+        if (redacted != null) {
+            return redacted;
+        }
+        redacted = new BitSet();
+        
+        List<String> insertColumns = Collections.emptyList();
+        int valuesStart = -1;
+        Matcher insert = INSERT_COLUMNS.matcher(sql);
+        if (insert.find()) {
+            insertColumns = new ArrayList<>();
+            for (String column : insert.group(1).split(",")) {
+                insertColumns.add(column.trim().replace("`", ""));
+            }
+            valuesStart = insert.end();
+        }
+        
+        int index = 0;
+        int valuePosition = 0;
+        boolean quoted = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (c == '?' && !quoted) {
+                index++;
+                String column = null;
+                if (valuesStart >= 0 && i >= valuesStart && valuePosition < insertColumns.size()) {
+                    column = insertColumns.get(valuePosition++);
+                } else {
+                    Matcher compared = COMPARED_COLUMN.matcher(sql.substring(Math.max(0, i - 64), i));
+                    if (compared.find()) {
+                        column = compared.group(1);
+                    }
+                }
+                if (column != null && SENSITIVE_COLUMN.matcher(column).matches()) {
+                    redacted.set(index);
+                }
+            }
+        }
+        
+        if (REDACTIONS.size() < MAX_STATEMENTS * 5) {
+            REDACTIONS.put(sql, redacted);
+        }
+        return redacted;
+    }
+    
+    /**
+     * Log a finished statement if it was slow
+     * @param queryClass Query class of the connection
+     * @param sql SQL as prepared
+     * @param parameters Bound parameters by index (index 0 unused; may be null)
+     * @param redacted Parameters not to log
+     * @param rows Rows returned or affected (-1 if unknown)
+     * @param elapsedNanos Execution plus fetch time
+     */
+    static void record(QueryClass queryClass, String sql, List<Object> parameters, BitSet redacted,
+                       long rows, long elapsedNanos) {
+        long threshold = thresholdNanos;
+        if (threshold < 0 || elapsedNanos < threshold) {
+            return;
+        }
+        
+        String normalized = SqlText.normalize(sql);
+        String renderedParameters = renderParameters(parameters, redacted);
+        out.println(String.format(Locale.ROOT, "[slow-query] %.1f ms rows=%d class=%s sql=%s params=%s",
+            elapsedNanos / 1e6, rows, queryClass.getValue(), normalized, renderedParameters));
+        
+        StatementStats stats = STATEMENTS.get(normalized);
+        if (stats == null) {
+            if (STATEMENTS.size() >= MAX_STATEMENTS) {
+                return;
+            }
+            stats = STATEMENTS.computeIfAbsent(normalized, StatementStats::new);
+        }
+        stats.add(elapsedNanos, rows, renderedParameters);
+        
+        if (explain && EXPLAINABLE.matcher(sql).find() && stats.claimExplain()) {
+            final StatementStats target = stats;
+            final String explainSql = "EXPLAIN " + LOCKING_CLAUSE.matcher(sql).replaceFirst("");
+            final List<Object> values = parameters != null ? new ArrayList<>(parameters) : null;
+            EXPLAIN_EXECUTOR.execute(() -> target.setPlan(explain(explainSql, values)));
+        }
+    }
+    
+    private static String renderParameters(List<Object> parameters, BitSet redacted) {
+        if (parameters == null) {
+            return "[]";
+        }
+        StringBuilder text = new StringBuilder("[");
+        for (int i = 1; i < parameters.size(); i++) {
+            if (i > 1) {
+                text.append(", ");
+            }
+            Object value = parameters.get(i);
+            if (!logParameters || redacted.get(i)) {
+                text.append(REDACTED);
+            } else if (value == null) {
+                text.append("NULL");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                text.append(value);
+            } else {
+                String string = value.toString();
+                if (string.length() > MAX_VALUE_LENGTH) {
+                    string = string.substring(0, MAX_VALUE_LENGTH) + "...";
+                }
+                text.append('\'').append(string).append('\'');
+            }
+        }
+        return text.append(']').toString();
+    }
+    
+    private static String explain(String explainSql, List<Object> parameters) {
+        StringBuilder plan = new StringBuilder();
+        try (Connection connection = DatabaseConnection.getConnection(QueryClass.REPORTING);
+             PreparedStatement statement = connection.prepareStatement(explainSql)) {
+            if (parameters != null) {
+                for (int i = 1; i < parameters.size(); i++) {
+                    statement.setObject(i, parameters.get(i));
+                }
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+                while (resultSet.next()) {
+                    plan.append("       plan:");
+                    for (int column = 1; column <= metaData.getColumnCount(); column++) {
+                        Object value = resultSet.getObject(column);
+                        if (value != null) {
+                            plan.append(' ').append(metaData.getColumnLabel(column)).append('=').append(value);
+                        }
+                    }
+                    plan.append(System.lineSeparator());
+                }
+            }
+        } catch (SQLException e) {
+            plan.append("       plan unavailable: ").append(e.getMessage()).append(System.lineSeparator());
+        }
+        out.print("[slow-query plan] " + explainSql.substring("EXPLAIN ".length()) + System.lineSeparator() + plan);
+        return plan.toString();
+    }
+    
+    /**
+     * Slow executions of one normalized statement
+     */
+    public static class StatementStats {
+        private final String sql;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong maxRows = new AtomicLong(-1);
+        private final AtomicLong lastExplainNanos = new AtomicLong(System.nanoTime() - EXPLAIN_INTERVAL_NANOS - 1);
+        private volatile String lastParameters;
+        private volatile String plan;
+        
+        StatementStats(String sql) {
+            this.sql = sql;
+        }
+        
+        void add(long nanos, long rows, String parameters) {
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            maxRows.accumulateAndGet(rows, Math::max);
+            lastParameters = parameters;
+        }
+        
+        boolean claimExplain() {
+            long last = lastExplainNanos.get();
+            long now = System.nanoTime();
+            return now - last > EXPLAIN_INTERVAL_NANOS && lastExplainNanos.compareAndSet(last, now);
+        }
+        
+        void setPlan(String plan) {
+            this.plan = plan;
+        }
+        
+        public String getSql() {
+            return sql;
+        }
+        
+        public long getCount() {
+            return count.sum();
+        }
+        
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+        
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+        
+        public long getMaxRows() {
+            return maxRows.get();
+        }
+        
+        public String getLastParameters() {
+            return lastParameters;
+        }
+        
+        public String getPlan() {
+            return plan;
+        }
+    }
+}
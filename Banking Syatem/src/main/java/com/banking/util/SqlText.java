@@ -0,0 +1,26 @@
+package com.banking.util;
+
+import java.util.regex.Pattern;
+
+/**
+ * Normalizes SQL text so that statements differing only in layout or in the
+ * length of an IN list or multi-row VALUES are treated as one statement
+ */
+public final class SqlText {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern PLACEHOLDER_LIST = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern VALUES_ROWS = Pattern.compile("(\\(\\?\\))(\\s*,\\s*\\(\\?\\))+");
+    
+    private SqlText() {
+    }
+    
+    /**
+     * @param sql SQL as passed to the driver
+     * @return SQL on one line with collapsed whitespace and placeholder lists shortened to (?)
+     */
+    public static String normalize(String sql) {
+        String text = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        text = PLACEHOLDER_LIST.matcher(text).replaceAll("(?)");
+        return VALUES_ROWS.matcher(text).replaceAll("$1");
+    }
+}
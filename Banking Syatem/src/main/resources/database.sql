@@ -6,7 +6,18 @@
 -- USE banking_system;
 
 -- Drop tables if they exist (for clean setup)
+DROP VIEW IF EXISTS transaction_history;
+DROP VIEW IF EXISTS account_summary;
+DROP TABLE IF EXISTS transaction_history_mv;
+DROP TABLE IF EXISTS account_summary_mv;
+DROP TABLE IF EXISTS standing_orders;
+DROP TABLE IF EXISTS fixed_deposit_terms;
+DROP TABLE IF EXISTS interest_runs;
+DROP TABLE IF EXISTS outbox_checkpoints;
+DROP TABLE IF EXISTS transaction_outbox;
+DROP TABLE IF EXISTS postings;
 DROP TABLE IF EXISTS transactions;
+DROP TABLE IF EXISTS account_balance_slots;
 DROP TABLE IF EXISTS accounts;
 DROP TABLE IF EXISTS customers;
 
@@ -32,24 +43,142 @@ CREATE TABLE accounts (
     balance DECIMAL(15,2) DEFAULT 0.00,
     pin VARCHAR(4) NOT NULL DEFAULT '1234',
     status ENUM('ACTIVE', 'INACTIVE', 'SUSPENDED') DEFAULT 'ACTIVE',
+    version INT NOT NULL DEFAULT 0,
+    balance_slots INT NOT NULL DEFAULT 0,
+    -- Sub-cent interest accrued but not yet credited to balance
+    interest_carry DECIMAL(19,10) NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (customer_id) REFERENCES customers(customer_id) ON DELETE CASCADE
 );
 
+-- Balance slots for high-contention accounts. When accounts.balance_slots > 0
+-- the account balance is the sum of its slot rows and accounts.balance is 0.
+CREATE TABLE account_balance_slots (
+    account_id INT NOT NULL,
+    slot_no INT NOT NULL,
+    balance DECIMAL(15,2) NOT NULL DEFAULT 0.00,
+    PRIMARY KEY (account_id, slot_no),
+    FOREIGN KEY (account_id) REFERENCES accounts(account_id) ON DELETE CASCADE
+);
+
 -- Create transactions table
 CREATE TABLE transactions (
     transaction_id INT PRIMARY KEY AUTO_INCREMENT,
-    transaction_type ENUM('DEPOSIT', 'WITHDRAWAL', 'TRANSFER', 'OPENING_BALANCE') NOT NULL,
+    transaction_type ENUM('DEPOSIT', 'WITHDRAWAL', 'TRANSFER', 'OPENING_BALANCE', 'INTEREST') NOT NULL,
     from_account_id INT,
     to_account_id INT,
     amount DECIMAL(15,2) NOT NULL,
     description TEXT,
     transaction_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    idempotency_key VARCHAR(64) UNIQUE,
     FOREIGN KEY (from_account_id) REFERENCES accounts(account_id) ON DELETE SET NULL,
     FOREIGN KEY (to_account_id) REFERENCES accounts(account_id) ON DELETE SET NULL
 );
 
+-- Double-entry postings (ledger mode). The transactions row is the journal
+-- header and its postings sum to zero. Customer accounts get consecutive
+-- posting_seq values with a running balance; system accounts (negative IDs,
+-- e.g. -1 cash clearing) use the transaction ID as sequence and no running balance.
+-- The primary key clusters each account's postings for history scans.
+CREATE TABLE postings (
+    account_id INT NOT NULL,
+    posting_seq BIGINT NOT NULL,
+    transaction_id INT NOT NULL,
+    amount DECIMAL(15,2) NOT NULL,
+    running_balance DECIMAL(15,2),
+    posted_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (account_id, posting_seq),
+    INDEX idx_postings_transaction (transaction_id),
+    FOREIGN KEY (transaction_id) REFERENCES transactions(transaction_id)
+);
+
+-- Transactional outbox. TransactionDAO inserts a row here in the same database
+-- transaction as every transactions row; OutboxRelay tails it in outbox_id order
+-- and records how far each relay has published in outbox_checkpoints.
+CREATE TABLE transaction_outbox (
+    outbox_id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    transaction_id INT NOT NULL,
+    transaction_type VARCHAR(20) NOT NULL,
+    from_account_id INT,
+    to_account_id INT,
+    amount DECIMAL(15,2) NOT NULL,
+    description TEXT,
+    transaction_date TIMESTAMP NULL,
+    created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3)
+);
+
+CREATE TABLE outbox_checkpoints (
+    relay_name VARCHAR(64) PRIMARY KEY,
+    last_outbox_id BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+-- End-of-day interest progress, one row per run date and account ID range.
+-- last_account_id advances in the same database transaction as the interest
+-- postings, so a restarted run continues each partition where it stopped.
+CREATE TABLE interest_runs (
+    run_date DATE NOT NULL,
+    partition_no INT NOT NULL,
+    first_account_id INT NOT NULL,
+    end_account_id INT NOT NULL,
+    last_account_id INT NOT NULL,
+    accounts_accrued INT NOT NULL DEFAULT 0,
+    interest_posted DECIMAL(19,2) NOT NULL DEFAULT 0.00,
+    completed BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (run_date, partition_no)
+);
+
+-- Term and maturity of FIXED_DEPOSIT accounts. MaturityEngine finds due
+-- deposits through idx_fd_maturity and flips status to MATURED in the same
+-- database transaction as the final interest and payout, so reruns skip them.
+CREATE TABLE fixed_deposit_terms (
+    account_id INT PRIMARY KEY,
+    principal DECIMAL(15,2) NOT NULL,
+    annual_rate DECIMAL(7,5) NOT NULL,
+    term_months INT NOT NULL,
+    start_date DATE NOT NULL,
+    maturity_date DATE NOT NULL,
+    payout_account_id INT NOT NULL,
+    status ENUM('OPEN', 'MATURED') DEFAULT 'OPEN',
+    final_interest DECIMAL(15,2),
+    payout_amount DECIMAL(15,2),
+    payout_transaction_id INT,
+    matured_at TIMESTAMP NULL,
+    last_error VARCHAR(255),
+    FOREIGN KEY (account_id) REFERENCES accounts(account_id) ON DELETE CASCADE,
+    FOREIGN KEY (payout_account_id) REFERENCES accounts(account_id),
+    INDEX idx_fd_maturity (status, maturity_date, account_id)
+);
+
+-- Standing orders (recurring transfers). next_run_at is start_at plus
+-- occurrence periods; StandingOrderScheduler loads the orders due in the next
+-- window into a timing wheel and advances next_run_at after each occurrence.
+-- Payments carry the idempotency key 'SO-<order_id>-<occurrence>', so an
+-- occurrence posted just before a crash is not posted again.
+CREATE TABLE standing_orders (
+    order_id INT PRIMARY KEY AUTO_INCREMENT,
+    from_account_id INT NOT NULL,
+    to_account_id INT NOT NULL,
+    amount DECIMAL(15,2) NOT NULL,
+    description VARCHAR(255),
+    frequency ENUM('DAILY', 'WEEKLY', 'MONTHLY') NOT NULL,
+    start_at DATETIME NOT NULL,
+    end_at DATETIME NULL,
+    next_run_at DATETIME NOT NULL,
+    occurrence INT NOT NULL DEFAULT 0,
+    misfire_policy ENUM('FIRE_ONCE', 'FIRE_ALL', 'SKIP') DEFAULT 'FIRE_ONCE',
+    status ENUM('ACTIVE', 'PAUSED', 'COMPLETED', 'CANCELLED') DEFAULT 'ACTIVE',
+    last_run_at DATETIME NULL,
+    failure_count INT NOT NULL DEFAULT 0,
+    last_failure VARCHAR(255),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (from_account_id) REFERENCES accounts(account_id) ON DELETE CASCADE,
+    FOREIGN KEY (to_account_id) REFERENCES accounts(account_id) ON DELETE CASCADE,
+    INDEX idx_standing_orders_due (status, next_run_at, order_id)
+);
+
 -- Insert sample data
 INSERT INTO customers (first_name, last_name, email, phone, address, date_of_birth) VALUES
 ('John', 'Doe', 'john.doe@email.com', '+1234567890', '123 Main St, City, State', '1990-05-15'),
@@ -107,4 +236,139 @@ LEFT JOIN accounts a1 ON t.from_account_id = a1.account_id
 LEFT JOIN accounts a2 ON t.to_account_id = a2.account_id
 LEFT JOIN customers c1 ON a1.customer_id = c1.customer_id
 LEFT JOIN customers c2 ON a2.customer_id = c2.customer_id
-ORDER BY t.transaction_date DESC; 
\ No newline at end of file
+ORDER BY t.transaction_date DESC;
+
+-- Materialized copies of the views above for back-office paging.
+-- They are kept up to date incrementally by the triggers below, so reads
+-- are single-table index range scans instead of joins over every row.
+CREATE TABLE account_summary_mv (
+    account_id INT PRIMARY KEY,
+    account_number VARCHAR(20) NOT NULL,
+    customer_id INT NOT NULL,
+    customer_name VARCHAR(101),
+    email VARCHAR(100),
+    account_type ENUM('SAVINGS', 'CHECKING', 'FIXED_DEPOSIT'),
+    balance DECIMAL(15,2),
+    status ENUM('ACTIVE', 'INACTIVE', 'SUSPENDED'),
+    created_at TIMESTAMP NULL,
+    INDEX idx_summary_customer (customer_id),
+    FOREIGN KEY (account_id) REFERENCES accounts(account_id) ON DELETE CASCADE
+);
+
+CREATE TABLE transaction_history_mv (
+    transaction_id INT PRIMARY KEY,
+    transaction_type ENUM('DEPOSIT', 'WITHDRAWAL', 'TRANSFER', 'OPENING_BALANCE', 'INTEREST') NOT NULL,
+    amount DECIMAL(15,2) NOT NULL,
+    description TEXT,
+    transaction_date TIMESTAMP NULL,
+    from_account_id INT,
+    to_account_id INT,
+    from_customer VARCHAR(101),
+    to_customer VARCHAR(101),
+    from_account VARCHAR(20),
+    to_account VARCHAR(20),
+    INDEX idx_history_date (transaction_date, transaction_id),
+    INDEX idx_history_from (from_account_id, transaction_date, transaction_id),
+    INDEX idx_history_to (to_account_id, transaction_date, transaction_id),
+    FOREIGN KEY (transaction_id) REFERENCES transactions(transaction_id) ON DELETE CASCADE
+);
+
+-- Initial population (also used by ReportDAO for a full refresh)
+INSERT INTO account_summary_mv
+SELECT a.account_id, a.account_number, a.customer_id,
+       CONCAT(c.first_name, ' ', c.last_name), c.email,
+       a.account_type, a.balance, a.status, a.created_at
+FROM accounts a
+JOIN customers c ON a.customer_id = c.customer_id;
+
+INSERT INTO transaction_history_mv
+SELECT t.transaction_id, t.transaction_type, t.amount, t.description, t.transaction_date,
+       t.from_account_id, t.to_account_id,
+       CONCAT(c1.first_name, ' ', c1.last_name), CONCAT(c2.first_name, ' ', c2.last_name),
+       a1.account_number, a2.account_number
+FROM transactions t
+LEFT JOIN accounts a1 ON t.from_account_id = a1.account_id
+LEFT JOIN accounts a2 ON t.to_account_id = a2.account_id
+LEFT JOIN customers c1 ON a1.customer_id = c1.customer_id
+LEFT JOIN customers c2 ON a2.customer_id = c2.customer_id;
+
+-- Triggers keeping the materialized views in sync
+DELIMITER //
+
+CREATE TRIGGER trg_accounts_after_insert AFTER INSERT ON accounts
+FOR EACH ROW
+BEGIN
+    INSERT INTO account_summary_mv
+    SELECT NEW.account_id, NEW.account_number, NEW.customer_id,
+           CONCAT(c.first_name, ' ', c.last_name), c.email,
+           NEW.account_type, NEW.balance, NEW.status, NEW.created_at
+    FROM customers c
+    WHERE c.customer_id = NEW.customer_id;
+END//
+
+CREATE TRIGGER trg_accounts_after_update AFTER UPDATE ON accounts
+FOR EACH ROW
+BEGIN
+    UPDATE account_summary_mv
+    SET account_number = NEW.account_number,
+        account_type = NEW.account_type,
+        balance = NEW.balance,
+        status = NEW.status
+    WHERE account_id = NEW.account_id;
+
+    IF NEW.customer_id <> OLD.customer_id THEN
+        UPDATE account_summary_mv s
+        JOIN customers c ON c.customer_id = NEW.customer_id
+        SET s.customer_id = NEW.customer_id,
+            s.customer_name = CONCAT(c.first_name, ' ', c.last_name),
+            s.email = c.email
+        WHERE s.account_id = NEW.account_id;
+    END IF;
+
+    IF NEW.account_number <> OLD.account_number THEN
+        UPDATE transaction_history_mv SET from_account = NEW.account_number
+        WHERE from_account_id = NEW.account_id;
+        UPDATE transaction_history_mv SET to_account = NEW.account_number
+        WHERE to_account_id = NEW.account_id;
+    END IF;
+END//
+
+CREATE TRIGGER trg_customers_after_update AFTER UPDATE ON customers
+FOR EACH ROW
+BEGIN
+    IF NEW.first_name <> OLD.first_name OR NEW.last_name <> OLD.last_name
+       OR NEW.email <> OLD.email THEN
+        UPDATE account_summary_mv
+        SET customer_name = CONCAT(NEW.first_name, ' ', NEW.last_name),
+            email = NEW.email
+        WHERE customer_id = NEW.customer_id;
+
+        UPDATE transaction_history_mv h
+        JOIN accounts a ON a.account_id = h.from_account_id
+        SET h.from_customer = CONCAT(NEW.first_name, ' ', NEW.last_name)
+        WHERE a.customer_id = NEW.customer_id;
+
+        UPDATE transaction_history_mv h
+        JOIN accounts a ON a.account_id = h.to_account_id
+        SET h.to_customer = CONCAT(NEW.first_name, ' ', NEW.last_name)
+        WHERE a.customer_id = NEW.customer_id;
+    END IF;
+END//
+
+CREATE TRIGGER trg_transactions_after_insert AFTER INSERT ON transactions
+FOR EACH ROW
+BEGIN
+    INSERT INTO transaction_history_mv
+    VALUES (
+        NEW.transaction_id, NEW.transaction_type, NEW.amount, NEW.description, NEW.transaction_date,
+        NEW.from_account_id, NEW.to_account_id,
+        (SELECT CONCAT(c.first_name, ' ', c.last_name) FROM accounts a
+         JOIN customers c ON a.customer_id = c.customer_id WHERE a.account_id = NEW.from_account_id),
+        (SELECT CONCAT(c.first_name, ' ', c.last_name) FROM accounts a
+         JOIN customers c ON a.customer_id = c.customer_id WHERE a.account_id = NEW.to_account_id),
+        (SELECT account_number FROM accounts WHERE account_id = NEW.from_account_id),
+        (SELECT account_number FROM accounts WHERE account_id = NEW.to_account_id)
+    );
+END//
+
+DELIMITER ;
@@ -0,0 +1,135 @@
+package com.banking.event;
+
+import com.banking.model.Transaction;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class EventSubscriptionTest {
+    private final EventBus bus = new EventBus();
+    
+    @Test
+    public void eventsArriveInPublicationOrder() throws Exception {
+        EventSubscription subscription = bus.subscribe(16, EventBus.OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 5; i++) {
+            bus.publish(posted(1, 2));
+        }
+        long previous = 0;
+        for (int i = 0; i < 5; i++) {
+            BankingEvent event = subscription.poll(0, TimeUnit.MILLISECONDS);
+            assertTrue(event.getSequence() > previous);
+            previous = event.getSequence();
+        }
+        assertNull(subscription.poll(0, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void coalescingKeepsLatestBalanceInQueuePosition() throws Exception {
+        EventSubscription subscription = bus.subscribe(16, EventBus.OverflowPolicy.COALESCE);
+        bus.publish(balance(1, "10.00", 1));
+        bus.publish(balance(2, "20.00", 1));
+        bus.publish(balance(1, "11.00", 2));
+        bus.publish(balance(1, "12.00", 3));
+        
+        AccountBalanceChanged first = (AccountBalanceChanged) subscription.poll(0, TimeUnit.MILLISECONDS);
+        assertEquals(1, first.getAccountId());
+        assertEquals(new BigDecimal("12.00"), first.getBalance());
+        assertEquals(2, ((AccountBalanceChanged) subscription.poll(0, TimeUnit.MILLISECONDS)).getAccountId());
+        assertNull(subscription.poll(0, TimeUnit.MILLISECONDS));
+        assertEquals(2, subscription.getCoalescedCount());
+    }
+    
+    @Test
+    public void olderVersionNeverReplacesQueuedBalance() throws Exception {
+        EventSubscription subscription = bus.subscribe(16, EventBus.OverflowPolicy.COALESCE);
+        // Two commits whose events were published in reverse order
+        bus.publish(balance(1, "15.00", 6));
+        bus.publish(balance(1, "10.00", 5));
+        
+        AccountBalanceChanged event = (AccountBalanceChanged) subscription.poll(0, TimeUnit.MILLISECONDS);
+        assertEquals(new BigDecimal("15.00"), event.getBalance());
+        assertNull(subscription.poll(0, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void olderVersionIsDroppedAfterNewerWasDelivered() throws Exception {
+        EventSubscription subscription = bus.subscribe(16, EventBus.OverflowPolicy.COALESCE);
+        bus.publish(balance(1, "15.00", 6));
+        assertEquals(6, ((AccountBalanceChanged) subscription.poll(0, TimeUnit.MILLISECONDS)).getVersion());
+        
+        bus.publish(balance(1, "10.00", 5));
+        assertNull(subscription.poll(0, TimeUnit.MILLISECONDS));
+        
+        bus.publish(balance(1, "16.00", 7));
+        assertEquals(new BigDecimal("16.00"),
+                     ((AccountBalanceChanged) subscription.poll(0, TimeUnit.MILLISECONDS)).getBalance());
+    }
+    
+    @Test
+    public void versionTrackingIsBoundedByQueueCapacity() throws Exception {
+        EventSubscription subscription = bus.subscribe(2, EventBus.OverflowPolicy.COALESCE);
+        for (int account = 1; account <= 100; account++) {
+            bus.publish(balance(account, "10.00", 1));
+            subscription.poll(0, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(4, subscription.getTrackedAccountCount());
+        
+        // Recently seen accounts still refuse a late older change
+        bus.publish(balance(100, "9.00", 0));
+        assertNull(subscription.poll(0, TimeUnit.MILLISECONDS));
+    }
+    
+    @Test
+    public void sameVersionFollowsArrivalOrder() throws Exception {
+        EventSubscription subscription = bus.subscribe(16, EventBus.OverflowPolicy.COALESCE);
+        // Slotted accounts do not advance the version
+        bus.publish(balance(1, "10.00", 3));
+        bus.publish(balance(1, "12.00", 3));
+        assertEquals(new BigDecimal("12.00"),
+                     ((AccountBalanceChanged) subscription.poll(0, TimeUnit.MILLISECONDS)).getBalance());
+    }
+    
+    @Test
+    public void fullQueueAppliesOverflowPolicy() throws Exception {
+        EventSubscription newest = bus.subscribe(2, EventBus.OverflowPolicy.DROP_NEWEST);
+        EventSubscription oldest = bus.subscribe(2, EventBus.OverflowPolicy.DROP_OLDEST);
+        BankingEvent first = posted(1, 2);
+        BankingEvent second = posted(1, 2);
+        BankingEvent third = posted(1, 2);
+        bus.publish(first);
+        bus.publish(second);
+        bus.publish(third);
+        
+        assertEquals(1, newest.getDroppedCount());
+        assertEquals(first.getSequence(), newest.poll(0, TimeUnit.MILLISECONDS).getSequence());
+        assertEquals(1, oldest.getDroppedCount());
+        assertEquals(second.getSequence(), oldest.poll(0, TimeUnit.MILLISECONDS).getSequence());
+    }
+    
+    @Test
+    public void accountSubscriptionOnlySeesItsAccount() throws Exception {
+        EventSubscription subscription = bus.subscribe(16, EventBus.OverflowPolicy.COALESCE, 2);
+        bus.publish(balance(1, "10.00", 1));
+        bus.publish(posted(1, 2));
+        bus.publish(balance(2, "20.00", 1));
+        
+        assertTrue(subscription.poll(0, TimeUnit.MILLISECONDS) instanceof TransactionPosted);
+        assertEquals(2, ((AccountBalanceChanged) subscription.poll(0, TimeUnit.MILLISECONDS)).getAccountId());
+        assertNull(subscription.poll(0, TimeUnit.MILLISECONDS));
+    }
+    
+    private AccountBalanceChanged balance(int accountId, String balance, long version) {
+        return new AccountBalanceChanged(bus.nextSequence(), accountId, "ACC" + accountId, new BigDecimal(balance),
+                                         version);
+    }
+    
+    private TransactionPosted posted(int fromAccountId, int toAccountId) {
+        return new TransactionPosted(bus.nextSequence(), Transaction.TransactionType.TRANSFER, fromAccountId,
+                                     "ACC" + fromAccountId, toAccountId, "ACC" + toAccountId, BigDecimal.ONE, "test");
+    }
+}
@@ -0,0 +1,197 @@
+package com.banking.outbox;
+
+import com.banking.dao.OutboxDAO;
+import com.banking.model.OutboxEvent;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class OutboxRelayTest {
+    private MemoryOutbox outbox;
+    private List<Long> published;
+    
+    @Before
+    public void setUp() {
+        outbox = new MemoryOutbox();
+        published = new ArrayList<>();
+    }
+    
+    @Test
+    public void lateCommitFillsGapBeforeTimeout() throws Exception {
+        OutboxRelay relay = relay(60_000);
+        outbox.commit(1);
+        outbox.begin(2);
+        outbox.commit(3);
+        
+        relay.pollOnce();
+        assertEquals(1, relay.getCheckpoint());
+        
+        outbox.commit(2);
+        relay.pollOnce();
+        assertEquals(3, relay.getCheckpoint());
+        assertEquals(new TreeSet<>(ids(1, 2, 3)), new TreeSet<>(published));
+        assertEquals(0, relay.getSkippedEvents());
+    }
+    
+    @Test
+    public void openGapIsNotSkippedBeforeTimeout() throws Exception {
+        OutboxRelay relay = relay(60_000);
+        outbox.commit(1);
+        outbox.commit(3);
+        
+        for (int i = 0; i < 5; i++) {
+            relay.pollOnce();
+        }
+        assertEquals(1, relay.getCheckpoint());
+        assertEquals(0, relay.getSkippedEvents());
+    }
+    
+    @Test
+    public void rolledBackIdsAreSkippedAndCounted() throws Exception {
+        OutboxRelay relay = relay(0);
+        outbox.commit(1);
+        outbox.commit(5);
+        
+        relay.pollOnce();
+        relay.pollOnce();
+        assertEquals(5, relay.getCheckpoint());
+        assertEquals(3, relay.getSkippedEvents());
+        assertEquals(ids(1, 5), published);
+    }
+    
+    @Test
+    public void inFlightInsertIsPublishedWhenGapTimesOut() throws Exception {
+        OutboxRelay relay = relay(0);
+        outbox.commit(1);
+        outbox.begin(2);
+        outbox.commit(3);
+        // The locking read waits for the insert, which then commits
+        outbox.commitOnLockingRead = true;
+        
+        relay.pollOnce();
+        relay.pollOnce();
+        assertEquals(3, relay.getCheckpoint());
+        assertEquals(0, relay.getSkippedEvents());
+        assertEquals(ids(1, 3, 2), published);
+    }
+    
+    @Test
+    public void lockWaitTimeoutKeepsGapOpen() throws Exception {
+        OutboxRelay relay = relay(0);
+        outbox.commit(1);
+        outbox.begin(2);
+        outbox.commit(3);
+        
+        relay.pollOnce();
+        try {
+            relay.pollOnce();
+            fail("Expected the lock wait to time out");
+        } catch (SQLException e) {
+            // Relay backs off and retries
+        }
+        assertEquals(1, relay.getCheckpoint());
+        assertEquals(0, relay.getSkippedEvents());
+        
+        outbox.commit(2);
+        relay.pollOnce();
+        assertEquals(3, relay.getCheckpoint());
+        assertEquals(0, relay.getSkippedEvents());
+    }
+    
+    private OutboxRelay relay(long gapTimeoutMillis) {
+        return new OutboxRelay("test", outbox, events -> {
+            for (OutboxEvent event : events) {
+                published.add(event.getOutboxId());
+            }
+        }, 100, 1, gapTimeoutMillis);
+    }
+    
+    private static List<Long> ids(long... ids) {
+        List<Long> list = new ArrayList<>();
+        for (long id : ids) {
+            list.add(id);
+        }
+        return list;
+    }
+    
+    /**
+     * Outbox whose uncommitted inserts are invisible to plain reads and block locking reads
+     */
+    private static final class MemoryOutbox extends OutboxDAO {
+        private final TreeMap<Long, OutboxEvent> committed = new TreeMap<>();
+        private final Set<Long> inFlight = new TreeSet<>();
+        private final TreeMap<String, Long> checkpoints = new TreeMap<>();
+        private boolean commitOnLockingRead;
+        
+        void begin(long outboxId) {
+            inFlight.add(outboxId);
+        }
+        
+        void commit(long outboxId) {
+            inFlight.remove(outboxId);
+            OutboxEvent event = new OutboxEvent();
+            event.setOutboxId(outboxId);
+            committed.put(outboxId, event);
+        }
+        
+        @Override
+        public List<OutboxEvent> getEventsAfter(long afterOutboxId, int limit) {
+            List<OutboxEvent> events = new ArrayList<>();
+            for (OutboxEvent event : committed.tailMap(afterOutboxId, false).values()) {
+                if (events.size() == limit) {
+                    break;
+                }
+                events.add(event);
+            }
+            return events;
+        }
+        
+        @Override
+        public List<OutboxEvent> getEventsInRange(long afterOutboxId, long upToOutboxId) {
+            return new ArrayList<>(committed.subMap(afterOutboxId, false, upToOutboxId, true).values());
+        }
+        
+        @Override
+        public List<OutboxEvent> getEventsInRangeLocking(long afterOutboxId, long upToOutboxId) throws SQLException {
+            for (Long outboxId : new ArrayList<>(inFlight)) {
+                if (outboxId > afterOutboxId && outboxId <= upToOutboxId) {
+                    if (!commitOnLockingRead) {
+                        throw new SQLTransientException("Lock wait timeout exceeded", "40001");
+                    }
+                    commit(outboxId);
+                }
+            }
+            return getEventsInRange(afterOutboxId, upToOutboxId);
+        }
+        
+        @Override
+        public long getMaxOutboxId() {
+            return committed.isEmpty() ? 0 : committed.lastKey();
+        }
+        
+        @Override
+        public int deleteEventsUpTo(long upToOutboxId) {
+            return 0;
+        }
+        
+        @Override
+        public long getCheckpoint(String relayName) {
+            return checkpoints.containsKey(relayName) ? checkpoints.get(relayName) : 0;
+        }
+        
+        @Override
+        public void saveCheckpoint(String relayName, long lastOutboxId) {
+            checkpoints.put(relayName, lastOutboxId);
+        }
+    }
+}
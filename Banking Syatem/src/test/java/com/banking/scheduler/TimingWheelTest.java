@@ -0,0 +1,106 @@
+package com.banking.scheduler;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimingWheelTest {
+    private static final long TICK = 10;
+    
+    @Test
+    public void itemFiresOnTheTickContainingItsDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 3, 1000);
+        assertTrue(wheel.add("a", 1010));
+        assertTrue(wheel.add("b", 1025));
+        assertTrue(wheel.add("c", 1029));
+        
+        List<String> due = new ArrayList<>();
+        assertEquals(0, wheel.advanceTo(1009, due));
+        assertEquals(1, wheel.advanceTo(1019, due));
+        assertEquals(Collections.singletonList("a"), due);
+        
+        due.clear();
+        assertEquals(2, wheel.advanceTo(1020, due));
+        Collections.sort(due);
+        assertEquals(Arrays.asList("b", "c"), due);
+        assertTrue(wheel.isEmpty());
+    }
+    
+    @Test
+    public void deadlineInTheCurrentTickIsAlreadyDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 3, 1005);
+        assertFalse(wheel.add("past", 990));
+        assertFalse(wheel.add("now", 1009));
+        assertTrue(wheel.add("next", 1010));
+        assertEquals(1, wheel.size());
+    }
+    
+    @Test
+    public void everyDelayFiresExactlyOnceAcrossWraps() {
+        // 4 slots per level and 3 levels: 63 ticks ahead, wrapping level 0 every 4 ticks
+        for (long start = 0; start < 16; start++) {
+            TimingWheel<Long> wheel = new TimingWheel<>(TICK, 2, 3, start * TICK);
+            long horizon = wheel.getHorizonMillis() / TICK;
+            for (long tick = start + 1; tick <= start + horizon; tick++) {
+                assertTrue(wheel.add(tick, tick * TICK));
+            }
+            
+            List<Long> due = new ArrayList<>();
+            for (long tick = start + 1; tick <= start + horizon; tick++) {
+                due.clear();
+                wheel.advanceTo(tick * TICK, due);
+                assertEquals("start " + start, Collections.singletonList(tick), due);
+            }
+            assertTrue(wheel.isEmpty());
+        }
+    }
+    
+    @Test
+    public void longDelayCascadesDownToItsTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 6, 3, 0);
+        long deadline = wheel.getHorizonMillis();
+        assertTrue(wheel.add("far", deadline));
+        assertTrue(wheel.add("near", 5 * TICK));
+        
+        List<String> due = new ArrayList<>();
+        assertEquals(1, wheel.advanceTo(deadline - TICK, due));
+        assertEquals(Collections.singletonList("near"), due);
+        
+        due.clear();
+        assertEquals(1, wheel.advanceTo(deadline, due));
+        assertEquals(Collections.singletonList("far"), due);
+    }
+    
+    @Test
+    public void deadlineBeyondHorizonIsRejected() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 3, 0);
+        assertTrue(wheel.add("edge", wheel.getHorizonMillis()));
+        try {
+            wheel.add("beyond", wheel.getHorizonMillis() + TICK);
+            fail("Deadline beyond the horizon was accepted");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+    
+    @Test
+    public void emptyWheelJumpsAheadAndSchedulesFromThere() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 2, 3, 0);
+        List<String> due = new ArrayList<>();
+        assertEquals(0, wheel.advanceTo(1_000_000, due));
+        
+        assertFalse(wheel.add("stale", 500_000));
+        assertTrue(wheel.add("later", 1_000_000 + 40 * TICK));
+        assertEquals(0, wheel.advanceTo(1_000_000 + 39 * TICK, due));
+        assertEquals(1, wheel.advanceTo(1_000_000 + 40 * TICK, due));
+        assertEquals(Collections.singletonList("later"), due);
+    }
+}
@@ -0,0 +1,130 @@
+package com.banking.service;
+
+import com.banking.service.AdmissionController.Operation;
+import com.banking.service.AdmissionController.Permit;
+import com.banking.service.AdmissionController.ShedReason;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AdmissionControllerTest {
+    private static final long TARGET_MILLIS = 1000;
+    
+    @Test
+    public void lowPriorityIsShedFirst() {
+        // Fixed limit of 10: LOW may use 5 slots, NORMAL 8, HIGH all 10
+        AdmissionController controller = new AdmissionController(10, 10, 10, TARGET_MILLIS, 0);
+        List<Permit> permits = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            permits.add(controller.acquire(Operation.BALANCE_INQUIRY, null));
+        }
+        assertShed(controller, Operation.BALANCE_INQUIRY, null, ShedReason.GLOBAL_LIMIT);
+        assertShed(controller, Operation.HISTORY, null, ShedReason.GLOBAL_LIMIT);
+        
+        for (int i = 0; i < 3; i++) {
+            permits.add(controller.acquire(Operation.PIN_VERIFY, null));
+        }
+        assertShed(controller, Operation.PIN_VERIFY, null, ShedReason.GLOBAL_LIMIT);
+        
+        permits.add(controller.acquire(Operation.DEPOSIT, null));
+        permits.add(controller.acquire(Operation.TRANSFER, null));
+        assertShed(controller, Operation.WITHDRAWAL, null, ShedReason.GLOBAL_LIMIT);
+        assertEquals(10, controller.getInFlight());
+        
+        for (Permit permit : permits) {
+            permit.release(false);
+        }
+        assertEquals(0, controller.getInFlight());
+        assertEquals(4, controller.getShed());
+        controller.acquire(Operation.BALANCE_INQUIRY, null).release(false);
+    }
+    
+    @Test
+    public void operationLimitCapsOneTypeOnly() {
+        AdmissionController controller = new AdmissionController(10, 10, 10, TARGET_MILLIS, 0);
+        controller.setOperationLimit(Operation.HISTORY, 2);
+        Permit first = controller.acquire(Operation.HISTORY, null);
+        controller.acquire(Operation.HISTORY, null);
+        assertShed(controller, Operation.HISTORY, null, ShedReason.OPERATION_LIMIT);
+        controller.acquire(Operation.BALANCE_INQUIRY, null);
+        
+        first.release(false);
+        controller.acquire(Operation.HISTORY, null);
+        assertEquals(2, controller.getInFlight(Operation.HISTORY));
+    }
+    
+    @Test
+    public void accountLimitKeepsOneAccountFromTakingEverySlot() {
+        AdmissionController controller = new AdmissionController(10, 10, 10, TARGET_MILLIS, 2);
+        Permit first = controller.acquire(Operation.DEPOSIT, "ACC001");
+        controller.acquire(Operation.WITHDRAWAL, "ACC001");
+        assertShed(controller, Operation.TRANSFER, "ACC001", ShedReason.ACCOUNT_LIMIT);
+        controller.acquire(Operation.DEPOSIT, "ACC002");
+        // The shed call gave back its global and operation slots
+        assertEquals(3, controller.getInFlight());
+        assertEquals(0, controller.getInFlight(Operation.TRANSFER));
+        
+        first.release(false);
+        first.release(false);
+        controller.acquire(Operation.TRANSFER, "ACC001");
+        assertShed(controller, Operation.DEPOSIT, "ACC001", ShedReason.ACCOUNT_LIMIT);
+    }
+    
+    @Test
+    public void failuresShrinkTheLimitOncePerSlowPeriod() {
+        AdmissionController controller = new AdmissionController(20, 4, 20, TARGET_MILLIS, 0);
+        Permit first = controller.acquire(Operation.DEPOSIT, null);
+        Permit second = controller.acquire(Operation.DEPOSIT, null);
+        first.release(true);
+        assertEquals(18, controller.getLimit());
+        // Started before the decrease, so it saw the same slow period
+        second.release(true);
+        assertEquals(18, controller.getLimit());
+        assertEquals(1, controller.getLimitDecreases());
+        
+        // LOW calls now get 9 slots instead of 10
+        for (int i = 0; i < 9; i++) {
+            controller.acquire(Operation.ACCOUNT_LOOKUP, null);
+        }
+        assertShed(controller, Operation.ACCOUNT_LOOKUP, null, ShedReason.GLOBAL_LIMIT);
+    }
+    
+    @Test
+    public void limitNeverDropsBelowMinimum() {
+        AdmissionController controller = new AdmissionController(5, 4, 5, 1, 0);
+        for (int i = 0; i < 5; i++) {
+            // Each call starts a new slow period
+            sleep(5);
+            controller.acquire(Operation.DEPOSIT, null).release(true);
+        }
+        assertEquals(5, controller.getLimitDecreases());
+        assertEquals(4, controller.getLimit());
+    }
+    
+    private static void assertShed(AdmissionController controller, Operation operation, String accountNumber,
+                                   ShedReason reason) {
+        long before = controller.getShed(operation, reason);
+        try {
+            controller.acquire(operation, accountNumber);
+            fail(operation + " should have been shed by " + reason);
+        } catch (OverloadedException e) {
+            assertEquals(operation, e.getOperation());
+            assertTrue("retry-after " + e.getRetryAfterMillis(),
+                       e.getRetryAfterMillis() >= 50 && e.getRetryAfterMillis() <= 10000);
+            assertEquals(before + 1, controller.getShed(operation, reason));
+        }
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
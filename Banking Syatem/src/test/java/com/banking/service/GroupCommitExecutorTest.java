@@ -0,0 +1,206 @@
+package com.banking.service;
+
+import com.banking.model.Account;
+import com.banking.testing.FakeDatabase;
+import com.banking.testing.InMemoryAccountDAO;
+import com.banking.testing.InMemoryTransactionDAO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GroupCommitExecutorTest {
+    private static final int ACCOUNTS = 4;
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("100.00");
+    
+    private InMemoryAccountDAO accountDAO;
+    private InMemoryTransactionDAO transactionDAO;
+    
+    @BeforeClass
+    public static void installDatabase() throws Exception {
+        FakeDatabase.install();
+    }
+    
+    @Before
+    public void setUp() {
+        FakeDatabase.reset();
+        accountDAO = new InMemoryAccountDAO();
+        transactionDAO = new InMemoryTransactionDAO();
+        for (int id = 1; id <= ACCOUNTS; id++) {
+            accountDAO.addAccount(id, "ACC" + id, OPENING_BALANCE);
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        FakeDatabase.reset();
+    }
+    
+    @Test
+    public void balancesMatchCompletedOperationsWhenLoadsAndCommitsFail() throws Exception {
+        GroupCommitExecutor executor = new GroupCommitExecutor(accountDAO, transactionDAO, 16, 500);
+        executor.start();
+        accountDAO.setLoadFailureRate(0.1);
+        
+        Random random = new Random(3);
+        List<CompletableFuture<Account>> futures = new ArrayList<>();
+        List<BigDecimal> changes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            if (i % 100 == 0) {
+                FakeDatabase.failNextCommits(1);
+            }
+            String accountNumber = "ACC" + (1 + random.nextInt(ACCOUNTS));
+            BigDecimal amount = BigDecimal.valueOf(1 + random.nextInt(5000), 2);
+            if (random.nextBoolean()) {
+                futures.add(executor.deposit(accountNumber, amount, null, null));
+                changes.add(amount);
+            } else {
+                futures.add(executor.withdraw(accountNumber, amount, null, null));
+                changes.add(amount.negate());
+            }
+        }
+        
+        BigDecimal expected = OPENING_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS));
+        int failed = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get(10, TimeUnit.SECONDS);
+                expected = expected.add(changes.get(i));
+            } catch (ExecutionException e) {
+                failed++;
+            }
+        }
+        executor.shutdown();
+        
+        assertTrue(failed > 0);
+        assertTrue(accountDAO.getInjectedFailures() > 0);
+        assertEquals(0, expected.compareTo(accountDAO.getTotalBalance()));
+        assertEquals(futures.size() - failed, transactionDAO.getCommitted().size());
+    }
+    
+    @Test
+    public void deadlockedBatchIsRunAgainInANewTransaction() throws Exception {
+        GroupCommitExecutor executor = new GroupCommitExecutor(accountDAO, transactionDAO, 3, 200_000);
+        executor.start();
+        // The second operation's load ends the transaction after the first was applied
+        accountDAO.deadlockNextLoads("ACC2", 1);
+        
+        CompletableFuture<Account> first = executor.deposit("ACC1", new BigDecimal("10.00"), null, null);
+        CompletableFuture<Account> second = executor.deposit("ACC2", new BigDecimal("5.00"), null, null);
+        CompletableFuture<Account> third = executor.withdraw("ACC3", new BigDecimal("1000.00"), null, null);
+        
+        assertEquals(0, new BigDecimal("110.00").compareTo(first.get(5, TimeUnit.SECONDS).getBalance()));
+        assertEquals(0, new BigDecimal("105.00").compareTo(second.get(5, TimeUnit.SECONDS).getBalance()));
+        assertTrue(failureOf(third) instanceof IllegalArgumentException);
+        executor.shutdown();
+        
+        assertEquals(0, new BigDecimal("110.00").compareTo(accountDAO.getCommittedBalance(1)));
+        assertEquals(0, new BigDecimal("105.00").compareTo(accountDAO.getCommittedBalance(2)));
+        assertEquals(0, OPENING_BALANCE.compareTo(accountDAO.getCommittedBalance(3)));
+        assertEquals(2, transactionDAO.getCommitted().size());
+    }
+    
+    @Test
+    public void batchFailsWhenDeadlocksKeepRecurring() throws Exception {
+        GroupCommitExecutor executor = new GroupCommitExecutor(accountDAO, transactionDAO, 2, 200_000);
+        executor.start();
+        accountDAO.deadlockNextLoads("ACC2", Integer.MAX_VALUE);
+        
+        CompletableFuture<Account> first = executor.deposit("ACC1", BigDecimal.TEN, null, null);
+        CompletableFuture<Account> second = executor.deposit("ACC2", BigDecimal.TEN, null, null);
+        
+        for (CompletableFuture<Account> future : Arrays.asList(first, second)) {
+            Throwable failure = failureOf(future);
+            assertTrue(failure instanceof SQLException);
+            assertEquals("40001", ((SQLException) failure).getSQLState());
+        }
+        executor.shutdown();
+        
+        assertEquals(0, OPENING_BALANCE.compareTo(accountDAO.getCommittedBalance(1)));
+        assertEquals(0, transactionDAO.getCommitted().size());
+    }
+    
+    @Test
+    public void committerSurvivesAnOperationThatThrows() throws Exception {
+        GroupCommitExecutor executor = new GroupCommitExecutor(accountDAO, transactionDAO, 2, 200_000);
+        executor.start();
+        
+        // The in-memory account lookup throws NullPointerException for a null account number
+        CompletableFuture<Account> broken = executor.deposit(null, BigDecimal.TEN, null, null);
+        CompletableFuture<Account> sameBatch = executor.deposit("ACC1", BigDecimal.TEN, null, null);
+        assertTrue(failureOf(broken) instanceof NullPointerException);
+        sameBatch.get(5, TimeUnit.SECONDS);
+        
+        executor.deposit("ACC1", BigDecimal.TEN, null, null).get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        
+        assertEquals(0, new BigDecimal("120.00").compareTo(accountDAO.getCommittedBalance(1)));
+        assertEquals(2, transactionDAO.getCommitted().size());
+    }
+    
+    @Test
+    public void shutdownCompletesEveryAcceptedOperation() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            GroupCommitExecutor executor = new GroupCommitExecutor(accountDAO, transactionDAO, 8, 100);
+            executor.start();
+            Queue<CompletableFuture<Account>> accepted = new ConcurrentLinkedQueue<>();
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> submitters = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread submitter = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 500; i++) {
+                        try {
+                            accepted.add(executor.deposit("ACC1", BigDecimal.ONE, null, null));
+                        } catch (IllegalStateException e) {
+                            return;
+                        }
+                        Thread.yield();
+                    }
+                });
+                submitter.start();
+                submitters.add(submitter);
+            }
+            started.await();
+            executor.shutdown();
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            
+            for (CompletableFuture<Account> future : accepted) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    // Rejected by shutdown
+                }
+            }
+        }
+    }
+    
+    private static Throwable failureOf(CompletableFuture<Account> future) throws Exception {
+        try {
+            future.get(5, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        fail("Operation should have failed");
+        return null;
+    }
+}
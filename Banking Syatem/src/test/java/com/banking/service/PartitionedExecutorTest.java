@@ -0,0 +1,142 @@
+package com.banking.service;
+
+import com.banking.testing.FakeDatabase;
+import com.banking.testing.InMemoryAccountDAO;
+import com.banking.testing.InMemoryTransactionDAO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PartitionedExecutorTest {
+    private static final int ACCOUNTS = 8;
+    private static final BigDecimal OPENING_BALANCE = new BigDecimal("1000.00");
+    
+    private InMemoryAccountDAO accountDAO;
+    private InMemoryTransactionDAO transactionDAO;
+    
+    @BeforeClass
+    public static void installDatabase() throws Exception {
+        FakeDatabase.install();
+    }
+    
+    @Before
+    public void setUp() {
+        FakeDatabase.reset();
+        accountDAO = new InMemoryAccountDAO();
+        transactionDAO = new InMemoryTransactionDAO();
+        for (int id = 1; id <= ACCOUNTS; id++) {
+            accountDAO.addAccount(id, "ACC" + id, OPENING_BALANCE);
+        }
+    }
+    
+    @After
+    public void tearDown() {
+        FakeDatabase.reset();
+    }
+    
+    @Test
+    public void transfersConserveMoneyWhenBalanceLoadsAndCommitsFail() throws Exception {
+        PartitionedExecutor executor = new PartitionedExecutor(accountDAO, transactionDAO, 4, 64);
+        executor.start();
+        // Every failed commit clears the cached balances, so the next commands reload them
+        accountDAO.setLoadFailureRate(0.3);
+        
+        int transfers = 3000;
+        CountDownLatch done = new CountDownLatch(transfers);
+        AtomicInteger succeeded = new AtomicInteger();
+        Random random = new Random(42);
+        for (int i = 0; i < transfers; i++) {
+            int from = 1 + random.nextInt(ACCOUNTS);
+            int to = 1 + (from + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            if (i % 50 == 0) {
+                FakeDatabase.failNextCommits(1);
+            }
+            executor.transfer(from, to, 1 + random.nextInt(5000), "test", null,
+                              (balance, counterpartyBalance, failure) -> {
+                                  if (failure == null) {
+                                      succeeded.incrementAndGet();
+                                  }
+                                  done.countDown();
+                              });
+        }
+        
+        assertTrue("transfers did not complete", done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        
+        assertTrue(accountDAO.getInjectedFailures() > 0);
+        assertTrue(succeeded.get() > 0);
+        assertEquals(0, OPENING_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS))
+                                       .compareTo(accountDAO.getTotalBalance()));
+    }
+    
+    @Test
+    public void transferDebitsItsSourceWhenLoadingTheDestinationGrowsTheTable() throws Exception {
+        for (int id = ACCOUNTS + 1; id <= 65; id++) {
+            accountDAO.addAccount(id, "ACC" + id, OPENING_BALANCE);
+        }
+        // The table starts with 64 entries and grows on the 33rd account it caches. Which slots move
+        // depends on the hash, so try every cached account as the source of the transfer that grows it.
+        for (int source = 1; source <= 32; source++) {
+            // One partition, so both accounts of a transfer share the table
+            PartitionedExecutor executor = new PartitionedExecutor(accountDAO, transactionDAO, 1, 64);
+            executor.start();
+            CountDownLatch cached = new CountDownLatch(32);
+            for (int id = 1; id <= 32; id++) {
+                executor.deposit(id, 1, "test", null, (balance, counterpartyBalance, failure) -> cached.countDown());
+            }
+            assertTrue(cached.await(30, TimeUnit.SECONDS));
+            
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicInteger failed = new AtomicInteger();
+            executor.transfer(source, 33 + source, 10000, "test", null, (balance, counterpartyBalance, failure) -> {
+                if (failure != null) {
+                    failed.incrementAndGet();
+                }
+                done.countDown();
+            });
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            executor.shutdown();
+            assertEquals(0, failed.get());
+        }
+        
+        // Every round deposited one cent into accounts 1..32, and each of them sent 100.00 once
+        BigDecimal deposited = new BigDecimal("0.32");
+        for (int id = 1; id <= 32; id++) {
+            assertEquals("account " + id, 0, OPENING_BALANCE.subtract(new BigDecimal("100.00")).add(deposited)
+                                                            .compareTo(accountDAO.getCommittedBalance(id)));
+        }
+        for (int id = 34; id <= 65; id++) {
+            assertEquals("account " + id, 0, OPENING_BALANCE.add(new BigDecimal("100.00"))
+                                                            .compareTo(accountDAO.getCommittedBalance(id)));
+        }
+    }
+    
+    @Test
+    public void depositsAreRecordedOnce() throws Exception {
+        PartitionedExecutor executor = new PartitionedExecutor(accountDAO, transactionDAO, 2, 16);
+        executor.start();
+        
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            executor.deposit(1 + i % ACCOUNTS, 100, "test", null,
+                             (balance, counterpartyBalance, failure) -> done.countDown());
+        }
+        
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+        
+        assertEquals(100, transactionDAO.getCommitted().size());
+        assertEquals(0, OPENING_BALANCE.multiply(BigDecimal.valueOf(ACCOUNTS)).add(new BigDecimal("100.00"))
+                                       .compareTo(accountDAO.getTotalBalance()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.banking.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PinAttemptLimiterTest {
+    private static final long LOCKOUT = 60_000;
+    
+    private final PinAttemptLimiter limiter = new PinAttemptLimiter(3, LOCKOUT);
+    
+    @Test
+    public void locksOutAfterConsecutiveFailures() {
+        for (int i = 0; i < 3; i++) {
+            limiter.acquire("ACC001", 1000);
+            limiter.failed("ACC001", 1000);
+        }
+        try {
+            limiter.acquire("ACC001", 2000);
+            fail("Fourth attempt should be locked out");
+        } catch (PinLockedException e) {
+            assertEquals(LOCKOUT - 1000, e.getRetryAfterMillis());
+        }
+        // Other accounts are unaffected
+        limiter.acquire("ACC002", 2000);
+        limiter.succeeded("ACC002");
+        
+        // The lockout ends after its period
+        limiter.acquire("ACC001", 1000 + LOCKOUT);
+        limiter.succeeded("ACC001");
+        assertEquals(1, limiter.getLockouts());
+        assertEquals(1, limiter.getRejected());
+    }
+    
+    @Test
+    public void successResetsFailures() {
+        limiter.acquire("ACC001", 1000);
+        limiter.failed("ACC001", 1000);
+        limiter.acquire("ACC001", 1000);
+        limiter.failed("ACC001", 1000);
+        limiter.acquire("ACC001", 1000);
+        limiter.succeeded("ACC001");
+        
+        limiter.acquire("ACC001", 1000);
+        limiter.failed("ACC001", 1000);
+        limiter.acquire("ACC001", 1000);
+        limiter.failed("ACC001", 1000);
+        limiter.acquire("ACC001", 1000);
+        limiter.abandoned("ACC001");
+        assertEquals(0, limiter.getLockouts());
+    }
+    
+    @Test
+    public void pendingChecksCountAgainstTheLimit() {
+        limiter.acquire("ACC001", 1000);
+        limiter.acquire("ACC001", 1000);
+        limiter.acquire("ACC001", 1000);
+        try {
+            limiter.acquire("ACC001", 1000);
+            fail("Parallel guesses should not exceed the limit");
+        } catch (PinLockedException e) {
+            assertTrue(e.getRetryAfterMillis() > 0);
+        }
+        limiter.abandoned("ACC001");
+        limiter.acquire("ACC001", 1000);
+    }
+    
+    @Test
+    public void oldFailuresAreForgotten() {
+        limiter.acquire("ACC001", 1000);
+        limiter.failed("ACC001", 1000);
+        limiter.acquire("ACC001", 1000);
+        limiter.failed("ACC001", 1000);
+        
+        limiter.acquire("ACC001", 1000 + LOCKOUT);
+        limiter.failed("ACC001", 1000 + LOCKOUT);
+        limiter.acquire("ACC001", 1000 + LOCKOUT);
+        limiter.failed("ACC001", 1000 + LOCKOUT);
+        assertEquals(0, limiter.getLockouts());
+    }
+}
@@ -0,0 +1,90 @@
+package com.banking.service;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VelocityLimiterTest {
+    // Aligned to a minute, so bucket boundaries fall on whole seconds from here
+    private static final long START = 1_700_000_040_000L;
+    private static final int ACCOUNT = 7;
+    private static final BigDecimal TEN = new BigDecimal("10.00");
+    
+    @Test
+    public void minuteWindowSlidesOneBucketAtATime() {
+        VelocityLimiter limiter = new VelocityLimiter(Collections.singletonList(VelocityRule.perMinute(3, null)));
+        limiter.acquire(ACCOUNT, TEN, START);
+        limiter.acquire(ACCOUNT, TEN, START + 10_000);
+        limiter.acquire(ACCOUNT, TEN, START + 20_000);
+        assertRejected(limiter, START + 30_000);
+        
+        // The first operation's bucket is still inside the window a minute later, less a millisecond
+        assertRejected(limiter, START + 59_999);
+        // ... and slides out at the minute
+        limiter.acquire(ACCOUNT, TEN, START + 60_000);
+        assertRejected(limiter, START + 69_999);
+        limiter.acquire(ACCOUNT, TEN, START + 70_000);
+        assertEquals(3, limiter.getRejections());
+    }
+    
+    @Test
+    public void amountLimitCountsReleasedReservationsOut() {
+        VelocityLimiter limiter = new VelocityLimiter(
+            Collections.singletonList(VelocityRule.perMinute(0, new BigDecimal("25.00"))));
+        long first = limiter.acquire(ACCOUNT, TEN, START);
+        limiter.acquire(ACCOUNT, TEN, START + 1_000);
+        assertRejected(limiter, START + 2_000);
+        
+        limiter.release(ACCOUNT, TEN, first);
+        limiter.acquire(ACCOUNT, TEN, START + 2_000);
+        assertRejected(limiter, START + 3_000);
+    }
+    
+    @Test
+    public void idleGapLongerThanTheWindowClearsIt() {
+        VelocityLimiter limiter = new VelocityLimiter(Arrays.asList(VelocityRule.perMinute(1, null),
+                                                                    VelocityRule.perHour(2, null)));
+        limiter.acquire(ACCOUNT, TEN, START);
+        assertRejected(limiter, START + 30_000);
+        
+        // The minute window is empty again, the hour window still holds the first operation
+        limiter.acquire(ACCOUNT, TEN, START + 5 * 60_000);
+        assertRejected(limiter, START + 10 * 60_000);
+        limiter.acquire(ACCOUNT, TEN, START + 60 * 60_000);
+    }
+    
+    @Test
+    public void recordedHistoryOutsideTheWindowIsIgnored() {
+        VelocityLimiter limiter = new VelocityLimiter(Collections.singletonList(VelocityRule.perMinute(2, null)));
+        limiter.record(ACCOUNT, TEN, START - 61_000);
+        limiter.record(ACCOUNT, TEN, START - 30_000);
+        limiter.acquire(ACCOUNT, TEN, START);
+        assertRejected(limiter, START + 1_000);
+    }
+    
+    @Test
+    public void accountsHaveSeparateWindows() {
+        VelocityLimiter limiter = new VelocityLimiter(Collections.singletonList(VelocityRule.perMinute(1, null)));
+        limiter.setAccountRules(ACCOUNT + 1, Collections.<VelocityRule>emptyList());
+        limiter.acquire(ACCOUNT, TEN, START);
+        assertRejected(limiter, START);
+        limiter.acquire(ACCOUNT + 1, TEN, START);
+        limiter.acquire(ACCOUNT + 1, TEN, START);
+        limiter.acquire(ACCOUNT + 2, TEN, START);
+    }
+    
+    private static void assertRejected(VelocityLimiter limiter, long now) {
+        try {
+            limiter.acquire(ACCOUNT, TEN, now);
+            fail("Expected the velocity limit to reject at " + (now - START) + " ms");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Velocity limit exceeded"));
+        }
+    }
+}
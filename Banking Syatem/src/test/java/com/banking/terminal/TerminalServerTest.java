@@ -0,0 +1,180 @@
+package com.banking.terminal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TerminalServerTest {
+    private TerminalServer server;
+    
+    @Before
+    public void setUp() throws IOException {
+        // Malformed frames never reach the service
+        server = new TerminalServer(null, 0, 1, 16, 4);
+        server.start();
+    }
+    
+    @After
+    public void tearDown() throws InterruptedException {
+        server.stop();
+    }
+    
+    @Test
+    public void decodeRejectsTruncatedFields() {
+        TerminalRequest request = new TerminalRequest();
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        TerminalProtocol.writeRequest(frame, TerminalProtocol.OP_TRANSFER, 7, ascii("ACC1"), ascii("1234"),
+                                      ascii("ACC2"), 500);
+        int end = frame.position();
+        assertTrue(server.decode(frame, TerminalProtocol.LENGTH_BYTES, end, request));
+        assertEquals("ACC2", request.toAccountNumber);
+        assertEquals(500, request.amountCents);
+        
+        // Every shorter body ends inside some field
+        for (int cut = TerminalProtocol.LENGTH_BYTES; cut < end; cut++) {
+            assertFalse("accepted body cut at " + cut,
+                        server.decode(frame, TerminalProtocol.LENGTH_BYTES, cut, new TerminalRequest()));
+        }
+    }
+    
+    @Test
+    public void decodeRequiresPinForBalance() {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        TerminalProtocol.writeRequest(frame, TerminalProtocol.OP_BALANCE, 3, ascii("ACC1"), ascii("1234"), null, 0);
+        int end = frame.position();
+        TerminalRequest request = new TerminalRequest();
+        assertTrue(server.decode(frame, TerminalProtocol.LENGTH_BYTES, end, request));
+        assertEquals("1234", request.pin);
+        
+        // The same request without its PIN
+        assertFalse(server.decode(frame, TerminalProtocol.LENGTH_BYTES, end - TerminalProtocol.PIN_BYTES,
+                                  new TerminalRequest()));
+    }
+    
+    @Test
+    public void decodeRejectsNonAsciiBytes() {
+        ByteBuffer frame = ByteBuffer.allocate(64);
+        TerminalProtocol.writeRequest(frame, TerminalProtocol.OP_WITHDRAW, 4, ascii("ACC1"), ascii("1234"), null, 100);
+        int end = frame.position();
+        int account = TerminalProtocol.LENGTH_BYTES + TerminalProtocol.MIN_REQUEST_BYTES;
+        int pin = account + 4;
+        assertTrue(server.decode(frame, TerminalProtocol.LENGTH_BYTES, end, new TerminalRequest()));
+        
+        // 0xB1 and 0xC1 would read as '1' and 'A' if the high bit were masked off
+        frame.put(pin, (byte) 0xB1);
+        assertFalse(server.decode(frame, TerminalProtocol.LENGTH_BYTES, end, new TerminalRequest()));
+        frame.put(pin, (byte) '1');
+        frame.put(account, (byte) 0xC1);
+        assertFalse(server.decode(frame, TerminalProtocol.LENGTH_BYTES, end, new TerminalRequest()));
+    }
+    
+    @Test
+    public void decodeRejectsEndBeyondBuffer() {
+        ByteBuffer frame = ByteBuffer.allocate(16);
+        frame.put(TerminalProtocol.OP_BALANCE).putInt(1).put((byte) 32);
+        frame.flip();
+        assertFalse(server.decode(frame, 0, 40, new TerminalRequest()));
+    }
+    
+    @Test
+    public void truncatedBodyGetsBadRequest() throws IOException {
+        try (SocketChannel channel = connect()) {
+            // A deposit without its amount
+            ByteBuffer frame = ByteBuffer.allocate(32);
+            frame.putInt(10).put(TerminalProtocol.OP_DEPOSIT).putInt(42).put((byte) 4).put(ascii("ACC1"));
+            send(channel, frame);
+            
+            ByteBuffer response = readResponse(channel);
+            assertEquals(42, response.getInt(TerminalProtocol.LENGTH_BYTES + 1));
+            assertEquals(TerminalProtocol.STATUS_BAD_REQUEST, response.get(TerminalProtocol.LENGTH_BYTES + 5));
+        }
+    }
+    
+    @Test
+    public void accountLengthBeyondFrameGetsBadRequest() throws IOException {
+        try (SocketChannel channel = connect()) {
+            ByteBuffer frame = ByteBuffer.allocate(32);
+            frame.putInt(8).put(TerminalProtocol.OP_BALANCE).putInt(3).put((byte) 30).put(ascii("AB"));
+            send(channel, frame);
+            
+            ByteBuffer response = readResponse(channel);
+            assertEquals(TerminalProtocol.STATUS_BAD_REQUEST, response.get(TerminalProtocol.LENGTH_BYTES + 5));
+        }
+    }
+    
+    @Test
+    public void badLengthClosesOnlyThatConnection() throws IOException {
+        int[] badLengths = { 0, 5, -1, TerminalProtocol.MAX_FRAME_BYTES + 1 };
+        for (int length : badLengths) {
+            try (SocketChannel channel = connect()) {
+                ByteBuffer frame = ByteBuffer.allocate(16);
+                frame.putInt(length).put(TerminalProtocol.OP_BALANCE).putInt(1);
+                send(channel, frame);
+                assertEquals("length " + length, -1, channel.read(ByteBuffer.allocate(32)));
+            }
+        }
+        
+        // The server is still serving new connections
+        try (SocketChannel channel = connect()) {
+            ByteBuffer frame = ByteBuffer.allocate(16);
+            frame.putInt(6).put((byte) 99).putInt(9).put((byte) 0);
+            send(channel, frame);
+            assertEquals(TerminalProtocol.STATUS_BAD_REQUEST,
+                         readResponse(channel).get(TerminalProtocol.LENGTH_BYTES + 5));
+        }
+    }
+    
+    @Test
+    public void frameSplitAcrossReadsIsDecodedOnce() throws Exception {
+        try (SocketChannel channel = connect()) {
+            ByteBuffer frame = ByteBuffer.allocate(32);
+            frame.putInt(10).put(TerminalProtocol.OP_WITHDRAW).putInt(5).put((byte) 4).put(ascii("ACC1"));
+            frame.flip();
+            ByteBuffer first = (ByteBuffer) frame.duplicate().limit(3);
+            channel.write(first);
+            Thread.sleep(50);
+            frame.position(3);
+            channel.write(frame);
+            
+            ByteBuffer response = readResponse(channel);
+            assertEquals(5, response.getInt(TerminalProtocol.LENGTH_BYTES + 1));
+            assertEquals(TerminalProtocol.STATUS_BAD_REQUEST, response.get(TerminalProtocol.LENGTH_BYTES + 5));
+        }
+    }
+    
+    private SocketChannel connect() throws IOException {
+        return SocketChannel.open(new InetSocketAddress("localhost", server.getPort()));
+    }
+    
+    private static void send(SocketChannel channel, ByteBuffer frame) throws IOException {
+        frame.flip();
+        while (frame.hasRemaining()) {
+            channel.write(frame);
+        }
+    }
+    
+    private static ByteBuffer readResponse(SocketChannel channel) throws IOException {
+        ByteBuffer response = ByteBuffer.allocate(TerminalProtocol.LENGTH_BYTES + TerminalProtocol.RESPONSE_FRAME_BYTES);
+        while (response.hasRemaining()) {
+            if (channel.read(response) < 0) {
+                throw new IOException("Connection closed");
+            }
+        }
+        assertEquals(TerminalProtocol.RESPONSE_FRAME_BYTES, response.getInt(0));
+        return response;
+    }
+    
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,268 @@
+package com.banking.testing;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * In-process stand-in for the database behind DatabaseConnection.
+ *
+ * Registers a JDBC driver for {@code jdbc:fake:} URLs and points
+ * {@code banking.db.url} at it, so code that opens its own connections runs
+ * unchanged. Fake DAOs stage their writes with {@link #put} or
+ * {@link #stage}; a commit on the same thread applies them, a rollback (or
+ * rollback to a savepoint) discards them, and {@link #get} sees the calling
+ * thread's uncommitted writes. Commits can be made to fail on demand, and a
+ * fake DAO can end the open transaction the way a deadlock does.
+ */
+public final class FakeDatabase {
+    public static final String URL = "jdbc:fake:banking";
+    
+    private static final ThreadLocal<List<Runnable>> STAGED = new ThreadLocal<List<Runnable>>() {
+        @Override
+        protected List<Runnable> initialValue() {
+            return new ArrayList<>();
+        }
+    };
+    // Replaced when a deadlock ends the transaction, invalidating its savepoints
+    private static final ThreadLocal<Object> TRANSACTION = new ThreadLocal<Object>() {
+        @Override
+        protected Object initialValue() {
+            return new Object();
+        }
+    };
+    private static final AtomicInteger FAILING_COMMITS = new AtomicInteger();
+    private static final AtomicInteger COMMITS = new AtomicInteger();
+    private static boolean installed;
+    
+    private FakeDatabase() {
+    }
+    
+    /**
+     * Register the driver and select it; call before DatabaseConnection is first used
+     */
+    public static synchronized void install() throws SQLException {
+        if (installed) {
+            return;
+        }
+        String configured = System.getProperty("banking.db.url");
+        if (configured != null && !configured.equals(URL)) {
+            throw new IllegalStateException("banking.db.url is already set to " + configured);
+        }
+        System.setProperty("banking.db.url", URL);
+        DriverManager.registerDriver(new FakeDriver());
+        installed = true;
+    }
+    
+    /**
+     * Stage a write on the calling thread's open transaction
+     * @param write Applied on commit
+     */
+    public static void stage(Runnable write) {
+        STAGED.get().add(write);
+    }
+    
+    /**
+     * Stage a keyed write on the calling thread's open transaction
+     * @param table Committed values
+     * @param key Key
+     * @param value Value to store on commit
+     */
+    public static <K, V> void put(Map<K, V> table, K key, V value) {
+        STAGED.get().add(new KeyedWrite<>(table, key, value));
+    }
+    
+    /**
+     * Read a value as the calling thread's open transaction sees it
+     * @param table Committed values
+     * @param key Key
+     * @return Latest staged value for the key, otherwise the committed one
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> V get(Map<K, V> table, K key) {
+        List<Runnable> staged = STAGED.get();
+        for (int i = staged.size() - 1; i >= 0; i--) {
+            Runnable write = staged.get(i);
+            if (write instanceof KeyedWrite && ((KeyedWrite<?, ?>) write).table == table
+                    && ((KeyedWrite<?, ?>) write).key.equals(key)) {
+                return ((KeyedWrite<K, V>) write).value;
+            }
+        }
+        return table.get(key);
+    }
+    
+    /**
+     * Roll back the calling thread's open transaction as the database does for a
+     * deadlock victim: staged writes are discarded and its savepoints stop existing
+     * @return Exception for the fake DAO to throw
+     */
+    public static SQLException deadlock() {
+        STAGED.get().clear();
+        TRANSACTION.set(new Object());
+        return new SQLException("Deadlock found when trying to get lock; try restarting transaction", "40001");
+    }
+    
+    /**
+     * Make the next commits throw instead of applying their writes
+     * @param count Number of commits to fail
+     */
+    public static void failNextCommits(int count) {
+        FAILING_COMMITS.set(count);
+    }
+    
+    public static int getCommits() {
+        return COMMITS.get();
+    }
+    
+    public static void reset() {
+        FAILING_COMMITS.set(0);
+        COMMITS.set(0);
+        STAGED.get().clear();
+    }
+    
+    private static Connection newConnection() {
+        final boolean[] autoCommit = {true};
+        final boolean[] closed = {false};
+        return (Connection) Proxy.newProxyInstance(FakeDatabase.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                List<Runnable> staged = STAGED.get();
+                switch (method.getName()) {
+                    case "setAutoCommit":
+                        autoCommit[0] = (Boolean) args[0];
+                        return null;
+                    case "getAutoCommit":
+                        return autoCommit[0];
+                    case "commit":
+                        if (FAILING_COMMITS.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                            staged.clear();
+                            throw new SQLException("Injected commit failure", "40001");
+                        }
+                        for (Runnable write : staged) {
+                            write.run();
+                        }
+                        staged.clear();
+                        COMMITS.incrementAndGet();
+                        return null;
+                    case "rollback":
+                        if (args == null) {
+                            staged.clear();
+                        } else {
+                            FakeSavepoint savepoint = (FakeSavepoint) args[0];
+                            if (savepoint.transaction != TRANSACTION.get()) {
+                                throw new SQLException("SAVEPOINT " + savepoint.getSavepointName() + " does not exist",
+                                                       "42000");
+                            }
+                            staged.subList(savepoint.mark, staged.size()).clear();
+                        }
+                        return null;
+                    case "setSavepoint":
+                        return new FakeSavepoint(staged.size(), TRANSACTION.get());
+                    case "releaseSavepoint":
+                    case "setNetworkTimeout":
+                    case "setTransactionIsolation":
+                        return null;
+                    case "close":
+                        closed[0] = true;
+                        staged.clear();
+                        return null;
+                    case "isClosed":
+                        return closed[0];
+                    case "isValid":
+                        return !closed[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "FakeConnection";
+                    default:
+                        throw new SQLFeatureNotSupportedException("Fake connection does not support " + method.getName());
+                }
+            });
+    }
+    
+    private static final class KeyedWrite<K, V> implements Runnable {
+        private final Map<K, V> table;
+        private final K key;
+        private final V value;
+        
+        KeyedWrite(Map<K, V> table, K key, V value) {
+            this.table = table;
+            this.key = key;
+            this.value = value;
+        }
+        
+        @Override
+        public void run() {
+            table.put(key, value);
+        }
+    }
+    
+    private static final class FakeSavepoint implements Savepoint {
+        private final int mark;
+        private final Object transaction;
+        
+        FakeSavepoint(int mark, Object transaction) {
+            this.mark = mark;
+            this.transaction = transaction;
+        }
+        
+        @Override
+        public int getSavepointId() {
+            return mark;
+        }
+        
+        @Override
+        public String getSavepointName() {
+            return "sp" + mark;
+        }
+    }
+    
+    private static final class FakeDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) {
+            return acceptsURL(url) ? newConnection() : null;
+        }
+        
+        @Override
+        public boolean acceptsURL(String url) {
+            return url != null && url.startsWith("jdbc:fake:");
+        }
+        
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+        
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+        
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+        
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+        
+        @Override
+        public Logger getParentLogger() {
+            return Logger.getLogger("fake");
+        }
+    }
+}
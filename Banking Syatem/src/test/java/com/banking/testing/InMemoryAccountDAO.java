@@ -0,0 +1,136 @@
+package com.banking.testing;
+
+import com.banking.dao.AccountDAO;
+import com.banking.model.Account;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AccountDAO over FakeDatabase tables, with injectable load failures and deadlocks
+ */
+public class InMemoryAccountDAO extends AccountDAO {
+    private final Map<Integer, BigDecimal> balances = new ConcurrentHashMap<>();
+    private final Map<String, Integer> idsByNumber = new ConcurrentHashMap<>();
+    private final Random random = new Random(7);
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private final AtomicInteger pendingDeadlocks = new AtomicInteger();
+    private volatile String deadlockAccountNumber;
+    private volatile double loadFailureRate;
+    
+    public void addAccount(int accountId, String accountNumber, BigDecimal balance) {
+        balances.put(accountId, balance);
+        idsByNumber.put(accountNumber, accountId);
+    }
+    
+    /**
+     * @param rate Share of account loads that throw, e.g. because the circuit breaker is open
+     */
+    public void setLoadFailureRate(double rate) {
+        this.loadFailureRate = rate;
+    }
+    
+    /**
+     * @param accountNumber Account whose locking loads deadlock
+     * @param count Number of upcoming locking loads of the account that end their transaction as deadlock victims
+     */
+    public void deadlockNextLoads(String accountNumber, int count) {
+        deadlockAccountNumber = accountNumber;
+        pendingDeadlocks.set(count);
+    }
+    
+    public long getInjectedFailures() {
+        return injectedFailures.get();
+    }
+    
+    /**
+     * @return Sum of committed balances
+     */
+    public BigDecimal getTotalBalance() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal balance : balances.values()) {
+            total = total.add(balance);
+        }
+        return total;
+    }
+    
+    public BigDecimal getCommittedBalance(int accountId) {
+        return balances.get(accountId);
+    }
+    
+    @Override
+    public Account getAccountById(int accountId) throws SQLException {
+        maybeFail();
+        BigDecimal balance = balances.get(accountId);
+        return balance == null ? null : account(accountId, balance);
+    }
+    
+    @Override
+    public Account getAccountByNumber(String accountNumber) throws SQLException {
+        Integer accountId = idsByNumber.get(accountNumber);
+        return accountId == null ? null : getAccountById(accountId);
+    }
+    
+    @Override
+    public Account getAccountByNumberForUpdate(Connection connection, String accountNumber) throws SQLException {
+        if (accountNumber != null && accountNumber.equals(deadlockAccountNumber)
+                && pendingDeadlocks.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+            throw FakeDatabase.deadlock();
+        }
+        maybeFail();
+        Integer accountId = idsByNumber.get(accountNumber);
+        if (accountId == null) {
+            return null;
+        }
+        return account(accountId, FakeDatabase.get(balances, accountId));
+    }
+    
+    @Override
+    public boolean updateBalance(Connection connection, int accountId, BigDecimal newBalance) {
+        FakeDatabase.put(balances, accountId, newBalance);
+        return true;
+    }
+    
+    @Override
+    public boolean creditBalance(Connection connection, Account account, BigDecimal amount) {
+        int accountId = account.getAccountId();
+        FakeDatabase.put(balances, accountId, FakeDatabase.get(balances, accountId).add(amount));
+        return true;
+    }
+    
+    @Override
+    public boolean debitBalance(Connection connection, Account account, BigDecimal amount) {
+        int accountId = account.getAccountId();
+        BigDecimal balance = FakeDatabase.get(balances, accountId);
+        if (balance.compareTo(amount) < 0) {
+            return false;
+        }
+        FakeDatabase.put(balances, accountId, balance.subtract(amount));
+        return true;
+    }
+    
+    private void maybeFail() throws SQLException {
+        boolean fail;
+        synchronized (random) {
+            fail = loadFailureRate > 0 && random.nextDouble() < loadFailureRate;
+        }
+        if (fail) {
+            injectedFailures.incrementAndGet();
+            throw new SQLException("Injected load failure", "08001");
+        }
+    }
+    
+    private Account account(int accountId, BigDecimal balance) {
+        Account account = new Account();
+        account.setAccountId(accountId);
+        account.setAccountNumber("ACC" + accountId);
+        account.setBalance(balance);
+        return account;
+    }
+}
@@ -0,0 +1,37 @@
+package com.banking.testing;
+
+import com.banking.dao.TransactionDAO;
+import com.banking.model.Transaction;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * TransactionDAO keeping committed transactions in memory
+ */
+public class InMemoryTransactionDAO extends TransactionDAO {
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    private final Queue<Transaction> committed = new ConcurrentLinkedQueue<>();
+    
+    public Queue<Transaction> getCommitted() {
+        return committed;
+    }
+    
+    @Override
+    public Transaction createTransaction(Connection connection, Transaction transaction) {
+        transaction.setTransactionId(nextId.getAndIncrement());
+        FakeDatabase.stage(() -> committed.add(transaction));
+        return transaction;
+    }
+    
+    @Override
+    public int createTransactions(Connection connection, List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            createTransaction(connection, transaction);
+        }
+        return transactions.size();
+    }
+}